@@ -60,6 +60,31 @@ public interface DiskStore {
    */
   public boolean getAllowForceCompaction();
 
+  /**
+   * Returns the number of oplogs that can be compacted at the same time.
+   * 
+   * @return the number of compaction threads
+   * @since 9.0
+   */
+  public int getCompactionThreads();
+
+  /**
+   * Returns the maximum number of bytes per second that compaction may write.
+   * 
+   * @return the compaction write rate limit; 0 if compaction is not throttled
+   * @since 9.0
+   */
+  public long getCompactionMaxBytesPerSecond();
+
+  /**
+   * Sets the maximum number of bytes per second that compaction may write.
+   * 
+   * @param maxBytesPerSecond the compaction write rate limit; 0 if compaction
+   *          should not be throttled
+   * @since 9.0
+   */
+  public void setCompactionMaxBytesPerSecond(long maxBytesPerSecond);
+
   /**
    * Get the maximum size in megabytes a single oplog (operation log) file should be
    *
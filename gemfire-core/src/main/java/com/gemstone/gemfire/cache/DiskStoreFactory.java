@@ -101,6 +101,20 @@ public interface DiskStoreFactory
    * <p>Current value: <code>99</code>.
    */
   public static final float DEFAULT_DISK_USAGE_CRITICAL_PERCENTAGE = 99;
+
+  /**
+   * The default number of oplogs that can be compacted at the same time.
+   * <p>Current value: <code>1</code>.
+   * @since 9.0
+   */
+  public static final int DEFAULT_COMPACTION_THREADS = 1;
+
+  /**
+   * The default maximum number of bytes per second that compaction may write.
+   * <p>Current value: <code>0</code> which means compaction is not throttled.
+   * @since 9.0
+   */
+  public static final long DEFAULT_COMPACTION_MAX_BYTES_PER_SECOND = 0;
   
   /** 
    * Set to <code>true</code> to cause the disk files to be automatically compacted.
@@ -131,6 +145,29 @@ public interface DiskStoreFactory
    */
   public DiskStoreFactory setAllowForceCompaction(boolean allowForceCompaction);
 
+  /**
+   * Sets the number of oplogs that can be compacted at the same time.
+   * The compactable oplogs with the most garbage are compacted first.
+   * 
+   * @param compactionThreads the number of threads that compact oplogs
+   * @return a reference to <code>this</code>
+   * @since 9.0
+   */
+  public DiskStoreFactory setCompactionThreads(int compactionThreads);
+
+  /**
+   * Sets the maximum number of bytes per second that compaction may copy
+   * forward to the active oplog. This limit is shared by all of the oplogs
+   * being compacted so that compaction does not compete with region
+   * operations for disk bandwidth.
+   * 
+   * @param maxBytesPerSecond the compaction write rate limit; 0 if
+   *          compaction should not be throttled
+   * @return a reference to <code>this</code>
+   * @since 9.0
+   */
+  public DiskStoreFactory setCompactionMaxBytesPerSecond(long maxBytesPerSecond);
+
   /** 
    * Sets the maximum size in megabytes a single oplog (operation log) is allowed to be.
    * When an oplog is created this amount of file space will be immediately reserved.
@@ -0,0 +1,93 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.asyncqueue;
+
+import java.util.List;
+
+import com.gemstone.gemfire.cache.Operation;
+import com.gemstone.gemfire.pdx.PdxInstance;
+
+/**
+ * A batch of events delivered to an {@link AsyncEventBatchListener}, exposed
+ * as columns. The element <code>i</code> of every array returned by a batch
+ * describes its event <code>i</code>, in queue order.
+ * <p>
+ * The values are exposed in their serialized form so that a listener writing
+ * them to another store does not need to deserialize them. The value of a
+ * PDX serialized object can be read field by field with
+ * {@link #getPdxInstance(int)} without loading its domain class.
+ * <p>
+ * A batch, and the arrays it returns, may only be used until
+ * {@link AsyncEventBatchListener#processBatch(AsyncEventBatch)} returns. The
+ * arrays must not be modified.
+ *
+ * @since 9.0
+ */
+public interface AsyncEventBatch {
+
+  /**
+   * Returns the number of events of this batch.
+   */
+  public int size();
+
+  /**
+   * Returns the keys of the events.
+   */
+  public Object[] getKeys();
+
+  /**
+   * Returns the operations that triggered the events.
+   */
+  public Operation[] getOperations();
+
+  /**
+   * Returns the full paths of the regions of the events.
+   */
+  public String[] getRegionPaths();
+
+  /**
+   * Returns the values of the events. The value of an event is serialized if
+   * {@link #isSerializedObject(int)} is true for it, or else it is the
+   * <code>byte[]</code> put in the region. The value of an event without a
+   * value, like a destroy, is null.
+   */
+  public byte[][] getSerializedValues();
+
+  /**
+   * Returns whether the value of the given event is a serialized object, or
+   * false if it is a <code>byte[]</code> or there is no value.
+   *
+   * @param index
+   *          the index of the event in this batch
+   */
+  public boolean isSerializedObject(int index);
+
+  /**
+   * Returns the deserialized value of the given event.
+   *
+   * @param index
+   *          the index of the event in this batch
+   */
+  public Object getDeserializedValue(int index);
+
+  /**
+   * Returns a <code>PdxInstance</code> reading the fields of the value of the
+   * given event from its serialized form, or null if the value is not PDX
+   * serialized.
+   *
+   * @param index
+   *          the index of the event in this batch
+   */
+  public PdxInstance getPdxInstance(int index);
+
+  /**
+   * Returns the events of this batch, as they are given to
+   * {@link AsyncEventListener#processEvents(List)}.
+   */
+  public List<AsyncEvent> getEvents();
+}
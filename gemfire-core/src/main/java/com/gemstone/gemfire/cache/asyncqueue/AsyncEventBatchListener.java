@@ -0,0 +1,38 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.asyncqueue;
+
+import java.util.List;
+
+/**
+ * An <code>AsyncEventListener</code> that processes the batches of its
+ * <code>AsyncEventQueue</code> as {@link AsyncEventBatch}es, with the keys,
+ * operations and serialized values of the events in arrays. This suits a
+ * listener writing the batches to another store in bulk, for instance with
+ * the batched statements of a database.
+ * <p>
+ * The queue calls {@link #processBatch(AsyncEventBatch)} instead of
+ * {@link #processEvents(List)} for a listener implementing this interface.
+ *
+ * @since 9.0
+ */
+public interface AsyncEventBatchListener extends AsyncEventListener {
+
+  /**
+   * Processes a batch of events. This method is called asynchronously when
+   * events are queued to be processed. The batch has up to batch size
+   * events, where the batch size is defined in the
+   * <code>AsyncEventQueueFactory</code>.
+   *
+   * @param batch
+   *          the batch of events to process
+   *
+   * @return true if the events were successfully processed, false otherwise
+   */
+  public boolean processBatch(AsyncEventBatch batch);
+}
@@ -27,6 +27,11 @@ public interface Connection {
   
   public Socket getSocket();
   public ByteBuffer getCommBuffer() throws SocketException;
+  /**
+   * Returns the buffer used to read the acknowledgements of a gateway sender
+   * on this connection while batches are sent with the other buffer.
+   */
+  public ByteBuffer getCommBufferForAsyncRead() throws SocketException;
   public ConnectionStats getStats();
   /**
    * Forcefully close the resources used by this connection.
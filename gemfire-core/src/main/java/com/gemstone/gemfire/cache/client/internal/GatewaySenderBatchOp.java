@@ -0,0 +1,287 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.client.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gemstone.gemfire.InternalGemFireError;
+import com.gemstone.gemfire.cache.client.ServerOperationException;
+import com.gemstone.gemfire.internal.Version;
+import com.gemstone.gemfire.internal.cache.tier.MessageType;
+import com.gemstone.gemfire.internal.cache.tier.sockets.Message;
+import com.gemstone.gemfire.internal.cache.tier.sockets.Part;
+import com.gemstone.gemfire.internal.cache.wan.BatchException70;
+import com.gemstone.gemfire.internal.cache.wan.GatewayAck;
+import com.gemstone.gemfire.internal.cache.wan.GatewaySenderEventImpl;
+
+/**
+ * Sends a batch of events of a <code>GatewaySender</code> to a
+ * <code>GatewayReceiver</code>, and reads the acknowledgements of the batches
+ * separately. The send does not wait for the acknowledgement of the batch, so
+ * that several batches can be in flight on the same connection; the receiver
+ * processes the batches of a connection in order, so their acknowledgements
+ * come back in the order the batches were sent.
+ *
+ * @since 9.0
+ */
+public class GatewaySenderBatchOp {
+
+  /** Action of the events the receiver applies to the region entries */
+  private static final int MAX_RECEIVER_ACTION = 3;
+
+  /**
+   * Sends a batch of events on the given connection without reading its
+   * acknowledgement.
+   *
+   * @param con
+   *          the connection to send the batch on
+   * @param pool
+   *          the pool of the connection
+   * @param events
+   *          the <code>GatewaySenderEventImpl</code>s of the batch
+   * @param batchId
+   *          the id of the batch, one more than the id of the previous batch
+   *          sent on this connection
+   * @param dsId
+   *          the distributed system id of the sender
+   * @param removeFromQueueOnException
+   *          whether the receiver should continue with the rest of the batch
+   *          when an event fails
+   */
+  public static void executeOn(Connection con, ExecutablePool pool,
+      List events, int batchId, int dsId, boolean removeFromQueueOnException) {
+    AbstractOp op = new GatewaySenderBatchOpImpl(events, batchId, dsId,
+        removeFromQueueOnException);
+    pool.executeOn(con, op, true/* timeoutFatal */);
+  }
+
+  /**
+   * Reads the acknowledgement of the oldest batch sent on the given connection
+   * that has not been acknowledged yet. It is read with the buffer of the
+   * connection reserved for asynchronous reads, so that batches can be sent
+   * while it waits.
+   *
+   * @return the {@link GatewayAck} of the batch
+   */
+  public static GatewayAck readAck(Connection con, ExecutablePool pool) {
+    AbstractOp op = new GatewaySenderAckOpImpl();
+    return (GatewayAck)pool.executeOn(con, op, true/* timeoutFatal */);
+  }
+
+  private GatewaySenderBatchOp() {
+    // no instances allowed
+  }
+
+  private static class GatewaySenderBatchOpImpl extends AbstractOp {
+
+    GatewaySenderBatchOpImpl(List events, int batchId, int dsId,
+        boolean removeFromQueueOnException) {
+      super(MessageType.GATEWAY_RECEIVER_COMMAND, calcPartCount(events));
+      List<GatewaySenderEventImpl> sendable = sendableEvents(events);
+      getMessage().addIntPart(sendable.size());
+      getMessage().addIntPart(batchId);
+      getMessage().addIntPart(dsId);
+      getMessage().addBytesPart(
+          new byte[] { removeFromQueueOnException ? (byte)1 : (byte)0 });
+      for (GatewaySenderEventImpl event : sendable) {
+        int action = event.getAction();
+        getMessage().addIntPart(action);
+        getMessage().addBytesPart(
+            new byte[] { event.getPossibleDuplicate() ? (byte)1 : (byte)0 });
+        getMessage().addStringPart(event.getRegionPath());
+        getMessage().addObjPart(event.getEventId());
+        getMessage().addStringOrObjPart(event.getKey());
+        if (action == 0 || action == 1) {
+          // the value is sent in its serialized form and applied as is
+          getMessage().addRawPart(event.getSerializedValue(),
+              event.getValueIsObject() == 1);
+        }
+        Object callbackArg = event.getSenderCallbackArgument();
+        if (callbackArg == null) {
+          getMessage().addBytesPart(new byte[] { 0 });
+        }
+        else {
+          getMessage().addBytesPart(new byte[] { 1 });
+          getMessage().addObjPart(callbackArg);
+        }
+        getMessage().addLongPart(event.getVersionTimeStamp());
+      }
+    }
+
+    /**
+     * Returns the events the receiver knows how to apply. Invalidates are not
+     * distributed to remote sites.
+     */
+    private static List<GatewaySenderEventImpl> sendableEvents(List events) {
+      List<GatewaySenderEventImpl> sendable = new ArrayList<GatewaySenderEventImpl>(
+          events.size());
+      for (Object o : events) {
+        GatewaySenderEventImpl event = (GatewaySenderEventImpl)o;
+        if (event.getAction() <= MAX_RECEIVER_ACTION) {
+          sendable.add(event);
+        }
+      }
+      return sendable;
+    }
+
+    private static int calcPartCount(List events) {
+      int numParts = 4;
+      for (Object o : events) {
+        GatewaySenderEventImpl event = (GatewaySenderEventImpl)o;
+        if (event.getAction() <= MAX_RECEIVER_ACTION) {
+          numParts += event.getNumberOfParts();
+        }
+      }
+      return numParts;
+    }
+
+    @Override
+    protected void processSecureBytes(Connection cnx, Message message)
+        throws Exception {
+    }
+
+    @Override
+    protected boolean needsUserId() {
+      return false;
+    }
+
+    @Override
+    protected void sendMessage(Connection cnx) throws Exception {
+      getMessage().setEarlyAck((byte)(getMessage().getEarlyAckByte() & Message.MESSAGE_HAS_SECURE_PART));
+      getMessage().send(false);
+    }
+
+    @Override
+    protected Object attemptReadResponse(Connection cnx) throws Exception {
+      // the acknowledgement is read by GatewaySenderAckOpImpl
+      return null;
+    }
+
+    @Override
+    protected Object processResponse(Message msg) throws Exception {
+      return null;
+    }
+
+    @Override
+    protected boolean isErrorResponse(int msgType) {
+      return false;
+    }
+
+    @Override
+    protected long startAttempt(ConnectionStats stats) {
+      return stats.startGatewayBatch();
+    }
+
+    @Override
+    protected void endSendAttempt(ConnectionStats stats, long start) {
+      stats.endGatewayBatchSend(start, hasFailed());
+    }
+
+    @Override
+    protected void endAttempt(ConnectionStats stats, long start) {
+      stats.endGatewayBatch(start, hasTimedOut(), hasFailed());
+    }
+
+    @Override
+    public boolean isGatewaySenderOp() {
+      return true;
+    }
+  }
+
+  private static class GatewaySenderAckOpImpl extends AbstractOp {
+
+    GatewaySenderAckOpImpl() {
+      super(MessageType.GATEWAY_RECEIVER_COMMAND, 0);
+    }
+
+    @Override
+    protected void attemptSend(Connection cnx) throws Exception {
+      // nothing is sent, the acknowledgement of a batch already sent is read
+    }
+
+    @Override
+    protected void processSecureBytes(Connection cnx, Message message)
+        throws Exception {
+    }
+
+    @Override
+    protected boolean needsUserId() {
+      return false;
+    }
+
+    @Override
+    protected Object attemptReadResponse(Connection cnx) throws Exception {
+      Message msg = createResponseMessage();
+      msg.setComms(cnx.getSocket(), cnx.getInputStream(),
+          cnx.getOutputStream(), cnx.getCommBufferForAsyncRead(),
+          cnx.getStats());
+      try {
+        msg.recv();
+      } finally {
+        msg.unsetComms();
+      }
+      return processResponse(msg);
+    }
+
+    @Override
+    protected Message createResponseMessage() {
+      return new Message(2, Version.CURRENT);
+    }
+
+    @Override
+    protected Object processResponse(Message msg) throws Exception {
+      switch (msg.getMessageType()) {
+      case MessageType.REPLY:
+        return new GatewayAck(msg.getPart(0).getInt(), msg.getPart(1)
+            .getInt());
+      case MessageType.EXCEPTION:
+        Part part = msg.getPart(0);
+        Object obj = part.getObject();
+        if (obj instanceof List) {
+          List<BatchException70> exceptions = (List<BatchException70>)obj;
+          return new GatewayAck(new BatchException70(exceptions), exceptions
+              .get(0).getBatchId());
+        }
+        if (obj instanceof Throwable) {
+          String s = "While processing batch acknowledgement "
+              + ((Throwable)obj).getMessage();
+          throw new ServerOperationException(s, (Throwable)obj);
+        }
+        throw new ServerOperationException(
+            "Unexpected exception in batch acknowledgement: " + obj);
+      default:
+        throw new InternalGemFireError("Unknown message type "
+            + msg.getMessageType());
+      }
+    }
+
+    @Override
+    protected boolean isErrorResponse(int msgType) {
+      return false;
+    }
+
+    @Override
+    protected long startAttempt(ConnectionStats stats) {
+      return 0;
+    }
+
+    @Override
+    protected void endSendAttempt(ConnectionStats stats, long start) {
+    }
+
+    @Override
+    protected void endAttempt(ConnectionStats stats, long start) {
+    }
+
+    @Override
+    public boolean isGatewaySenderOp() {
+      return true;
+    }
+  }
+}
@@ -127,6 +127,10 @@ public class QueueConnectionImpl implements Connection {
     return getConnection().getCommBuffer();
   }
 
+  public ByteBuffer getCommBufferForAsyncRead() throws SocketException {
+    return getConnection().getCommBufferForAsyncRead();
+  }
+
   public Endpoint getEndpoint() {
     return this.endpoint;
   }
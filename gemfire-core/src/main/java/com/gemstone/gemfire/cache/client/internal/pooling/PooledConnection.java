@@ -283,6 +283,10 @@ class PooledConnection implements Connection {
     return getConnection().getCommBuffer();
   }
 
+  public ByteBuffer getCommBufferForAsyncRead() throws SocketException {
+    return getConnection().getCommBufferForAsyncRead();
+  }
+
   public Socket getSocket() {
     return getConnection().getSocket();
   }
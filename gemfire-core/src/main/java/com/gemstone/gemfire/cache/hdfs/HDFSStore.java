@@ -32,6 +32,7 @@ import com.gemstone.gemfire.cache.wan.GatewaySender;
 public interface HDFSStore {
   public static final String DEFAULT_HOME_DIR = "gemfire";
   public static final float DEFAULT_BLOCK_CACHE_SIZE = 10f;
+  public static final float DEFAULT_BLOOM_FILTER_FALSE_POSITIVE_RATE = 0.01f;
   public static final int DEFAULT_WRITE_ONLY_FILE_SIZE_LIMIT = 256;
   public static final int DEFAULT_WRITE_ONLY_FILE_ROLLOVER_INTERVAL = 3600;
 
@@ -74,6 +75,11 @@ public interface HDFSStore {
    * 
    * HDFSStore will use the selected URL only. It will fail if the selected URL
    * is not reachable.
+   * <p>
+   * A URL with the <code>file</code> scheme, for example
+   * <code>file:///data/archive</code>, stores the files on a local or network
+   * mounted file system instead of a HDFS cluster. A relative HomeDir is then
+   * created in the directory of the URL.
    * 
    * @return Namenode url explicitly configured by user
    */
@@ -116,11 +122,27 @@ public interface HDFSStore {
   public int getMaxMemory();
 
   /**
-   * @return the percentage of the heap to use for the block cache in the range
-   *         0 ... 100
+   * The block cache keeps the recently read blocks of the HDFS files. It is
+   * shared by all the HDFSStores of the cache, each store adds its block cache
+   * size to the size of the shared cache. The blocks are kept in the off-heap
+   * memory of the cache when it has some.
+   * 
+   * @return the percentage of the heap, or of the off-heap memory, to use for
+   *         the block cache in the range 0 ... 100
    */
   public float getBlockCacheSize();
 
+  /**
+   * Each file written by HDFSStore has a bloom filter of its keys, which lets
+   * a read skip the files that do not have the key. A lower rate saves more of
+   * the reads of keys that are not in a file, at the cost of bigger bloom
+   * filters.
+   * 
+   * @return the false positive rate of the bloom filters of the files written
+   *         by this store, between 0 and 1 exclusive
+   */
+  public float getBloomFilterFalsePositiveRate();
+
   /**
    * HDFSStore buffer data is persisted on HDFS in batches. The BatchSize
    * defines the maximum size (in megabytes) of each batch that is written to
@@ -53,6 +53,14 @@ public interface HDFSStoreFactory {
    */
   public HDFSStoreFactory setBlockCacheSize(float value);
 
+  /**
+   * Default value {@link HDFSStore#DEFAULT_BLOOM_FILTER_FALSE_POSITIVE_RATE}
+   * @see HDFSStore#getBloomFilterFalsePositiveRate()
+   * @exception IllegalArgumentException
+   *              if the {@code value} is not more than 0 and less than 1
+   */
+  public HDFSStoreFactory setBloomFilterFalsePositiveRate(float value);
+
   /**
    * Default value {@link HDFSStore#DEFAULT_WRITE_ONLY_FILE_SIZE_LIMIT}
    * @see HDFSStore#getWriteOnlyFileRolloverSize()
@@ -0,0 +1,559 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.hdfs.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.io.hfile.BlockCache;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheColumnFamilySummary;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheKey;
+import org.apache.hadoop.hbase.io.hfile.CacheStats;
+import org.apache.hadoop.hbase.io.hfile.Cacheable;
+import org.apache.hadoop.hbase.io.hfile.CacheableDeserializer;
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.OutOfOffHeapMemoryException;
+import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HoplogConfig;
+import com.gemstone.gemfire.internal.cache.persistence.soplog.HFileStoreStatistics;
+import com.gemstone.gemfire.internal.cache.persistence.soplog.HFileStoreStatistics.CacheOperation;
+import com.gemstone.gemfire.internal.logging.LogService;
+import com.gemstone.gemfire.internal.offheap.MemoryAllocator;
+import com.gemstone.gemfire.internal.offheap.MemoryChunk;
+import com.gemstone.gemfire.internal.offheap.SimpleMemoryAllocatorImpl.GemFireChunk;
+
+/**
+ * The block cache shared by the hoplogs of all the hdfs stores of a cache.
+ * Each store adds its block cache size to the capacity of the shared cache and
+ * reads and caches blocks through its own {@link StoreBlockCache}, which
+ * records the hits and misses of the store in the statistics of the store.
+ * When the cache is full the least recently read blocks are evicted, whichever
+ * store cached them. Like the LRU of the regions, the cache approximates the
+ * read order with a clock: the blocks are listed in the order they were cached,
+ * a read marks a block as recently used, and the eviction moves a marked block
+ * to the end of the list instead of evicting it.
+ * <p>
+ * The blocks are kept in the off-heap memory of the cache when it has some,
+ * serialized, and on the heap otherwise. Blocks are only cached off-heap while
+ * the off-heap memory has more than its reserve free, see
+ * {@link HoplogConfig#BLOCK_CACHE_OFF_HEAP_RESERVE_PERCENT}, and a block is not
+ * cached if no free chunk of the off-heap memory is large enough for it.
+ * <p>
+ * HBase names the blocks after the name of their file, which is not unique
+ * across the buckets of the regions, so the blocks of a hoplog are cached
+ * through a {@link StoreBlockCache#getHoplogBlockCache(String) view} of the
+ * store cache for the hoplog.
+ *
+ * @since 9.0
+ */
+public final class HDFSBlockCache {
+  private static final Logger logger = LogService.getLogger();
+
+  /**
+   * An eviction frees the cache down to this fraction of its capacity, so that
+   * it does not run again for every block cached.
+   */
+  private static final float EVICTION_FACTOR = 0.9f;
+
+  // the cache of the stores of the cache, guarded by HDFSBlockCache.class
+  private static HDFSBlockCache instance;
+
+  private final MemoryAllocator offHeap;
+
+  private final long offHeapReserve;
+
+  private final ConcurrentHashMap<BlockKey, CachedBlock> blocks = new ConcurrentHashMap<BlockKey, CachedBlock>();
+
+  // the number of bytes cached
+  private final AtomicLong size = new AtomicLong();
+
+  // the head of the circular list of the cached blocks, oldest first. The list
+  // is guarded by its head
+  private final CachedBlock lruList = new CachedBlock(null, null, 0, null, null, null);
+
+  private final AtomicLong evicted = new AtomicLong();
+
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  private final CacheStats cacheStats = new CacheStats();
+
+  // the sum of the capacities of the stores, written under HDFSBlockCache.class
+  private volatile long capacity;
+
+  // guarded by HDFSBlockCache.class
+  private int stores;
+
+  /**
+   * @param offHeap
+   *          the off-heap memory to keep the blocks in, or null to keep them
+   *          on the heap
+   */
+  HDFSBlockCache(MemoryAllocator offHeap) {
+    this.lruList.prev = this.lruList;
+    this.lruList.next = this.lruList;
+    this.offHeap = offHeap;
+    this.offHeapReserve = offHeap == null ? 0 : offHeap.getTotalMemory()
+        * Integer.getInteger(HoplogConfig.BLOCK_CACHE_OFF_HEAP_RESERVE_PERCENT,
+            HoplogConfig.BLOCK_CACHE_OFF_HEAP_RESERVE_PERCENT_DEFAULT) / 100;
+  }
+
+  /**
+   * Adds a store to the block cache shared by the stores of the cache, creating
+   * the shared cache for the first store.
+   *
+   * @param capacity
+   *          the number of bytes the store adds to the capacity of the shared
+   *          cache
+   * @param stats
+   *          the statistics of the store
+   * @param offHeap
+   *          the off-heap memory of the cache, or null to keep the blocks on
+   *          the heap
+   * @return the block cache of the store
+   */
+  public static synchronized StoreBlockCache addStore(long capacity,
+      HFileStoreStatistics stats, MemoryAllocator offHeap) {
+    if (instance == null || instance.offHeap != offHeap) {
+      instance = new HDFSBlockCache(offHeap);
+    }
+    StoreBlockCache store = instance.new StoreBlockCache(capacity, stats);
+    instance.capacity += capacity;
+    instance.stores++;
+    if (logger.isDebugEnabled()) {
+      logger.debug("Added {} bytes to the {} block cache, its capacity is {} bytes",
+          capacity, offHeap == null ? "heap" : "off-heap", instance.capacity);
+    }
+    return store;
+  }
+
+  private void removeStore(StoreBlockCache store) {
+    synchronized (HDFSBlockCache.class) {
+      this.capacity -= store.capacity;
+      this.stores--;
+      if (this.stores == 0 && instance == this) {
+        instance = null;
+      }
+    }
+    // a closed store does not read its blocks anymore
+    for (CachedBlock block : this.blocks.values()) {
+      if (block.owner == store) {
+        evict(block);
+      }
+    }
+    evictIfFull();
+  }
+
+  private void cacheBlock(StoreBlockCache store, BlockKey key, Cacheable buf) {
+    if (this.blocks.containsKey(key)) {
+      return;
+    }
+    CachedBlock block = newBlock(store, key, buf);
+    if (block == null) {
+      return;
+    }
+    if (this.blocks.putIfAbsent(key, block) != null) {
+      block.release();
+      return;
+    }
+    appendToLruList(block);
+    this.size.addAndGet(block.size);
+    store.stats.store(block.size);
+    if (store.closed) {
+      evict(block);
+    }
+    evictIfFull();
+  }
+
+  private CachedBlock newBlock(StoreBlockCache store, BlockKey key, Cacheable buf) {
+    if (this.offHeap == null) {
+      return new CachedBlock(key, store, buf.heapSize(), buf, null, null);
+    }
+    int length = buf.getSerializedLength();
+    if (this.offHeap.getFreeMemory() - length <= this.offHeapReserve) {
+      return null;
+    }
+    MemoryChunk chunk;
+    try {
+      // the block is read from its hoplog again rather than close the cache
+      chunk = this.offHeap.allocateIfAvailable(length, GemFireChunk.TYPE);
+    } catch (OutOfOffHeapMemoryException e) {
+      if (logger.isDebugEnabled()) {
+        logger.debug("Not caching the block {} of {} bytes: {}", key.key, length, e.getMessage());
+      }
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buf.serialize(ByteBuffer.wrap(bytes));
+    chunk.writeBytes(0, bytes);
+    return new CachedBlock(key, store, length, null, chunk, buf.getDeserializer());
+  }
+
+  private Cacheable getBlock(StoreBlockCache store, BlockKey key,
+      boolean caching, boolean repeat) {
+    CachedBlock block = this.blocks.get(key);
+    if (block != null) {
+      Cacheable buf = block.get();
+      if (buf != null) {
+        block.recentlyUsed = true;
+        this.cacheStats.hit(caching);
+        store.stats.hit();
+        return buf;
+      }
+    }
+    if (!repeat) {
+      this.cacheStats.miss(caching);
+      store.stats.miss();
+    }
+    return null;
+  }
+
+  private boolean evictBlock(BlockKey key) {
+    CachedBlock block = this.blocks.get(key);
+    return block != null && evict(block);
+  }
+
+  private int evictFile(String file, String hfileName) {
+    int count = 0;
+    for (CachedBlock block : this.blocks.values()) {
+      if (block.key.isOf(file, hfileName) && evict(block)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private void evictIfFull() {
+    if (this.size.get() <= this.capacity || !this.evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      if (this.size.get() <= this.capacity) {
+        return;
+      }
+      long target = (long)(this.capacity * EVICTION_FACTOR);
+      this.cacheStats.evict();
+      while (this.size.get() > target) {
+        CachedBlock block = leastRecentlyUsed();
+        if (block == null) {
+          break;
+        }
+        if (evict(block)) {
+          this.cacheStats.evicted();
+        }
+      }
+    } finally {
+      this.evictionLock.unlock();
+    }
+  }
+
+  private boolean evict(CachedBlock block) {
+    if (!this.blocks.remove(block.key, block)) {
+      return false;
+    }
+    removeFromLruList(block);
+    this.size.addAndGet(-block.size);
+    this.evicted.incrementAndGet();
+    block.owner.stats.evict(block.size);
+    block.release();
+    return true;
+  }
+
+  private void appendToLruList(CachedBlock block) {
+    synchronized (this.lruList) {
+      // the block may have been evicted since it was added to the map
+      if (block.evicted) {
+        return;
+      }
+      block.prev = this.lruList.prev;
+      block.next = this.lruList;
+      this.lruList.prev.next = block;
+      this.lruList.prev = block;
+    }
+  }
+
+  private void removeFromLruList(CachedBlock block) {
+    synchronized (this.lruList) {
+      block.evicted = true;
+      if (block.next != null) {
+        block.prev.next = block.next;
+        block.next.prev = block.prev;
+        block.prev = null;
+        block.next = null;
+      }
+    }
+  }
+
+  /**
+   * Returns the oldest block that was not read since the eviction last passed
+   * it, or null if no block is cached. The blocks read since then are moved to
+   * the end of the list and unmarked.
+   */
+  private CachedBlock leastRecentlyUsed() {
+    synchronized (this.lruList) {
+      CachedBlock block = this.lruList.next;
+      while (block != this.lruList) {
+        if (!block.recentlyUsed) {
+          return block;
+        }
+        block.recentlyUsed = false;
+        CachedBlock next = block.next;
+        block.prev.next = next;
+        next.prev = block.prev;
+        block.prev = this.lruList.prev;
+        block.next = this.lruList;
+        this.lruList.prev.next = block;
+        this.lruList.prev = block;
+        block = next;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * The block cache of a store, or of a hoplog of the store. It caches the
+   * blocks in the cache shared by the stores.
+   */
+  public final class StoreBlockCache implements BlockCache {
+    // the cache of the whole store
+    private final StoreBlockCache store;
+
+    // the qualified path of the hoplog, or null for the whole store
+    private final String file;
+
+    private final long capacity;
+
+    private final CacheOperation stats;
+
+    private volatile boolean closed;
+
+    StoreBlockCache(long capacity, HFileStoreStatistics stats) {
+      this.store = this;
+      this.file = null;
+      this.capacity = capacity;
+      this.stats = stats.getBlockCache();
+    }
+
+    private StoreBlockCache(StoreBlockCache store, String file) {
+      this.store = store;
+      this.file = file;
+      this.capacity = store.capacity;
+      this.stats = store.stats;
+    }
+
+    /**
+     * Returns the block cache to read the blocks of the given hoplog of this
+     * store through.
+     *
+     * @param file
+     *          the qualified path of the hoplog
+     */
+    public BlockCache getHoplogBlockCache(String file) {
+      return new StoreBlockCache(this.store, file);
+    }
+
+    @Override
+    public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf, boolean inMemory) {
+      cacheBlock(cacheKey, buf);
+    }
+
+    @Override
+    public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf) {
+      HDFSBlockCache.this.cacheBlock(this.store, new BlockKey(this.file, cacheKey), buf);
+    }
+
+    @Override
+    public Cacheable getBlock(BlockCacheKey cacheKey, boolean caching, boolean repeat) {
+      return HDFSBlockCache.this.getBlock(this.store, new BlockKey(this.file, cacheKey), caching, repeat);
+    }
+
+    @Override
+    public boolean evictBlock(BlockCacheKey cacheKey) {
+      return HDFSBlockCache.this.evictBlock(new BlockKey(this.file, cacheKey));
+    }
+
+    @Override
+    public int evictBlocksByHfileName(String hfileName) {
+      return evictFile(this.file, hfileName);
+    }
+
+    /**
+     * Returns the statistics of the shared cache. The statistics of the store
+     * are in its {@link HFileStoreStatistics}.
+     */
+    @Override
+    public CacheStats getStats() {
+      return cacheStats;
+    }
+
+    /**
+     * Removes the store from the shared cache, and evicts its blocks.
+     */
+    @Override
+    public void shutdown() {
+      if (this.store == this) {
+        synchronized (this) {
+          if (this.closed) {
+            return;
+          }
+          this.closed = true;
+        }
+        removeStore(this);
+      }
+    }
+
+    @Override
+    public long size() {
+      return blocks.size();
+    }
+
+    @Override
+    public long getFreeSize() {
+      return HDFSBlockCache.this.capacity - size.get();
+    }
+
+    /**
+     * Returns the number of bytes cached by the stores in the shared cache.
+     */
+    @Override
+    public long getCurrentSize() {
+      return size.get();
+    }
+
+    @Override
+    public long getEvictedCount() {
+      return evicted.get();
+    }
+
+    @Override
+    public long getBlockCount() {
+      return blocks.size();
+    }
+
+    @Override
+    public List<BlockCacheColumnFamilySummary> getBlockCacheColumnFamilySummaries(
+        Configuration conf) throws IOException {
+      return Collections.emptyList();
+    }
+  }
+
+  /**
+   * The key of a cached block, qualified by the path of its hoplog.
+   */
+  private static final class BlockKey {
+    private final String file;
+
+    private final BlockCacheKey key;
+
+    BlockKey(String file, BlockCacheKey key) {
+      this.file = file;
+      this.key = key;
+    }
+
+    boolean isOf(String file, String hfileName) {
+      return (file == null ? this.file == null : file.equals(this.file))
+          && hfileName.equals(this.key.getHfileName());
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * this.key.hashCode()
+          + (this.file == null ? 0 : this.file.hashCode());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof BlockKey)) {
+        return false;
+      }
+      BlockKey other = (BlockKey)obj;
+      return this.key.equals(other.key)
+          && (this.file == null ? other.file == null : this.file.equals(other.file));
+    }
+  }
+
+  /**
+   * A block in the cache, on the heap or serialized off-heap.
+   */
+  private static final class CachedBlock {
+    final BlockKey key;
+
+    final StoreBlockCache owner;
+
+    final long size;
+
+    // the block when it is kept on the heap
+    private final Cacheable buf;
+
+    private final CacheableDeserializer<Cacheable> deserializer;
+
+    // the serialized block when it is kept off-heap, null once released
+    private MemoryChunk chunk;
+
+    // whether the block was read since the eviction last passed it
+    volatile boolean recentlyUsed;
+
+    // the neighbours of the block in the LRU list, guarded by the list
+    CachedBlock prev;
+
+    CachedBlock next;
+
+    // whether the block was removed from the LRU list, guarded by the list
+    boolean evicted;
+
+    CachedBlock(BlockKey key, StoreBlockCache owner, long size, Cacheable buf,
+        MemoryChunk chunk, CacheableDeserializer<Cacheable> deserializer) {
+      this.key = key;
+      this.owner = owner;
+      this.size = size;
+      this.buf = buf;
+      this.chunk = chunk;
+      this.deserializer = deserializer;
+    }
+
+    /**
+     * Returns the block, or null if it was evicted while it was read.
+     */
+    Cacheable get() {
+      if (this.buf != null) {
+        return this.buf;
+      }
+      byte[] bytes;
+      synchronized (this) {
+        if (this.chunk == null) {
+          return null;
+        }
+        bytes = new byte[(int)this.size];
+        this.chunk.readBytes(0, bytes);
+      }
+      try {
+        return this.deserializer.deserialize(ByteBuffer.wrap(bytes));
+      } catch (IOException e) {
+        if (logger.isDebugEnabled()) {
+          logger.debug("Failed to deserialize the cached block {}", this.key.key, e);
+        }
+        return null;
+      }
+    }
+
+    synchronized void release() {
+      if (this.chunk != null) {
+        this.chunk.release();
+        this.chunk = null;
+      }
+    }
+  }
+}
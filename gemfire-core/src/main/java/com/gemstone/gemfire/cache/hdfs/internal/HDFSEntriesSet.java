@@ -64,6 +64,18 @@ public class HDFSEntriesSet extends AbstractSet {
     return iter;
   }
 
+  /**
+   * Returns an iterator over the raw events of the keys between the given
+   * serialized keys, in serialized key order. The caller must close the
+   * iterator.
+   * 
+   * @param from the inclusive start key, or null to start at the first key
+   * @param to the exclusive end key, or null to end at the last key
+   */
+  public HDFSIterator iterator(byte[] from, byte[] to) {
+    return new HDFSIterator(null, region.getPartitionedRegion(), false, from, to);
+  }
+
   @Override
   public int size() {
     // TODO this is the tortoise version, need a fast version for estimation
@@ -97,7 +109,10 @@ public class HDFSEntriesSet extends AbstractSet {
     return true;
   }
 
-  private boolean includeEntry(Object val) {
+  /**
+   * Returns false if the raw event returned by an iterator is a destroy.
+   */
+  public static boolean includeEntry(Object val) {
     if (val instanceof HDFSGatewayEventImpl) {
       HDFSGatewayEventImpl evt = (HDFSGatewayEventImpl) val;
       if (evt.getOperation().isDestroy()) {
@@ -126,10 +141,21 @@ public class HDFSEntriesSet extends AbstractSet {
     private boolean hasTxEntry;
 
     private byte[] currentHdfsKey;
+    private byte[] lastKey;
+
+    private final byte[] from;
+    private final byte[] to;
 
     public HDFSIterator(IteratorType type, Region region, boolean deserialize) {
+      this(type, region, deserialize, null, null);
+    }
+
+    public HDFSIterator(IteratorType type, Region region, boolean deserialize,
+        byte[] from, byte[] to) {
       this.type = type;
       this.deserialize = deserialize;
+      this.from = from;
+      this.to = to;
 
       // Check whether the queue has become primary here.
       // There could be some time between bucket becoming a primary 
@@ -150,7 +176,7 @@ public class HDFSEntriesSet extends AbstractSet {
       
       HoplogIterator<byte[], SortedHoplogPersistedEvent> tmp = null;
       try {
-        tmp = hoplogs.scan();
+        tmp = hoplogs.scan(from, to);
       } catch (IOException e) {
         HDFSEntriesSet.this.region.checkForPrimary();
         throw new HDFSIOException(LocalizedStrings.HOPLOG_FAILED_TO_READ_HDFS_FILE.toLocalizedString(e.getMessage()), e);
@@ -230,8 +256,16 @@ public class HDFSEntriesSet extends AbstractSet {
       }
     }
 
+    /**
+     * Returns the serialized key of the entry last returned by {@link #next()}.
+     */
+    public byte[] getSerializedKey() {
+      return lastKey;
+    }
+
     private Object getFromQueue() {
       HDFSGatewayEventImpl evt = queue.current();
+      lastKey = evt.getSerializedKey();
       if (type == null) {
         return evt;
       }
@@ -254,6 +288,7 @@ public class HDFSEntriesSet extends AbstractSet {
     }
 
     private Object getFromHdfs() {
+      lastKey = this.currentHdfsKey;
       if (type == null) {
         return hdfs.getValue();
       }
@@ -291,12 +326,19 @@ public class HDFSEntriesSet extends AbstractSet {
     }
     
     private void advanceQueue() {
-      if (queueNext = queue.hasNext()) {
-        queue.next();
-      } else {
-        brq.checkForPrimary();
-        queue.close();
+      // the queue is not ranged, skip the events before the start key
+      while (queueNext = queue.hasNext()) {
+        byte[] key = queue.next().getSerializedKey();
+        if (to != null && Bytes.compareTo(key, to) >= 0) {
+          queueNext = false;
+          break;
+        }
+        if (from == null || Bytes.compareTo(key, from) >= 0) {
+          return;
+        }
       }
+      brq.checkForPrimary();
+      queue.close();
     }
     
     public void setForUpdate(){
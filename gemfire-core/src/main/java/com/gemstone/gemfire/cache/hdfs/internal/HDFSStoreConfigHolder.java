@@ -37,6 +37,7 @@ public class HDFSStoreConfigHolder implements HDFSStore, HDFSStoreFactory ,Seria
   private String homeDir = DEFAULT_HOME_DIR;
   private String clientConfigFile = null;
   private float blockCacheSize = DEFAULT_BLOCK_CACHE_SIZE;
+  private float bloomFilterFalsePositiveRate = DEFAULT_BLOOM_FILTER_FALSE_POSITIVE_RATE;
   private int maxFileSize = DEFAULT_WRITE_ONLY_FILE_SIZE_LIMIT;
   private int fileRolloverInterval = DEFAULT_WRITE_ONLY_FILE_ROLLOVER_INTERVAL;
   protected boolean isAutoCompact = DEFAULT_MINOR_COMPACTION;
@@ -78,6 +79,7 @@ public class HDFSStoreConfigHolder implements HDFSStore, HDFSStoreFactory ,Seria
     this.homeDir = config.getHomeDir();
     this.clientConfigFile = config.getHDFSClientConfigFile();
     this.blockCacheSize = config.getBlockCacheSize();
+    this.bloomFilterFalsePositiveRate = config.getBloomFilterFalsePositiveRate();
     this.maxFileSize = config.getWriteOnlyFileRolloverSize();
     this.fileRolloverInterval = config.getWriteOnlyFileRolloverInterval();
     isAutoCompact = config.getMinorCompaction();
@@ -105,6 +107,7 @@ public class HDFSStoreConfigHolder implements HDFSStore, HDFSStoreFactory ,Seria
     homeDir = null;
     clientConfigFile = null;
     blockCacheSize = -1f;
+    bloomFilterFalsePositiveRate = -1f;
     maxFileSize = -1;
     fileRolloverInterval = -1;
     
@@ -247,6 +250,20 @@ public class HDFSStoreConfigHolder implements HDFSStore, HDFSStoreFactory ,Seria
     return blockCacheSize;
   }
   
+  @Override
+  public HDFSStoreFactory setBloomFilterFalsePositiveRate(float rate) {
+    if (!(rate > 0 && rate < 1)) {
+      throw new IllegalArgumentException("Bloom filter false positive rate must be between 0 and 1, exclusive");
+    }
+    this.bloomFilterFalsePositiveRate = rate;
+    return this;
+  }
+  
+  @Override
+  public float getBloomFilterFalsePositiveRate() {
+    return bloomFilterFalsePositiveRate;
+  }
+  
   @Override
   public HDFSStoreFactory setWriteOnlyFileRolloverSize(int maxFileSize) {
     assertIsPositive(CacheXml.HDFS_WRITE_ONLY_FILE_ROLLOVER_INTERVAL, maxFileSize);
@@ -420,6 +437,11 @@ public class HDFSStoreConfigHolder implements HDFSStore, HDFSStoreFactory ,Seria
       builder.append(blockCacheSize);
       builder.append(", ");
     }
+    if (bloomFilterFalsePositiveRate > -1) {
+      builder.append("bloomFilterFalsePositiveRate=");
+      builder.append(bloomFilterFalsePositiveRate);
+      builder.append(", ");
+    }
     appendIntProp(builder, maxFileSize, "maxFileSize");
     appendIntProp(builder, fileRolloverInterval, "fileRolloverInterval");
     appendBoolProp(builder, isAutoCompact, "isAutoCompact");
@@ -62,6 +62,12 @@ public class HDFSStoreCreation implements HDFSStoreFactory {
     return this;
   }
   
+  @Override
+  public HDFSStoreFactory setBloomFilterFalsePositiveRate(float rate) {
+    configHolder.setBloomFilterFalsePositiveRate(rate);
+    return this;
+  }
+  
   @Override
   public HDFSStoreFactory setWriteOnlyFileRolloverSize(int maxFileSize) {
     configHolder.setWriteOnlyFileRolloverSize(maxFileSize);
@@ -21,8 +21,6 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.LocalFileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.io.hfile.BlockCache;
-import org.apache.hadoop.hbase.io.hfile.LruBlockCache;
-import org.apache.hadoop.hbase.regionserver.StoreFile;
 import org.apache.hadoop.hbase.regionserver.metrics.SchemaMetrics;
 import org.apache.hadoop.hdfs.HdfsConfiguration;
 import org.apache.hadoop.ipc.RemoteException;
@@ -46,6 +44,7 @@ import com.gemstone.gemfire.internal.cache.persistence.soplog.HFileStoreStatisti
 import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
 import com.gemstone.gemfire.internal.logging.LogService;
 import com.gemstone.gemfire.internal.logging.log4j.LocalizedMessage;
+import com.gemstone.gemfire.internal.offheap.MemoryAllocator;
 import com.gemstone.gemfire.internal.util.SingletonCallable;
 import com.gemstone.gemfire.internal.util.SingletonValue;
 import com.gemstone.gemfire.internal.util.SingletonValue.SingletonBuilder;
@@ -89,23 +88,6 @@ public class HDFSStoreImpl implements HDFSStore {
     stats = new HFileStoreStatistics(InternalDistributedSystem.getAnyInstance(), "HDFSStoreStatistics", name);
 
     final Configuration hconf = new Configuration();
-        
-    // Set the block cache size.
-    // Disable the static block cache. We keep our own cache on the HDFS Store
-    // hconf.setFloat("hfile.block.cache.size", 0f);
-    if (this.getBlockCacheSize() != 0) {
-      long cacheSize = (long) (HeapMemoryMonitor.getTenuredPoolMaxMemory() * this.getBlockCacheSize() / 100);
-
-      // TODO use an off heap block cache if we're using off heap memory?
-      // See CacheConfig.instantiateBlockCache.
-      // According to Anthony, the off heap block cache is still
-      // experimental. Our own off heap cache might be a better bet.
-//      this.blockCache = new LruBlockCache(cacheSize,
-//          StoreFile.DEFAULT_BLOCKSIZE_SMALL, hconf, HFileSortedOplogFactory.convertStatistics(stats));
-      this.blockCache = new LruBlockCache(cacheSize, StoreFile.DEFAULT_BLOCKSIZE_SMALL, hconf);
-    } else {
-      this.blockCache = null;
-    }
     
     final String clientFile = config.getHDFSClientConfigFile();
     fs = new SingletonValue<FileSystem>(new SingletonBuilder<FileSystem>() {
@@ -129,6 +111,23 @@ public class HDFSStoreImpl implements HDFSStore {
     } catch (Throwable ex) {
       throw new HDFSIOException(ex.getMessage(),ex);
     }    
+
+    // Set the block cache size. The store adds its share to the block cache
+    // shared by the stores of the cache, which keeps the blocks off-heap if the
+    // cache has off-heap memory.
+    if (this.getBlockCacheSize() != 0) {
+      InternalDistributedSystem system = InternalDistributedSystem.getAnyInstance();
+      MemoryAllocator offHeap = null;
+      if (system != null && !Boolean.getBoolean(HoplogConfig.BLOCK_CACHE_ON_HEAP)) {
+        offHeap = system.getOffHeapStore();
+      }
+      long memory = offHeap == null ? HeapMemoryMonitor.getTenuredPoolMaxMemory() : offHeap.getTotalMemory();
+      long cacheSize = (long) (memory * this.getBlockCacheSize() / 100);
+      this.blockCache = HDFSBlockCache.addStore(cacheSize, stats, offHeap);
+    } else {
+      this.blockCache = null;
+    }
+
     //HDFSCompactionConfig has already been initialized
     long cleanUpIntervalMillis = getPurgeInterval() * 60 * 1000;
     Path cleanUpIntervalPath = new Path(getHomeDir(), HoplogConfig.CLEAN_UP_INTERVAL_FILE_NAME);
@@ -170,6 +169,10 @@ public class HDFSStoreImpl implements HDFSStore {
       // supported by old versions of hadoop, HADOOP-4829
       hconf.setBoolean("fs.automatic.close", false);
       
+      // Disable the static block cache of HBase. The hoplogs use the block
+      // cache of the store instead.
+      hconf.setFloat("hfile.block.cache.size", 0f);
+      
       // Hadoop has a configuration parameter io.serializations that is a list of serialization 
       // classes which can be used for obtaining serializers and deserializers. This parameter 
       // by default contains avro classes. When a sequence file is created, it calls 
@@ -396,9 +399,10 @@ public class HDFSStoreImpl implements HDFSStore {
 
   public void close() {
     logger.debug("{}Closing file system: " + getName(), logPrefix);
+    if (blockCache != null) {
+      blockCache.shutdown();
+    }
     stats.close();
-    blockCache.shutdown();
-    //Might want to clear the block cache, but it should be dereferenced.
     
     // release DDL hoplog organizer for this store. Also shutdown compaction
     // threads. These two resources hold references to GemfireCacheImpl
@@ -478,6 +482,18 @@ public class HDFSStoreImpl implements HDFSStore {
     return configHolder.getNameNodeURL();
   }
 
+  /**
+   * Returns true if this store persists its files on a local or network
+   * mounted file system, as asked by a namenode url with the file scheme.
+   */
+  public boolean isLocalFileSystem() {
+    String url = getNameNodeURL();
+    if (url == null) {
+      return false;
+    }
+    return HoplogConfig.LOCAL_FS_SCHEME.equalsIgnoreCase(URI.create(url).getScheme());
+  }
+
   @Override
   public String getHomeDir() {
     return configHolder.getHomeDir();
@@ -493,6 +509,11 @@ public class HDFSStoreImpl implements HDFSStore {
     return configHolder.getBlockCacheSize();
   }
 
+  @Override
+  public float getBloomFilterFalsePositiveRate() {
+    return configHolder.getBloomFilterFalsePositiveRate();
+  }
+
   @Override
   public int getWriteOnlyFileRolloverSize() {
     return configHolder.getWriteOnlyFileRolloverSize();
@@ -611,19 +632,30 @@ public class HDFSStoreImpl implements HDFSStore {
     @Override
     public FileSystem create(URI nn, Configuration conf, boolean create) throws IOException {
       FileSystem filesystem;
+      boolean local = isLocalFileSystem();
 
-      if (USE_FS_CACHE && !create) {
+      // the working directory of a local store is its own, so its instance
+      // can not be shared
+      if (USE_FS_CACHE && !create && !local) {
         filesystem = FileSystem.get(nn, conf);
       } else {
         filesystem = FileSystem.newInstance(nn, conf);
       }
 
-      if (filesystem instanceof LocalFileSystem && !ALLOW_TEST_FILE_SYSTEM) {
+      // a local file system that was not asked for explicitly is the default
+      // of a misconfigured hdfs client
+      if (filesystem instanceof LocalFileSystem && !local && !ALLOW_TEST_FILE_SYSTEM) {
         closeFileSystemIgnoreError(filesystem);
         throw new IllegalStateException(
             LocalizedStrings.HOPLOG_TRYING_TO_CREATE_STANDALONE_SYSTEM.toLocalizedString(getNameNodeURL()));
       }
 
+      if (local && nn.getPath() != null && !nn.getPath().isEmpty()) {
+        // relative home directories are created in the directory of the url
+        Path root = new Path(nn.getPath());
+        filesystem.mkdirs(root);
+        filesystem.setWorkingDirectory(root);
+      }
       return filesystem;
     }
   }
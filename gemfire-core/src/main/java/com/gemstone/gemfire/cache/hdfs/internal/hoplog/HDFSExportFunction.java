@@ -0,0 +1,319 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.hdfs.internal.hoplog;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.cache.EntryDestroyedException;
+import com.gemstone.gemfire.cache.Operation;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.execute.FunctionAdapter;
+import com.gemstone.gemfire.cache.execute.FunctionContext;
+import com.gemstone.gemfire.cache.execute.FunctionException;
+import com.gemstone.gemfire.cache.execute.RegionFunctionContext;
+import com.gemstone.gemfire.cache.hdfs.internal.HDFSStoreImpl;
+import com.gemstone.gemfire.cache.hdfs.internal.SortedHoplogPersistedEvent;
+import com.gemstone.gemfire.cache.hdfs.internal.cardinality.HyperLogLog;
+import com.gemstone.gemfire.cache.hdfs.internal.cardinality.ICardinality;
+import com.gemstone.gemfire.cache.hdfs.internal.cardinality.MurmurHash;
+import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSRegionDirector.HdfsRegionManager;
+import com.gemstone.gemfire.cache.hdfs.internal.hoplog.Hoplog.HoplogWriter;
+import com.gemstone.gemfire.cache.hdfs.internal.hoplog.Hoplog.Meta;
+import com.gemstone.gemfire.internal.HeapDataOutputStream;
+import com.gemstone.gemfire.internal.InternalEntity;
+import com.gemstone.gemfire.internal.cache.BucketRegion;
+import com.gemstone.gemfire.internal.cache.CachedDeserializableFactory;
+import com.gemstone.gemfire.internal.cache.PartitionedRegion;
+import com.gemstone.gemfire.internal.cache.snapshot.SnapshotPacket.SnapshotRecord;
+import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+import com.gemstone.gemfire.internal.logging.LogService;
+import com.gemstone.gemfire.internal.util.BlobHelper;
+
+/**
+ * Function that exports the local primary buckets of a partitioned region to
+ * an HDFS store. The buckets are exported concurrently, each one into a
+ * single sorted hoplog written directly by this member, so the export does
+ * not go through the HDFS event queue. The hoplogs use the directory layout
+ * and the file format of flushed hoplogs and can be read by the hoplog
+ * mapreduce input formats.
+ * <p>
+ * The hoplog of a bucket is named after the timestamp of the export, so a
+ * re-execution of the function replaces the hoplogs written by the failed
+ * execution, and {@link #deleteExport} removes the hoplogs of an export that
+ * failed for some bucket.
+ * <p>
+ * The member sends one result mapping the id of every exported bucket to
+ * the number of entries written.
+ *
+ * @see PartitionedRegion#exportToHDFS(String)
+ */
+@SuppressWarnings("serial")
+public class HDFSExportFunction extends FunctionAdapter implements InternalEntity {
+
+  public static final String ID = "HDFSExportFunction";
+
+  /** the maximum number of buckets a member exports at the same time */
+  private static final int MAX_THREADS = Integer.getInteger(
+      "gemfire.HDFSExportFunction.MAX_THREADS", Runtime.getRuntime().availableProcessors());
+
+  private static final Logger logger = LogService.getLogger();
+
+  // orders the Object[] of the serialized key and the key of the entries
+  private static final Comparator<Object[]> KEY_ORDER = new Comparator<Object[]>() {
+    @Override
+    public int compare(Object[] k1, Object[] k2) {
+      return Bytes.compareTo((byte[]) k1[0], (byte[]) k2[0]);
+    }
+  };
+
+  /**
+   * Creates the function arguments.
+   *
+   * @param storeName the name of the HDFS store to export to
+   * @param timestamp the timestamp of the export, shared by all the hoplogs
+   */
+  public static Object[] createArgs(String storeName, long timestamp) {
+    return new Object[] { storeName, timestamp };
+  }
+
+  @Override
+  public void execute(FunctionContext context) {
+    RegionFunctionContext rfc = (RegionFunctionContext) context;
+    final PartitionedRegion pr = (PartitionedRegion) rfc.getDataSet();
+    Object[] args = (Object[]) rfc.getArguments();
+    String storeName = (String) args[0];
+    final long timestamp = (Long) args[1];
+
+    final HDFSStoreImpl store = HDFSStoreDirector.getInstance().getHDFSStore(storeName);
+    if (store == null) {
+      throw new FunctionException(
+          LocalizedStrings.HOPLOG_HDFS_STORE_NOT_FOUND.toLocalizedString(storeName));
+    }
+
+    HashMap<Integer, Integer> exported = new HashMap<Integer, Integer>();
+    Set<Integer> buckets = pr.getDataStore().getAllLocalPrimaryBucketIds();
+    if (!buckets.isEmpty()) {
+      ExecutorService exec = Executors.newFixedThreadPool(Math.min(MAX_THREADS, buckets.size()),
+          new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+              Thread thread = new Thread(r, "HDFSExport-" + pr.getName());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+      try {
+        Map<Integer, Future<Integer>> futures = new LinkedHashMap<Integer, Future<Integer>>();
+        for (final int bucketId : buckets) {
+          futures.put(bucketId, exec.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+              return exportBucket(pr, bucketId, store, timestamp);
+            }
+          }));
+        }
+        for (Map.Entry<Integer, Future<Integer>> future : futures.entrySet()) {
+          try {
+            int count = future.getValue().get();
+            if (count >= 0) {
+              exported.put(future.getKey(), count);
+            }
+          } catch (ExecutionException e) {
+            // the bucket is left out of the result, the caller reports it
+            logger.info("HDFS: failed to export bucket " + future.getKey()
+                + " of " + pr.getFullPath(), e.getCause());
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        exec.shutdownNow();
+      }
+    }
+    rfc.getResultSender().lastResult(exported);
+  }
+
+  /**
+   * Writes the entries of a local bucket into a new hoplog in the bucket
+   * directory of the store, replacing the hoplog of the bucket written by an
+   * earlier execution of the same export.
+   *
+   * @return the number of entries written, or -1 if the bucket is not hosted
+   *         by this member
+   */
+  static int exportBucket(PartitionedRegion pr, int bucketId, HDFSStoreImpl store,
+      long timestamp) throws IOException, ClassNotFoundException {
+    BucketRegion br = pr.getDataStore().getLocalBucketById(bucketId);
+    if (br == null) {
+      return -1;
+    }
+
+    // hoplog keys must be appended in order. Only the keys are sorted, the
+    // values are read from the bucket as they are written
+    List<Object[]> keys = new ArrayList<Object[]>();
+    for (Object key : br.keySet()) {
+      keys.add(new Object[] { BlobHelper.serializeToBlob(key), key });
+    }
+    Collections.sort(keys, KEY_ORDER);
+
+    Path hoplogPath = getHoplogPath(store, pr.getFullPath(), bucketId, timestamp);
+    FileSystem fs = store.getFileSystem();
+    // the hoplog of an execution of this export that failed on this member
+    if (fs.exists(hoplogPath) && !fs.delete(hoplogPath, false)) {
+      throw new IOException("Unable to delete " + hoplogPath);
+    }
+    final Hoplog so = new HFileSortedOplog(store,
+        new Path(hoplogPath.getParent(), hoplogPath.getName() + AbstractHoplogOrganizer.TEMP_HOPLOG_EXTENSION),
+        store.getBlockCache(), null, store.getStats());
+    if (logger.isDebugEnabled()) {
+      logger.debug("HDFS: exporting " + keys.size() + " keys of bucket " + br.getName()
+          + " to " + hoplogPath);
+    }
+
+    final int expectedCount = keys.size();
+    int count = 0;
+    HoplogWriter writer = null;
+    try {
+      try {
+        writer = store.getSingletonWriter().runSerially(new Callable<HoplogWriter>() {
+          @Override
+          public HoplogWriter call() throws Exception {
+            return so.createWriter(expectedCount);
+          }
+        });
+      } catch (Exception e) {
+        if (e instanceof IOException) {
+          throw (IOException) e;
+        }
+        throw new IOException(e);
+      }
+
+      ICardinality localHLL = new HyperLogLog(HdfsSortedOplogOrganizer.HLL_CONSTANT);
+      for (Object[] key : keys) {
+        byte[] serializedKey = (byte[]) key[0];
+        byte[] value = getValue(br, key[1]);
+        if (value == null) {
+          continue;
+        }
+        SortedHoplogPersistedEvent evt = new SortedHoplogPersistedEvent(
+            CachedDeserializableFactory.create(value), Operation.CREATE,
+            (byte) 0x01, false, null, timestamp);
+        HeapDataOutputStream out = new HeapDataOutputStream(1024, null);
+        evt.toData(out);
+        writer.append(serializedKey, out.toByteArray());
+        localHLL.offerHashed(MurmurHash.hash(serializedKey));
+        count++;
+      }
+
+      EnumMap<Meta, byte[]> metadata = new EnumMap<Meta, byte[]>(Meta.class);
+      metadata.put(Meta.LOCAL_CARDINALITY_ESTIMATE_V2, localHLL.getBytes());
+      writer.close(metadata);
+      writer = null;
+      AbstractHoplogOrganizer.makeLegitimate(so);
+
+    } catch (IOException e) {
+      if (writer != null) {
+        try {
+          writer.close();
+        } catch (IOException e1) {
+          // the file is deleted below
+        }
+      }
+      try {
+        so.delete();
+      } catch (IOException e1) {
+        logger.info(e1);
+      }
+      throw e;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the serialized value of an entry of a bucket, or null if the entry
+   * was destroyed or is invalid.
+   */
+  private static byte[] getValue(BucketRegion br, Object key) throws IOException {
+    Region.Entry<?, ?> entry = br.getEntry(key);
+    if (entry == null) {
+      return null;
+    }
+    try {
+      SnapshotRecord rec = new SnapshotRecord(br, entry);
+      return rec.hasValue() ? rec.getValue() : null;
+    } catch (EntryDestroyedException e) {
+      return null;
+    }
+  }
+
+  private static Path getHoplogPath(HDFSStoreImpl store, String regionPath,
+      int bucketId, long timestamp) {
+    Path bucketPath = new Path(store.getHomeDir(),
+        HdfsRegionManager.getRegionFolder(regionPath) + "/" + bucketId);
+    return new Path(bucketPath, bucketId + "-" + timestamp + "-0"
+        + AbstractHoplogOrganizer.FLUSH_HOPLOG_EXTENSION);
+  }
+
+  /**
+   * Deletes the hoplogs, complete or not, written by an export of a region, so
+   * that the region can be exported again without duplicating the entries of
+   * the buckets that were exported.
+   *
+   * @param timestamp the timestamp of the export
+   */
+  public static void deleteExport(HDFSStoreImpl store, String regionPath,
+      int numBuckets, long timestamp) throws IOException {
+    FileSystem fs = store.getFileSystem();
+    for (int bucketId = 0; bucketId < numBuckets; bucketId++) {
+      Path hoplogPath = getHoplogPath(store, regionPath, bucketId, timestamp);
+      Path tmpPath = new Path(hoplogPath.getParent(),
+          hoplogPath.getName() + AbstractHoplogOrganizer.TEMP_HOPLOG_EXTENSION);
+      for (Path path : new Path[] { hoplogPath, tmpPath }) {
+        if (fs.exists(path)) {
+          fs.delete(path, false);
+        }
+      }
+    }
+  }
+
+  @Override
+  public String getId() {
+    return ID;
+  }
+
+  @Override
+  public boolean isHA() {
+    return true;
+  }
+
+  @Override
+  public boolean optimizeForWrite() {
+    // each bucket is exported once, by its primary
+    return true;
+  }
+}
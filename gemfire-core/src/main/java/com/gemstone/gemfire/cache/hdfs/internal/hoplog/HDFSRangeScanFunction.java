@@ -0,0 +1,284 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.hdfs.internal.hoplog;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.cache.execute.FunctionAdapter;
+import com.gemstone.gemfire.cache.execute.FunctionContext;
+import com.gemstone.gemfire.cache.execute.FunctionException;
+import com.gemstone.gemfire.cache.execute.RegionFunctionContext;
+import com.gemstone.gemfire.cache.execute.ResultSender;
+import com.gemstone.gemfire.cache.hdfs.HDFSIOException;
+import com.gemstone.gemfire.cache.hdfs.internal.HDFSEntriesSet;
+import com.gemstone.gemfire.cache.hdfs.internal.HDFSEntriesSet.HDFSIterator;
+import com.gemstone.gemfire.cache.hdfs.internal.HDFSGatewayEventImpl;
+import com.gemstone.gemfire.cache.hdfs.internal.PersistedEventImpl;
+import com.gemstone.gemfire.internal.InternalEntity;
+import com.gemstone.gemfire.internal.cache.BucketRegion;
+import com.gemstone.gemfire.internal.cache.ForceReattemptException;
+import com.gemstone.gemfire.internal.cache.HDFSRegionMap;
+import com.gemstone.gemfire.internal.cache.PartitionedRegion;
+import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+import com.gemstone.gemfire.internal.logging.LogService;
+
+/**
+ * Function that scans the local primary buckets of a region for the keys
+ * between two serialized keys. Each bucket is read in key order from its
+ * queue and hoplogs, and the buckets are merged as they are read, so a member
+ * reads at most <code>limit</code> entries whatever its number of buckets. The
+ * merged entries are sent back in chunks of
+ * {@link HoplogConfig#SCAN_CHUNK_SIZE} entries. Each chunk is a
+ * <code>List</code> of <code>Object[]</code> of the serialized key and the
+ * deserialized value, and the chunks of a member are in serialized key order.
+ *
+ * @see PartitionedRegion#scan(Object, Object, int)
+ * @see HDFSRangeScanResultCollector
+ */
+@SuppressWarnings("serial")
+public class HDFSRangeScanFunction extends FunctionAdapter implements InternalEntity {
+
+  public static final String ID = "HDFSRangeScanFunction";
+
+  private static final Logger logger = LogService.getLogger();
+
+  private static final int CHUNK_SIZE = Integer.getInteger(
+      HoplogConfig.SCAN_CHUNK_SIZE, HoplogConfig.SCAN_CHUNK_SIZE_DEFAULT);
+
+  /**
+   * Creates the function arguments.
+   *
+   * @param from the inclusive serialized start key, or null
+   * @param to the exclusive serialized end key, or null
+   * @param limit the maximum number of entries, or 0 for all of them
+   */
+  public static Object[] createArgs(byte[] from, byte[] to, int limit) {
+    return new Object[] { from, to, limit };
+  }
+
+  @Override
+  public void execute(FunctionContext context) {
+    RegionFunctionContext rfc = (RegionFunctionContext) context;
+    PartitionedRegion pr = (PartitionedRegion) rfc.getDataSet();
+    Object[] args = (Object[]) rfc.getArguments();
+    byte[] from = (byte[]) args[0];
+    byte[] to = (byte[]) args[1];
+    int limit = (Integer) args[2];
+
+    List<HDFSIterator> iters = new ArrayList<HDFSIterator>();
+    try {
+      List<Iterator<Object[]>> buckets = new ArrayList<Iterator<Object[]>>();
+      for (int bucketId : pr.getDataStore().getAllLocalPrimaryBucketIds()) {
+        BucketRegion br = pr.getDataStore().getLocalBucketById(bucketId);
+        if (br == null) {
+          continue;
+        }
+        if (logger.isDebugEnabled()) {
+          logger.debug("HDFS: scanning bucket " + br.getName());
+        }
+        HDFSIterator iter = rangeIterator(br, from, to);
+        if (iter != null) {
+          iters.add(iter);
+          buckets.add(new BucketEntries(iter));
+        }
+      }
+      sendEntries(new MergedEntries(buckets), limit, rfc.getResultSender());
+    } finally {
+      for (HDFSIterator iter : iters) {
+        iter.close();
+      }
+    }
+  }
+
+  private HDFSIterator rangeIterator(BucketRegion br, byte[] from, byte[] to) {
+    try {
+      return ((HDFSRegionMap) br.getRegionMap()).getDelegate().rangeIterator(from, to);
+    } catch (ForceReattemptException e) {
+      throw new FunctionException(e);
+    }
+  }
+
+  private void sendEntries(Iterator<Object[]> entries, int limit,
+      ResultSender<Object> sender) {
+    List<Object[]> chunk = new ArrayList<Object[]>();
+    int count = 0;
+    while (entries.hasNext() && (limit <= 0 || count < limit)) {
+      Object[] entry = entries.next();
+      // only the values of the entries sent are deserialized
+      chunk.add(new Object[] { entry[0], getValue(entry[1]) });
+      count++;
+      if (chunk.size() == CHUNK_SIZE) {
+        sender.sendResult(chunk);
+        chunk = new ArrayList<Object[]>();
+      }
+    }
+    sender.lastResult(chunk);
+  }
+
+  private Object getValue(Object evt) {
+    if (evt instanceof HDFSGatewayEventImpl) {
+      return ((HDFSGatewayEventImpl) evt).getDeserializedValue();
+    }
+    try {
+      return ((PersistedEventImpl) evt).getDeserializedValue();
+    } catch (IOException e) {
+      throw new HDFSIOException(LocalizedStrings.HOPLOG_FAILED_TO_READ_HDFS_FILE.toLocalizedString(e.getMessage()), e);
+    } catch (ClassNotFoundException e) {
+      throw new FunctionException(e);
+    }
+  }
+
+  @Override
+  public String getId() {
+    return ID;
+  }
+
+  @Override
+  public boolean isHA() {
+    return true;
+  }
+
+  @Override
+  public boolean optimizeForWrite() {
+    // the queues are read on the primary
+    return true;
+  }
+
+  /**
+   * The live entries of a bucket, as <code>Object[]</code> of the serialized
+   * key and the event.
+   */
+  private static class BucketEntries implements Iterator<Object[]> {
+    private final HDFSIterator iter;
+
+    private Object[] next;
+
+    BucketEntries(HDFSIterator iter) {
+      this.iter = iter;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (this.next == null && this.iter.hasNext()) {
+        Object evt = this.iter.next();
+        if (HDFSEntriesSet.includeEntry(evt)) {
+          this.next = new Object[] { this.iter.getSerializedKey(), evt };
+        }
+      }
+      return this.next != null;
+    }
+
+    @Override
+    public Object[] next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Object[] entry = this.next;
+      this.next = null;
+      return entry;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Merges sources of entries sorted by serialized key into one sorted
+   * sequence, reading each source only as far as the entries returned. Each
+   * entry is an <code>Object[]</code> whose first element is the serialized
+   * key. An entry whose key was already returned is skipped, such as the same
+   * key seen in two buckets while a primary moved; the entry of the first
+   * source is kept.
+   */
+  public static class MergedEntries implements Iterator<Object[]> {
+    private static final Comparator<Source> ORDER = new Comparator<Source>() {
+      @Override
+      public int compare(Source s1, Source s2) {
+        int diff = Bytes.compareTo(s1.key(), s2.key());
+        return diff != 0 ? diff : (s1.index < s2.index ? -1 : (s1.index == s2.index ? 0 : 1));
+      }
+    };
+
+    // the sources that have entries left, by their next entry
+    private final PriorityQueue<Source> heap;
+
+    public MergedEntries(List<? extends Iterator<Object[]>> sources) {
+      this.heap = new PriorityQueue<Source>(Math.max(1, sources.size()), ORDER);
+      for (int i = 0; i < sources.size(); i++) {
+        Source source = new Source(i, sources.get(i));
+        if (source.advance()) {
+          this.heap.add(source);
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !this.heap.isEmpty();
+    }
+
+    @Override
+    public Object[] next() {
+      Source source = this.heap.poll();
+      if (source == null) {
+        throw new NoSuchElementException();
+      }
+      Object[] entry = source.head;
+      byte[] key = source.key();
+      if (source.advance()) {
+        this.heap.add(source);
+      }
+      while (!this.heap.isEmpty()
+          && Bytes.compareTo(this.heap.peek().key(), key) == 0) {
+        Source duplicate = this.heap.poll();
+        if (duplicate.advance()) {
+          this.heap.add(duplicate);
+        }
+      }
+      return entry;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    private static final class Source {
+      final int index;
+
+      final Iterator<Object[]> iter;
+
+      Object[] head;
+
+      Source(int index, Iterator<Object[]> iter) {
+        this.index = index;
+        this.iter = iter;
+      }
+
+      boolean advance() {
+        this.head = this.iter.hasNext() ? this.iter.next() : null;
+        return this.head != null;
+      }
+
+      byte[] key() {
+        return (byte[]) this.head[0];
+      }
+    }
+  }
+}
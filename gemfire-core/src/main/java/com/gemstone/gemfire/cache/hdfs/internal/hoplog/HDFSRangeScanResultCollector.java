@@ -0,0 +1,89 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.hdfs.internal.hoplog;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.gemstone.gemfire.cache.execute.FunctionException;
+import com.gemstone.gemfire.cache.execute.ResultCollector;
+import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSRangeScanFunction.MergedEntries;
+import com.gemstone.gemfire.distributed.DistributedMember;
+
+/**
+ * Collects the chunks of entries sent by the members running
+ * {@link HDFSRangeScanFunction}. The chunks of each member are kept in the
+ * order they arrive, which is the key order of the member, and the entries of
+ * the members are merged in serialized key order when the result is read.
+ */
+public class HDFSRangeScanResultCollector implements ResultCollector<Object, List<Object[]>> {
+
+  private final int limit;
+
+  // the entries sent by each member, in the order sent
+  private final Map<DistributedMember, List<Object[]>> entries = new LinkedHashMap<DistributedMember, List<Object[]>>();
+
+  /**
+   * @param limit the maximum number of entries of the result, or 0 for all
+   */
+  public HDFSRangeScanResultCollector(int limit) {
+    this.limit = limit;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public synchronized void addResult(DistributedMember memberID,
+      Object resultOfSingleExecution) {
+    if (resultOfSingleExecution instanceof Throwable) {
+      throw new FunctionException((Throwable) resultOfSingleExecution);
+    }
+    List<Object[]> memberEntries = this.entries.get(memberID);
+    if (memberEntries == null) {
+      memberEntries = new ArrayList<Object[]>();
+      this.entries.put(memberID, memberEntries);
+    }
+    memberEntries.addAll((List<Object[]>) resultOfSingleExecution);
+  }
+
+  /**
+   * Returns the entries of all the members in serialized key order, at most
+   * the limit of them. An entry sent by two members is returned once.
+   */
+  @Override
+  public synchronized List<Object[]> getResult() throws FunctionException {
+    List<Iterator<Object[]>> sources = new ArrayList<Iterator<Object[]>>(this.entries.size());
+    for (List<Object[]> memberEntries : this.entries.values()) {
+      sources.add(memberEntries.iterator());
+    }
+    List<Object[]> result = new ArrayList<Object[]>();
+    MergedEntries merged = new MergedEntries(sources);
+    while (merged.hasNext() && (this.limit <= 0 || result.size() < this.limit)) {
+      result.add(merged.next());
+    }
+    return result;
+  }
+
+  @Override
+  public List<Object[]> getResult(long timeout, TimeUnit unit)
+      throws FunctionException, InterruptedException {
+    return getResult();
+  }
+
+  @Override
+  public void endResults() {
+  }
+
+  @Override
+  public synchronized void clearResults() {
+    this.entries.clear();
+  }
+}
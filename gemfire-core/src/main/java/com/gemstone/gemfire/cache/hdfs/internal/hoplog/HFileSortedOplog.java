@@ -20,6 +20,7 @@ import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.ipc.RemoteException;
@@ -27,6 +28,7 @@ import org.apache.hadoop.util.ShutdownHookManager;
 
 import com.gemstone.gemfire.cache.CacheClosedException;
 import com.gemstone.gemfire.cache.hdfs.HDFSIOException;
+import com.gemstone.gemfire.cache.hdfs.internal.HDFSBlockCache.StoreBlockCache;
 import com.gemstone.gemfire.cache.hdfs.internal.HDFSStoreImpl;
 import com.gemstone.gemfire.cache.hdfs.internal.cardinality.HyperLogLog;
 import com.gemstone.gemfire.cache.hdfs.internal.cardinality.ICardinality;
@@ -61,6 +63,8 @@ public final class HFileSortedOplog extends AbstractHoplog {
 
 //  private static final boolean CACHE_DATA_BLOCKS_ON_READ = !Boolean.getBoolean("gemfire.HFileSortedOplog.DISABLE_CACHE_ON_READ");
   private final CacheConfig cacheConf;
+  private final HFileStoreStatistics storeStats;
+  private final float bloomErrorRate;
   private ICardinality entryCountEstimate;
   
   // a cached reader for the file
@@ -71,6 +75,8 @@ public final class HFileSortedOplog extends AbstractHoplog {
       HFileStoreStatistics storeStats) throws IOException {
     super(store, hfilePath, stats);
     cacheConf = getCacheConfInstance(blockCache, stats, storeStats);
+    this.storeStats = storeStats;
+    this.bloomErrorRate = store.getBloomFilterFalsePositiveRate();
     reader = getReaderContainer();
   }
 
@@ -87,18 +93,19 @@ public final class HFileSortedOplog extends AbstractHoplog {
       HFileStoreStatistics storeStats) throws IOException {
     super(inputFS, hfilePath, stats);
     cacheConf = getCacheConfInstance(blockCache, stats, storeStats);
+    this.storeStats = storeStats;
+    this.bloomErrorRate = BloomFilterFactory.getErrorRate(conf);
     reader = getReaderContainer();
   }
 
   protected CacheConfig getCacheConfInstance(BlockCache blockCache,
       SortedOplogStatistics stats, HFileStoreStatistics storeStats) {
-    CacheConfig tmpConfig = null;
-//    if (stats == null) {
-      tmpConfig = new CacheConfig(conf);
-//    } else {
-//      tmpConfig = new CacheConfig(conf, CACHE_DATA_BLOCKS_ON_READ, blockCache,
-//          HFileSortedOplogFactory.convertStatistics(stats, storeStats));
-//    }
+    // the blocks of the hoplogs of all the stores share a cache, in which the
+    // hoplogs are told apart by their paths
+    if (blockCache instanceof StoreBlockCache) {
+      blockCache = ((StoreBlockCache) blockCache).getHoplogBlockCache(path.toString());
+    }
+    CacheConfig tmpConfig = new HoplogCacheConfig(conf, blockCache);
     tmpConfig.shouldCacheBlockOnRead(BlockCategory.ALL_CATEGORIES);
     return tmpConfig;
   }  
@@ -196,6 +203,29 @@ public final class HFileSortedOplog extends AbstractHoplog {
     return "HFileSortedOplog[" + getFileName() + "]";
   }
 
+  /**
+   * Caches the blocks of a hoplog in the given block cache instead of the
+   * static block cache of HBase, which the stores disable.
+   */
+  private static class HoplogCacheConfig extends CacheConfig {
+    private final BlockCache blockCache;
+
+    HoplogCacheConfig(Configuration conf, BlockCache blockCache) {
+      super(conf);
+      this.blockCache = blockCache;
+    }
+
+    @Override
+    public boolean isBlockCacheEnabled() {
+      return blockCache != null;
+    }
+
+    @Override
+    public BlockCache getBlockCache() {
+      return blockCache;
+    }
+  }
+
   private class HFileSortedOplogWriter implements HoplogWriter {
     private final Writer writer;
     private final BloomFilterWriter bfw;
@@ -218,7 +248,12 @@ public final class HFileSortedOplog extends AbstractHoplog {
             .create();
 //        bfw = BloomFilterFactory.createGeneralBloomAtWrite(conf, cacheConf, BloomType.ROW, keys,
 //            writer, bc);
-        bfw = BloomFilterFactory.createGeneralBloomAtWrite(conf, cacheConf, BloomType.ROW, keys,
+        Configuration bloomConf = conf;
+        if (BloomFilterFactory.getErrorRate(conf) != bloomErrorRate) {
+          bloomConf = new Configuration(conf);
+          bloomConf.setFloat(BloomFilterFactory.IO_STOREFILE_BLOOM_ERROR_RATE, bloomErrorRate);
+        }
+        bfw = BloomFilterFactory.createGeneralBloomAtWrite(bloomConf, cacheConf, BloomType.ROW, keys,
             writer);
 
         if (logger.isDebugEnabled())
@@ -432,6 +467,9 @@ public final class HFileSortedOplog extends AbstractHoplog {
       try {
         if (!getBloomFilter().mightContain(key)) {
           // bloom filter check failed, the key is not present in this hoplog
+          if (storeStats != null) {
+            storeStats.getBloom().negative();
+          }
           return null;
         }
       } catch (IllegalArgumentException e) {
@@ -449,6 +487,9 @@ public final class HFileSortedOplog extends AbstractHoplog {
         bb.get(valueBytes);
       } else {
         stats.getBloom().falsePositive();
+        if (storeStats != null) {
+          storeStats.getBloom().falsePositive();
+        }
       }
       return valueBytes;
     }
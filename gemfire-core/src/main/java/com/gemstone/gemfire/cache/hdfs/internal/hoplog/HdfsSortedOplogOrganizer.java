@@ -488,12 +488,22 @@ public class HdfsSortedOplogOrganizer extends AbstractHoplogOrganizer<SortedHopl
 
   @Override
   public BucketIterator scan() throws IOException {
+    return scan(null, true, null, true);
+  }
+
+  @Override
+  public BucketIterator scan(byte[] from, byte[] to) throws IOException {
+    return scan(from, true, to, false);
+  }
+
+  @Override
+  public BucketIterator scan(byte[] from, boolean fromInclusive, byte[] to, boolean toInclusive) throws IOException {
     String user = logger.isDebugEnabled() ? "Scan" : null;
     List<TrackedReference<Hoplog>> hoplogs = null;
     BucketIterator iter = null;
     try {
       hoplogs = hoplogReadersController.getTrackedSortedOplogList(user);
-      iter = new BucketIterator(hoplogs);
+      iter = new BucketIterator(hoplogs, from, fromInclusive, to, toInclusive);
       return iter;
     }  finally {
       // Normally the hoplogs will be released when the iterator is closed. The
@@ -504,16 +514,6 @@ public class HdfsSortedOplogOrganizer extends AbstractHoplogOrganizer<SortedHopl
     }
   }
 
-  @Override
-  public BucketIterator scan(byte[] from, byte[] to) throws IOException {
-    throw new NotImplementedException();
-  }
-
-  @Override
-  public BucketIterator scan(byte[] from, boolean fromInclusive, byte[] to, boolean toInclusive) throws IOException {
-    throw new NotImplementedException();
-  }
-
   @Override
   public HoplogIterator<byte[], SortedHoplogPersistedEvent> scan(
       long startOffset, long length) throws IOException {
@@ -1885,9 +1885,14 @@ public class HdfsSortedOplogOrganizer extends AbstractHoplogOrganizer<SortedHopl
     HoplogSetIterator mergedIter;
 
     public BucketIterator(List<TrackedReference<Hoplog>> hoplogs) throws IOException {
+      this(hoplogs, null, true, null, true);
+    }
+
+    public BucketIterator(List<TrackedReference<Hoplog>> hoplogs, byte[] from,
+        boolean fromInclusive, byte[] to, boolean toInclusive) throws IOException {
       this.hoplogList = hoplogs;
       try {
-        mergedIter = new HoplogSetIterator(this.hoplogList);
+        mergedIter = new HoplogSetIterator(this.hoplogList, from, fromInclusive, to, toInclusive);
         if (logger.isDebugEnabled()) {
           for (TrackedReference<Hoplog> hoplog : hoplogs) {
             logger.debug("{}BucketIter target hop:" + hoplog.get().getFileName(), logPrefix);
@@ -1952,6 +1957,9 @@ public class HdfsSortedOplogOrganizer extends AbstractHoplogOrganizer<SortedHopl
     @Override
     public void close() {
       // TODO release the closed iterators early
+      if (mergedIter != null) {
+        mergedIter.close();
+      }
       String user = logger.isDebugEnabled() ? "Scan" : null;
       hoplogReadersController.releaseHoplogs(hoplogList, user);
     }
@@ -24,6 +24,15 @@ public interface HoplogConfig {
   
   public static final String HFILE_BLOCK_SIZE_CONF = "hoplog.hfile.block.size";
   
+  // If set the block cache keeps the blocks on the heap even if the cache has
+  // off-heap memory
+  public static final String BLOCK_CACHE_ON_HEAP = "hoplog.block.cache.on.heap";
+  
+  // Percentage of the off-heap memory the block cache leaves free for the
+  // regions. Blocks are not cached when less memory is free
+  public static final String BLOCK_CACHE_OFF_HEAP_RESERVE_PERCENT = "hoplog.block.cache.off.heap.reserve.percent";
+  public static final int BLOCK_CACHE_OFF_HEAP_RESERVE_PERCENT_DEFAULT = 10;
+  
   // Region maintenance activity interval. default is 2 mins
   public static final String JANITOR_INTERVAL_SECS = "hoplog.janitor.interval.secs";
   public static final long JANITOR_INTERVAL_SECS_DEFAULT = 120l;
@@ -49,6 +58,10 @@ public interface HoplogConfig {
 
   // If set hdfs store will be able to connect to local file System
   public static final String ALLOW_LOCAL_HDFS_PROP = "hoplog.ALLOW_LOCAL_HDFS";
+
+  // Scheme of the namenode urls of stores persisted on a local or network
+  // mounted file system
+  public static final String LOCAL_FS_SCHEME = "file";
   
   // The following constants are used to read kerberos authentication related
   // configuration. Currently these configurations are provided as client config
@@ -59,6 +72,10 @@ public interface HoplogConfig {
   
   // clean up interval file that exposed to MapReduce jobs
   public static final String CLEAN_UP_INTERVAL_FILE_NAME = "cleanUpInterval";
+  // Number of entries a member sends in one result chunk of a range scan
+  public static final String SCAN_CHUNK_SIZE = "hoplog.scan.chunk.size";
+  public static final int SCAN_CHUNK_SIZE_DEFAULT = 1000;
+  
   // Compression settings
   public static final String COMPRESSION = "hoplog.compression.algorithm";
   public static final String COMPRESSION_DEFAULT = "NONE";
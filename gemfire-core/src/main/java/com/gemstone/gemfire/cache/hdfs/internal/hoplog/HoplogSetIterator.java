@@ -33,9 +33,22 @@ public class HoplogSetIterator implements HoplogIterator<ByteBuffer, ByteBuffer>
   private ByteBuffer currentValue;
 
   public HoplogSetIterator(List<TrackedReference<Hoplog>> targets) throws IOException {
+    this(targets, null, true, null, true);
+  }
+
+  /**
+   * Creates an iterator over the keys of the hoplogs within the given range.
+   * The remaining entry count of a ranged iterator is an upper bound.
+   * 
+   * @param from the start key, or null to scan from the first key
+   * @param to the end key, or null to scan to the last key
+   */
+  public HoplogSetIterator(List<TrackedReference<Hoplog>> targets, byte[] from,
+      boolean fromInclusive, byte[] to, boolean toInclusive) throws IOException {
     iters = new ArrayList<HFileSortedIterator>();
     for (TrackedReference<Hoplog> oplog : targets) {
-      HFileSortedIterator iter = (HFileSortedIterator) oplog.get().getReader().scan();
+      HFileSortedIterator iter = (HFileSortedIterator) oplog.get().getReader()
+          .scan(from, fromInclusive, to, toInclusive);
       if (!iter.hasNext()) {
         // the oplog is empty, exclude from iterator
         continue;
@@ -49,7 +62,8 @@ public class HoplogSetIterator implements HoplogIterator<ByteBuffer, ByteBuffer>
   }
 
   public boolean hasNext() {
-    return entriesRemaining > 0;
+    // every iterator left is positioned on a key not returned yet
+    return !iters.isEmpty();
   }
 
   @Override
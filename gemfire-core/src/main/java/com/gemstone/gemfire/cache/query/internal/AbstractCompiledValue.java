@@ -275,6 +275,17 @@ public abstract class AbstractCompiledValue implements CompiledValue, Filter,
   public int getSizeEstimate(ExecutionContext context)throws FunctionDomainException, TypeMismatchException, NameResolutionException, QueryInvocationTargetException  {
 	  throw new UnsupportedOperationException("This method should not have been invoked");
   }
+
+  /**
+   * Returns true if two filters are to be compared on their estimated index
+   * result sizes alone. This is the case when cost based index selection is on
+   * and both sizes are actual estimates.
+   */
+  static boolean isCostBasedSelection(int thisSize, int thatSize) {
+    return DefaultQuery.COST_BASED_INDEX_SELECTION
+        && thisSize >= 0 && thisSize < Integer.MAX_VALUE
+        && thatSize >= 0 && thatSize < Integer.MAX_VALUE;
+  }
   public void visitNodes(NodeVisitor visitor) {
     visitor.visit(this);
     for (Iterator itr = getChildren().iterator(); itr.hasNext(); ) {
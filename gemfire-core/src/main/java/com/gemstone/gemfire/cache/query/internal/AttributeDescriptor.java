@@ -9,11 +9,15 @@
 
 package com.gemstone.gemfire.cache.query.internal;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -31,7 +35,9 @@ import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
 import com.gemstone.gemfire.pdx.PdxInstance;
 import com.gemstone.gemfire.pdx.PdxSerializationException;
 import com.gemstone.gemfire.pdx.internal.FieldNotFoundInPdxVersion;
+import com.gemstone.gemfire.pdx.internal.PdxField;
 import com.gemstone.gemfire.pdx.internal.PdxInstanceImpl;
+import com.gemstone.gemfire.pdx.internal.PdxType;
 import com.gemstone.gemfire.pdx.JSONFormatter;
 
 /**
@@ -46,8 +52,21 @@ public class AttributeDescriptor {
   private final String _name;
   /** cache for remembering the correct Member for a class and attribute */
   private static final ConcurrentMap _cache = new ConcurrentHashMap();
+
+  /** cache of the accessors for a class and attribute */
+  private static final ConcurrentMap _accessorCache = new ConcurrentHashMap();
   
+  /**
+   * the accessor this attribute was last read with from a domain object,
+   * reused for objects of the same class
+   */
+  private volatile ClassAccessor _classAccessor;
   
+  /**
+   * the field this attribute was last read from in a PdxInstance, reused for
+   * instances of the same PdxType
+   */
+  private volatile TypeField _typeField;
   
   public AttributeDescriptor(String name) {
     _name = name;
@@ -70,6 +89,10 @@ public class AttributeDescriptor {
     if (target == null  || target == QueryService.UNDEFINED){
       return QueryService.UNDEFINED;
     }
+    ClassAccessor accessor = _classAccessor;
+    if (accessor != null && accessor.targetClass == target.getClass()) {
+      return accessor.read(target);
+    }
     if (target instanceof PdxInstance){
       return readPdx((PdxInstance) target);
     }
@@ -86,9 +109,14 @@ public class AttributeDescriptor {
     Member m;
     if (target.getClass().getName().startsWith("com.gemstone.gemfire.internal.cache.Token$")) {
       return QueryService.UNDEFINED;
-    } else {
-      m = getReadMember(resolutionClass);
+    } else if (resolutionClass == target.getClass()) {
+      ClassAccessor accessor = getClassAccessor(resolutionClass);
+      if (accessor != null) {
+        _classAccessor = accessor;
+        return accessor.read(target);
+      }
     }
+    m = getReadMember(resolutionClass);
     try {
       if (m instanceof Method) {
         try {
@@ -303,10 +331,11 @@ public class AttributeDescriptor {
       QueryInvocationTargetException {
     if (target instanceof PdxInstanceImpl) {
       PdxInstanceImpl pdxInstance = (PdxInstanceImpl) target;
+      PdxField field = getPdxField(pdxInstance);
       // if the field is present in the pdxinstance
-      if (pdxInstance.hasField(_name)) { 
+      if (field != null) {
         // return PdxString if field is a String otherwise invoke readField
-        return pdxInstance.getRawField(_name);
+        return pdxInstance.getRawField(field);
       }
       else {
         // field not found in the pdx instance, look for the field in any of the
@@ -356,6 +385,40 @@ public class AttributeDescriptor {
     }
   }
   
+  /**
+   * Returns the accessor of this attribute for objects of the class, or null
+   * if the member cannot be read with one.
+   */
+  private ClassAccessor getClassAccessor(Class targetClass)
+  throws NameNotFoundException {
+    List key = new ArrayList();
+    key.add(targetClass);
+    key.add(_name);
+    ClassAccessor accessor = (ClassAccessor)_accessorCache.get(key);
+    if (accessor == null) {
+      accessor = ClassAccessor.create(targetClass, getReadMember(targetClass));
+      if (accessor != null) {
+        _accessorCache.putIfAbsent(key, accessor);
+      }
+    }
+    return accessor;
+  }
+
+  /**
+   * Returns the field of this attribute in the PdxType of the instance, or
+   * null if the type has no such field. The field is remembered for the type,
+   * so that it is not looked up by name for every instance of the type.
+   */
+  private PdxField getPdxField(PdxInstanceImpl pdxInstance) {
+    PdxType type = pdxInstance.getPdxType();
+    TypeField typeField = _typeField;
+    if (typeField == null || typeField.type != type) {
+      typeField = new TypeField(type, type.getPdxField(_name));
+      _typeField = typeField;
+    }
+    return typeField.field;
+  }
+  
   private Object readFieldFromDeserializedObject(PdxInstanceImpl pdxInstance,
       Object target) throws NameNotFoundException,
       QueryInvocationTargetException {
@@ -408,5 +471,72 @@ public class AttributeDescriptor {
   
 
   
+  /**
+   * Reads an attribute from objects of a class with a method handle for its
+   * field or method, instead of with reflection.
+   */
+  private static final class ClassAccessor {
+    private static final MethodType READ_TYPE = MethodType.methodType(
+        Object.class, Object.class);
+
+    final Class targetClass;
+
+    private final MethodHandle handle;
+
+    private ClassAccessor(Class targetClass, MethodHandle handle) {
+      this.targetClass = targetClass;
+      this.handle = handle;
+    }
+
+    /**
+     * Returns the accessor for the member, or null if the member is static or
+     * cannot be accessed with a method handle.
+     */
+    static ClassAccessor create(Class targetClass, Member member) {
+      if (Modifier.isStatic(member.getModifiers())) {
+        return null;
+      }
+      try {
+        MethodHandle handle;
+        if (member instanceof Method) {
+          handle = MethodHandles.lookup().unreflect((Method)member);
+        }
+        else {
+          handle = MethodHandles.lookup().unreflectGetter((Field)member);
+        }
+        return new ClassAccessor(targetClass, handle.asType(READ_TYPE));
+      } catch (IllegalAccessException e) {
+        return null;
+      }
+    }
+
+    Object read(Object target) throws QueryInvocationTargetException {
+      try {
+        return (Object)this.handle.invokeExact(target);
+      } catch (EntryDestroyedException e) {
+        //eat the exception
+        return QueryService.UNDEFINED;
+      } catch (Exception e) {
+        throw new QueryInvocationTargetException(e);
+      } catch (Throwable t) {
+        throw new QueryInvocationTargetException(new InvocationTargetException(t));
+      }
+    }
+  }
+
+  /**
+   * The field of an attribute in a PdxType, null if the type has no such
+   * field.
+   */
+  private static final class TypeField {
+    final PdxType type;
+
+    final PdxField field;
+
+    TypeField(PdxType type, PdxField field) {
+      this.type = type;
+      this.field = field;
+    }
+  }
 }
 
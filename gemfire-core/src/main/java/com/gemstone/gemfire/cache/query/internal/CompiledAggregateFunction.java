@@ -1,11 +1,13 @@
 package com.gemstone.gemfire.cache.query.internal;
 
+import com.gemstone.gemfire.cache.query.Aggregator;
 import com.gemstone.gemfire.cache.query.AmbiguousNameException;
 import com.gemstone.gemfire.cache.query.FunctionDomainException;
 import com.gemstone.gemfire.cache.query.NameResolutionException;
 import com.gemstone.gemfire.cache.query.QueryInvocationTargetException;
 import com.gemstone.gemfire.cache.query.TypeMismatchException;
 import com.gemstone.gemfire.cache.query.internal.aggregate.AvgBucketNode;
+import com.gemstone.gemfire.cache.query.internal.aggregate.AvgBucketNodeCombiner;
 import com.gemstone.gemfire.cache.query.internal.aggregate.AvgDistinct;
 import com.gemstone.gemfire.cache.query.internal.aggregate.AvgDistinctPRQueryNode;
 import com.gemstone.gemfire.cache.query.internal.aggregate.AvgPRQueryNode;
@@ -15,6 +17,7 @@ import com.gemstone.gemfire.cache.query.internal.aggregate.CountDistinctPRQueryN
 import com.gemstone.gemfire.cache.query.internal.aggregate.SumDistinctPRQueryNode;
 import com.gemstone.gemfire.cache.query.internal.aggregate.CountPRQueryNode;
 import com.gemstone.gemfire.cache.query.internal.aggregate.DistinctAggregator;
+import com.gemstone.gemfire.cache.query.internal.aggregate.DistinctBucketNodeCombiner;
 import com.gemstone.gemfire.cache.query.internal.aggregate.MaxMin;
 import com.gemstone.gemfire.cache.query.internal.aggregate.Avg;
 import com.gemstone.gemfire.cache.query.internal.aggregate.Sum;
@@ -100,6 +103,40 @@ public class CompiledAggregateFunction extends AbstractCompiledValue {
 
   }
 
+  /**
+   * Returns an aggregator that combines the results of this aggregate function
+   * computed for several buckets on the bucket node into one partial result,
+   * of the same form as the result of a single bucket.
+   * 
+   * @return the combiner, or null if the partial results of this function
+   *         can not be combined on the bucket node
+   */
+  public Aggregator getBucketResultsCombiner() {
+    switch (this.aggFuncType) {
+
+    case OQLLexerTokenTypes.SUM:
+      return this.distinctOnly ? new DistinctBucketNodeCombiner() : new Sum();
+
+    case OQLLexerTokenTypes.MAX:
+      return new MaxMin(true);
+
+    case OQLLexerTokenTypes.MIN:
+      return new MaxMin(false);
+
+    case OQLLexerTokenTypes.AVG:
+      return this.distinctOnly ? new DistinctBucketNodeCombiner()
+          : new AvgBucketNodeCombiner();
+
+    case OQLLexerTokenTypes.COUNT:
+      return this.distinctOnly ? new DistinctBucketNodeCombiner()
+          : new CountPRQueryNode();
+
+    default:
+      return null;
+
+    }
+  }
+
   private String getStringRep() {
     switch (this.aggFuncType) {
 
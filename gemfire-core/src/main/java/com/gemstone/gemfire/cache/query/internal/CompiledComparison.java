@@ -813,6 +813,10 @@ public class CompiledComparison extends AbstractCompiledValue implements
     if (context instanceof QueryExecutionContext && ((QueryExecutionContext)context).hasHints()) {
       return thisSize <= thatSize;
     }
+
+    if (isCostBasedSelection(thisSize, thatSize)) {
+      return thisSize <= thatSize;
+    }
     
     //There may be some hard rules that give unoptimal selections based on these switch cases.
     if(this._operator == TOK_EQ || this._operator == TOK_NE || this._operator == TOK_NE_ALT) {
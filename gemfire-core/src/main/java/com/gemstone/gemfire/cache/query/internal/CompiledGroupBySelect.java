@@ -172,10 +172,10 @@ public class CompiledGroupBySelect extends CompiledSelect {
     SelectResults newResults = createResultSet(context, elementType, isStruct,
         createOrderedResultSet);
     Aggregator[] aggregators = new Aggregator[this.aggregateFunctions.length];
-    refreshAggregators(aggregators, context);
+    refreshAggregators(aggregators, context, false);
     if (this.orderByAttrs != null) {
       applyGroupBy(baseResults, context, isStruct, newResults, aggregators,
-          !createOrderedResultSet, objectChangedMarker, limitValue);
+          !createOrderedResultSet, objectChangedMarker, limitValue, false);
     } else {
       Iterator iter = baseResults.iterator();
       Object current = null;
@@ -186,13 +186,50 @@ public class CompiledGroupBySelect extends CompiledSelect {
       }
       if (unterminated) {
         this.terminateAndAddToResults(isStruct, newResults, aggregators,
-            current, context, !createOrderedResultSet, limitValue);
+            current, context, !createOrderedResultSet, limitValue, false);
       }
     }
    
     return newResults;
   }
 
+  /**
+   * Combines the results of the buckets of this node, each holding the
+   * partial aggregates of its groups, into one row of partial aggregates per
+   * group. The PR query node then receives and aggregates one row per group
+   * from each node instead of one per bucket.
+   * 
+   * @param bucketResults
+   *          the results of the buckets merged in the order of the group by
+   *          fields
+   * @return the combined partial aggregates, in the same order, or the
+   *         bucket results if an aggregate function has no combiner
+   */
+  public SelectResults combineBucketResults(SelectResults bucketResults,
+      ExecutionContext context) throws FunctionDomainException,
+      TypeMismatchException, NameResolutionException,
+      QueryInvocationTargetException {
+    if (this.orderByAttrs == null) {
+      return bucketResults;
+    }
+    for (CompiledAggregateFunction aggFunc : this.aggregateFunctions) {
+      if (aggFunc.getBucketResultsCombiner() == null) {
+        // the PR query node aggregates the rows of each bucket instead
+        return bucketResults;
+      }
+    }
+    ObjectType elementType = bucketResults.getCollectionType().getElementType();
+    boolean isStruct = elementType != null && elementType.isStructType();
+    boolean[] objectChangedMarker = new boolean[]{false};
+    SelectResults newResults = createResultSet(context, elementType, isStruct,
+        true);
+    Aggregator[] aggregators = new Aggregator[this.aggregateFunctions.length];
+    refreshAggregators(aggregators, context, true);
+    applyGroupBy(bucketResults, context, isStruct, newResults, aggregators,
+        false, objectChangedMarker, -1, true);
+    return newResults;
+  }
+
   private SelectResults createResultSet(ExecutionContext context,
       ObjectType elementType, boolean isStruct, boolean createOrderedResults) {
     elementType = createNewElementType(elementType, isStruct);
@@ -264,7 +301,7 @@ public class CompiledGroupBySelect extends CompiledSelect {
   private void applyGroupBy(SelectResults baseResults,
       ExecutionContext context, boolean isStruct, SelectResults newResults,
       Aggregator[] aggregators, boolean isStructFields, boolean[] objectChangedMarker,
-       int limitValue)
+       int limitValue, boolean combineBucketResults)
       throws FunctionDomainException, TypeMismatchException,
       NameResolutionException, QueryInvocationTargetException {
     Iterator iter = baseResults.iterator();
@@ -301,7 +338,7 @@ public class CompiledGroupBySelect extends CompiledSelect {
         isFirst = false;
       } else {
         keepAdding = terminateAndAddToResults(isStruct, newResults, aggregators, prev,
-            context, isStructFields, limitValue);
+            context, isStructFields, limitValue, combineBucketResults);
         this.accumulate(isStruct, aggregators, current, objectChangedMarker);
         unterminated = true;
       }
@@ -314,7 +351,7 @@ public class CompiledGroupBySelect extends CompiledSelect {
     }
     if (unterminated && keepAdding) {
       this.terminateAndAddToResults(isStruct, newResults, aggregators, prev,
-          context, isStructFields, limitValue);
+          context, isStructFields, limitValue, combineBucketResults);
     }
     
     if(this.originalOrderByClause != null && limitValue > 0
@@ -326,7 +363,8 @@ public class CompiledGroupBySelect extends CompiledSelect {
 
   private boolean terminateAndAddToResults(boolean isStruct,
       SelectResults newResults, Aggregator[] aggregators, Object prev,
-      ExecutionContext context, boolean isStrucFields, int limitValue)
+      ExecutionContext context, boolean isStrucFields, int limitValue,
+      boolean combineBucketResults)
       throws FunctionDomainException, TypeMismatchException,
       NameResolutionException, QueryInvocationTargetException {
     Object[] newRowArray = isStruct ? copyStruct((Struct) prev) : null;
@@ -364,17 +402,18 @@ public class CompiledGroupBySelect extends CompiledSelect {
       keepAdding = false;
     }
     // rfresh the aggregators
-    refreshAggregators(aggregators, context);
+    refreshAggregators(aggregators, context, combineBucketResults);
     return keepAdding;
   }
 
   private void refreshAggregators(Aggregator[] aggregators,
-      ExecutionContext context) throws FunctionDomainException,
-      TypeMismatchException, NameResolutionException,
-      QueryInvocationTargetException {
+      ExecutionContext context, boolean combineBucketResults)
+      throws FunctionDomainException, TypeMismatchException,
+      NameResolutionException, QueryInvocationTargetException {
     int i = 0;
     for (CompiledAggregateFunction aggFunc : this.aggregateFunctions) {
-      Aggregator agg = (Aggregator) aggFunc.evaluate(context);
+      Aggregator agg = combineBucketResults ? aggFunc.getBucketResultsCombiner()
+          : (Aggregator) aggFunc.evaluate(context);
       aggregators[i++] = agg;
     }
   }
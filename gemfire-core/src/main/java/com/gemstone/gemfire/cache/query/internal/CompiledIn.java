@@ -887,6 +887,10 @@ public class CompiledIn extends AbstractCompiledValue implements Indexable {
     if (context instanceof QueryExecutionContext && ((QueryExecutionContext)context).hasHints()) {
       return thisSize <= thatSize;
     }
+
+    if (isCostBasedSelection(thisSize, thatSize)) {
+      return thisSize <= thatSize;
+    }
         
     switch(thatOperator) {
         case TOK_EQ:
@@ -64,7 +64,14 @@ public class CompiledSelect extends AbstractCompiledValue {
   private CompiledValue limit;
   //Shobhit: counts the no of results satisfying where condition for
   // count(*) non-distinct queries where no indexes are used.
-  private int countStartQueryResult = 0;
+  // Kept per thread as the buckets of a partitioned region are queried in
+  // parallel using the same CompiledSelect.
+  private final ThreadLocal<int[]> countStartQueryResult = new ThreadLocal<int[]>() {
+    @Override
+    protected int[] initialValue() {
+      return new int[1];
+    }
+  };
   
   protected List<CompiledValue> groupBy = null;
   //Are not serialized and are recreated when compiling the query
@@ -599,7 +606,7 @@ public class CompiledSelect extends AbstractCompiledValue {
         if (this.count) {
           SelectResults res = (SelectResults) result;
           
-          if ((this.distinct || evalAsFilters || countStartQueryResult == 0)) {
+          if ((this.distinct || evalAsFilters || countStartQueryResult.get()[0] == 0)) {
             // Retrun results as it is as distinct is applied
             // at coordinator node for PR queries.
             if (context.getBucketList() != null && this.distinct) {
@@ -614,7 +621,7 @@ public class CompiledSelect extends AbstractCompiledValue {
             result = countResult;
 
           } else {
-            ((ResultsBag)res).addAndGetOccurence(countStartQueryResult);
+            ((ResultsBag)res).addAndGetOccurence(countStartQueryResult.get()[0]);
           }
         }
       }
@@ -708,6 +715,14 @@ public class CompiledSelect extends AbstractCompiledValue {
         return results;
       }
     }
+    // check for an equality join of two regions
+    if (evaluateWhereClause && DefaultQuery.HASH_JOIN_ENABLED) {
+      HashJoin join = HashJoin.create(this.whereClause, context);
+      if (join != null) {
+        doHashJoin(join, results, context);
+        return results;
+      }
+    }
     int numElementsInResult = 0;
     try {
       doNestedIterations(0, results, context, evaluateWhereClause,numElementsInResult);
@@ -774,50 +789,39 @@ public class CompiledSelect extends AbstractCompiledValue {
     return cIn.optimizeBulkGet(rgn, context);
   }
 
+  /**
+   * Evaluates the where clause for the pairs of elements brought together by
+   * the join instead of for every combination of the elements of the two
+   * iterators.
+   */
+  private void doHashJoin(HashJoin join, final SelectResults results,
+      final ExecutionContext context) throws TypeMismatchException,
+      FunctionDomainException, NameResolutionException,
+      QueryInvocationTargetException {
+    final int[] numElementsInResult = new int[1];
+    boolean keepSerialized = (DefaultQuery)context.getQuery() != null
+        && ((DefaultQuery)context.getQuery()).isKeepSerialized();
+    join.evaluate(context, keepSerialized, new HashJoin.PairHandler() {
+      public boolean handlePair() throws FunctionDomainException,
+          TypeMismatchException, NameResolutionException,
+          QueryInvocationTargetException {
+        numElementsInResult[0] = addToResultsIfWhereClauseHolds(context,
+            results, true, numElementsInResult[0]);
+        Integer limitValue = evaluateLimitValue(context, limit);
+        return orderByAttrs != null || limitValue < 0
+            || numElementsInResult[0] != limitValue;
+      }
+    });
+  }
+
   // returns the number of elements added in the return ResultSet
   private int doNestedIterations(int level, SelectResults results, ExecutionContext context,
       boolean evaluateWhereClause, int numElementsInResult) throws TypeMismatchException, AmbiguousNameException, FunctionDomainException,
       NameResolutionException, QueryInvocationTargetException, CompiledSelect.NullIteratorException {
     List iterList = context.getCurrentIterators();
     if (level == iterList.size()) {
-      boolean addToResults = true;
-      if (evaluateWhereClause) {
-        Object result = this.whereClause.evaluate(context);
-        QueryObserver observer = QueryObserverHolder.getInstance();
-        observer.afterIterationEvaluation(result);
-        if (result == null) {
-          addToResults = false;
-        }
-        else if (result instanceof Boolean) {
-          addToResults = ((Boolean)result).booleanValue();
-        }
-        else if (result == QueryService.UNDEFINED) {
-          // add UNDEFINED to results only for NOT EQUALS queries
-          if (this.whereClause.getType() == COMPARISON) {
-            int operator = ((CompiledComparison) this.whereClause).getOperator();
-            if ((operator != TOK_NE && operator != TOK_NE_ALT)) {
-              addToResults = false;
-            } 
-          } else {
-            addToResults = false;
-          }
-        }
-        else {
-          throw new TypeMismatchException(LocalizedStrings.CompiledSelect_THE_WHERE_CLAUSE_WAS_TYPE_0_INSTEAD_OF_BOOLEAN.toLocalizedString(result.getClass().getName()));
-        }
-      }
-      if (addToResults) {
-        int occurence = applyProjectionAndAddToResultSet(context, results, this.orderByAttrs == null);
-        // Asif: If the occurence is greater than 1, then only in case of
-        // non distinct query should it be treated as contributing to size
-        // else duplication will be eliminated when making it distinct using
-        // ResultsCollectionWrapper and we will fall short of limit
-        if (occurence == 1 || (occurence > 1 && !this.distinct)) {
-          // Asif: (Unique i.e first time occurence) or subsequent occurence
-          // for non distinct query
-          ++numElementsInResult;
-        }
-      }     
+      numElementsInResult = addToResultsIfWhereClauseHolds(context, results,
+          evaluateWhereClause, numElementsInResult);
     }
     else {
       RuntimeIterator rIter = (RuntimeIterator) iterList.get(level);
@@ -831,7 +835,7 @@ public class CompiledSelect extends AbstractCompiledValue {
       if (this.whereClause == null && iterators.size() == 1 && isCount() && !isDistinct() && 
           sr instanceof QRegion) {
         QRegion qr = (QRegion)sr;
-        countStartQueryResult = qr.getRegion().size();
+        countStartQueryResult.get()[0] = qr.getRegion().size();
         return 1;
       }
 
@@ -865,6 +869,58 @@ public class CompiledSelect extends AbstractCompiledValue {
     return numElementsInResult;
   }
 
+  /**
+   * Evaluates the where clause, if required, for the current elements of the
+   * iterators and adds the projection to the results if it holds.
+   * 
+   * @return the number of elements in the results
+   */
+  private int addToResultsIfWhereClauseHolds(ExecutionContext context,
+      SelectResults results, boolean evaluateWhereClause,
+      int numElementsInResult) throws TypeMismatchException,
+      FunctionDomainException, NameResolutionException,
+      QueryInvocationTargetException {
+    boolean addToResults = true;
+    if (evaluateWhereClause) {
+      Object result = this.whereClause.evaluate(context);
+      QueryObserver observer = QueryObserverHolder.getInstance();
+      observer.afterIterationEvaluation(result);
+      if (result == null) {
+        addToResults = false;
+      }
+      else if (result instanceof Boolean) {
+        addToResults = ((Boolean)result).booleanValue();
+      }
+      else if (result == QueryService.UNDEFINED) {
+        // add UNDEFINED to results only for NOT EQUALS queries
+        if (this.whereClause.getType() == COMPARISON) {
+          int operator = ((CompiledComparison) this.whereClause).getOperator();
+          if ((operator != TOK_NE && operator != TOK_NE_ALT)) {
+            addToResults = false;
+          } 
+        } else {
+          addToResults = false;
+        }
+      }
+      else {
+        throw new TypeMismatchException(LocalizedStrings.CompiledSelect_THE_WHERE_CLAUSE_WAS_TYPE_0_INSTEAD_OF_BOOLEAN.toLocalizedString(result.getClass().getName()));
+      }
+    }
+    if (addToResults) {
+      int occurence = applyProjectionAndAddToResultSet(context, results, this.orderByAttrs == null);
+      // Asif: If the occurence is greater than 1, then only in case of
+      // non distinct query should it be treated as contributing to size
+      // else duplication will be eliminated when making it distinct using
+      // ResultsCollectionWrapper and we will fall short of limit
+      if (occurence == 1 || (occurence > 1 && !this.distinct)) {
+        // Asif: (Unique i.e first time occurence) or subsequent occurence
+        // for non distinct query
+        ++numElementsInResult;
+      }
+    }
+    return numElementsInResult;
+  }
+
   private SelectResults applyProjectionOnCollection(SelectResults resultSet,
       ExecutionContext context, boolean ignoreOrderBy) throws TypeMismatchException,
       AmbiguousNameException, FunctionDomainException, NameResolutionException,
@@ -1018,7 +1074,7 @@ public class CompiledSelect extends AbstractCompiledValue {
                                                                      * value
                                                                      */,
           context.getCachePerfStats());
-      countStartQueryResult = 0;
+      countStartQueryResult.get()[0] = 0;
 
     }
    return results;   
@@ -1224,7 +1280,7 @@ public class CompiledSelect extends AbstractCompiledValue {
         // Counter is local to CompileSelect and not available in ResultSet
         // until
         // the end of evaluate call to this CompiledSelect object.
-        this.countStartQueryResult++;
+        this.countStartQueryResult.get()[0]++;
         occurence = 1;
       } else {
         // if order by is present
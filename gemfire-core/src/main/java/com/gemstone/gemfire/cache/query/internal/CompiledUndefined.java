@@ -283,6 +283,10 @@ public class CompiledUndefined extends AbstractCompiledValue implements
     if (context instanceof QueryExecutionContext && ((QueryExecutionContext)context).hasHints()) {
       return thisSize <= thatSize;
     }
+
+    if (isCostBasedSelection(thisSize, thatSize)) {
+      return thisSize <= thatSize;
+    }
         
     switch(thatOperator) {
       case TOK_EQ:
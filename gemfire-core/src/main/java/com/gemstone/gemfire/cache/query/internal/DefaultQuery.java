@@ -42,11 +42,13 @@ import com.gemstone.gemfire.cache.query.RegionNotFoundException;
 import com.gemstone.gemfire.cache.query.SelectResults;
 import com.gemstone.gemfire.cache.query.TypeMismatchException;
 import com.gemstone.gemfire.cache.query.internal.cq.InternalCqQuery;
+import com.gemstone.gemfire.cache.query.internal.index.IndexManager;
 import com.gemstone.gemfire.internal.NanoTimer;
 import com.gemstone.gemfire.internal.cache.BucketRegion;
 import com.gemstone.gemfire.internal.cache.CachePerfStats;
 import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
 import com.gemstone.gemfire.internal.cache.LocalDataSet;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
 import com.gemstone.gemfire.internal.cache.PRQueryProcessor;
 import com.gemstone.gemfire.internal.cache.PartitionedRegion;
 import com.gemstone.gemfire.internal.cache.TXManagerImpl;
@@ -91,6 +93,35 @@ public class DefaultQuery implements Query {
 
   public static int TEST_COMPILED_QUERY_CLEAR_TIME = -1;
 
+  /**
+   * System property for the longest time, in milliseconds, a query waits for
+   * the pending asynchronous index updates of the regions it queries before it
+   * runs. By default queries do not wait, and may miss entries whose index
+   * updates are still queued.
+   */
+  public static final long ASYNC_INDEX_WAIT_TIME = Long.getLong(
+      "gemfire.Query.ASYNC_INDEX_WAIT_TIME", 0).longValue();
+
+  private long asyncIndexWaitTime = ASYNC_INDEX_WAIT_TIME;
+
+  /**
+   * System property to turn off cost based index selection. When on, the
+   * filter of a junction evaluated with an index is the one with the smallest
+   * estimated index result, with range estimates taken from histograms of the
+   * index keys. When off, fixed operator based rules decide as before.
+   */
+  public static final boolean COST_BASED_INDEX_SELECTION = !Boolean
+      .getBoolean("gemfire.Query.DISABLE_COST_BASED_INDEX_SELECTION");
+
+  /**
+   * System property to turn off hash joins. When on, a query over two regions
+   * without a usable index, whose where clause has an equality between the
+   * two, looks up the elements of one region in a hash table of the other
+   * instead of evaluating the where clause for every pair of elements.
+   */
+  public static final boolean HASH_JOIN_ENABLED = !Boolean
+      .getBoolean("gemfire.Query.DISABLE_HASH_JOIN");
+
   // Use to represent null result.
   // Used while adding PR results to the results-queue, which is a blocking queue.
   public static final Object NULL_RESULT = new Object();
@@ -555,6 +586,7 @@ public class DefaultQuery implements Query {
       observer.beforeQueryEvaluation(compiledQuery, context);
       Object results = null;
       try {
+        waitForIndexUpdates(context);
         // two-pass evaluation.
         // first pre-compute dependencies, cached in the context.
         this.compiledQuery.computeDependencies(context);
@@ -593,6 +625,51 @@ public class DefaultQuery implements Query {
   }
 
 
+  /**
+   * Waits, for at most the async index wait time, for the asynchronous index
+   * updates queued on the regions of this query to be applied. For a
+   * partitioned region only the buckets this member is querying are waited
+   * for.
+   */
+  private void waitForIndexUpdates(ExecutionContext context) {
+    if (this.asyncIndexWaitTime <= 0) {
+      return;
+    }
+    List<IndexManager> indexManagers = new ArrayList<IndexManager>();
+    for (Object path : getRegionsInQuery(context.bindArguments)) {
+      Region region = this.cache.getRegion((String)path);
+      if (region instanceof PartitionedRegion) {
+        PartitionedRegion pr = (PartitionedRegion)region;
+        List buckets = context.getBucketList();
+        if (buckets != null && pr.getDataStore() != null) {
+          for (Object bucketId : buckets) {
+            BucketRegion bucket = pr.getDataStore().getLocalBucketById((Integer)bucketId);
+            if (bucket != null && bucket.getIndexManager() != null) {
+              indexManagers.add(bucket.getIndexManager());
+            }
+          }
+        }
+      } else if (region instanceof LocalRegion) {
+        IndexManager indexManager = ((LocalRegion)region).getIndexManager();
+        if (indexManager != null) {
+          indexManagers.add(indexManager);
+        }
+      }
+    }
+    long end = System.currentTimeMillis() + this.asyncIndexWaitTime;
+    try {
+      for (IndexManager indexManager : indexManagers) {
+        long remaining = end - System.currentTimeMillis();
+        if (remaining <= 0 || !indexManager.waitForIndexUpdates(remaining)) {
+          // run the query on the indexes as they are
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   private QueryExecutor checkQueryOnPR(Object[] parameters) throws RegionNotFoundException {
 
     // check for PartititionedRegions. If a PartitionedRegion is referred to in the query,
@@ -1093,6 +1170,18 @@ public class DefaultQuery implements Query {
   public void setRemoteQuery(boolean isRemoteQuery) {
     this.isRemoteQuery = isRemoteQuery;
   }
+
+  public long getAsyncIndexWaitTime() {
+    return this.asyncIndexWaitTime;
+  }
+
+  /**
+   * Sets the longest time, in milliseconds, this query waits for pending
+   * asynchronous index updates before it runs; zero if it does not wait.
+   */
+  public void setAsyncIndexWaitTime(long millis) {
+    this.asyncIndexWaitTime = millis;
+  }
   
  /**
   * set keepSerialized flag for remote queries of type
@@ -14,6 +14,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -886,6 +887,9 @@ public class DefaultQueryService implements QueryService {
     HashSet<Index> indexes = new HashSet<Index>();
     boolean throwException = false;
     HashMap<String, Exception> exceptionsMap = new HashMap<String, Exception>();
+    // the indexes of the replicated regions, populated together once they
+    // have all been created
+    Map<IndexManager, Collection<Index>> regionIndexSets = new LinkedHashMap<IndexManager, Collection<Index>>();
     
     synchronized (indexDefinitions) {
       for (Entry<Region, HashSet<IndexCreationData>> e : indexDefinitions
@@ -893,11 +897,25 @@ public class DefaultQueryService implements QueryService {
         Region region = e.getKey();
         HashSet<IndexCreationData> icds = e.getValue();
         if (region instanceof PartitionedRegion) {
-          throwException = createDefinedIndexesForPR(indexes,
+          throwException |= createDefinedIndexesForPR(indexes,
               (PartitionedRegion) region, icds, exceptionsMap);
         } else {
-          throwException = createDefinedIndexesForReplicatedRegion(indexes,
-              region, icds, exceptionsMap);
+          throwException |= createDefinedIndexesForReplicatedRegion(indexes,
+              region, icds, exceptionsMap, regionIndexSets);
+        }
+      }
+      if (!regionIndexSets.isEmpty()) {
+        if (IndexManager.testHook != null) {
+          IndexManager.testHook.hook(13);
+        }
+        // Second step is iterating over REs and populating all the created
+        // indexes, one pass over the entries of each region, with the regions
+        // populated in parallel
+        try {
+          IndexManager.populateIndexesInParallel(regionIndexSets);
+        } catch (MultiIndexCreationException ex) {
+          exceptionsMap.putAll(ex.getExceptionsMap());
+          throwException = true;
         }
       }
     } // end sync
@@ -932,16 +950,26 @@ public class DefaultQueryService implements QueryService {
     return false;
   }
 
+  /**
+   * Creates the defined indexes of a region that is not partitioned, without
+   * populating them.
+   * 
+   * @param regionIndexSets
+   *          the created indexes are added here, by the index manager of the
+   *          region, to be populated once all the indexes are created
+   */
   private boolean createDefinedIndexesForReplicatedRegion(HashSet<Index> indexes,
       Region region, Set<IndexCreationData> icds,
-      HashMap<String, Exception> exceptionsMap) {
+      HashMap<String, Exception> exceptionsMap,
+      Map<IndexManager, Collection<Index>> regionIndexSets) {
     boolean throwException = false;
+    HashSet<Index> regionIndexes = new HashSet<Index>();
     for (IndexCreationData icd : icds) {
       try {
         // First step is creating all the defined indexes. Do this only if
         // the region is not PR. For PR creation and population is done in
         // the PartitionedRegion#createDefinedIndexes
-        indexes.add(createIndex(icd.getIndexName(), icd.getIndexType(),
+        regionIndexes.add(createIndex(icd.getIndexName(), icd.getIndexType(),
             icd.getIndexExpression(), icd.getIndexFromClause(),
             icd.getIndexImportString(), false, region));
       } catch (Exception ex) {
@@ -957,11 +985,7 @@ public class DefaultQueryService implements QueryService {
         throwException = true;
       }
     }
-    if (IndexManager.testHook != null) {
-      IndexManager.testHook.hook(13);
-    }
-    // Second step is iterating over REs and populating all the created
-    // indexes
+    indexes.addAll(regionIndexes);
     IndexManager indexManager = IndexUtils.getIndexManager(region, false);
     if (indexManager == null) {
       for (IndexCreationData icd : icds) {
@@ -971,13 +995,8 @@ public class DefaultQueryService implements QueryService {
       return true;
     }
 
-    if(indexes.size() > 0) {
-      try {
-        indexManager.populateIndexes(indexes);
-      } catch (MultiIndexCreationException ex) {
-        exceptionsMap.putAll(ex.getExceptionsMap());
-        throwException = true;
-      }
+    if (regionIndexes.size() > 0) {
+      regionIndexSets.put(indexManager, regionIndexes);
     }
     return throwException;
 
@@ -83,6 +83,9 @@ public class ExecutionContext {
   private boolean distinct = false;
   private Object currentProjectionField = null;
   private boolean isPRQueryNode = false;
+  //false if the index uses of a PR query are recorded by another context, as
+  //when the buckets are queried in parallel
+  private boolean updateIndexUseStats = true;
   /**
    * Param specialIteratorVar name of special variable to use to denote the
    * current iteration element. Used to implement the "this" var in the query
@@ -721,4 +724,12 @@ public class ExecutionContext {
     return this.isPRQueryNode;
   }
   
+  public void setUpdateIndexUseStats(boolean updateIndexUseStats) {
+    this.updateIndexUseStats = updateIndexUseStats;
+  }
+  
+  public boolean getUpdateIndexUseStats() {
+    return this.updateIndexUseStats;
+  }
+  
 }
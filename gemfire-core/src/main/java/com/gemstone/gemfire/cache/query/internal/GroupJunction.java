@@ -13,6 +13,7 @@ package com.gemstone.gemfire.cache.query.internal;
 import java.util.ArrayList;
 import java.util.List;
 import com.gemstone.gemfire.cache.query.FunctionDomainException;
+import com.gemstone.gemfire.cache.query.Index;
 import com.gemstone.gemfire.cache.query.NameResolutionException;
 import com.gemstone.gemfire.cache.query.QueryInvocationTargetException;
 import com.gemstone.gemfire.cache.query.TypeMismatchException;
@@ -102,6 +103,8 @@ public class GroupJunction extends AbstractGroupOrRangeJunction {
         
         Filter currentBestFilter = null;
         int currentBestFilterSize =-1;
+        PlanInfo currentBestPlan = null;
+        int numFilters = 0;
         indexCount = 1;
       
         for (int i = 0; i < _operands.length; i++) {
@@ -124,6 +127,7 @@ public class GroupJunction extends AbstractGroupOrRangeJunction {
           // OR Junction.
           PlanInfo pi = _operands[i].getPlanInfo(context);
           if (pi.evalAsFilter) {
+            numFilters++;
             if(pi.isPreferred) {
               if(currentBestFilter != null) {
                 evalOperands.add(currentBestFilter);
@@ -131,12 +135,14 @@ public class GroupJunction extends AbstractGroupOrRangeJunction {
               // new best
               currentBestFilter = (Filter)_operands[i];
               currentBestFilterSize = ((Filter)_operands[i]).getSizeEstimate(context);
+              currentBestPlan = pi;
               foundPreferredCondition = true;
               continue;
             }
             if (currentBestFilter == null) {
               currentBestFilter = (Filter)_operands[i];            
               currentBestFilterSize = ((Filter)_operands[i]).getSizeEstimate(context);
+              currentBestPlan = pi;
             }
             else if ( foundPreferredCondition ||currentBestFilter.isBetterFilter((Filter)_operands[i], context, currentBestFilterSize)) {
               evalOperands.add(_operands[i]);
@@ -147,6 +153,7 @@ public class GroupJunction extends AbstractGroupOrRangeJunction {
               // TODO:Asif: Avoid this call. Let the function which is doing the
               // comparison return some how the size of comparedTo operand. 
               currentBestFilterSize = ((Filter)_operands[i]).getSizeEstimate(context);
+              currentBestPlan = pi;
   
             }
           }
@@ -161,6 +168,11 @@ public class GroupJunction extends AbstractGroupOrRangeJunction {
           }
         }
         evalOperands.add(0, currentBestFilter);
+        if (currentBestPlan != null && !currentBestPlan.indexes.isEmpty()) {
+          QueryObserverHolder.getInstance().afterIndexSelection(
+              (Index)currentBestPlan.indexes.get(0), currentBestFilterSize,
+              numFilters);
+        }
       }
     }else {
       indexCount =_operands.length ;
@@ -176,6 +188,20 @@ public class GroupJunction extends AbstractGroupOrRangeJunction {
   }
   
   public int getSizeEstimate(ExecutionContext context)throws FunctionDomainException, TypeMismatchException, NameResolutionException, QueryInvocationTargetException  {
-	return 1;
+    if (!DefaultQuery.COST_BASED_INDEX_SELECTION) {
+      return 1;
+    }
+    // An AND junction uses the index of its most selective condition, an OR
+    // junction the indexes of all its conditions.
+    boolean isAnd = this.getOperator() == LITERAL_and;
+    long size = isAnd ? Integer.MAX_VALUE : 0;
+    for (int i = 0; i < _operands.length; i++) {
+      if (_operands[i] instanceof Filter
+          && _operands[i].getPlanInfo(context).evalAsFilter) {
+        int operandSize = ((Filter)_operands[i]).getSizeEstimate(context);
+        size = isAnd ? Math.min(size, operandSize) : size + operandSize;
+      }
+    }
+    return (int)Math.min(size, Integer.MAX_VALUE);
   }
 }
@@ -0,0 +1,361 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.query.internal;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.gemstone.gemfire.cache.query.FunctionDomainException;
+import com.gemstone.gemfire.cache.query.NameResolutionException;
+import com.gemstone.gemfire.cache.query.QueryException;
+import com.gemstone.gemfire.cache.query.QueryInvocationTargetException;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.cache.query.TypeMismatchException;
+import com.gemstone.gemfire.cache.query.internal.parse.OQLLexerTokenTypes;
+import com.gemstone.gemfire.pdx.internal.PdxString;
+
+/**
+ * Evaluates a query over two independent iterators whose where clause
+ * contains an equality between an expression of each iterator, without
+ * iterating over every pair of elements. The elements of the smaller
+ * collection are put in a hash table on the value of their side of the
+ * equality, together with a bloom filter of those values, and the elements of
+ * the other collection are looked up in it. The where clause is still
+ * evaluated for every pair found, so the hash table only has to bring together
+ * the pairs whose values may be equal.
+ * <p>
+ * Values are hashed only for types whose OQL equality agrees with a normalized
+ * <code>equals</code>: strings, characters, booleans, enums, integral numbers
+ * and dates. An element with a value of any other type is paired with every
+ * element of the other collection, as in a nested iteration.
+ * <p>
+ * For a query on colocated partitioned regions executed bucket by bucket the
+ * collections are those of a bucket, so the hash tables are built per bucket.
+ *
+ * @since 9.0
+ */
+class HashJoin implements OQLLexerTokenTypes {
+
+  /** Bits of the bloom filter per element of the hashed collection */
+  private static final int BLOOM_BITS_PER_KEY = 8;
+
+  private static final int BLOOM_NUM_HASHES = 3;
+
+  /** Key of the elements whose value is null or UNDEFINED */
+  private static final Object NULL_KEY = new Object();
+
+  /** Marks a value that cannot be hashed */
+  private static final Object UNHASHABLE = new Object();
+
+  private final RuntimeIterator firstIterator;
+
+  private final CompiledValue firstKey;
+
+  private final RuntimeIterator secondIterator;
+
+  private final CompiledValue secondKey;
+
+  private HashJoin(RuntimeIterator firstIterator, CompiledValue firstKey,
+      RuntimeIterator secondIterator, CompiledValue secondKey) {
+    this.firstIterator = firstIterator;
+    this.firstKey = firstKey;
+    this.secondIterator = secondIterator;
+    this.secondKey = secondKey;
+  }
+
+  /**
+   * Handles a pair of elements brought together by the join. The iterators
+   * are positioned on the pair when it is called.
+   */
+  interface PairHandler {
+    /**
+     * @return false if no more pairs are wanted
+     */
+    boolean handlePair() throws FunctionDomainException,
+        TypeMismatchException, NameResolutionException,
+        QueryInvocationTargetException;
+  }
+
+  /**
+   * Returns a join for the where clause if the current scope has exactly two
+   * iterators, both independent, and the where clause is, or is an AND
+   * junction with, an equality between an expression depending only on one
+   * iterator and an expression depending only on the other.
+   *
+   * @return the join or null if the where clause is not such a join
+   */
+  static HashJoin create(CompiledValue whereClause, ExecutionContext context) {
+    List iterators = context.getCurrentIterators();
+    if (iterators.size() != 2
+        || context.getAllIndependentIteratorsOfCurrentScope().size() != 2) {
+      return null;
+    }
+    RuntimeIterator first = (RuntimeIterator)iterators.get(0);
+    RuntimeIterator second = (RuntimeIterator)iterators.get(1);
+    if (whereClause instanceof CompiledComparison) {
+      return create((CompiledComparison)whereClause, first, second, context);
+    }
+    if (whereClause instanceof CompiledJunction
+        && ((CompiledJunction)whereClause).getOperator() == LITERAL_and) {
+      for (Iterator itr = ((CompiledJunction)whereClause).getOperands()
+          .iterator(); itr.hasNext();) {
+        Object operand = itr.next();
+        if (operand instanceof CompiledComparison) {
+          HashJoin join = create((CompiledComparison)operand, first, second,
+              context);
+          if (join != null) {
+            return join;
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  private static HashJoin create(CompiledComparison comparison,
+      RuntimeIterator first, RuntimeIterator second, ExecutionContext context) {
+    if (comparison.getOperator() != TOK_EQ) {
+      return null;
+    }
+    List operands = comparison.getChildren();
+    CompiledValue left = (CompiledValue)operands.get(0);
+    CompiledValue right = (CompiledValue)operands.get(1);
+    RuntimeIterator leftIterator = getSingleIterator(left, context);
+    RuntimeIterator rightIterator = getSingleIterator(right, context);
+    if (leftIterator == first && rightIterator == second) {
+      return new HashJoin(first, left, second, right);
+    }
+    if (leftIterator == second && rightIterator == first) {
+      return new HashJoin(first, right, second, left);
+    }
+    return null;
+  }
+
+  /**
+   * Returns the only independent iterator the value depends on, or null if it
+   * depends on none or several.
+   */
+  private static RuntimeIterator getSingleIterator(CompiledValue value,
+      ExecutionContext context) {
+    Set iterators = new HashSet();
+    context.computeUtlimateDependencies(value, iterators);
+    return iterators.size() == 1 ? (RuntimeIterator)iterators.iterator()
+        .next() : null;
+  }
+
+  /**
+   * Positions the iterators on every pair of elements of their collections
+   * whose values of the equality may be equal and calls the handler for it.
+   */
+  void evaluate(ExecutionContext context, boolean keepSerialized,
+      PairHandler handler) throws FunctionDomainException,
+      TypeMismatchException, NameResolutionException,
+      QueryInvocationTargetException {
+    SelectResults firstCollection = this.firstIterator
+        .evaluateCollection(context);
+    if (firstCollection == null) {
+      return;
+    }
+    SelectResults secondCollection = this.secondIterator
+        .evaluateCollection(context);
+    if (secondCollection == null) {
+      return;
+    }
+    if (keepSerialized) {
+      if (firstCollection instanceof QRegion) {
+        ((QRegion)firstCollection).setKeepSerialized(true);
+      }
+      if (secondCollection instanceof QRegion) {
+        ((QRegion)secondCollection).setKeepSerialized(true);
+      }
+    }
+    // hash the smaller collection
+    if (firstCollection.size() <= secondCollection.size()) {
+      join(context, firstCollection, this.firstIterator, this.firstKey,
+          secondCollection, this.secondIterator, this.secondKey, handler);
+    }
+    else {
+      join(context, secondCollection, this.secondIterator, this.secondKey,
+          firstCollection, this.firstIterator, this.firstKey, handler);
+    }
+  }
+
+  private static void join(ExecutionContext context,
+      SelectResults buildCollection, RuntimeIterator buildIterator,
+      CompiledValue buildKey, SelectResults probeCollection,
+      RuntimeIterator probeIterator, CompiledValue probeKey,
+      PairHandler handler) throws FunctionDomainException,
+      TypeMismatchException, NameResolutionException,
+      QueryInvocationTargetException {
+    QueryObserver observer = QueryObserverHolder.getInstance();
+    int buildSize = buildCollection.size();
+    Map<Object, List<Object>> table = new HashMap<Object, List<Object>>(
+        Math.max(16, buildSize * 4 / 3 + 1));
+    BloomFilter bloomFilter = new BloomFilter(buildSize);
+    List<Object> unhashable = null;
+    for (Iterator itr = buildCollection.iterator(); itr.hasNext();) {
+      // Check if query execution on this thread is canceled.
+      QueryMonitor.isQueryExecutionCanceled();
+      Object element = itr.next();
+      buildIterator.setCurrent(element);
+      observer.beforeIterationEvaluation(buildIterator, element);
+      Object key = hashKey(buildKey, context);
+      if (key == UNHASHABLE) {
+        if (unhashable == null) {
+          unhashable = new ArrayList<Object>();
+        }
+        unhashable.add(element);
+        continue;
+      }
+      List<Object> elements = table.get(key);
+      if (elements == null) {
+        elements = new ArrayList<Object>(1);
+        table.put(key, elements);
+        bloomFilter.add(key);
+      }
+      elements.add(element);
+    }
+    if (table.isEmpty() && unhashable == null) {
+      return;
+    }
+
+    for (Iterator itr = probeCollection.iterator(); itr.hasNext();) {
+      QueryMonitor.isQueryExecutionCanceled();
+      Object element = itr.next();
+      probeIterator.setCurrent(element);
+      observer.beforeIterationEvaluation(probeIterator, element);
+      Object key = hashKey(probeKey, context);
+      if (key == UNHASHABLE) {
+        // pair with every element, as a nested iteration would
+        if (!handlePairs(buildCollection, buildIterator, handler)) {
+          return;
+        }
+        continue;
+      }
+      if (bloomFilter.mightContain(key)) {
+        List<Object> matches = table.get(key);
+        if (matches != null && !handlePairs(matches, buildIterator, handler)) {
+          return;
+        }
+      }
+      if (unhashable != null
+          && !handlePairs(unhashable, buildIterator, handler)) {
+        return;
+      }
+    }
+  }
+
+  private static boolean handlePairs(Iterable elements,
+      RuntimeIterator iterator, PairHandler handler)
+      throws FunctionDomainException, TypeMismatchException,
+      NameResolutionException, QueryInvocationTargetException {
+    for (Object element : elements) {
+      iterator.setCurrent(element);
+      if (!handler.handlePair()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Evaluates the value of the equality for the current element and returns
+   * its hash table key, or UNHASHABLE if it cannot be hashed. A value that
+   * fails to evaluate is not hashed, so that the where clause decides about
+   * the element as in a nested iteration.
+   */
+  private static Object hashKey(CompiledValue value, ExecutionContext context) {
+    Object key;
+    try {
+      key = value.evaluate(context);
+    }
+    catch (QueryException e) {
+      return UNHASHABLE;
+    }
+    if (key == null || key == QueryService.UNDEFINED) {
+      return NULL_KEY;
+    }
+    if (key instanceof String || key instanceof Character
+        || key instanceof Boolean || key instanceof Enum) {
+      return key;
+    }
+    if (key instanceof PdxString) {
+      return key.toString();
+    }
+    // integral numbers of different types are compared by value
+    if (key instanceof Integer || key instanceof Long || key instanceof Short
+        || key instanceof Byte) {
+      return Long.valueOf(((Number)key).longValue());
+    }
+    if (key instanceof Date) {
+      return Long.valueOf(((Date)key).getTime());
+    }
+    return UNHASHABLE;
+  }
+
+  /**
+   * A bloom filter of the keys of the hash table, checked before the table
+   * itself. Most elements of a selective join do not find a match, and the
+   * filter rejects them without a lookup in the table.
+   */
+  static final class BloomFilter {
+    private final long[] bits;
+
+    private final int mask;
+
+    BloomFilter(int expectedKeys) {
+      long numBits = Math.max(64L, (long)expectedKeys * BLOOM_BITS_PER_KEY);
+      numBits = Math.min(numBits, 1L << 27);
+      // round up to a power of two
+      int size = Integer.highestOneBit((int)numBits);
+      if (size < numBits) {
+        size <<= 1;
+      }
+      this.bits = new long[size >>> 6];
+      this.mask = size - 1;
+    }
+
+    void add(Object key) {
+      int hash = spread(key.hashCode());
+      int step = (hash >>> 16) | 1;
+      for (int i = 0; i < BLOOM_NUM_HASHES; i++) {
+        int bit = hash & this.mask;
+        this.bits[bit >>> 6] |= 1L << bit;
+        hash += step;
+      }
+    }
+
+    boolean mightContain(Object key) {
+      int hash = spread(key.hashCode());
+      int step = (hash >>> 16) | 1;
+      for (int i = 0; i < BLOOM_NUM_HASHES; i++) {
+        int bit = hash & this.mask;
+        if ((this.bits[bit >>> 6] & (1L << bit)) == 0) {
+          return false;
+        }
+        hash += step;
+      }
+      return true;
+    }
+
+    private static int spread(int h) {
+      h ^= h >>> 16;
+      h *= 0x85ebca6b;
+      h ^= h >>> 13;
+      h *= 0xc2b2ae35;
+      return h ^ (h >>> 16);
+    }
+  }
+}
@@ -42,6 +42,7 @@ public class IndexTrackingQueryObserver extends QueryObserverAdapter {
   
   private static final ThreadLocal indexInfo = new ThreadLocal();
   private static final ThreadLocal lastIndexUsed = new ThreadLocal();
+  private static final ThreadLocal selectedIndex = new ThreadLocal();
   private volatile TestHook th;
   
   public void beforeIndexLookup(Index index, int oper, Object key) {
@@ -65,6 +66,7 @@ public class IndexTrackingQueryObserver extends QueryObserverAdapter {
       iInfo = new IndexInfo();
     }
     iInfo.addRegionId(index.getRegion().getFullPath());
+    addSelectionEstimate(index, iInfo);
     indexMap.put(indexName, iInfo);
     this.lastIndexUsed.set(index);
     if(th != null){
@@ -89,6 +91,7 @@ public class IndexTrackingQueryObserver extends QueryObserverAdapter {
       iInfo = new IndexInfo();
     }
     iInfo.addRegionId(index.getRegion().getFullPath());
+    addSelectionEstimate(index, iInfo);
     indexMap.put(index.getName(), iInfo);
     this.lastIndexUsed.set(index);
     if(th != null){
@@ -96,6 +99,26 @@ public class IndexTrackingQueryObserver extends QueryObserverAdapter {
     }
   }
   
+  /**
+   * remembers the estimated results of the index chosen for a junction until
+   * the index is looked up
+   */
+  public void afterIndexSelection(Index index, int estimatedSize,
+      int numCandidates) {
+    if (estimatedSize >= 0 && estimatedSize < Integer.MAX_VALUE) {
+      this.selectedIndex.set(new Object[] { index,
+          Integer.valueOf(estimatedSize) });
+    }
+  }
+
+  private void addSelectionEstimate(Index index, IndexInfo iInfo) {
+    Object[] selected = (Object[])this.selectedIndex.get();
+    if (selected != null && selected[0] == index) {
+      iInfo.addEstimatedResults(((Integer)selected[1]).intValue());
+      this.selectedIndex.set(null);
+    }
+  }
+
   /**
    * appends the size of the lookup to the last index name in the list
    */
@@ -133,6 +156,7 @@ public class IndexTrackingQueryObserver extends QueryObserverAdapter {
       th.hook(4);
     }
     this.indexInfo.set(null);
+    this.selectedIndex.set(null);
   }
 
   public void setIndexInfo(Map indexInfoMap) {
@@ -159,6 +183,9 @@ public class IndexTrackingQueryObserver extends QueryObserverAdapter {
   public class IndexInfo{
     // A {RegionFullPath, results} map for an Index lookup on a Region.
     private Map<String, Integer> results = new Object2ObjectOpenHashMap();
+    // Estimated results of the lookups for which the index was chosen on
+    // cost, or -1 if there were none
+    private int estimatedResults = -1;
     
     public Map getResults() {
       return results;
@@ -180,6 +207,12 @@ public class IndexTrackingQueryObserver extends QueryObserverAdapter {
     public void addRegionId(String regionId) {
       this.results.put(regionId, 0);
     }
+    public void addEstimatedResults(int estimate) {
+      this.estimatedResults = Math.max(this.estimatedResults, 0) + estimate;
+    }
+    public int getEstimatedResults() {
+      return this.estimatedResults;
+    }
     
     @Override
     public String toString() {
@@ -187,10 +220,15 @@ public class IndexTrackingQueryObserver extends QueryObserverAdapter {
       for (Integer i: results.values()){
         total+=i.intValue();
       }
-      return "(Results: "+ total +")";
+      return "(Results: "+ total
+          + (estimatedResults >= 0 ? ", Estimated: " + estimatedResults : "")
+          + ")";
     }
     public void merge(IndexInfo src) {
       this.addResults(src.getResults());
+      if (src.estimatedResults >= 0) {
+        this.addEstimatedResults(src.estimatedResults);
+      }
     }
   }
 
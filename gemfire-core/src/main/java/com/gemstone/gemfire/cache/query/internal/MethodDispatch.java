@@ -11,6 +11,9 @@ package com.gemstone.gemfire.cache.query.internal;
 
 
 import java.util.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.*;
 
 import com.gemstone.gemfire.cache.query.*;
@@ -31,6 +34,7 @@ public class MethodDispatch
     private String _methodName;
     private Class[] _argTypes;
     private Method _method; // remember the right method
+    private MethodHandle _handle; // invokes _method, null if reflection is used
     
     
     public MethodDispatch(Class targetClass, String methodName, List argTypes)
@@ -44,16 +48,97 @@ public class MethodDispatch
             // override security in case this is a method on a nonpublic class
             // with a public method
         _method.setAccessible(true);
+        _handle = createHandle(_method);
     }
 
     
+    /**
+     * Returns a handle taking the target and an array of the arguments, or null
+     * if the method is invoked with reflection. A handle does not convert a
+     * null argument of a primitive parameter to an IllegalArgumentException
+     * the way reflection does, so it is only used for methods with reference
+     * parameters.
+     */
+    private static MethodHandle createHandle(Method method)
+    {
+        Class[] paramTypes = method.getParameterTypes();
+        for (int i = 0; i < paramTypes.length; i++) {
+            if (paramTypes[i].isPrimitive()) {
+                return null;
+            }
+        }
+        try
+        {
+            MethodHandle handle = MethodHandles.lookup().unreflect(method).asFixedArity();
+            if (Modifier.isStatic(method.getModifiers())) {
+                // the target is ignored, as by reflection
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            return handle.asSpreader(Object[].class, paramTypes.length)
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+        }
+        catch (IllegalAccessException e)
+        {
+            return null;
+        }
+    }
 
     public Object invoke(Object target, List args)
         throws NameNotFoundException, QueryInvocationTargetException
     {
         Object[] argsArray = args.toArray();
         
+        if (_handle != null)
+        {
+            try
+            {
+                return (Object)_handle.invokeExact(target, argsArray);
+            }
+            catch (ClassCastException e)
+            {
+                    // the handle could not convert the target or an argument;
+                    // report that the way reflection does
+                if (!isApplicable(target, argsArray))
+                    return invokeWithReflection(target, argsArray);
+                throw new QueryInvocationTargetException(e);
+            }
+            catch (Exception e)
+            {
+                throw new QueryInvocationTargetException(e);
+            }
+            catch (Throwable t)
+            {
+                throw new QueryInvocationTargetException(new InvocationTargetException(t));
+            }
+        }
        
+        return invokeWithReflection(target, argsArray);
+    }
+    
+    
+    /**
+     * Returns true if the method can be invoked on the target with the
+     * arguments without a conversion error. The handle is only used for
+     * methods with reference parameters, so a null argument always applies.
+     */
+    private boolean isApplicable(Object target, Object[] argsArray)
+    {
+        if (!Modifier.isStatic(_method.getModifiers())
+            && !_method.getDeclaringClass().isInstance(target))
+            return false;
+        Class[] paramTypes = _method.getParameterTypes();
+        if (paramTypes.length != argsArray.length)
+            return false;
+        for (int i = 0; i < paramTypes.length; i++)
+            if (argsArray[i] != null && !paramTypes[i].isInstance(argsArray[i]))
+                return false;
+        return true;
+    }
+    
+    
+    private Object invokeWithReflection(Object target, Object[] argsArray)
+        throws NameNotFoundException, QueryInvocationTargetException
+    {
         try
         {
             return _method.invoke(target, argsArray);
@@ -11,6 +11,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 import com.gemstone.gemfire.DataSerializer;
@@ -230,84 +231,75 @@ public class NWayMergeResults<E> implements SelectResults<E>, Ordered,
       return iter;
     }
 
+    /**
+     * Merges the sorted results by keeping the next element of each of them
+     * in a heap, so that each element is found in log(n) comparisons for n
+     * sorted results. The results are only read as far as the merged
+     * elements are iterated.
+     */
     private class NWayMergeIterator implements Iterator<E> {
 
-      protected final IteratorWrapper<E>[] iterators;
-      protected int lastReturnedIteratorIndex = -1;
+      protected final PriorityQueue<IteratorWrapper<E>> heap;
+      /**
+       * the iterator whose current element was returned last. It is moved
+       * past that element and put back into the heap on the next call.
+       */
+      protected IteratorWrapper<E> lastReturnedIterator = null;
 
       protected NWayMergeIterator() {
-        this.iterators = new IteratorWrapper[sortedResults.size()];
+        this.heap = new PriorityQueue<IteratorWrapper<E>>(
+            Math.max(1, sortedResults.size()),
+            new Comparator<IteratorWrapper<E>>() {
+              @Override
+              public int compare(IteratorWrapper<E> o1, IteratorWrapper<E> o2) {
+                int compareResult = NWayMergeIterator.this.compare(o1.get(), o2.get());
+                // of equal elements the one from the first results comes
+                // first
+                return compareResult != 0 ? compareResult : o1.index - o2.index;
+              }
+            });
         Iterator<? extends Collection<E>> listIter = sortedResults.iterator();
         int index = 0;
         while (listIter.hasNext()) {
           IteratorWrapper<E> temp = new IteratorWrapper<E>(listIter.next()
-              .iterator());
-          this.iterators[index++] = temp;
+              .iterator(), index++);
           // initialize
           temp.move();
+          if (!temp.EOF) {
+            this.heap.add(temp);
+          }
         }
       }
 
       @Override
       public boolean hasNext() {
-        boolean hasNext = false;
-        for (int i = 0; i < this.iterators.length; ++i) {
-          if (i == this.lastReturnedIteratorIndex) {
-            hasNext = this.iterators[i].hasNext();
-          } else {
-            hasNext = !this.iterators[i].EOF;
-          }
-          if (hasNext) {
-            break;
-          }
+        if (this.lastReturnedIterator != null
+            && this.lastReturnedIterator.hasNext()) {
+          return true;
         }
-        return hasNext;
+        return !this.heap.isEmpty();
       }
 
-      protected E basicNext() {
-        if (this.iterators.length == 1) {
-          this.lastReturnedIteratorIndex = 0;
-          if (iterators[0].EOF) {
-            throw new NoSuchElementException();
+      /**
+       * Moves the iterator of the last returned element to its next element.
+       */
+      protected void moveLastReturned() {
+        if (this.lastReturnedIterator != null) {
+          this.lastReturnedIterator.move();
+          if (!this.lastReturnedIterator.EOF) {
+            this.heap.add(this.lastReturnedIterator);
           }
-          return iterators[0].get();
+          this.lastReturnedIterator = null;
         }
+      }
 
-        int iteratorIndex = -1;
-        E refObject = null;
-        for (int j = 0; j < this.iterators.length; ++j) {
-          if (!this.iterators[j].EOF) {
-            E temp = this.iterators[j].get();
-            iteratorIndex = j;
-            refObject = temp;
-            break;
-
-          }
-        }
-        if (iteratorIndex == -1) {
+      protected E basicNext() {
+        IteratorWrapper<E> optima = this.heap.poll();
+        if (optima == null) {
           throw new NoSuchElementException();
         }
-
-        E currentOptima = null;
-        int indexOfIteratorForOptima = -1;
-
-        currentOptima = refObject;
-        indexOfIteratorForOptima = iteratorIndex;
-        for (int j = iteratorIndex + 1; j < this.iterators.length; ++j) {
-          if (this.iterators[j].EOF) {
-            continue;
-          }
-          E temp = this.iterators[j].get();
-
-          int compareResult = compare(currentOptima, temp); 
-              
-          if (compareResult > 0) {
-            currentOptima = temp;
-            indexOfIteratorForOptima = j;
-          }
-        }
-        this.lastReturnedIteratorIndex = indexOfIteratorForOptima;
-        return currentOptima;
+        this.lastReturnedIterator = optima;
+        return optima.get();
       }
       
       protected int compare(E obj1, E obj2) {
@@ -320,9 +312,7 @@ public class NWayMergeResults<E> implements SelectResults<E>, Ordered,
 
       @Override
       public E next() {
-        if (this.lastReturnedIteratorIndex != -1) {
-          iterators[this.lastReturnedIteratorIndex].move();
-        }
+        moveLastReturned();
         return this.basicNext();
       }
 
@@ -331,41 +321,19 @@ public class NWayMergeResults<E> implements SelectResults<E>, Ordered,
         throw new UnsupportedOperationException("remove not supported");
 
       }
-
-      private class IteratorWrapper<T> {
-        private final Iterator<T> iter;
-        private T current = null;
-        private boolean EOF = false;
-
-        private IteratorWrapper(Iterator<T> iter) {
-          this.iter = iter;
-        }
-
-        T get() {
-          return this.current;
-        }
-
-        boolean hasNext() {
-          return this.iter.hasNext();
-        }
-
-        void move() {
-          if (this.iter.hasNext()) {
-            this.current = this.iter.next();
-          } else {
-            this.current = null;
-            this.EOF = true;
-          }
-        }
-
-      }
     }
 
     private class NWayMergeDistinctIterator extends NWayMergeIterator {
 
-      private E lastReturned = null;
+      /**
+       * the elements returned since the last one that compared greater than
+       * all of the elements before it. The comparator only orders equal order
+       * by columns by the other fields when they are comparable, so a
+       * duplicate can follow an element it does not compare equal to. Usually
+       * this holds just the last returned element.
+       */
+      private final List<E> run = new ArrayList<E>(1);
       private Boolean cachedHasNext = null;
-      private boolean uninitialized = true;
 
       NWayMergeDistinctIterator() {
       }
@@ -375,49 +343,28 @@ public class NWayMergeResults<E> implements SelectResults<E>, Ordered,
         if (this.cachedHasNext != null) {
           return this.cachedHasNext.booleanValue();
         }
-        boolean hasNext = false;
-        for (int i = 0; i < this.iterators.length; ++i) {
-          if (this.uninitialized) {            
-            hasNext = !this.iterators[i].EOF;
-            if (hasNext) {
-              break;
-            }
-          } else {
-            if (this.lastReturnedIteratorIndex == i) {
-              do {
-                this.iterators[i].move();
-                if (this.iterators[i].EOF) {
-                  break;
-                }// else if (!this.lastReturned.equals(this.iterators[i].get()))
-                 // {
-                else if (compare(lastReturned, this.iterators[i].get()) != 0) {
-                  hasNext = true;
-                  break;
-                }
-              } while (true);
-            } else {
-              do {
-                if (this.iterators[i].EOF) {
-                  break;
-                } // else if
-                  // (!this.iterators[i].get().equals(this.lastReturned)) {
-                else if (compare(this.iterators[i].get(),
-                    this.lastReturned) != 0) {
-                  hasNext = true;
-                  break;
-                } else {
-                  this.iterators[i].move();
-                }
-              } while (true);
-            }
+        moveLastReturned();
+        // skip the duplicates as they reach the head of the heap
+        IteratorWrapper<E> head;
+        while ((head = this.heap.peek()) != null && isDuplicate(head.get())) {
+          this.heap.poll();
+          head.move();
+          if (!head.EOF) {
+            this.heap.add(head);
           }
         }
-        this.uninitialized = false;
-        this.cachedHasNext = Boolean.valueOf(hasNext);
-        return hasNext;
+        this.cachedHasNext = Boolean.valueOf(!this.heap.isEmpty());
+        return this.cachedHasNext.booleanValue();
       }
 
-      
+      private boolean isDuplicate(E element) {
+        for (E returned : this.run) {
+          if (compare(element, returned) == 0) {
+            return true;
+          }
+        }
+        return false;
+      }
 
       @Override
       public E next() {
@@ -425,8 +372,15 @@ public class NWayMergeResults<E> implements SelectResults<E>, Ordered,
           this.hasNext();
         }
         this.cachedHasNext = null;
-        this.lastReturned = this.basicNext();
-        return this.lastReturned;
+        E next = this.basicNext();
+        if (!this.run.isEmpty()) {
+          E last = this.run.get(this.run.size() - 1);
+          if (compare(next, last) > 0 && compare(last, next) < 0) {
+            this.run.clear();
+          }
+        }
+        this.run.add(next);
+        return next;
       }
 
       @Override
@@ -436,6 +390,37 @@ public class NWayMergeResults<E> implements SelectResults<E>, Ordered,
 
     }
 
+    private class IteratorWrapper<T> {
+      private final Iterator<T> iter;
+      /** the position of the sorted results this iterates over */
+      private final int index;
+      private T current = null;
+      private boolean EOF = false;
+
+      private IteratorWrapper(Iterator<T> iter, int index) {
+        this.iter = iter;
+        this.index = index;
+      }
+
+      T get() {
+        return this.current;
+      }
+
+      boolean hasNext() {
+        return this.iter.hasNext();
+      }
+
+      void move() {
+        if (this.iter.hasNext()) {
+          this.current = this.iter.next();
+        } else {
+          this.current = null;
+          this.EOF = true;
+        }
+      }
+
+    }
+
     
   }
 
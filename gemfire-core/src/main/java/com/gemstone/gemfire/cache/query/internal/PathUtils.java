@@ -53,6 +53,16 @@ public class PathUtils {
   }
   
   public static Object evaluateAttribute(Object target, String attribute)
+  throws NameNotFoundException, QueryInvocationTargetException {
+    return evaluateAttribute(target, attribute, new AttributeDescriptor(attribute));
+  }
+
+  /**
+   * Evaluates the attribute with a descriptor that is reused across targets,
+   * so that the member or PDX field it resolved for the class of the last
+   * target is read again without a lookup.
+   */
+  public static Object evaluateAttribute(Object target, String attribute, AttributeDescriptor attributeDescriptor)
   throws NameNotFoundException, QueryInvocationTargetException {
     if(target instanceof Struct){
       Struct struct = (Struct)target;
@@ -63,7 +73,7 @@ public class PathUtils {
       }
     }
     try {
-      return new AttributeDescriptor(attribute).read(target);
+      return attributeDescriptor.read(target);
     } catch (NameNotFoundException nfe) {
       if (DefaultQueryService.QUERY_HETEROGENEOUS_OBJECTS ||
           DefaultQueryService.TEST_QUERY_HETEROGENEOUS_OBJECTS) {
@@ -73,26 +83,6 @@ public class PathUtils {
       }
     }
   }
-
-  /*
-   * This was added as part of CQ performance changes.
-   * The change is done to re-use the AttributeDescriptor object instead of creating
-   * it each time. 
-   */
-  /*
-  public static Object evaluateAttribute(Object target, String attribute, AttributeDescriptor attributeDescriptor)
-  throws NameNotFoundException, QueryInvocationTargetException {
-    if(target instanceof Struct){
-      Struct struct = (Struct)target;
-      try{
-        return struct.get(attribute);
-      }catch(Exception e){
-        throw new NameNotFoundException(attribute);
-      }
-    }
-    return attributeDescriptor.read(target);
-  }
-  */
   
   /**
    * @param pathArray the path starting with an attribute on
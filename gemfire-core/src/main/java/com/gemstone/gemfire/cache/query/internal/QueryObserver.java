@@ -327,4 +327,18 @@ public interface QueryObserver {
    */
   void orderByColumnsEqual();
 
+  /**
+   * Callback issued after the condition of an AND junction to be evaluated
+   * with an index was chosen among the conditions of the junction that could
+   * be evaluated with one.
+   * 
+   * @param index
+   *          the index of the chosen condition
+   * @param estimatedSize
+   *          the estimated number of index results of the chosen condition
+   * @param numCandidates
+   *          the number of conditions that could be evaluated with an index
+   */
+  void afterIndexSelection(Index index, int estimatedSize, int numCandidates);
+
 }
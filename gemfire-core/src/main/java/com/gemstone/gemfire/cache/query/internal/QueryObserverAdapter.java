@@ -330,4 +330,8 @@ public class QueryObserverAdapter implements QueryObserver {
   public void orderByColumnsEqual() {
     
   }
+
+  public void afterIndexSelection(Index index, int estimatedSize,
+      int numCandidates) {
+  }
 }
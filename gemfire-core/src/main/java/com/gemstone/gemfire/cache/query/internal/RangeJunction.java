@@ -112,6 +112,13 @@ public class RangeJunction extends AbstractGroupOrRangeJunction {
     if (context instanceof QueryExecutionContext && ((QueryExecutionContext)context).hasHints()) {
       return thisSize <= comparedTo.getSizeEstimate(context);
     }
+
+    if (DefaultQuery.COST_BASED_INDEX_SELECTION) {
+      int thatSize = comparedTo.getSizeEstimate(context);
+      if (isCostBasedSelection(thisSize, thatSize)) {
+        return thisSize <= thatSize;
+      }
+    }
     
     int thatOperator = comparedTo.getOperator() ;    
     switch(thatOperator) {
@@ -371,26 +378,23 @@ public class RangeJunction extends AbstractGroupOrRangeJunction {
       evalOperands.add(new CompiledLiteral(Boolean.FALSE));
     }
     
-    //If no hints were provided, we continue with our single index solution
-    if (!(context instanceof QueryExecutionContext) || !((QueryExecutionContext)context).hasMultiHints()) {
-      // At the end check if the unevaluatedIterOperand
-      // are null or not. This could be the case only if at top level
-      // GroupJunction is formed having multiple RangeJunctions & other
-      // iter operands & then only one RangeJunction is treated as filter
-      // rest all as iter operands. In that case , the only iter operand is
-      // that which is added externally to RangeJunction. If the top
-      // level was a RangeJunction then the iter operands would have been
-      // part of it at the time of creation of RangeJunction & we would not have
-      // to add it externally.
-      if(getIterOperands() != null) {
-        // Commented the assert for CompiledLike which creates 2 or 3 CompiledComparisons
-        // for the same operand. The protGetPlanInfo in CompiledLike could return evalAsFilter 
-        // as true the first time and false the next time for the same operand.
-        // Hence the evalOperands could contain  CompiledComparisons more than number of indexes.
-        
-        //Support.Assert(evalOperands.size() == evalCount);
-        evalOperands.add(getIterOperands());
-      }
+    // At the end check if the unevaluatedIterOperand
+    // are null or not. This could be the case only if at top level
+    // GroupJunction is formed having multiple RangeJunctions & other
+    // iter operands & then only one RangeJunction is treated as filter
+    // rest all as iter operands. In that case , the only iter operand is
+    // that which is added externally to RangeJunction. If the top
+    // level was a RangeJunction then the iter operands would have been
+    // part of it at the time of creation of RangeJunction & we would not have
+    // to add it externally.
+    if(getIterOperands() != null) {
+      // Commented the assert for CompiledLike which creates 2 or 3 CompiledComparisons
+      // for the same operand. The protGetPlanInfo in CompiledLike could return evalAsFilter 
+      // as true the first time and false the next time for the same operand.
+      // Hence the evalOperands could contain  CompiledComparisons more than number of indexes.
+      
+      //Support.Assert(evalOperands.size() == evalCount);
+      evalOperands.add(getIterOperands());
     }
     return createOrganizedOperandsObject(evalCount, evalOperands);
 
@@ -555,9 +559,23 @@ public class RangeJunction extends AbstractGroupOrRangeJunction {
   }
 
   public int getSizeEstimate(ExecutionContext context)
+      throws FunctionDomainException, TypeMismatchException,
+      NameResolutionException, QueryInvocationTargetException
   {
-    //TODO:Asif:Try to estimate better
-     return RANGE_SIZE_ESTIMATE;
+    if (!DefaultQuery.COST_BASED_INDEX_SELECTION) {
+      return RANGE_SIZE_ESTIMATE;
+    }
+    // All the operands are conditions on the same index, so the junction
+    // selects at most what its most selective condition does. The exact
+    // bounds are only known once the operands are organized.
+    int size = Integer.MAX_VALUE;
+    for (int i = 0; i < this._operands.length; i++) {
+      if (this._operands[i] instanceof Filter) {
+        size = Math.min(size, ((Filter)this._operands[i])
+            .getSizeEstimate(context));
+      }
+    }
+    return size;
   }
 
   /*
@@ -896,8 +914,23 @@ public class RangeJunction extends AbstractGroupOrRangeJunction {
     public int getType() {
       return NOTEQUALCONDITIONEVALUATOR;
     }
-    public int getSizeEstimate(ExecutionContext context) {
-  	  return RANGE_SIZE_ESTIMATE;
+    public int getSizeEstimate(ExecutionContext context)
+        throws TypeMismatchException {
+      if (!DefaultQuery.COST_BASED_INDEX_SELECTION) {
+        return RANGE_SIZE_ESTIMATE;
+      }
+      int size = -1;
+      for (Iterator itr = this.notEqualTypeKeys.iterator(); itr.hasNext();) {
+        Object key = itr.next();
+        if (size == -1) {
+          size = this.indxInfo._index.getSizeEstimate(key, TOK_NE,
+              this.indxInfo._matchLevel);
+        } else {
+          size -= this.indxInfo._index.getSizeEstimate(key, TOK_EQ,
+              this.indxInfo._matchLevel);
+        }
+      }
+      return size == -1 ? Integer.MAX_VALUE : Math.max(size, 0);
     }
     @Override
     public void visitNodes(NodeVisitor visitor) {
@@ -921,6 +954,13 @@ public class RangeJunction extends AbstractGroupOrRangeJunction {
       if (context instanceof QueryExecutionContext && ((QueryExecutionContext)context).hasHints()) {
         return thisSize <= comparedTo.getSizeEstimate(context);
       }
+
+      if (DefaultQuery.COST_BASED_INDEX_SELECTION) {
+        int thatSize = comparedTo.getSizeEstimate(context);
+        if (isCostBasedSelection(thisSize, thatSize)) {
+          return thisSize <= thatSize;
+        }
+      }
       
       switch(thatOperator) {
           case TOK_EQ:        
@@ -984,6 +1024,16 @@ public class RangeJunction extends AbstractGroupOrRangeJunction {
       this.condnKey = key;
     }
 
+    @Override
+    public int getSizeEstimate(ExecutionContext context)
+        throws TypeMismatchException {
+      if (!DefaultQuery.COST_BASED_INDEX_SELECTION) {
+        return RANGE_SIZE_ESTIMATE;
+      }
+      return this.indxInfo._index.getSizeEstimate(this.condnKey, this.condnOp,
+          this.indxInfo._matchLevel);
+    }
+
     @Override
     public SelectResults filterEvaluate(ExecutionContext context,
         SelectResults iterationLimit, boolean completeExpansionNeeded,
@@ -1131,6 +1181,17 @@ public class RangeJunction extends AbstractGroupOrRangeJunction {
       this.greaterCondnKey = greaterCondnKey;
     }
 
+    @Override
+    public int getSizeEstimate(ExecutionContext context)
+        throws TypeMismatchException {
+      if (!DefaultQuery.COST_BASED_INDEX_SELECTION) {
+        return RANGE_SIZE_ESTIMATE;
+      }
+      return this.indxInfo._index.getSizeEstimate(this.greaterCondnKey,
+          this.greaterCondnOp, this.lessCondnKey, this.lessCondnOp,
+          this.indxInfo._matchLevel);
+    }
+
     @Override
     public SelectResults filterEvaluate(ExecutionContext context,
         SelectResults iterationLimit) throws FunctionDomainException,
@@ -0,0 +1,34 @@
+package com.gemstone.gemfire.cache.query.internal.aggregate;
+
+/**
+ * Combines the partial averages computed by {@link AvgBucketNode} for several
+ * buckets into one partial average. This aggregator is used on the bucket node
+ * so that one partial average per group is sent to the PR query node rather
+ * than one per bucket.
+ * 
+ * @since 9.0
+ */
+public class AvgBucketNodeCombiner extends Sum {
+
+  private int count = 0;
+
+  /**
+   * Takes the two element array of the number of values & the sum of the
+   * values of a bucket.
+   */
+  @Override
+  public void accumulate(Object value) {
+    Object[] array = (Object[]) value;
+    this.count += ((Integer) array[0]).intValue();
+    super.accumulate(array[1]);
+  }
+
+  /**
+   * Returns a two element array of the total number of values & the computed
+   * sum of the values, as {@link AvgBucketNode} does.
+   */
+  @Override
+  public Object terminate() {
+    return new Object[] { Integer.valueOf(count), super.terminate() };
+  }
+}
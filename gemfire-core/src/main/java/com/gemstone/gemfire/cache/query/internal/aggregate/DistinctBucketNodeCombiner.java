@@ -0,0 +1,22 @@
+package com.gemstone.gemfire.cache.query.internal.aggregate;
+
+import java.util.Set;
+
+/**
+ * Combines the distinct values collected by {@link DistinctAggregator} for
+ * several buckets into one set. This aggregator is used on the bucket node for
+ * the distinct sum, count & average so that one set per group is sent to the
+ * PR query node rather than one per bucket.
+ * 
+ * @since 9.0
+ */
+public class DistinctBucketNodeCombiner extends DistinctAggregator {
+
+  /**
+   * The input data is the Set of distinct values of a bucket.
+   */
+  @Override
+  public void accumulate(Object value) {
+    this.distinct.addAll((Set) value);
+  }
+}
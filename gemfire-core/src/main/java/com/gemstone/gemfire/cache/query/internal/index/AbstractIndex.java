@@ -17,6 +17,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -132,6 +135,12 @@ public abstract class AbstractIndex implements IndexProtocol
   //Flag to indicate if the index is populated with data
   protected volatile boolean isPopulated = false;
 
+  // Histogram of the index keys for range size estimates, built in the
+  // background when the index is populated and again once out of date
+  private volatile IndexHistogram keyHistogram;
+
+  private final AtomicBoolean keyHistogramRebuilding = new AtomicBoolean();
+
   AbstractIndex(String indexName, Region region, String fromClause,
       String indexedExpression, String projectionAttributes,
       String origFromClause, String origIndxExpr, String[] defintions, IndexStatistics stats) {
@@ -252,7 +261,7 @@ public abstract class AbstractIndex implements IndexProtocol
     // get a read lock when doing a lookup
     if (context.getBucketList() != null && (this.region instanceof BucketRegion)) {
         PartitionedRegion pr = ((BucketRegion)region).getPartitionedRegion();
-        long start = updateIndexUseStats();
+        long start = updateIndexUseStats(context.getUpdateIndexUseStats());
         try {
           for (Object b :context.getBucketList()) {
             AbstractIndex i = PartitionedIndex.getBucketIndex(pr, this.indexName, (Integer)b);
@@ -263,7 +272,7 @@ public abstract class AbstractIndex implements IndexProtocol
           
           }
         } finally {
-          updateIndexUseEndStats(start);
+          updateIndexUseEndStats(start, context.getUpdateIndexUseStats());
         }
     } else {
       long start = updateIndexUseStats();
@@ -286,7 +295,7 @@ public abstract class AbstractIndex implements IndexProtocol
     if (context.getBucketList() != null
         && (this.region instanceof BucketRegion)) {
       PartitionedRegion pr = ((BucketRegion) region).getPartitionedRegion();
-      long start = updateIndexUseStats();
+      long start = updateIndexUseStats(context.getUpdateIndexUseStats());
       try {
         for (Object b : context.getBucketList()) {
           AbstractIndex i = PartitionedIndex.getBucketIndex(pr, this.indexName,
@@ -298,7 +307,7 @@ public abstract class AbstractIndex implements IndexProtocol
               projAttrib, intermediateResults, isIntersection);
         }
       } finally {
-        updateIndexUseEndStats(start);
+        updateIndexUseEndStats(start, context.getUpdateIndexUseStats());
       }
     } else {
       long start = updateIndexUseStats();
@@ -318,7 +327,7 @@ public abstract class AbstractIndex implements IndexProtocol
     // get a read lock when doing a lookup
     if (context.getBucketList() != null && (this.region instanceof BucketRegion)) {
         PartitionedRegion pr = ((BucketRegion)region).getPartitionedRegion();
-        long start = updateIndexUseStats();
+        long start = updateIndexUseStats(context.getUpdateIndexUseStats());
         try {
           for (Object b :context.getBucketList()) {
             AbstractIndex i = PartitionedIndex.getBucketIndex(pr, this.indexName, (Integer)b);
@@ -328,7 +337,7 @@ public abstract class AbstractIndex implements IndexProtocol
             i.lockedQuery(key, operator, results, keysToRemove, context);
           }
         } finally {
-          updateIndexUseEndStats(start);
+          updateIndexUseEndStats(start, context.getUpdateIndexUseStats());
         }
     } else {
       long start = updateIndexUseStats();
@@ -348,7 +357,7 @@ public abstract class AbstractIndex implements IndexProtocol
     Object temp = itr.next();
     itr.remove();
     if (context.getBucketList() != null && (this.region instanceof BucketRegion)) {
-      long start = updateIndexUseStats();
+      long start = updateIndexUseStats(context.getUpdateIndexUseStats());
       try {
         PartitionedRegion pr = ((BucketRegion)region).getPartitionedRegion();
         for (Object b :context.getBucketList()) {
@@ -360,7 +369,7 @@ public abstract class AbstractIndex implements IndexProtocol
             itr.hasNext() ? keysToRemove : null, context);
         } 
       } finally {
-        updateIndexUseEndStats(start);
+        updateIndexUseEndStats(start, context.getUpdateIndexUseStats());
       }
     } else {
       long start = updateIndexUseStats();
@@ -381,7 +390,7 @@ public abstract class AbstractIndex implements IndexProtocol
     if (context.getBucketList() != null) {
       if (this.region instanceof BucketRegion) {
         PartitionedRegion pr = ((BucketRegion)region).getPartitionedRegion();
-        long start = updateIndexUseStats();
+        long start = updateIndexUseStats(context.getUpdateIndexUseStats());
         try {
           for (Object b :context.getBucketList()) {
             AbstractIndex i = PartitionedIndex.getBucketIndex(pr, this.indexName, (Integer)b);
@@ -392,7 +401,7 @@ public abstract class AbstractIndex implements IndexProtocol
                 upperBoundOperator, results, keysToRemove, context);
          }
         } finally {
-          updateIndexUseEndStats(start);
+          updateIndexUseEndStats(start, context.getUpdateIndexUseStats());
         }
       }
     } else {
@@ -867,6 +876,24 @@ public abstract class AbstractIndex implements IndexProtocol
   protected static abstract class InternalIndexStatistics implements
       IndexStatistics
   {
+    /**
+     * Number of updates made to this index alone. Unlike the statistics, which
+     * are shared by the indexes of all the buckets of a partitioned region,
+     * it is kept per index to tell when the key histogram of the index is out
+     * of date.
+     */
+    private final AtomicLong localUpdates = new AtomicLong();
+
+    long getLocalUpdates()
+    {
+      return this.localUpdates.get();
+    }
+
+    void incLocalUpdates(int delta)
+    {
+      this.localUpdates.addAndGet(delta);
+    }
+
     public long getNumUpdates()
     {
       return 0L;
@@ -916,6 +943,18 @@ public abstract class AbstractIndex implements IndexProtocol
     public int getNumberOfBucketIndexes(){
       return 0;
     }
+
+    public int getPopulatesInProgress() {
+      return 0;
+    }
+
+    public long getPopulateTime() {
+      return 0L;
+    }
+
+    public int getNumberOfBucketIndexesPopulated() {
+      return 0;
+    }
     
     public void close()
     {
@@ -971,6 +1010,18 @@ public abstract class AbstractIndex implements IndexProtocol
     public void incNumBucketIndexes(int delta) 
     {
     }
+
+    public void incPopulatesInProgress(int delta)
+    {
+    }
+
+    public void incPopulateTime(long delta)
+    {
+    }
+
+    public void incNumBucketIndexesPopulated(int delta)
+    {
+    }
   }
 
   /**
@@ -2391,6 +2442,89 @@ public abstract class AbstractIndex implements IndexProtocol
 
   public void setPopulated(boolean isPopulated) {
     this.isPopulated = isPopulated;
+    if (isPopulated) {
+      // size estimates fall back to the index kind until it is built
+      scheduleKeyHistogramRebuild();
+    }
+  }
+
+  /**
+   * Estimates the number of values selected by a range condition bounded on
+   * both sides. Without a better estimate this is the smaller of the
+   * estimates of the two bounds.
+   */
+  public int getSizeEstimate(Object lowerBoundKey, int lowerBoundOperator,
+      Object upperBoundKey, int upperBoundOperator, int matchLevel)
+      throws TypeMismatchException {
+    return Math.min(
+        getSizeEstimate(lowerBoundKey, lowerBoundOperator, matchLevel),
+        getSizeEstimate(upperBoundKey, upperBoundOperator, matchLevel));
+  }
+
+  /**
+   * Returns the histogram of the keys of this index. If there is none yet or
+   * too many updates were made to the index since it was built, a new one is
+   * built in the background and the current one, if any, is returned
+   * meanwhile.
+   * 
+   * @return the histogram, or null if there is none yet or the index does
+   *         not keep one
+   */
+  IndexHistogram getKeyHistogram() {
+    IndexHistogram histogram = this.keyHistogram;
+    if (histogram == null || histogram.isStale(this.internalIndexStats
+        .getLocalUpdates())) {
+      scheduleKeyHistogramRebuild();
+    }
+    return histogram;
+  }
+
+  /**
+   * Builds a new histogram of the keys of this index in the background,
+   * unless one is being built already.
+   */
+  private void scheduleKeyHistogramRebuild() {
+    if (this.keyHistogramRebuilding.compareAndSet(false, true)) {
+      try {
+        IndexManager.getHistogramExecutor().execute(new Runnable() {
+          public void run() {
+            try {
+              rebuildKeyHistogram();
+            } catch (RuntimeException e) {
+              // the index or its region was destroyed meanwhile
+              if (logger.isDebugEnabled()) {
+                logger.debug("Failed to rebuild the key histogram of index {}",
+                    indexName, e);
+              }
+            } finally {
+              keyHistogramRebuilding.set(false);
+            }
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        this.keyHistogramRebuilding.set(false);
+      }
+    }
+  }
+
+  /**
+   * Replaces the histogram of the keys of this index with one built from its
+   * current keys.
+   */
+  void rebuildKeyHistogram() {
+    this.keyHistogram = buildKeyHistogram(this.internalIndexStats
+        .getLocalUpdates());
+  }
+
+  /**
+   * Reads the keys of this index into a new histogram.
+   * 
+   * @param updates
+   *          the number of updates made to this index so far
+   * @return the histogram, or null if this kind of index keeps none
+   */
+  IndexHistogram buildKeyHistogram(long updates) {
+    return null;
   }
   
   
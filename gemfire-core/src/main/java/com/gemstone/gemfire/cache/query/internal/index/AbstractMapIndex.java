@@ -144,6 +144,14 @@ public abstract class AbstractMapIndex extends AbstractIndex
       this.vsdStats.incReadLockCount(delta);
     }
 
+    public void incPopulatesInProgress(int delta) {
+      this.vsdStats.incPopulatesInProgress(delta);
+    }
+
+    public void incPopulateTime(long delta) {
+      this.vsdStats.incPopulateTime(delta);
+    }
+
     /**
      * Returns the total amount of time (in nanoseconds) spent updating this
      * index.
@@ -199,6 +207,14 @@ public abstract class AbstractMapIndex extends AbstractIndex
     public int getReadLockCount() {
       return this.vsdStats.getReadLockCount();
     }
+
+    public int getPopulatesInProgress() {
+      return this.vsdStats.getPopulatesInProgress();
+    }
+
+    public long getPopulateTime() {
+      return this.vsdStats.getPopulateTime();
+    }
     
 
     public void close() {
@@ -36,6 +36,7 @@ import com.gemstone.gemfire.cache.query.internal.CompiledPath;
 import com.gemstone.gemfire.cache.query.internal.CompiledSortCriterion;
 import com.gemstone.gemfire.cache.query.internal.CompiledValue;
 import com.gemstone.gemfire.cache.query.internal.CqEntry;
+import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
 import com.gemstone.gemfire.cache.query.internal.ExecutionContext;
 import com.gemstone.gemfire.cache.query.internal.IndexInfo;
 import com.gemstone.gemfire.cache.query.internal.QRegion;
@@ -48,7 +49,6 @@ import com.gemstone.gemfire.cache.query.internal.StructImpl;
 import com.gemstone.gemfire.cache.query.internal.Support;
 import com.gemstone.gemfire.cache.query.internal.index.IndexManager.TestHook;
 import com.gemstone.gemfire.cache.query.internal.index.IndexStore.IndexStoreEntry;
-import com.gemstone.gemfire.cache.query.internal.index.MemoryIndexStore.MemoryIndexStoreEntry;
 import com.gemstone.gemfire.cache.query.internal.parse.OQLLexerTokenTypes;
 import com.gemstone.gemfire.cache.query.internal.types.StructTypeImpl;
 import com.gemstone.gemfire.cache.query.internal.types.TypeUtils;
@@ -132,6 +132,20 @@ public class CompactRangeIndex extends AbstractIndex {
     this.internalIndexStats.incNumUpdates();
   }
 
+  /**
+   * Adds index keys saved by {@link PersistentIndexSnapshot} without
+   * evaluating the indexed expression on the entries.
+   */
+  void loadMappings(Object[] indexKeys, RegionEntry[] entries)
+      throws IMQException {
+    long startTime = System.nanoTime();
+    for (int i = 0; i < entries.length; i++) {
+      indexStore.addMapping(indexKeys[i], entries[i]);
+    }
+    this.internalIndexStats.incNumUpdates(entries.length);
+    this.internalIndexStats.incUpdateTime(System.nanoTime() - startTime);
+  }
+
   /**
    * @param opCode
    *          one of OTHER_OP, BEFORE_UPDATE_OP, AFTER_UPDATE_OP.
@@ -139,7 +153,7 @@ public class CompactRangeIndex extends AbstractIndex {
   void removeMapping(RegionEntry entry, int opCode) throws IMQException {
     if (opCode == BEFORE_UPDATE_OP) {
       // Either take key from reverse map OR evaluate it using IMQEvaluator.
-      if (!IndexManager.isObjectModificationInplace()) {
+      if (!indexStore.hasReverseMap()) {
         // It will always contain 1 element only, for this thread.
         if (oldKeyValue == null) {
           oldKeyValue = new ThreadLocal<OldKeyValuePair>();
@@ -153,7 +167,13 @@ public class CompactRangeIndex extends AbstractIndex {
       if (oldKeyValue != null) {
          oldKeyValue.remove();
       }
-      this.evaluator.evaluate(entry, false);
+      if (indexStore.hasReverseMap()
+          && !region.getAttributes().getIndexMaintenanceSynchronous()) {
+        // the value of an asynchronously removed entry may already be gone
+        indexStore.removeMapping(entry);
+      } else {
+        this.evaluator.evaluate(entry, false);
+      }
       this.internalIndexStats.incNumUpdates();
     }
   }
@@ -286,8 +306,7 @@ public class CompactRangeIndex extends AbstractIndex {
     CompactRangeIndex index = (CompactRangeIndex) indexInfo._getIndex();
     RuntimeIterator runtimeItr = index.getRuntimeIteratorForThisIndex(context, indexInfo);
     if (runtimeItr != null) {
-      runtimeItr.setCurrent(((MemoryIndexStoreEntry) entry)
-          .getDeserializedValue());
+      runtimeItr.setCurrent(entry.getDeserializedValue());
     }
     return evaluateEntry(indexInfo, context, keyVal);
   }
@@ -317,6 +336,10 @@ public class CompactRangeIndex extends AbstractIndex {
         break;
       case OQLLexerTokenTypes.TOK_LE:
       case OQLLexerTokenTypes.TOK_LT:
+        size = estimateFromHistogram(key, operator, matchLevel);
+        if (size >= 0) {
+          break;
+        }
         if (matchLevel <= 0 && (key instanceof Number)) {
 
           int totalSize = indexStore.size();
@@ -366,7 +389,7 @@ public class CompactRangeIndex extends AbstractIndex {
                 iter1.close();
               }
               if (iter2 != null) {
-                iter1.close();
+                iter2.close();
               }
             }
 
@@ -381,6 +404,10 @@ public class CompactRangeIndex extends AbstractIndex {
 
       case OQLLexerTokenTypes.TOK_GE:
       case OQLLexerTokenTypes.TOK_GT:
+        size = estimateFromHistogram(key, operator, matchLevel);
+        if (size >= 0) {
+          break;
+        }
         if (matchLevel <= 0 && (key instanceof Number)) {
           int totalSize = indexStore.size();
           if (CompactRangeIndex.testHook != null) {
@@ -428,6 +455,9 @@ public class CompactRangeIndex extends AbstractIndex {
               if (iter1 != null) {
                 iter1.close();
               }
+              if (iter2 != null) {
+                iter2.close();
+              }
             }
           } else {
             // not attempting to differentiate between GT & GE
@@ -444,6 +474,69 @@ public class CompactRangeIndex extends AbstractIndex {
     return size;
   }
 
+  @Override
+  public int getSizeEstimate(Object lowerBoundKey, int lowerBoundOperator,
+      Object upperBoundKey, int upperBoundOperator, int matchLevel)
+      throws TypeMismatchException {
+    if (DefaultQuery.COST_BASED_INDEX_SELECTION && matchLevel <= 0
+        && lowerBoundKey != null && upperBoundKey != null) {
+      IndexHistogram histogram = getKeyHistogram();
+      if (histogram != null) {
+        int size = histogram.estimate(histogramKey(lowerBoundKey),
+            lowerBoundOperator, histogramKey(upperBoundKey),
+            upperBoundOperator);
+        if (size >= 0) {
+          return size;
+        }
+      }
+    }
+    return super.getSizeEstimate(lowerBoundKey, lowerBoundOperator,
+        upperBoundKey, upperBoundOperator, matchLevel);
+  }
+
+  /**
+   * Estimates the number of values selected by a single sided range
+   * condition from the key histogram, if cost based index selection is on.
+   * 
+   * @return the estimate, or -1 if there is none
+   */
+  private int estimateFromHistogram(Object key, int operator, int matchLevel)
+      throws TypeMismatchException {
+    if (!DefaultQuery.COST_BASED_INDEX_SELECTION || matchLevel > 0
+        || key == IndexManager.NULL || key == QueryService.UNDEFINED) {
+      return -1;
+    }
+    if (CompactRangeIndex.testHook != null) {
+      CompactRangeIndex.testHook.hook(operator == OQLLexerTokenTypes.TOK_LT
+          || operator == OQLLexerTokenTypes.TOK_LE ? 1 : 2);
+    }
+    IndexHistogram histogram = getKeyHistogram();
+    return histogram == null ? -1 : histogram.estimate(operator,
+        histogramKey(key));
+  }
+
+  private Object histogramKey(Object key) throws TypeMismatchException {
+    return getPdxStringForIndexedPdxKeys(TypeUtils.indexKeyFor(key));
+  }
+
+  @Override
+  IndexHistogram buildKeyHistogram(long updates) {
+    IndexHistogram.Builder builder = new IndexHistogram.Builder(
+        this.region.size());
+    CloseableIterator<IndexStoreEntry> iterator = null;
+    try {
+      iterator = indexStore.iterator(null);
+      while (iterator.hasNext()) {
+        builder.add(iterator.next().getDeserializedKey(), 1);
+      }
+    } finally {
+      if (iterator != null) {
+        iterator.close();
+      }
+    }
+    return builder.create(updates);
+  }
+
   /** Method called while appropriate lock held on index */
   private void lockedQueryPrivate(Object key, int operator, Collection results,
       CompiledValue iterOps, RuntimeIterator runtimeItr,
@@ -688,6 +781,11 @@ public class CompactRangeIndex extends AbstractIndex {
 
   @Override
   void instantiateEvaluator(IndexCreationHelper ich) {
+    // the type of the indexed expression is known once it is compiled, before
+    // any entry is added to the index. The evaluator configures the store.
+    if (!IndexManager.IS_TEST_LDM && IndexManager.isPrimitiveKeyIndex(ich)) {
+      indexStore = new PrimitiveKeyIndexStore(region, internalIndexStats);
+    }
     this.evaluator = new IMQEvaluator(ich);
   }
   
@@ -1051,10 +1149,12 @@ public class CompactRangeIndex extends AbstractIndex {
     }
 
     public void incNumUpdates() {
+      incLocalUpdates(1);
       this.vsdStats.incNumUpdates();
     }
 
     public void incNumUpdates(int delta) {
+      incLocalUpdates(delta);
       this.vsdStats.incNumUpdates(delta);
     }
 
@@ -1090,6 +1190,14 @@ public class CompactRangeIndex extends AbstractIndex {
       this.vsdStats.incReadLockCount(delta);
     }
 
+    public void incPopulatesInProgress(int delta) {
+      this.vsdStats.incPopulatesInProgress(delta);
+    }
+
+    public void incPopulateTime(long delta) {
+      this.vsdStats.incPopulateTime(delta);
+    }
+
     /**
      * Returns the total amount of time (in nanoseconds) spent updating this
      * index.
@@ -1133,6 +1241,14 @@ public class CompactRangeIndex extends AbstractIndex {
     public int getReadLockCount() {
       return this.vsdStats.getReadLockCount();
     }
+
+    public int getPopulatesInProgress() {
+      return this.vsdStats.getPopulatesInProgress();
+    }
+
+    public long getPopulateTime() {
+      return this.vsdStats.getPopulateTime();
+    }
     
     public void close() {
       this.vsdStats.close();
@@ -108,6 +108,12 @@ public class HashIndex extends AbstractIndex {
    */
   private ConcurrentMap<Object, Object> entryToValuesMap = null;
 
+  /**
+   * True if the index is updated asynchronously, so that the entries found
+   * must always be verified against their current values
+   */
+  private final boolean asyncMaintenance;
+
   private boolean indexOnRegionKeys = false;
 
   private boolean indexOnValues = false;
@@ -140,8 +146,8 @@ public class HashIndex extends AbstractIndex {
         projectionAttributes, origFromClause, origIndexExpr, definitions, stats);
     RegionAttributes ra = region.getAttributes();
 
-
-    if (IndexManager.isObjectModificationInplace()) {
+    this.asyncMaintenance = !ra.getIndexMaintenanceSynchronous();
+    if (IndexManager.needsReverseMap(region)) {
       entryToValuesMap = new ConcurrentHashMap(ra.getInitialCapacity(),
           ra.getLoadFactor(), ra.getConcurrencyLevel());
     }
@@ -211,10 +217,10 @@ public class HashIndex extends AbstractIndex {
           //meaning we do not have an old mapping
           // we will continue to remove the old mapping to be safe and log a fine level message
           Object oldKey = null;
-          if (IndexManager.isObjectModificationInplace() && this.entryToValuesMap.containsKey(entry)){
+          if (this.entryToValuesMap != null && this.entryToValuesMap.containsKey(entry)){
             oldKey = this.entryToValuesMap.get(entry);
           }
-          else if (!IndexManager.isObjectModificationInplace() && this.entryToOldKeysMap != null) {
+          else if (this.entryToValuesMap == null && this.entryToOldKeysMap != null) {
             Map oldKeyMap = this.entryToOldKeysMap.get();
             if (oldKeyMap != null) {
               oldKey = TypeUtils.indexKeyFor(oldKeyMap.get(entry));
@@ -245,7 +251,7 @@ public class HashIndex extends AbstractIndex {
     // + entry );
     if (opCode == BEFORE_UPDATE_OP) {
       // Either take key from reverse map OR evaluate it using IMQEvaluator.
-      if (!IndexManager.isObjectModificationInplace()) {
+      if (this.entryToValuesMap == null) {
         // It will always contain 1 element only, for this thread.
         entryToOldKeysMap.set(new Object2ObjectOpenHashMap(1));
         this.evaluator.evaluate(entry, false);
@@ -256,7 +262,15 @@ public class HashIndex extends AbstractIndex {
       if (entryToOldKeysMap != null) {
         entryToOldKeysMap.remove();
       }
-      this.evaluator.evaluate(entry, false);
+      if (this.asyncMaintenance) {
+        // the value of an asynchronously removed entry may already be gone
+        Object oldKey = this.entryToValuesMap.get(entry);
+        if (oldKey != null) {
+          this.entriesSet.remove(oldKey, entry, true);
+        }
+      } else {
+        this.evaluator.evaluate(entry, false);
+      }
       this.internalIndexStats.incNumUpdates();
     }
   }
@@ -452,7 +466,7 @@ public class HashIndex extends AbstractIndex {
         // Bug#41010: We need to verify if Inner and Outer Entries
         // are consistent with index key values.
         boolean ok = true;
-        if (re.isUpdateInProgress()) {
+        if (this.asyncMaintenance || re.isUpdateInProgress()) {
           IndexInfo[] indexInfo = (IndexInfo[]) context
               .cacheGet(CompiledValue.INDEX_INFO);
           IndexInfo indInfo = (j == 0) ? indexInfo[0] : indexInfo[1];
@@ -484,7 +498,7 @@ public class HashIndex extends AbstractIndex {
       case OQLLexerTokenTypes.TOK_NE:
         size = this.region.size();
         key = TypeUtils.indexKeyFor(key);
-        size = this.entriesSet.size(key);
+        size -= this.entriesSet.size(key);
         break;
       }
     } finally {
@@ -709,7 +723,7 @@ public class HashIndex extends AbstractIndex {
       boolean ok = true;
       //If the region entry is currently being updated or it has been modified since starting iteration
       //we will reevaluate to be sure the value still matches the key
-      if (re.isUpdateInProgress() || IndexManager.needsRecalculation(iteratorCreationTime, re.getLastModified())) {
+      if (this.asyncMaintenance || re.isUpdateInProgress() || IndexManager.needsRecalculation(iteratorCreationTime, re.getLastModified())) {
         IndexInfo indexInfo = (IndexInfo) context
             .cacheGet(CompiledValue.INDEX_INFO);
         if (runtimeItr == null) {
@@ -988,6 +1002,14 @@ public class HashIndex extends AbstractIndex {
       this.vsdStats.incReadLockCount(delta);
     }
 
+    public void incPopulatesInProgress(int delta) {
+      this.vsdStats.incPopulatesInProgress(delta);
+    }
+
+    public void incPopulateTime(long delta) {
+      this.vsdStats.incPopulateTime(delta);
+    }
+
     /**
      * Returns the total amount of time (in nanoseconds) spent updating this
      * index.
@@ -1040,6 +1062,14 @@ public class HashIndex extends AbstractIndex {
       return this.vsdStats.getReadLockCount();
     }
 
+    public int getPopulatesInProgress() {
+      return this.vsdStats.getPopulatesInProgress();
+    }
+
+    public long getPopulateTime() {
+      return this.vsdStats.getPopulateTime();
+    }
+
     public void close() {
       this.vsdStats.close();
     }
@@ -377,10 +377,10 @@ public class HashIndexSet implements Set {
     // using the oldValue remove entry from the forward map.
     // Reverse-map is used based on the system property
     Object oldKey = null;
-    if (IndexManager.isObjectModificationInplace() && this.entryToValuesMap.containsKey(obj)){
+    if (this.entryToValuesMap != null && this.entryToValuesMap.containsKey(obj)){
         oldKey = this.entryToValuesMap.get(obj);
     }
-    else if (!IndexManager.isObjectModificationInplace() && this.entryToOldKeysMap != null) {
+    else if (this.entryToValuesMap == null && this.entryToOldKeysMap != null) {
       Map oldKeyMap = this.entryToOldKeysMap.get();
       if (oldKeyMap != null) {
         oldKey = TypeUtils.indexKeyFor(oldKeyMap.get(obj));        
@@ -407,7 +407,7 @@ public class HashIndexSet implements Set {
     
     if (added) {
       //Update the reverse map
-      if ( IndexManager.isObjectModificationInplace()) {
+      if ( this.entryToValuesMap != null) {
         this.entryToValuesMap.put(obj, indexKey);
       }
       if (indexKey != null && oldKey != null) {
@@ -586,18 +586,22 @@ public class HashIndexSet implements Set {
     Object[] newSet = new Object[newCapacity];
     _removedTokens = 0;
     //adds/removes/rehash should all be synchronized by the hashindex
-    //we are ok to clear this map and repopulate
-    //we do not do this for _set because we could still be querying 
-    //but the reversemap is only used for adds/removes/rehash
-    if (IndexManager.isObjectModificationInplace()) {
-      entryToValuesMap.clear();
-    }
+    //the reverse map is not cleared since it holds the indexed keys of the
+    //entries, and every entry is put back in it with its key below
     for (int i = oldCapacity; i-- > 0;) {
       if (oldSet[i] != null && oldSet[i] != REMOVED) {
         Object o = oldSet[i];
 
         if (o instanceof RegionEntry) {
-          Object key = _hashingStrategy.computeKey(o);
+          // keep the entry under its indexed key, which differs from the key
+          // of its current value while an asynchronous update is pending
+          Object key = null;
+          if (entryToValuesMap != null) {
+            key = entryToValuesMap.get(o);
+          }
+          if (key == null) {
+            key = _hashingStrategy.computeKey(o);
+          }
           if (key == null) {
             key = IndexManager.NULL;
           }
@@ -613,7 +617,7 @@ public class HashIndexSet implements Set {
   }
   
   private void updateReverseMap(Object regionEntry, Object key) {
-    if (IndexManager.isObjectModificationInplace()) {
+    if (this.entryToValuesMap != null) {
       entryToValuesMap.put(regionEntry, key);
     }
   }
@@ -685,7 +689,7 @@ public class HashIndexSet implements Set {
     _size = 0;
     _free = capacity();
     _removedTokens = 0;
-    if (IndexManager.isObjectModificationInplace()) {
+    if (this.entryToValuesMap != null) {
       entryToValuesMap.clear();
     }
     Object[] set = _set;
@@ -736,14 +740,14 @@ public class HashIndexSet implements Set {
     if (indexSlot >= 0 && indexSlot != newIndexSlot) {
       removed = removeAt(indexSlot);
       if (removed) {
-        if (updateReverseMap && IndexManager.isObjectModificationInplace()) {
+        if (updateReverseMap && this.entryToValuesMap != null) {
           entryToValuesMap.remove(obj);
         }
         internalIndexStats.incNumValues(-1);
       }
       return removed;
     }
-    else if (!IndexManager.isObjectModificationInplace()){
+    else if (this.entryToValuesMap == null){
       //object could not be found so it's possible there was an inplace modification
         HashIndexSetIterator iterator = (HashIndexSetIterator)getAll();
         while (iterator.hasNext()) {
@@ -0,0 +1,270 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.internal.parse.OQLLexerTokenTypes;
+import com.gemstone.gemfire.cache.query.internal.types.TypeUtils;
+
+/**
+ * An equi-depth histogram of the keys of an index, used to estimate the number
+ * of values a range condition selects from the index. Each bucket holds about
+ * the same number of index values and is described by its first and last key
+ * and the number of values with a key up to its last key. Keys are never split
+ * across buckets.
+ * <p>
+ * A histogram is built with a {@link Builder} from the keys of the index in
+ * ascending order and is immutable afterwards. The index rebuilds it in the
+ * background once the number of updates made to the index since it was built
+ * exceeds a fraction of the values it describes.
+ *
+ * @since 9.0
+ */
+class IndexHistogram {
+
+  /**
+   * System property for the number of buckets of the histograms built for
+   * range size estimates.
+   */
+  static final int NUM_BUCKETS = Math.max(1,
+      Integer.getInteger("gemfire.index.HISTOGRAM_BUCKETS", 64).intValue());
+
+  /**
+   * Fraction of the values of the histogram that can be updated before the
+   * histogram is considered out of date.
+   */
+  private static final float STALE_FRACTION = 0.1f;
+
+  private static final Comparator comparator = TypeUtils
+      .getExtendedNumericComparator();
+
+  private final Object[] firstKeys;
+
+  private final Object[] lastKeys;
+
+  /** number of values with a key less than or equal to the last key of a bucket */
+  private final int[] cumulativeValues;
+
+  private final int numKeys;
+
+  private final long builtAtUpdates;
+
+  private IndexHistogram(Builder builder, long builtAtUpdates) {
+    this.firstKeys = builder.firstKeys.toArray();
+    this.lastKeys = builder.lastKeys.toArray();
+    this.cumulativeValues = new int[builder.cumulativeValues.size()];
+    for (int i = 0; i < this.cumulativeValues.length; i++) {
+      this.cumulativeValues[i] = builder.cumulativeValues.get(i).intValue();
+    }
+    this.numKeys = builder.numKeys;
+    this.builtAtUpdates = builtAtUpdates;
+  }
+
+  /**
+   * Returns the number of values described by this histogram.
+   */
+  int getNumValues() {
+    return this.cumulativeValues.length == 0 ? 0
+        : this.cumulativeValues[this.cumulativeValues.length - 1];
+  }
+
+  /**
+   * Returns the number of distinct keys described by this histogram.
+   */
+  int getNumKeys() {
+    return this.numKeys;
+  }
+
+  /**
+   * Returns true if this histogram no longer describes the index well enough,
+   * given the total number of updates made to the index so far.
+   */
+  boolean isStale(long updates) {
+    long threshold = Math.max(NUM_BUCKETS,
+        (long)(getNumValues() * STALE_FRACTION));
+    return updates - this.builtAtUpdates > threshold;
+  }
+
+  /**
+   * Estimates the number of values whose key satisfies the condition
+   * <code>indexKey operator key</code>.
+   *
+   * @return the estimate, or -1 if the key cannot be compared with the keys of
+   *         the index or the operator is not a range operator
+   */
+  int estimate(int operator, Object key) {
+    try {
+      switch (operator) {
+      case OQLLexerTokenTypes.TOK_LT:
+        return countBelow(key, false);
+      case OQLLexerTokenTypes.TOK_LE:
+        return countBelow(key, true);
+      case OQLLexerTokenTypes.TOK_GT:
+        return getNumValues() - countBelow(key, true);
+      case OQLLexerTokenTypes.TOK_GE:
+        return getNumValues() - countBelow(key, false);
+      default:
+        return -1;
+      }
+    } catch (ClassCastException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Estimates the number of values whose key lies between the two keys.
+   *
+   * @return the estimate, or -1 if the keys cannot be compared with the keys
+   *         of the index
+   */
+  int estimate(Object lowerBoundKey, int lowerBoundOperator,
+      Object upperBoundKey, int upperBoundOperator) {
+    try {
+      int below = countBelow(upperBoundKey,
+          upperBoundOperator == OQLLexerTokenTypes.TOK_LE);
+      int belowLower = countBelow(lowerBoundKey,
+          lowerBoundOperator == OQLLexerTokenTypes.TOK_GT);
+      return Math.max(0, below - belowLower);
+    } catch (ClassCastException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Returns the estimated number of values with a key less than the given key,
+   * or less than or equal to it if inclusive.
+   */
+  private int countBelow(Object key, boolean inclusive) {
+    // find the first bucket whose last key is not less than the key
+    int low = 0;
+    int high = this.lastKeys.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (comparator.compare(this.lastKeys[mid], key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    if (low == this.lastKeys.length) {
+      return getNumValues();
+    }
+    int before = low == 0 ? 0 : this.cumulativeValues[low - 1];
+    int inBucket = this.cumulativeValues[low] - before;
+    int cmpFirst = comparator.compare(this.firstKeys[low], key);
+    if (cmpFirst > 0 || (cmpFirst == 0 && !inclusive)) {
+      return before;
+    }
+    if (comparator.compare(this.lastKeys[low], key) == 0) {
+      // the values of the last key itself are not known separately
+      return inclusive ? this.cumulativeValues[low] : before + inBucket / 2;
+    }
+    return before + (int)(inBucket * fractionOf(this.firstKeys[low], key,
+        this.lastKeys[low]));
+  }
+
+  /**
+   * Returns the position of the key between the two keys as a fraction, by
+   * interpolation for numbers and as the middle otherwise.
+   */
+  private static double fractionOf(Object first, Object key, Object last) {
+    if (first instanceof Number && key instanceof Number
+        && last instanceof Number) {
+      double range = ((Number)last).doubleValue()
+          - ((Number)first).doubleValue();
+      if (range > 0) {
+        double fraction = (((Number)key).doubleValue() - ((Number)first)
+            .doubleValue()) / range;
+        return Math.min(1.0, Math.max(0.0, fraction));
+      }
+    }
+    return 0.5;
+  }
+
+  /**
+   * Collects the keys of an index, in ascending order, into a histogram.
+   */
+  static class Builder {
+    private final int valuesPerBucket;
+
+    private final List<Object> firstKeys = new ArrayList<Object>();
+
+    private final List<Object> lastKeys = new ArrayList<Object>();
+
+    private final List<Integer> cumulativeValues = new ArrayList<Integer>();
+
+    private Object currentFirstKey;
+
+    private Object currentKey;
+
+    private int currentBucketValues;
+
+    private int totalValues;
+
+    private int numKeys;
+
+    /**
+     * @param expectedValues
+     *          approximate number of values of the index, used to size the
+     *          buckets
+     */
+    Builder(int expectedValues) {
+      this.valuesPerBucket = Math.max(1, expectedValues / NUM_BUCKETS);
+    }
+
+    /**
+     * Adds values of a key. Keys must be added in ascending order. Values of
+     * the same key may be added by successive calls. Null and undefined keys
+     * are ignored as range conditions never select them.
+     */
+    void add(Object key, int numValues) {
+      if (key == null || key == IndexManager.NULL
+          || key == QueryService.UNDEFINED || numValues <= 0) {
+        return;
+      }
+      if (this.currentKey == null || !this.currentKey.equals(key)) {
+        if (this.currentBucketValues >= this.valuesPerBucket) {
+          closeBucket();
+        }
+        if (this.currentFirstKey == null) {
+          this.currentFirstKey = key;
+        }
+        this.currentKey = key;
+        this.numKeys++;
+      }
+      this.currentBucketValues += numValues;
+      this.totalValues += numValues;
+    }
+
+    private void closeBucket() {
+      this.firstKeys.add(this.currentFirstKey);
+      this.lastKeys.add(this.currentKey);
+      this.cumulativeValues.add(Integer.valueOf(this.totalValues));
+      this.currentFirstKey = null;
+      this.currentBucketValues = 0;
+    }
+
+    /**
+     * Creates the histogram.
+     *
+     * @param updates
+     *          total number of updates made to the index when its keys were
+     *          read
+     */
+    IndexHistogram create(long updates) {
+      if (this.currentBucketValues > 0) {
+        closeBucket();
+      }
+      return new IndexHistogram(this, updates);
+    }
+  }
+}
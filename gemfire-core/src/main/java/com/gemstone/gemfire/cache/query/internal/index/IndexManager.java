@@ -25,7 +25,13 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -51,6 +57,7 @@ import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
 import com.gemstone.gemfire.cache.query.internal.ExecutionContext;
 import com.gemstone.gemfire.cache.query.internal.MapIndexable;
 import com.gemstone.gemfire.cache.query.internal.NullToken;
+import com.gemstone.gemfire.cache.query.internal.PathUtils;
 import com.gemstone.gemfire.cache.query.internal.QueryMonitor;
 import com.gemstone.gemfire.cache.query.internal.QueryObserver;
 import com.gemstone.gemfire.cache.query.internal.QueryObserverHolder;
@@ -101,9 +108,22 @@ public class IndexManager  {
   private ConcurrentMap canonicalizedIteratorNameMap = new ConcurrentHashMap();
   private IndexUpdaterThread updater;
 
+  /**
+   * The index contents saved when the persistent region was last closed; null
+   * if there are none left to load
+   */
+  private volatile PersistentIndexSnapshot recoveredIndexes;
+
   // Threshold for Queue.
   private final int INDEX_MAINTENANCE_BUFFER = Integer.getInteger("gemfire.AsynchIndexMaintenanceThreshold", -1).intValue();
 
+  /**
+   * The longest time, in milliseconds, an asynchronous index update may wait
+   * in the queue before writers are slowed down to let the indexes catch up.
+   * Zero or less if writers are never slowed down.
+   */
+  private final long INDEX_MAINTENANCE_MAX_STALENESS = Long.getLong("gemfire.AsynchIndexMaintenanceMaxStaleness", -1).longValue();
+
   // Added for test purposes only.
   public static boolean INPLACE_OBJECT_MODIFICATION_FOR_TEST = false;    
 
@@ -127,6 +147,25 @@ public class IndexManager  {
   public static final boolean RANGEINDEX_ONLY =     
     Boolean.valueOf(System.getProperty("gemfire.index.RANGEINDEX_ONLY", "false")).booleanValue();
 
+  /**
+   * System property to turn-off the {@link PrimitiveKeyIndexStore} for compact
+   * range indexes on ints and longs.
+   */
+  public static final boolean PRIMITIVE_KEY_INDEX_STORE_DISABLED =
+    Boolean.valueOf(System.getProperty("gemfire.index.DISABLE_PRIMITIVE_KEY_INDEX_STORE", "false")).booleanValue();
+
+  /**
+   * The number of threads that populate the indexes of different buckets or
+   * regions at the same time when defined indexes are created.
+   */
+  public static final int INDEX_POPULATE_THREADS = Integer.getInteger(
+      "gemfire.index.POPULATE_THREADS",
+      Runtime.getRuntime().availableProcessors()).intValue();
+
+  private static ExecutorService populateExecutor;
+
+  private static ExecutorService histogramExecutor;
+
   /** For test purpose only */
   public static boolean TEST_RANGEINDEX_ONLY = false;
   public static final String INDEX_ELEMARRAY_THRESHOLD_PROP = "index_elemarray_threshold";
@@ -158,9 +197,13 @@ public class IndexManager  {
       final LoggingThreadGroup group =
         LoggingThreadGroup.createThreadGroup("QueryMonitor Thread Group", logger);
       updater = new IndexUpdaterThread(group, this.INDEX_MAINTENANCE_BUFFER,
+                                       this.INDEX_MAINTENANCE_MAX_STALENESS,
                                        "OqlIndexUpdater:" + region.getFullPath());
       updater.start();
     }
+    if (region instanceof LocalRegion) {
+      this.recoveredIndexes = PersistentIndexSnapshot.recover((LocalRegion) region);
+    }
   }
    
   /**
@@ -305,8 +348,8 @@ public class IndexManager  {
       if (!isCompactOrHash && indexType != IndexType.PRIMARY_KEY) {
         
         if (indexType == IndexType.HASH ) {
-          if (!isIndexMaintenanceTypeSynchronous()) {
-            throw new UnsupportedOperationException(LocalizedStrings.DefaultQueryService_HASH_INDEX_CREATION_IS_NOT_SUPPORTED_FOR_ASYNC_MAINTENANCE.toLocalizedString());
+          if (!isIndexMaintenanceTypeSynchronous() && isOffHeap()) {
+            throw new UnsupportedOperationException(LocalizedStrings.DefaultQueryService_OFF_HEAP_INDEX_CREATION_IS_NOT_SUPPORTED_FOR_ASYNC_MAINTENANCE_THE_REGION_IS_0.toLocalizedString(region.getFullPath()));
           } 
           throw new UnsupportedOperationException(LocalizedStrings.DefaultQueryService_HASH_INDEX_CREATION_IS_NOT_SUPPORTED_FOR_MULTIPLE_ITERATORS.toLocalizedString());
         }
@@ -427,14 +470,13 @@ public class IndexManager  {
       return false;
     }
     
-    // compact range index is not supported on asynchronous index maintenance.
-    // since compact range index maintains reference to region entry, in case of
-    // asynchronous updates the window between cache operation updating the 
-    // index increases causing query thread to return new value before doing
-    // index evaluation (resulting in wrong value. There is still a small window
-    // which can be addressed by the sys property:
-    // gemfire.index.acquireCompactIndexLocksWithRegionEntryLocks
-    if (!getRegion().getAttributes().getIndexMaintenanceSynchronous()) {
+    // compact range index maintains references to region entries, so with
+    // asynchronous updates a query could see an entry's new value before the
+    // index is updated. Asynchronous compact and hash indexes re-evaluate every
+    // candidate entry against the query, and remove stale keys through a
+    // reverse map from entry to key. Off-heap regions are not supported since
+    // the reverse map would hold on to off-heap values.
+    if (!getRegion().getAttributes().getIndexMaintenanceSynchronous() && isOffHeap()) {
       return false;
     } 
     
@@ -903,7 +945,22 @@ public class IndexManager  {
     }
     boolean throwException = false;
     HashMap<String, Exception> exceptionsMap = new HashMap<String, Exception>();
+    List<AbstractIndex> populating = new ArrayList<AbstractIndex>(indexSet.size());
+    for (Index ind : indexSet) {
+      AbstractIndex index = (AbstractIndex) ind;
+      if (!index.isPopulated() && index.getType() != IndexType.PRIMARY_KEY) {
+        populating.add(index);
+      }
+    }
+    long startTime = System.nanoTime();
+    updatePopulateStats(populating, 1, 0L);
     try {
+      for (Index ind : indexSet) {
+        AbstractIndex index = (AbstractIndex) ind;
+        if (!index.isPopulated() && loadRecoveredIndex(index)) {
+          index.setPopulated(true);
+        }
+      }
       Iterator entryIter = ((LocalRegion) region).getBestIterator(true);
       while (entryIter.hasNext()) {
         RegionEntry entry = (RegionEntry) entryIter.next();
@@ -950,9 +1007,158 @@ public class IndexManager  {
       }
     } finally {
       notifyAfterUpdate();
+      updatePopulateStats(populating, -1, System.nanoTime() - startTime);
+    }
+  }
+
+  /**
+   * Updates the statistics of indexes being populated. Bucket indexes share
+   * the statistics of their partitioned index, so the populates in progress
+   * of a partitioned index count the buckets being populated.
+   * 
+   * @param delta
+   *          1 when the population starts, -1 when it ends
+   * @param time
+   *          the time taken to populate the indexes
+   */
+  private static void updatePopulateStats(List<AbstractIndex> indexes,
+      int delta, long time) {
+    for (AbstractIndex index : indexes) {
+      if (index.internalIndexStats != null) {
+        index.internalIndexStats.incPopulatesInProgress(delta);
+        index.internalIndexStats.incPopulateTime(time);
+      }
+      PartitionedIndex prIndex = (PartitionedIndex) index.getPRIndex();
+      if (prIndex != null && delta < 0 && index.isPopulated()) {
+        prIndex.incNumBucketIndexesPopulated();
+      }
+    }
+  }
+
+  /**
+   * Populates the indexes of several regions or buckets, using up to
+   * {@link #INDEX_POPULATE_THREADS} threads. Each region is populated by a
+   * single pass over its entries.
+   * 
+   * @param indexSets
+   *          the indexes to populate, by the index manager of their region
+   * @throws MultiIndexCreationException
+   *           if any of the indexes could not be populated
+   */
+  public static void populateIndexesInParallel(
+      Map<IndexManager, Collection<Index>> indexSets)
+      throws MultiIndexCreationException {
+    HashMap<String, Exception> exceptionsMap = new HashMap<String, Exception>();
+    if (INDEX_POPULATE_THREADS <= 1 || indexSets.size() <= 1) {
+      for (Map.Entry<IndexManager, Collection<Index>> e : indexSets.entrySet()) {
+        try {
+          e.getKey().populateIndexes(e.getValue());
+        } catch (MultiIndexCreationException ex) {
+          exceptionsMap.putAll(ex.getExceptionsMap());
+        }
+      }
+    } else {
+      final boolean readSerialized = DefaultQuery.getPdxReadSerialized();
+      ExecutorService executor = getPopulateExecutor();
+      List<Future<Void>> futures = new ArrayList<Future<Void>>(indexSets.size());
+      for (final Map.Entry<IndexManager, Collection<Index>> e : indexSets.entrySet()) {
+        futures.add(executor.submit(new Callable<Void>() {
+          public Void call() throws Exception {
+            boolean oldReadSerialized = DefaultQuery.getPdxReadSerialized();
+            DefaultQuery.setPdxReadSerialized(readSerialized);
+            try {
+              e.getKey().populateIndexes(e.getValue());
+            } finally {
+              DefaultQuery.setPdxReadSerialized(oldReadSerialized);
+            }
+            return null;
+          }
+        }));
+      }
+      // wait for every region, so that no index is still being populated
+      // when this returns
+      RuntimeException failure = null;
+      boolean interrupted = false;
+      for (Future<Void> future : futures) {
+        while (true) {
+          try {
+            future.get();
+            break;
+          } catch (InterruptedException ie) {
+            interrupted = true;
+          } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof MultiIndexCreationException) {
+              exceptionsMap.putAll(((MultiIndexCreationException) cause).getExceptionsMap());
+            } else if (cause instanceof Error) {
+              throw (Error) cause;
+            } else if (failure == null) {
+              failure = cause instanceof RuntimeException ? (RuntimeException) cause
+                  : new IndexInvalidException(cause);
+            }
+            break;
+          }
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    }
+    if (!exceptionsMap.isEmpty()) {
+      throw new MultiIndexCreationException(exceptionsMap);
+    }
+  }
+
+  private static synchronized ExecutorService getPopulateExecutor() {
+    if (populateExecutor == null) {
+      final LoggingThreadGroup group = LoggingThreadGroup.createThreadGroup(
+          "Index Populator Threads", logger);
+      ThreadFactory threadFactory = new ThreadFactory() {
+        private final AtomicInteger threadNum = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(group, r, "Index Populator Thread "
+              + threadNum.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      };
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(
+          INDEX_POPULATE_THREADS, INDEX_POPULATE_THREADS, 60, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(), threadFactory);
+      // the pool is only busy while indexes are being created
+      executor.allowCoreThreadTimeOut(true);
+      populateExecutor = executor;
     }
+    return populateExecutor;
   }
   
+  /**
+   * Returns the executor that rebuilds out of date key histograms of indexes,
+   * so that queries do not wait for them.
+   */
+  static synchronized ExecutorService getHistogramExecutor() {
+    if (histogramExecutor == null) {
+      final LoggingThreadGroup group = LoggingThreadGroup.createThreadGroup(
+          "Index Histogram Builder Threads", logger);
+      ThreadFactory threadFactory = new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(group, r, "Index Histogram Builder Thread");
+          thread.setDaemon(true);
+          return thread;
+        }
+      };
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60,
+          TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+      executor.allowCoreThreadTimeOut(true);
+      histogramExecutor = executor;
+    }
+    return histogramExecutor;
+  }
+
   /**
    * Sets the {@link AbstractIndex#isPopulated} after 
    * populating all the indexes in this region
@@ -1226,6 +1432,7 @@ public class IndexManager  {
           start = ((AbstractIndex) index).updateIndexUpdateStats();
           ((AbstractIndex) index).recreateIndexData();
           ((AbstractIndex) index).updateIndexUpdateStats(start);
+          aIndex.rebuildKeyHistogram();
 
         }
       }
@@ -1285,6 +1492,81 @@ public class IndexManager  {
   private CachePerfStats getCachePerfStats() {
     return ((LocalRegion)this.region).getCachePerfStats();
   }
+  /**
+   * Loads the contents of an index from the index contents saved when the
+   * persistent region was last closed. Must be called while index updates
+   * are blocked by {@link #waitBeforeUpdate()}.
+   * 
+   * @return true if the index has been loaded; false if it must be populated
+   *         from the region entries
+   */
+  private boolean loadRecoveredIndex(AbstractIndex index) {
+    PersistentIndexSnapshot snapshot = this.recoveredIndexes;
+    if (snapshot == null) {
+      return false;
+    }
+    try {
+      index.initializeIndex(false);
+      return snapshot.load(index);
+    } catch (Exception e) {
+      logger.info("Could not load the saved contents of index {} on region {}, it will be rebuilt: {}",
+          index.getName(), region.getFullPath(), e.getMessage());
+      try {
+        index.clear();
+      } catch (QueryException ignore) {
+      }
+    } finally {
+      if (snapshot.isEmpty()) {
+        this.recoveredIndexes = null;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Saves the contents of the compact range indexes of a persistent region
+   * that is being closed, so that they can be loaded instead of rebuilt when
+   * the region is recovered. Called before {@link #destroy()}.
+   */
+  public void saveIndexes() {
+    if (!(this.region instanceof LocalRegion)) {
+      return;
+    }
+    try {
+      if (!isIndexMaintenanceTypeSynchronous() && !waitForIndexUpdates(0)) {
+        // the indexes do not hold all the region operations
+        return;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    List<CompactRangeIndex> toSave = new ArrayList<CompactRangeIndex>();
+    for (Object ind : this.indexes.values()) {
+      if (ind instanceof CompactRangeIndex) {
+        CompactRangeIndex index = (CompactRangeIndex) ind;
+        if (index.isValid() && index.isPopulated()) {
+          toSave.add(index);
+        }
+      }
+    }
+    if (toSave.isEmpty()) {
+      PersistentIndexSnapshot.delete((LocalRegion) this.region);
+    } else {
+      PersistentIndexSnapshot.save((LocalRegion) this.region, toSave);
+    }
+  }
+
+  /**
+   * Deletes the index contents saved for a persistent region that is being
+   * destroyed.
+   */
+  public void deleteSavedIndexes() {
+    if (this.region instanceof LocalRegion) {
+      PersistentIndexSnapshot.delete((LocalRegion) this.region);
+    }
+  }
+
   /**
    * Callback for destroying IndexManager Called after Region.destroy() called
    */
@@ -1340,9 +1622,65 @@ public class IndexManager  {
     return this.offHeap;
   }
 
+  /**
+   * Returns true if an index created by the given helper should keep its keys
+   * in a {@link PrimitiveKeyIndexStore}. That is the case when the declared
+   * type of the indexed expression, resolved from the constraint of the
+   * region through the fields and methods of the path, is an int or a long,
+   * so that every key added to the index can be stored. Otherwise the keys
+   * are kept in a {@link MemoryIndexStore}.
+   * 
+   * @see #PRIMITIVE_KEY_INDEX_STORE_DISABLED
+   */
+  static boolean isPrimitiveKeyIndex(IndexCreationHelper helper) {
+    if (PRIMITIVE_KEY_INDEX_STORE_DISABLED
+        || !(helper instanceof FunctionalIndexCreationHelper)) {
+      return false;
+    }
+    FunctionalIndexCreationHelper fich = (FunctionalIndexCreationHelper) helper;
+    Class type;
+    try {
+      type = PathUtils.computeElementTypeOfExpression(fich.context,
+          fich.getCompiledIndexedExpression()).resolveClass();
+    } catch (AmbiguousNameException e) {
+      return false;
+    }
+    return type == int.class || type == Integer.class
+        || type == long.class || type == Long.class;
+  }
+
   public static boolean isObjectModificationInplace() {
     return (INPLACE_OBJECT_MODIFICATION || INPLACE_OBJECT_MODIFICATION_FOR_TEST);
   }
+
+  /**
+   * Returns true if the indexes of the given region need a map from region
+   * entry to indexed key. The old key of an entry can not be evaluated from its
+   * old value when objects are modified in place, nor when the index is updated
+   * asynchronously, after the old value is gone.
+   */
+  static boolean needsReverseMap(Region region) {
+    return isObjectModificationInplace()
+        || !region.getAttributes().getIndexMaintenanceSynchronous();
+  }
+
+  /**
+   * Waits for the asynchronous index updates queued before this call to be
+   * applied to the indexes of this region.
+   * 
+   * @param timeoutMillis
+   *          the longest time to wait, in milliseconds
+   * @return true if the indexes are up to date with the updates queued before
+   *         this call; false if the wait timed out
+   * @throws InterruptedException
+   *           if the calling thread is interrupted while waiting
+   */
+  public boolean waitForIndexUpdates(long timeoutMillis) throws InterruptedException {
+    if (isIndexMaintenanceTypeSynchronous()) {
+      return true;
+    }
+    return updater.waitForTasks(updater.getTasksAdded(), timeoutMillis);
+  }
   /**
    * Asif : This function is used exclusively by Index Manager. It gets the
    * unique Iterator name for a Iterator definition, if it already exists, else
@@ -1398,13 +1736,44 @@ public class IndexManager  {
 
     private volatile BlockingQueue pendingTasks;
 
+    /**
+     * The longest time, in nanoseconds, a task may wait in the queue before
+     * writers are slowed down; zero or less if there is no limit
+     */
+    private final long maxStalenessNanos;
+
+    /** Orders the queue additions with the task sequence numbers */
+    private final Object addLock = new Object();
+
+    /** The sequence number of the last task added to the queue */
+    private volatile long tasksAdded;
+
+    /** The sequence number of the last task processed */
+    private volatile long tasksDone;
+
+    /** Notified when a task is processed if there are waiters */
+    private final Object doneLock = new Object();
+
+    /**
+     * The entries updated by their writer because the queue was full, mapped
+     * to the sequence number of the last task queued before the update. The
+     * queued tasks of an entry up to that number are stale and are skipped.
+     */
+    private final ConcurrentMap<RegionEntry, Long> superseded =
+        new ConcurrentHashMap<RegionEntry, Long>();
+
+    /** The number of threads waiting on doneLock */
+    private volatile int waiters;
+
     /**
      * Creates instance of IndexUpdaterThread
      * @param updateThreshold
+     * @param maxStaleness the maximum staleness, in milliseconds
      * @param threadName
      */
-    IndexUpdaterThread(ThreadGroup group, int updateThreshold, String threadName) {
+    IndexUpdaterThread(ThreadGroup group, int updateThreshold, long maxStaleness, String threadName) {
       super(group, threadName);
+      this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStaleness);
       // Check if threshold is set.
       if (updateThreshold > 0){
         // Create a bounded queue.
@@ -1417,11 +1786,101 @@ public class IndexManager  {
     }
 
     public void addTask(int action, RegionEntry entry, int opCode) {
-      Object[] task = new Object[3];
+      Object[] task = new Object[5];
       task[0] = Integer.valueOf(action);
       task[1] = entry;
       task[2] = Integer.valueOf(opCode);  // !!!:ezoerner:20081029 change to valueOf jdk 1.5+
-      pendingTasks.add(task);
+      task[4] = Long.valueOf(System.nanoTime());
+      boolean interrupted = false;
+      boolean queued = true;
+      synchronized (this.addLock) {
+        task[3] = Long.valueOf(this.tasksAdded + 1);
+        if (entry == null) {
+          // a recreate is not added under an entry lock, so it can wait for
+          // room in a bounded queue
+          while (true) {
+            try {
+              pendingTasks.put(task);
+              break;
+            } catch (InterruptedException e) {
+              interrupted = true;
+            }
+          }
+        } else {
+          queued = pendingTasks.offer(task);
+        }
+        if (queued) {
+          this.tasksAdded++;
+        } else {
+          this.superseded.put(entry, Long.valueOf(this.tasksAdded));
+        }
+      }
+      if (!queued) {
+        // the writer holds the entry lock, so rather than wait for room in
+        // the queue it applies the update itself
+        updateIndexes(task);
+        return;
+      }
+      if (this.maxStalenessNanos > 0 && !interrupted) {
+        interrupted = limitStaleness();
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /**
+     * Delays the calling writer while the oldest queued task is older than
+     * the maximum staleness. The writer waits for at most the maximum
+     * staleness, since it may hold the lock of an entry the updater needs.
+     * 
+     * @return true if the calling thread was interrupted
+     */
+    private boolean limitStaleness() {
+      Object[] oldest = (Object[])pendingTasks.peek();
+      if (oldest == null
+          || System.nanoTime() - ((Long)oldest[4]).longValue() <= this.maxStalenessNanos) {
+        return false;
+      }
+      try {
+        waitForTasks(((Long)oldest[3]).longValue(),
+            TimeUnit.NANOSECONDS.toMillis(this.maxStalenessNanos));
+        return false;
+      } catch (InterruptedException e) {
+        return true;
+      }
+    }
+
+    long getTasksAdded() {
+      return this.tasksAdded;
+    }
+
+    /**
+     * Waits for the task with the given sequence number, and all the tasks
+     * queued before it, to be processed.
+     * 
+     * @return false if the wait timed out or the updater stopped first
+     */
+    boolean waitForTasks(long sequence, long timeoutMillis) throws InterruptedException {
+      if (this.tasksDone >= sequence) {
+        return true;
+      }
+      long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+      synchronized (this.doneLock) {
+        this.waiters++;
+        try {
+          while (this.tasksDone < sequence && this.running) {
+            long remaining = end - System.nanoTime();
+            if (remaining <= 0) {
+              return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this.doneLock, remaining);
+          }
+          return this.tasksDone >= sequence;
+        } finally {
+          this.waiters--;
+        }
+      }
     }
 
     /**
@@ -1458,7 +1917,18 @@ public class IndexManager  {
             if (this.shutdownRequested) {
               break;
             }
-            updateIndexes(task);
+            if (!isSuperseded(task)) {
+              updateIndexes(task);
+            }
+            this.tasksDone = ((Long)task[3]).longValue();
+            if (!this.superseded.isEmpty() && pendingTasks.isEmpty()) {
+              purgeSuperseded();
+            }
+            if (this.waiters > 0) {
+              synchronized (this.doneLock) {
+                this.doneLock.notifyAll();
+              }
+            }
           }
           catch (InterruptedException ignore) {
             return; // give up (exit the thread)
@@ -1467,6 +1937,34 @@ public class IndexManager  {
       }
       finally {
         this.running = false;
+        synchronized (this.doneLock) {
+          this.doneLock.notifyAll();
+        }
+      }
+    }
+
+    /**
+     * Returns true if the task's entry was updated by its writer after the
+     * task was queued.
+     */
+    private boolean isSuperseded(Object[] task) {
+      RegionEntry entry = (RegionEntry)task[1];
+      if (entry == null || this.superseded.isEmpty()) {
+        return false;
+      }
+      Long last = this.superseded.get(entry);
+      return last != null && ((Long)task[3]).longValue() <= last.longValue();
+    }
+
+    /**
+     * Forgets the entries that have no stale tasks left in the queue.
+     */
+    private void purgeSuperseded() {
+      for (Map.Entry<RegionEntry, Long> e : this.superseded.entrySet()) {
+        if (e.getValue().longValue() <= this.tasksDone) {
+          // a writer may have superseded the entry again meanwhile
+          this.superseded.remove(e.getKey(), e.getValue());
+        }
       }
     }
 
@@ -1480,6 +1978,13 @@ public class IndexManager  {
           if (action == RECREATE_INDEX) {
             recreateAllIndexesForRegion();
           } else {
+            // an entry destroyed or invalidated after this add was queued has
+            // a remove queued behind it, and no value left to index
+            if (action == ADD_ENTRY || action == UPDATE_ENTRY) {
+              if (entry.isInvalidOrRemoved()) {
+                return;
+              }
+            }
             if (entry != null) {
               entry.setUpdateInProgress(true);
             }
@@ -1663,7 +2168,9 @@ public class IndexManager  {
         boolean indexCreatedSuccessfully = false;
         try {
           ((LocalRegion)region).setFlagForIndexCreationThread(true);
-          aIndex.initializeIndex(loadEntries);
+          if (!loadEntries || !loadRecoveredIndex(aIndex)) {
+            aIndex.initializeIndex(loadEntries);
+          }
           logger.info((loadEntries ? "Initialized and loaded entries into the index "
                         : "Initialized but entries not yet loaded into the index "
                             + indexName + " on region: " + region.getFullPath()));
@@ -1679,6 +2186,9 @@ public class IndexManager  {
           if (region instanceof BucketRegion && prIndex != null) {
             prIndex.addToBucketIndexes(region, index);
             prIndex.incNumBucketIndexes();
+            if (loadEntries) {
+              prIndex.incNumBucketIndexesPopulated();
+            }
           }
         } catch (Exception e) {
           throw new IndexInvalidException(e);
@@ -208,6 +208,14 @@ public interface IndexProtocol extends Index {
   public ObjectType getResultSetType();
   
   public int getSizeEstimate(Object key, int op, int matchLevel) throws TypeMismatchException;
+
+  /**
+   * Estimates the number of index results of a range condition bounded on
+   * both sides, such as <code>lowerBoundKey &lt; x &lt;= upperBoundKey</code>.
+   */
+  public int getSizeEstimate(Object lowerBoundKey, int lowerBoundOperator,
+      Object upperBoundKey, int upperBoundOperator, int matchLevel)
+      throws TypeMismatchException;
   
   public boolean isMatchingWithIndexExpression(CompiledValue condnExpr, String condnExprStr,
       ExecutionContext context) throws AmbiguousNameException, TypeMismatchException, NameResolutionException;
@@ -33,6 +33,9 @@ public class IndexStats {
   private static final int readLockCountId;
   private static final int numMapIndexKeysId;
   private static final int numBucketIndexesId;
+  private static final int populatesInProgressId;
+  private static final int populateTimeId;
+  private static final int numBucketIndexesPopulatedId;
 
   /** The Statistics object that we delegate most behavior to */
   private final Statistics stats;
@@ -63,6 +66,9 @@ public class IndexStats {
         f.createIntGauge("readLockCount", "Current number of read locks taken.", "uses"),
         f.createLongGauge("numMapIndexKeys", "Number of keys in this Map index", "keys"),
         f.createIntGauge("numBucketIndexes", "Number of bucket indexes in the partitioned region", "indexes"),
+        f.createIntGauge("populatesInProgress", "Current number of passes over region or bucket entries in progress that populate this index.", "operations"),
+        f.createLongCounter("populateTime", "Total time spent populating this index from region or bucket entries", "nanoseconds"),
+        f.createIntGauge("numBucketIndexesPopulated", "Number of bucket indexes in the partitioned region that have been populated", "indexes"),
       }
     );
 
@@ -78,6 +84,9 @@ public class IndexStats {
     readLockCountId = type.nameToId("readLockCount");
     numMapIndexKeysId = type.nameToId("numMapIndexKeys");
     numBucketIndexesId = type.nameToId("numBucketIndexes");
+    populatesInProgressId = type.nameToId("populatesInProgress");
+    populateTimeId = type.nameToId("populateTime");
+    numBucketIndexesPopulatedId = type.nameToId("numBucketIndexesPopulated");
   }
   
   ////////////////////////  Constructors  ////////////////////////
@@ -128,6 +137,18 @@ public class IndexStats {
      return stats.getInt(numBucketIndexesId);
    }
 
+   public int getPopulatesInProgress() {
+     return stats.getInt(populatesInProgressId);
+   }
+
+   public long getPopulateTime() {
+     return CachePerfStats.enableClockStats? stats.getLong(populateTimeId) : 0;
+   }
+
+   public int getNumberOfBucketIndexesPopulated() {
+     return stats.getInt(numBucketIndexesPopulatedId);
+   }
+
   //////////////////////  Updating Stats  //////////////////////
   
    public void incNumUpdates() {
@@ -179,6 +200,20 @@ public class IndexStats {
    public void incNumBucketIndexes(int delta) {
      this.stats.incInt(numBucketIndexesId, delta);
    }   
+
+   public void incPopulatesInProgress(int delta) {
+     this.stats.incInt(populatesInProgressId, delta);
+   }
+
+   public void incPopulateTime(long delta) {
+     if (CachePerfStats.enableClockStats) {
+       this.stats.incLong(populateTimeId, delta);
+     }
+   }
+
+   public void incNumBucketIndexesPopulated(int delta) {
+     this.stats.incInt(numBucketIndexesPopulatedId, delta);
+   }
   ////// Special Instance Methods /////
 
   /**
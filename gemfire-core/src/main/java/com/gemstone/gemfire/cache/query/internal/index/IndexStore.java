@@ -37,6 +37,20 @@ public interface IndexStore {
   public void removeMapping(Object indexKey, RegionEntry re)
       throws IMQException;
 
+  /**
+   * Remove the mapping of a region entry using the key kept for it in the
+   * reverse map, without evaluating the entry's value. Only supported if
+   * {@link #hasReverseMap()} is true.
+   * 
+   * @param re
+   */
+  public void removeMapping(RegionEntry re) throws IMQException;
+
+  /**
+   * Return true if this store keeps a map from region entry to index key.
+   */
+  public boolean hasReverseMap();
+
   /**
    * Update a mapping in the index store. This method adds a new
    * mapping and removes the old mapping
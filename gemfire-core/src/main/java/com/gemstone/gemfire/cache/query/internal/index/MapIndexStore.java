@@ -55,6 +55,16 @@ public class MapIndexStore implements IndexStore {
     indexMap.remove(indexKey, re.getKey());
   }
 
+  @Override
+  public void removeMapping(RegionEntry re) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean hasReverseMap() {
+    return false;
+  }
+
   public String printAll() {
     return "";
   }
@@ -30,7 +30,6 @@ import com.gemstone.gemfire.cache.query.internal.index.AbstractIndex.InternalInd
 import com.gemstone.gemfire.cache.query.internal.parse.OQLLexerTokenTypes;
 import com.gemstone.gemfire.cache.query.internal.types.TypeUtils;
 import com.gemstone.gemfire.internal.cache.CachedDeserializable;
-import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
 import com.gemstone.gemfire.internal.cache.LocalRegion;
 import com.gemstone.gemfire.internal.cache.RegionEntry;
 import com.gemstone.gemfire.internal.cache.Token;
@@ -58,6 +57,12 @@ public class MemoryIndexStore implements IndexStore {
   private InternalIndexStatistics internalIndexStats;
 
   private Region region;
+
+  /**
+   * True if the index is updated asynchronously, so that the entries found
+   * must always be verified against their current values
+   */
+  private final boolean asyncMaintenance;
   private boolean indexOnRegionKeys;
   private boolean indexOnValues;
   
@@ -74,8 +79,9 @@ public class MemoryIndexStore implements IndexStore {
     this.region = region;
     RegionAttributes ra = region.getAttributes();
     // Initialize the reverse-map if in-place modification is set by the
-    // application.
-    if (IndexManager.isObjectModificationInplace()) {
+    // application or the index is updated asynchronously.
+    this.asyncMaintenance = !ra.getIndexMaintenanceSynchronous();
+    if (IndexManager.needsReverseMap(region)) {
       this.entryToValuesMap = new ConcurrentHashMap(ra.getInitialCapacity(),
           ra.getLoadFactor(), ra.getConcurrencyLevel());
     }
@@ -92,7 +98,7 @@ public class MemoryIndexStore implements IndexStore {
       }
 
       //Check if reverse-map is present.
-      if (IndexManager.isObjectModificationInplace()) {
+      if (this.entryToValuesMap != null) {
         // If reverse map get the old index key from reverse map.
         if (this.entryToValuesMap.containsKey(entry)) {
           oldKey = this.entryToValuesMap.get(entry);
@@ -213,7 +219,7 @@ public class MemoryIndexStore implements IndexStore {
             basicRemoveMapping(oldKey, entry, false);
           }
           
-          if (IndexManager.isObjectModificationInplace()) {
+          if (this.entryToValuesMap != null) {
             this.entryToValuesMap.put(entry, newKey);
           }
         }
@@ -271,11 +277,24 @@ public class MemoryIndexStore implements IndexStore {
     // We do NOT need to synchronize here as different RegionEntries will be
     // operating concurrently i.e. different keys in entryToValuesMap which
     // is a concurrent map.
-    if (found && IndexManager.isObjectModificationInplace()) {
+    if (found && this.entryToValuesMap != null) {
       this.entryToValuesMap.remove(entry);
     }
   }
 
+  @Override
+  public void removeMapping(RegionEntry entry) throws IMQException {
+    Object key = this.entryToValuesMap.get(entry);
+    if (key != null) {
+      removeMapping(key, entry);
+    }
+  }
+
+  @Override
+  public boolean hasReverseMap() {
+    return this.entryToValuesMap != null;
+  }
+
   public boolean basicRemoveMapping(Object key, RegionEntry entry, boolean findOldKey)
       throws IMQException {
     boolean found = false;
@@ -283,7 +302,7 @@ public class MemoryIndexStore implements IndexStore {
     try {
       boolean retry = false;
       Object newKey;
-      if (IndexManager.isObjectModificationInplace()
+      if (this.entryToValuesMap != null
           && this.entryToValuesMap.containsKey(entry)) {
         newKey = this.entryToValuesMap.get(entry);
       }
@@ -360,7 +379,7 @@ public class MemoryIndexStore implements IndexStore {
     if (found) {
       // Update stats if entry was actually removed
       internalIndexStats.incNumValues(-1);
-    } else if ((!found && !possiblyAlreadyRemoved) && !IndexManager.isObjectModificationInplace()
+    } else if ((!found && !possiblyAlreadyRemoved) && this.entryToValuesMap == null
         && key != null) {
       // if there is an inplace-modification find old key by iterating
       // over fwd map and then remove the mapping
@@ -542,7 +561,7 @@ public class MemoryIndexStore implements IndexStore {
   @Override
   public boolean clear() {
     this.valueToEntriesMap.clear();
-    if (IndexManager.isObjectModificationInplace()) {
+    if (this.entryToValuesMap != null) {
       this.entryToValuesMap.clear();
     }
     numIndexKeys.set(0);
@@ -579,7 +598,7 @@ public class MemoryIndexStore implements IndexStore {
     protected Iterator<Map.Entry> mapIterator;
     protected Iterator valuesIterator;
     protected Object currKey;
-    final long iteratorStartTime = GemFireCacheImpl.getInstance().cacheTimeMillis();
+    final long iteratorStartTime = ((LocalRegion) region).getGemFireCache().cacheTimeMillis();
     protected MemoryIndexStoreEntry currentEntry = new MemoryIndexStoreEntry(iteratorStartTime);
     
     private MemoryIndexStoreIterator(Map submap,
@@ -755,6 +774,7 @@ public class MemoryIndexStore implements IndexStore {
     @Override
     public boolean isUpdateInProgress() {
       return updateInProgress
+          || asyncMaintenance
           || regionEntry.isUpdateInProgress()
           // The index update could have started just before the iterator was created. The entry still
           // needs to be re-evaluated in this case.
@@ -90,10 +90,11 @@ public class PartitionedIndex extends AbstractIndex
     this.imports = imports;
    
     if (iType == IndexType.HASH) {
-      if (!getRegion().getAttributes().getIndexMaintenanceSynchronous()) {
+      if (!getRegion().getAttributes().getIndexMaintenanceSynchronous()
+          && getRegion().getAttributes().getOffHeap()) {
         throw new UnsupportedOperationException(
-            LocalizedStrings.DefaultQueryService_HASH_INDEX_CREATION_IS_NOT_SUPPORTED_FOR_ASYNC_MAINTENANCE
-                .toLocalizedString());
+            LocalizedStrings.DefaultQueryService_OFF_HEAP_INDEX_CREATION_IS_NOT_SUPPORTED_FOR_ASYNC_MAINTENANCE_THE_REGION_IS_0
+                .toLocalizedString(getRegion().getFullPath()));
       }
     }
   }
@@ -474,6 +475,18 @@ public class PartitionedIndex extends AbstractIndex
     public void incReadLockCount(int delta) {
       this.vsdStats.incReadLockCount(delta);
     }
+
+    public void incPopulatesInProgress(int delta) {
+      this.vsdStats.incPopulatesInProgress(delta);
+    }
+
+    public void incPopulateTime(long delta) {
+      this.vsdStats.incPopulateTime(delta);
+    }
+
+    public void incNumBucketIndexesPopulated(int delta) {
+      this.vsdStats.incNumBucketIndexesPopulated(delta);
+    }
     public void incNumBucketIndexes(int delta) {
       this.vsdStats.incNumBucketIndexes(delta);
     }   
@@ -523,6 +536,18 @@ public class PartitionedIndex extends AbstractIndex
       return this.vsdStats.getReadLockCount();
     }
 
+    public int getPopulatesInProgress() {
+      return this.vsdStats.getPopulatesInProgress();
+    }
+
+    public long getPopulateTime() {
+      return this.vsdStats.getPopulateTime();
+    }
+
+    public int getNumberOfBucketIndexesPopulated() {
+      return this.vsdStats.getNumberOfBucketIndexesPopulated();
+    }
+
     public int getNumberOfBucketIndexes() {
       return vsdStats.getNumberOfBucketIndexes();
     }
@@ -609,6 +634,12 @@ public class PartitionedIndex extends AbstractIndex
       this.internalIndexStats.incNumBucketIndexes(1);
     }
   }
+
+  public void incNumBucketIndexesPopulated() {
+    if (internalIndexStats != null) {
+      this.internalIndexStats.incNumBucketIndexesPopulated(1);
+    }
+  }
   
   @Override
   public boolean isEmpty() {
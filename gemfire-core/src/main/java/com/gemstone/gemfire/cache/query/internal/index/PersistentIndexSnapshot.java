@@ -0,0 +1,357 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.DataSerializer;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.internal.index.IndexStore.IndexStoreEntry;
+import com.gemstone.gemfire.internal.cache.CachedDeserializable;
+import com.gemstone.gemfire.internal.cache.DiskRegion;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.cache.RegionEntry;
+import com.gemstone.gemfire.internal.cache.persistence.query.CloseableIterator;
+import com.gemstone.gemfire.internal.cache.versions.RegionVersionVector;
+import com.gemstone.gemfire.internal.logging.LogService;
+import com.gemstone.gemfire.pdx.internal.PdxString;
+
+/**
+ * The contents of the compact range indexes of a persistent region, saved in
+ * the region's disk store when the region is closed so that the indexes can be
+ * loaded instead of rebuilt when the region is recovered.
+ * <p>
+ * An index is saved as its (index key, region key) pairs, along with the
+ * version vector of the region at the time the indexes were saved. The saved
+ * contents are only used while the version vector of the recovered region is
+ * still the same, which means that the region holds the same entries it held
+ * when it was closed. Otherwise the indexes are rebuilt from the region
+ * entries as before.
+ *
+ * @since 9.0
+ */
+public class PersistentIndexSnapshot {
+  private static final Logger logger = LogService.getLogger();
+
+  /**
+   * System property to turn off saving indexes when persistent regions are
+   * closed
+   */
+  public static final boolean DISABLED = Boolean.getBoolean("gemfire.index.DISABLE_PERSISTENT_INDEXES");
+
+  static final String FILE_PREFIX = "OQLINDEX";
+
+  static final String FILE_EXT = ".idx";
+
+  private static final int VERSION = 1;
+
+  private static final byte KEY_OBJECT = 0;
+
+  private static final byte KEY_NULL = 1;
+
+  private static final byte KEY_UNDEFINED = 2;
+
+  /** the version vector of the region when the indexes were saved */
+  private final RegionVersionVector versionVector;
+
+  /** the saved contents of each index, by index name */
+  private final Map<String, SavedIndex> indexes;
+
+  private PersistentIndexSnapshot(RegionVersionVector versionVector,
+      Map<String, SavedIndex> indexes) {
+    this.versionVector = versionVector;
+    this.indexes = indexes;
+  }
+
+  /**
+   * Saves the contents of the given indexes of a persistent region. Indexes
+   * with keys that can not be saved are left out.
+   */
+  static void save(LocalRegion region, Collection<CompactRangeIndex> indexes) {
+    File file = getFile(region);
+    if (file == null) {
+      return;
+    }
+    File tmpFile = new File(file.getPath() + ".tmp");
+    boolean saved = false;
+    try {
+      // region operations are blocked while the vector is cloned, so the
+      // indexes hold all the operations it contains
+      RegionVersionVector rvv = region.getVersionVector().getCloneForSnapshot();
+      List<SavedIndex> savedIndexes = new ArrayList<SavedIndex>(indexes.size());
+      for (CompactRangeIndex index : indexes) {
+        SavedIndex savedIndex = SavedIndex.create(index);
+        if (savedIndex != null) {
+          savedIndexes.add(savedIndex);
+        }
+      }
+      if (!rvv.sameAs(region.getVersionVector().getCloneForSnapshot())) {
+        // the region was modified while the indexes were being read
+        return;
+      }
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+          new FileOutputStream(tmpFile)));
+      try {
+        out.writeInt(VERSION);
+        DataSerializer.writeString(region.getFullPath(), out);
+        DataSerializer.writeObject(rvv, out);
+        out.writeInt(savedIndexes.size());
+        for (SavedIndex savedIndex : savedIndexes) {
+          savedIndex.toData(out);
+        }
+      } finally {
+        out.close();
+      }
+      file.delete();
+      saved = tmpFile.renameTo(file);
+      if (logger.isDebugEnabled()) {
+        logger.debug("Saved {} indexes of region {} in {}", savedIndexes.size(), region.getFullPath(), file);
+      }
+    } catch (Exception e) {
+      logger.info("Could not save the indexes of region {}: {}", region.getFullPath(), e.getMessage());
+    } finally {
+      if (!saved) {
+        tmpFile.delete();
+      }
+    }
+  }
+
+  /**
+   * Reads the index contents saved when the given region was last closed, and
+   * deletes the file they were saved in.
+   *
+   * @return the saved contents; null if there are none or they do not belong
+   *         to the recovered region
+   */
+  static PersistentIndexSnapshot recover(LocalRegion region) {
+    File file = getFile(region);
+    if (file == null || !file.exists()) {
+      return null;
+    }
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(
+          new FileInputStream(file)));
+      try {
+        if (in.readInt() != VERSION
+            || !region.getFullPath().equals(DataSerializer.readString(in))) {
+          return null;
+        }
+        RegionVersionVector rvv = DataSerializer.readObject(in);
+        int numIndexes = in.readInt();
+        Map<String, SavedIndex> indexes = new HashMap<String, SavedIndex>();
+        for (int i = 0; i < numIndexes; i++) {
+          SavedIndex savedIndex = SavedIndex.fromData(in);
+          indexes.put(savedIndex.name, savedIndex);
+        }
+        return new PersistentIndexSnapshot(rvv, indexes);
+      } finally {
+        in.close();
+      }
+    } catch (Exception e) {
+      logger.info("Could not read the saved indexes of region {}, they will be rebuilt: {}", region.getFullPath(), e.getMessage());
+      return null;
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Deletes the saved index contents of a region that is being destroyed.
+   */
+  static void delete(LocalRegion region) {
+    File file = getFile(region);
+    if (file != null) {
+      file.delete();
+    }
+  }
+
+  /**
+   * Returns the file the indexes of the given region are saved in; null if
+   * the indexes of the region can not be saved.
+   */
+  private static File getFile(LocalRegion region) {
+    DiskRegion dr = region.getDiskRegion();
+    if (DISABLED || dr == null || !region.getDataPolicy().withPersistence()
+        || region.getVersionVector() == null) {
+      return null;
+    }
+    File[] dirs = dr.getDiskStore().getDiskDirs();
+    return new File(dirs[0], FILE_PREFIX + dr.getDiskStore().getName() + "_"
+        + dr.getId() + FILE_EXT);
+  }
+
+  /**
+   * Returns true if there are saved index contents left to load.
+   */
+  synchronized boolean isEmpty() {
+    return this.indexes.isEmpty();
+  }
+
+  /**
+   * Loads the saved contents of an index that has been initialized without
+   * entries. The contents are loaded only if they were saved for an index with
+   * the same definition, and the region holds the entries it held when they
+   * were saved. The caller must make sure the region is not modified while
+   * the contents are loaded.
+   *
+   * @return true if the index has been loaded; false if it must be populated
+   *         from the region entries
+   */
+  synchronized boolean load(AbstractIndex index) throws IMQException {
+    SavedIndex savedIndex = this.indexes.remove(index.getName());
+    if (savedIndex == null || !(index instanceof CompactRangeIndex)
+        || !savedIndex.fromClause.equals(index.getFromClause())
+        || !savedIndex.indexedExpression.equals(index.getIndexedExpression())) {
+      return false;
+    }
+    LocalRegion region = (LocalRegion) index.getRegion();
+    if (!this.versionVector.sameAs(region.getVersionVector().getCloneForSnapshot())) {
+      // the region has been modified since the indexes were saved, so none
+      // of them can be used
+      this.indexes.clear();
+      return false;
+    }
+    int size = savedIndex.regionKeys.length;
+    RegionEntry[] entries = new RegionEntry[size];
+    for (int i = 0; i < size; i++) {
+      RegionEntry entry = region.getRegionMap().getEntry(savedIndex.regionKeys[i]);
+      if (entry == null || entry.isInvalidOrRemoved()) {
+        return false;
+      }
+      entries[i] = entry;
+    }
+    ((CompactRangeIndex) index).loadMappings(savedIndex.indexKeys, entries);
+    if (logger.isDebugEnabled()) {
+      logger.debug("Loaded {} saved entries into index {} on region {}", size, index.getName(), region.getFullPath());
+    }
+    return true;
+  }
+
+  /**
+   * The saved contents of one index
+   */
+  private static class SavedIndex {
+    final String name;
+
+    final String fromClause;
+
+    final String indexedExpression;
+
+    final Object[] indexKeys;
+
+    final Object[] regionKeys;
+
+    SavedIndex(String name, String fromClause, String indexedExpression,
+        Object[] indexKeys, Object[] regionKeys) {
+      this.name = name;
+      this.fromClause = fromClause;
+      this.indexedExpression = indexedExpression;
+      this.indexKeys = indexKeys;
+      this.regionKeys = regionKeys;
+    }
+
+    /**
+     * Reads the mappings of an index.
+     *
+     * @return the mappings; null if the index has keys that can not be saved
+     */
+    static SavedIndex create(CompactRangeIndex index) {
+      IndexStore store = index.getIndexStorage();
+      List<Object> indexKeys = new ArrayList<Object>();
+      List<Object> regionKeys = new ArrayList<Object>();
+      // the iterators of the stores skip the null and undefined keys
+      Object[] tokens = { IndexManager.NULL, QueryService.UNDEFINED };
+      for (Object token : tokens) {
+        if (!addMappings(store.get(token), indexKeys, regionKeys)) {
+          return null;
+        }
+      }
+      if (!addMappings(store.iterator(null), indexKeys, regionKeys)) {
+        return null;
+      }
+      return new SavedIndex(index.getName(), index.getFromClause(),
+          index.getIndexedExpression(), indexKeys.toArray(), regionKeys.toArray());
+    }
+
+    private static boolean addMappings(CloseableIterator<IndexStoreEntry> iterator,
+        List<Object> indexKeys, List<Object> regionKeys) {
+      try {
+        while (iterator.hasNext()) {
+          IndexStoreEntry entry = iterator.next();
+          Object indexKey = entry.getDeserializedKey();
+          Object regionKey = entry.getDeserializedRegionKey();
+          if (indexKey instanceof PdxString || indexKey instanceof CachedDeserializable
+              || regionKey instanceof CachedDeserializable) {
+            return false;
+          }
+          indexKeys.add(indexKey);
+          regionKeys.add(regionKey);
+        }
+        return true;
+      } finally {
+        iterator.close();
+      }
+    }
+
+    void toData(DataOutputStream out) throws IOException {
+      DataSerializer.writeString(this.name, out);
+      DataSerializer.writeString(this.fromClause, out);
+      DataSerializer.writeString(this.indexedExpression, out);
+      out.writeInt(this.indexKeys.length);
+      for (int i = 0; i < this.indexKeys.length; i++) {
+        Object indexKey = this.indexKeys[i];
+        if (indexKey == IndexManager.NULL) {
+          out.writeByte(KEY_NULL);
+        } else if (indexKey == QueryService.UNDEFINED) {
+          out.writeByte(KEY_UNDEFINED);
+        } else {
+          out.writeByte(KEY_OBJECT);
+          DataSerializer.writeObject(indexKey, out);
+        }
+        DataSerializer.writeObject(this.regionKeys[i], out);
+      }
+    }
+
+    static SavedIndex fromData(DataInputStream in) throws IOException,
+        ClassNotFoundException {
+      String name = DataSerializer.readString(in);
+      String fromClause = DataSerializer.readString(in);
+      String indexedExpression = DataSerializer.readString(in);
+      int size = in.readInt();
+      Object[] indexKeys = new Object[size];
+      Object[] regionKeys = new Object[size];
+      for (int i = 0; i < size; i++) {
+        byte keyType = in.readByte();
+        if (keyType == KEY_NULL) {
+          indexKeys[i] = IndexManager.NULL;
+        } else if (keyType == KEY_UNDEFINED) {
+          indexKeys[i] = QueryService.UNDEFINED;
+        } else {
+          indexKeys[i] = DataSerializer.readObject(in);
+        }
+        regionKeys[i] = DataSerializer.readObject(in);
+      }
+      return new SavedIndex(name, fromClause, indexedExpression, indexKeys,
+          regionKeys);
+    }
+  }
+}
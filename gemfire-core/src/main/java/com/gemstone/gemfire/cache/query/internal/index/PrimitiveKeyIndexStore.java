@@ -0,0 +1,1114 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.gemstone.gemfire.cache.EntryDestroyedException;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionAttributes;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.TypeMismatchException;
+import com.gemstone.gemfire.cache.query.internal.index.AbstractIndex.InternalIndexStatistics;
+import com.gemstone.gemfire.cache.query.internal.parse.OQLLexerTokenTypes;
+import com.gemstone.gemfire.cache.query.internal.types.TypeUtils;
+import com.gemstone.gemfire.internal.cache.CachedDeserializable;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.cache.RegionEntry;
+import com.gemstone.gemfire.internal.cache.Token;
+import com.gemstone.gemfire.internal.cache.persistence.query.CloseableIterator;
+
+/**
+ * An index storage for indexes on ints or longs. The index keys are kept as
+ * primitive longs in sorted leaf arrays instead of as boxed keys in a skip
+ * list, which takes much less memory per key and lets range scans read
+ * contiguous arrays. The keys of a store are all ints or all longs; ints are
+ * widened to longs if a long key is added.
+ * <p>
+ * Changes are made under a write lock. Iterators copy the keys of one leaf at
+ * a time under a read lock, so like the skip list iterators of
+ * {@link MemoryIndexStore} they see changes made while they are iterating.
+ * The {@link IndexManager#NULL} and {@link QueryService#UNDEFINED} keys are
+ * kept apart from the numeric keys.
+ *
+ * @see IndexManager#isPrimitiveKeyIndex(IndexCreationHelper)
+ * @since 9.0
+ */
+public class PrimitiveKeyIndexStore implements IndexStore {
+
+  /** The maximum number of keys in a leaf */
+  static final int LEAF_SIZE = Integer.getInteger(
+      "gemfire.index.PRIMITIVE_KEY_LEAF_SIZE", 128).intValue();
+
+  /** The types of keys a store can hold */
+  private enum KeyType { INTEGER, LONG }
+
+  /** The leaves, by their first key */
+  private final TreeMap<Long, Leaf> leaves = new TreeMap<Long, Leaf>();
+
+  /** The entries of the NULL and UNDEFINED keys */
+  private final Map<Object, Object> tokenEntries = new HashMap<Object, Object>(2);
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** The type of the keys; null until the first key is added */
+  private volatile KeyType keyType;
+
+  /** The number of keys, including NULL and UNDEFINED */
+  private volatile int numKeys;
+
+  // Map for RegionEntries=>value of indexedExpression (reverse map)
+  private ConcurrentMap entryToKeyMap;
+
+  private final InternalIndexStatistics internalIndexStats;
+
+  private final Region region;
+
+  /**
+   * True if the index is updated asynchronously, so that the entries found
+   * must always be verified against their current values
+   */
+  private final boolean asyncMaintenance;
+  private boolean indexOnRegionKeys;
+  private boolean indexOnValues;
+
+  public PrimitiveKeyIndexStore(Region region,
+      InternalIndexStatistics internalIndexStats) {
+    this.region = region;
+    RegionAttributes ra = region.getAttributes();
+    // Initialize the reverse-map if in-place modification is set by the
+    // application or the index is updated asynchronously.
+    this.asyncMaintenance = !ra.getIndexMaintenanceSynchronous();
+    if (IndexManager.needsReverseMap(region)) {
+      this.entryToKeyMap = new ConcurrentHashMap(ra.getInitialCapacity(),
+          ra.getLoadFactor(), ra.getConcurrencyLevel());
+    }
+    this.internalIndexStats = internalIndexStats;
+  }
+
+  /**
+   * A sorted run of keys and the entries that map to them. Each value is a
+   * RegionEntry or a collection of RegionEntries.
+   */
+  private static final class Leaf {
+    final long[] keys = new long[LEAF_SIZE];
+    final Object[] values = new Object[LEAF_SIZE];
+    int size;
+
+    int search(long key) {
+      return Arrays.binarySearch(this.keys, 0, this.size, key);
+    }
+
+    void insert(int pos, long key, Object value) {
+      System.arraycopy(this.keys, pos, this.keys, pos + 1, this.size - pos);
+      System.arraycopy(this.values, pos, this.values, pos + 1, this.size - pos);
+      this.keys[pos] = key;
+      this.values[pos] = value;
+      this.size++;
+    }
+
+    void delete(int pos) {
+      this.size--;
+      System.arraycopy(this.keys, pos + 1, this.keys, pos, this.size - pos);
+      System.arraycopy(this.values, pos + 1, this.values, pos, this.size - pos);
+      this.values[this.size] = null;
+    }
+
+    /** Moves the keys from pos onwards to the given empty leaf */
+    void moveTo(int pos, Leaf other) {
+      int count = this.size - pos;
+      System.arraycopy(this.keys, pos, other.keys, other.size, count);
+      System.arraycopy(this.values, pos, other.values, other.size, count);
+      Arrays.fill(this.values, pos, this.size, null);
+      other.size += count;
+      this.size = pos;
+    }
+  }
+
+  @Override
+  public void updateMapping(Object newKey, Object oldKey, RegionEntry entry,
+      Object oldValue) throws IMQException {
+    try {
+      // Check if reverse-map is present.
+      if (this.entryToKeyMap != null) {
+        // If reverse map get the old index key from reverse map.
+        if (this.entryToKeyMap.containsKey(entry)) {
+          oldKey = this.entryToKeyMap.get(entry);
+        }
+      } else if (oldValue != null && oldValue == getTargetObjectInVM(entry)) {
+        // The value was updated in place, so the old key can only be found
+        // by searching the index for the entry.
+        Object key = findKey(entry);
+        oldKey = key != null ? key : newKey;
+      }
+
+      newKey = TypeUtils.indexKeyFor(newKey);
+      // No need to update the index if new and old index key are same.
+      if (oldKey != null && oldKey.equals(newKey)) {
+        return;
+      }
+
+      if (newKey.equals(QueryService.UNDEFINED)) {
+        Object targetObject = getTargetObjectForUpdate(entry);
+        if (Token.isInvalidOrRemoved(targetObject)) {
+          if (oldKey != null) {
+            removeMapping(oldKey, entry);
+          }
+          return;
+        }
+      }
+
+      boolean removed = false;
+      this.lock.writeLock().lock();
+      try {
+        addEntry(newKey, entry);
+        if (oldKey != null) {
+          removed = removeEntry(TypeUtils.indexKeyFor(oldKey), entry);
+        }
+      } finally {
+        this.lock.writeLock().unlock();
+      }
+      if (removed) {
+        internalIndexStats.incNumValues(-1);
+      }
+      if (this.entryToKeyMap != null) {
+        this.entryToKeyMap.put(entry, newKey);
+      }
+    } catch (TypeMismatchException ex) {
+      throw new IMQException("Could not add object of type "
+          + newKey.getClass().getName(), ex);
+    }
+    internalIndexStats.incNumValues(1);
+  }
+
+  @Override
+  public void addMapping(Object newKey, RegionEntry entry) throws IMQException {
+    // for add, oldkey is null
+    updateMapping(newKey, null, entry, null);
+  }
+
+  @Override
+  public void removeMapping(Object key, RegionEntry entry) throws IMQException {
+    boolean found;
+    try {
+      Object indexKey;
+      if (this.entryToKeyMap != null
+          && this.entryToKeyMap.containsKey(entry)) {
+        indexKey = this.entryToKeyMap.get(entry);
+      } else {
+        indexKey = TypeUtils.indexKeyFor(key);
+      }
+      this.lock.writeLock().lock();
+      try {
+        found = indexKey != null && removeEntry(indexKey, entry);
+      } finally {
+        this.lock.writeLock().unlock();
+      }
+    } catch (TypeMismatchException ex) {
+      throw new IMQException("Could not remove object of type "
+          + key.getClass().getName(), ex);
+    }
+
+    if (!found && this.entryToKeyMap == null && key != null) {
+      // if there is an inplace-modification find old key by searching the
+      // index and then remove the mapping
+      Object oldKey = findKey(entry);
+      if (oldKey != null) {
+        this.lock.writeLock().lock();
+        try {
+          found = removeEntry(oldKey, entry);
+        } finally {
+          this.lock.writeLock().unlock();
+        }
+      }
+    }
+    if (found) {
+      internalIndexStats.incNumValues(-1);
+      if (this.entryToKeyMap != null) {
+        this.entryToKeyMap.remove(entry);
+      }
+    }
+  }
+
+  @Override
+  public void removeMapping(RegionEntry entry) throws IMQException {
+    Object key = this.entryToKeyMap.get(entry);
+    if (key != null) {
+      removeMapping(key, entry);
+    }
+  }
+
+  @Override
+  public boolean hasReverseMap() {
+    return this.entryToKeyMap != null;
+  }
+
+  /**
+   * Adds an entry to the entries mapped to a key. The caller must hold the
+   * write lock.
+   */
+  private void addEntry(Object indexKey, RegionEntry entry) throws IMQException {
+    if (isToken(indexKey)) {
+      Object entries = this.tokenEntries.get(indexKey);
+      if (entries == null) {
+        keyAdded();
+      }
+      this.tokenEntries.put(indexKey, addToEntries(entries, entry));
+      return;
+    }
+
+    long key = toStoredKey(indexKey);
+    Map.Entry<Long, Leaf> floor = this.leaves.floorEntry(key);
+    if (floor == null) {
+      floor = this.leaves.firstEntry();
+    }
+    if (floor == null) {
+      Leaf leaf = new Leaf();
+      leaf.insert(0, key, entry);
+      this.leaves.put(key, leaf);
+      keyAdded();
+      return;
+    }
+
+    Leaf leaf = floor.getValue();
+    int pos = leaf.search(key);
+    if (pos >= 0) {
+      leaf.values[pos] = addToEntries(leaf.values[pos], entry);
+      return;
+    }
+
+    pos = -pos - 1;
+    if (leaf.size == LEAF_SIZE) {
+      // split the full leaf in two
+      int half = LEAF_SIZE / 2;
+      Leaf right = new Leaf();
+      leaf.moveTo(half, right);
+      this.leaves.put(right.keys[0], right);
+      if (pos > half) {
+        leaf = right;
+        pos -= half;
+      }
+    }
+    leaf.insert(pos, key, entry);
+    if (pos == 0) {
+      // only the first leaf can get a new first key
+      this.leaves.remove(floor.getKey());
+      this.leaves.put(key, leaf);
+    }
+    keyAdded();
+  }
+
+  /**
+   * Removes an entry from the entries mapped to a key. The caller must hold
+   * the write lock.
+   *
+   * @return true if the entry was mapped to the key
+   */
+  private boolean removeEntry(Object indexKey, RegionEntry entry) {
+    if (isToken(indexKey)) {
+      Object entries = this.tokenEntries.get(indexKey);
+      if (entries == null || !removeFromEntries(entries, entry)) {
+        return false;
+      }
+      if (entries instanceof RegionEntry || ((Collection) entries).isEmpty()) {
+        this.tokenEntries.remove(indexKey);
+        keyRemoved();
+      }
+      return true;
+    }
+
+    Long key = toLookupKey(indexKey);
+    if (key == null) {
+      return false;
+    }
+    Map.Entry<Long, Leaf> floor = this.leaves.floorEntry(key);
+    if (floor == null) {
+      return false;
+    }
+    Leaf leaf = floor.getValue();
+    int pos = leaf.search(key);
+    if (pos < 0 || !removeFromEntries(leaf.values[pos], entry)) {
+      return false;
+    }
+    Object entries = leaf.values[pos];
+    if (entries instanceof RegionEntry || ((Collection) entries).isEmpty()) {
+      leaf.delete(pos);
+      keyRemoved();
+      if (leaf.size == 0) {
+        this.leaves.remove(floor.getKey());
+        return true;
+      }
+      if (pos == 0) {
+        this.leaves.remove(floor.getKey());
+        this.leaves.put(leaf.keys[0], leaf);
+      }
+      // merge sparse neighbours so that deletes do not leave empty leaves
+      Map.Entry<Long, Leaf> higher = this.leaves.higherEntry(leaf.keys[0]);
+      if (higher != null && leaf.size + higher.getValue().size <= LEAF_SIZE / 2) {
+        higher.getValue().moveTo(0, leaf);
+        this.leaves.remove(higher.getKey());
+      }
+    }
+    return true;
+  }
+
+  private static Object addToEntries(Object entries, RegionEntry entry) {
+    if (entries == null) {
+      return entry;
+    }
+    if (entries instanceof RegionEntry) {
+      IndexElemArray elemArray = new IndexElemArray();
+      elemArray.add(entries);
+      elemArray.add(entry);
+      return elemArray;
+    }
+    if (entries instanceof IndexElemArray
+        && ((IndexElemArray) entries).size() >= IndexManager.INDEX_ELEMARRAY_THRESHOLD) {
+      IndexConcurrentHashSet set = new IndexConcurrentHashSet(
+          IndexManager.INDEX_ELEMARRAY_THRESHOLD + 20, 0.75f, 1);
+      set.addAll((IndexElemArray) entries);
+      set.add(entry);
+      return set;
+    }
+    ((Collection) entries).add(entry);
+    return entries;
+  }
+
+  /**
+   * Removes an entry from a collection of entries. A single RegionEntry is
+   * left alone; the caller removes the key.
+   */
+  private static boolean removeFromEntries(Object entries, RegionEntry entry) {
+    if (entries instanceof RegionEntry) {
+      return entries == entry;
+    }
+    return ((Collection) entries).remove(entry);
+  }
+
+  private void keyAdded() {
+    this.numKeys++;
+    internalIndexStats.incNumKeys(1);
+  }
+
+  private void keyRemoved() {
+    this.numKeys--;
+    internalIndexStats.incNumKeys(-1);
+  }
+
+  /**
+   * Finds the key an entry is mapped to by searching the whole index. Used
+   * when an entry was modified in place and its old key is unknown.
+   *
+   * @return the key, or null if the entry is not in the index
+   */
+  private Object findKey(RegionEntry entry) {
+    this.lock.readLock().lock();
+    try {
+      for (Leaf leaf : this.leaves.values()) {
+        for (int i = 0; i < leaf.size; i++) {
+          if (containsEntry(leaf.values[i], entry)) {
+            return toIndexKey(leaf.keys[i]);
+          }
+        }
+      }
+      for (Map.Entry<Object, Object> tokenEntry : this.tokenEntries.entrySet()) {
+        if (containsEntry(tokenEntry.getValue(), entry)) {
+          return tokenEntry.getKey();
+        }
+      }
+      return null;
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  private static boolean containsEntry(Object entries, RegionEntry entry) {
+    if (entries instanceof RegionEntry) {
+      return entries == entry;
+    }
+    return ((Collection) entries).contains(entry);
+  }
+
+  private static boolean isToken(Object key) {
+    return key == IndexManager.NULL || key == QueryService.UNDEFINED;
+  }
+
+  /**
+   * Converts an index key to the long it is stored as, setting or widening
+   * the key type of this store.
+   */
+  private long toStoredKey(Object key) throws IMQException {
+    KeyType type;
+    long value;
+    if (key instanceof Integer) {
+      type = KeyType.INTEGER;
+      value = ((Integer) key).longValue();
+    } else if (key instanceof Long) {
+      type = KeyType.LONG;
+      value = ((Long) key).longValue();
+    } else {
+      throw new IMQException("Index keys of type "
+          + (key == null ? null : key.getClass().getName())
+          + " are not supported by an index on ints or longs");
+    }
+
+    KeyType current = this.keyType;
+    if (current == null || current == KeyType.INTEGER && type == KeyType.LONG) {
+      this.keyType = type;
+    } else if (current != type
+        && !(current == KeyType.LONG && type == KeyType.INTEGER)) {
+      throw new IMQException("Index keys of type " + key.getClass().getName()
+          + " can not be added to an index on keys of type " + current);
+    }
+    return value;
+  }
+
+  /**
+   * Converts an index key to the long it would be stored as.
+   *
+   * @return the stored key, or null if the key can not be in this store
+   */
+  private Long toLookupKey(Object key) {
+    KeyType type = this.keyType;
+    if (type == null) {
+      return null;
+    }
+    if (key instanceof Integer || key instanceof Long || key instanceof Short
+        || key instanceof Byte) {
+      return Long.valueOf(((Number) key).longValue());
+    }
+    return null;
+  }
+
+  /** Converts a stored key back to the index key that was added */
+  private Object toIndexKey(long key) {
+    KeyType type = this.keyType;
+    if (type == KeyType.INTEGER) {
+      return Integer.valueOf((int) key);
+    }
+    return Long.valueOf(key);
+  }
+
+  /**
+   * Returns the smallest stored key that is greater than a bound.
+   *
+   * @return the key, or null if no key can be greater than the bound
+   * @throws ClassCastException
+   *           if the bound can not be compared to the keys
+   */
+  private Long lowerBound(Object bound, boolean inclusive) {
+    if (bound == null || isToken(bound)) {
+      // Everything is greater than NULL and UNDEFINED
+      return Long.MIN_VALUE;
+    }
+    if (isIntegral(bound)) {
+      long value = toComparableLong(bound);
+      if (inclusive) {
+        return value;
+      }
+      return value == Long.MAX_VALUE ? null : Long.valueOf(value + 1);
+    }
+    BigDecimal decimal = toDecimal(bound);
+    if (decimal == null) {
+      // NaN and infinity
+      return isNegativeInfinity(bound) ? Long.valueOf(Long.MIN_VALUE) : null;
+    }
+    BigDecimal ceiling = decimal.setScale(0, RoundingMode.CEILING);
+    if (!inclusive && ceiling.compareTo(decimal) == 0) {
+      ceiling = ceiling.add(BigDecimal.ONE);
+    }
+    if (ceiling.compareTo(MAX_LONG) > 0) {
+      return null;
+    }
+    return ceiling.compareTo(MIN_LONG) < 0 ? Long.MIN_VALUE : ceiling.longValue();
+  }
+
+  /**
+   * Returns the largest stored key that is less than a bound.
+   *
+   * @return the key, or null if no key can be less than the bound
+   * @throws ClassCastException
+   *           if the bound can not be compared to the keys
+   */
+  private Long upperBound(Object bound, boolean inclusive) {
+    if (bound == null || isToken(bound)) {
+      return null;
+    }
+    if (isIntegral(bound)) {
+      long value = toComparableLong(bound);
+      if (inclusive) {
+        return value;
+      }
+      return value == Long.MIN_VALUE ? null : Long.valueOf(value - 1);
+    }
+    BigDecimal decimal = toDecimal(bound);
+    if (decimal == null) {
+      // NaN and infinity
+      return isNegativeInfinity(bound) ? null : Long.valueOf(Long.MAX_VALUE);
+    }
+    BigDecimal floor = decimal.setScale(0, RoundingMode.FLOOR);
+    if (!inclusive && floor.compareTo(decimal) == 0) {
+      floor = floor.subtract(BigDecimal.ONE);
+    }
+    if (floor.compareTo(MIN_LONG) < 0) {
+      return null;
+    }
+    return floor.compareTo(MAX_LONG) > 0 ? Long.MAX_VALUE : floor.longValue();
+  }
+
+  private static final BigDecimal MAX_LONG = BigDecimal.valueOf(Long.MAX_VALUE);
+
+  private static final BigDecimal MIN_LONG = BigDecimal.valueOf(Long.MIN_VALUE);
+
+  private boolean isIntegral(Object bound) {
+    return bound instanceof Integer || bound instanceof Long
+        || bound instanceof Short || bound instanceof Byte;
+  }
+
+  private static long toComparableLong(Object bound) {
+    return ((Number) bound).longValue();
+  }
+
+  /**
+   * Converts a non-integral numeric bound to a decimal.
+   *
+   * @return the decimal, or null for NaN and infinity
+   * @throws ClassCastException
+   *           if the bound is not a number
+   */
+  private static BigDecimal toDecimal(Object bound) {
+    if (bound instanceof BigDecimal) {
+      return (BigDecimal) bound;
+    }
+    if (bound instanceof BigInteger) {
+      return new BigDecimal((BigInteger) bound);
+    }
+    if (bound instanceof Number) {
+      double value = ((Number) bound).doubleValue();
+      if (Double.isNaN(value) || Double.isInfinite(value)) {
+        return null;
+      }
+      return new BigDecimal(value);
+    }
+    throw new ClassCastException(bound.getClass().getName()
+        + " can not be compared to " + Number.class.getName());
+  }
+
+  private static boolean isNegativeInfinity(Object bound) {
+    return ((Number) bound).doubleValue() == Double.NEGATIVE_INFINITY;
+  }
+
+  private CloseableIterator<IndexStoreEntry> rangeIterator(Object start,
+      boolean startInclusive, Object end, boolean endInclusive,
+      boolean descending, Collection keysToRemove) {
+    if (this.keyType == null) {
+      return new PrimitiveKeyIndexStoreIterator(null, null);
+    }
+    Long lo = start == null ? Long.valueOf(Long.MIN_VALUE) : lowerBound(start,
+        startInclusive);
+    Long hi = end == null ? Long.valueOf(Long.MAX_VALUE) : upperBound(end,
+        endInclusive);
+    if (lo == null || hi == null || lo.longValue() > hi.longValue()) {
+      return new PrimitiveKeyIndexStoreIterator(null, null);
+    }
+    return new PrimitiveKeyIndexStoreIterator(lo.longValue(), hi.longValue(),
+        descending, keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> get(Object indexKey) {
+    if (isToken(indexKey)) {
+      Object entries;
+      this.lock.readLock().lock();
+      try {
+        entries = this.tokenEntries.get(indexKey);
+      } finally {
+        this.lock.readLock().unlock();
+      }
+      return new PrimitiveKeyIndexStoreIterator(indexKey, entries);
+    }
+    return rangeIterator(indexKey, true, indexKey, true, false, null);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> iterator(Object start,
+      boolean startInclusive, Object end, boolean endInclusive,
+      Collection keysToRemove) {
+    return rangeIterator(start, startInclusive, end, endInclusive, false,
+        keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> iterator(Object start,
+      boolean startInclusive, Collection keysToRemove) {
+    return rangeIterator(start, startInclusive, null, true, false, keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> iterator(Collection keysToRemove) {
+    return rangeIterator(null, true, null, true, false, keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> descendingIterator(Object end,
+      boolean endInclusive, Collection keysToRemove) {
+    return rangeIterator(end, endInclusive, null, true, true, keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> descendingIterator(
+      Collection keysToRemove) {
+    return rangeIterator(null, true, null, true, true, keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> descendingIterator(Object start,
+      boolean startInclusive, Object end, boolean endInclusive,
+      Collection keysToRemove) {
+    return rangeIterator(start, startInclusive, end, endInclusive, true,
+        keysToRemove);
+  }
+
+  @Override
+  public int size(Object key) {
+    Object entries;
+    this.lock.readLock().lock();
+    try {
+      if (isToken(key)) {
+        entries = this.tokenEntries.get(key);
+      } else {
+        Long storedKey = toLookupKey(key);
+        Map.Entry<Long, Leaf> floor = storedKey == null ? null : this.leaves
+            .floorEntry(storedKey);
+        if (floor == null) {
+          return 0;
+        }
+        int pos = floor.getValue().search(storedKey);
+        entries = pos < 0 ? null : floor.getValue().values[pos];
+      }
+    } finally {
+      this.lock.readLock().unlock();
+    }
+    if (entries == null) {
+      return 0;
+    }
+    return (entries instanceof RegionEntry) ? 1 : ((Collection) entries).size();
+  }
+
+  @Override
+  public int size() {
+    return this.numKeys;
+  }
+
+  @Override
+  public boolean clear() {
+    this.lock.writeLock().lock();
+    try {
+      this.leaves.clear();
+      this.tokenEntries.clear();
+      this.numKeys = 0;
+      this.keyType = null;
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+    if (this.entryToKeyMap != null) {
+      this.entryToKeyMap.clear();
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isIndexOnRegionKeys() {
+    return indexOnRegionKeys;
+  }
+
+  @Override
+  public void setIndexOnRegionKeys(boolean indexOnRegionKeys) {
+    this.indexOnRegionKeys = indexOnRegionKeys;
+  }
+
+  @Override
+  public boolean isIndexOnValues() {
+    return indexOnValues;
+  }
+
+  @Override
+  public void setIndexOnValues(boolean indexOnValues) {
+    this.indexOnValues = indexOnValues;
+  }
+
+  @Override
+  public Object getTargetObject(RegionEntry entry) {
+    if (indexOnValues) {
+      Object o = entry.getValue((LocalRegion) this.region);
+      try {
+        if (o == Token.INVALID) {
+          return null;
+        }
+        if (o instanceof CachedDeserializable) {
+          return ((CachedDeserializable) o).getDeserializedValue(
+              this.region, entry);
+        }
+      } catch (EntryDestroyedException ede) {
+        return null;
+      }
+      return o;
+    } else if (indexOnRegionKeys) {
+      return entry.getKey();
+    }
+    return ((LocalRegion) this.region).new NonTXEntry(entry);
+  }
+
+  @Override
+  public Object getTargetObjectInVM(RegionEntry entry) {
+    if (indexOnValues) {
+      Object o = entry.getValueInVM((LocalRegion) this.region);
+      try {
+        if (o == Token.INVALID) {
+          return null;
+        }
+        if (o instanceof CachedDeserializable) {
+          return ((CachedDeserializable) o).getDeserializedValue(
+              this.region, entry);
+        }
+      } catch (EntryDestroyedException ede) {
+        return null;
+      }
+      return o;
+    } else if (indexOnRegionKeys) {
+      return entry.getKey();
+    }
+    return ((LocalRegion) this.region).new NonTXEntry(entry);
+  }
+
+  private Object getTargetObjectForUpdate(RegionEntry entry) {
+    if (indexOnValues) {
+      Object o = entry.getValue((LocalRegion) this.region);
+      try {
+        if (o == Token.INVALID) {
+          return Token.INVALID;
+        }
+        if (o instanceof CachedDeserializable) {
+          return ((CachedDeserializable) o).getDeserializedValue(
+              this.region, entry);
+        }
+      } catch (EntryDestroyedException ede) {
+        return Token.INVALID;
+      }
+      return o;
+    } else if (indexOnRegionKeys) {
+      return entry.getKey();
+    }
+    return ((LocalRegion) this.region).new NonTXEntry(entry);
+  }
+
+  public String printAll() {
+    StringBuffer sb = new StringBuffer();
+    CloseableIterator<IndexStoreEntry> iterator = iterator(null);
+    Object lastKey = null;
+    while (iterator.hasNext()) {
+      IndexStoreEntry entry = iterator.next();
+      if (!entry.getDeserializedKey().equals(lastKey)) {
+        if (lastKey != null) {
+          sb.append("\n");
+        }
+        lastKey = entry.getDeserializedKey();
+        sb.append("Key: " + lastKey);
+      }
+      sb.append(" Value:" + entry.getDeserializedValue());
+    }
+    if (lastKey != null) {
+      sb.append("\n");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Iterates over the entries of a range of keys. The keys and entries are
+   * copied a leaf at a time, and the iterator moves on from the last key it
+   * copied, so splits and merges of leaves do not affect it.
+   */
+  private class PrimitiveKeyIndexStoreIterator implements
+      CloseableIterator<IndexStoreEntry> {
+    private final long lo;
+    private final long hi;
+    private final boolean descending;
+    private final Collection keysToRemove;
+
+    /** The next key to copy from */
+    private long cursor;
+    private boolean exhausted;
+
+    private final long[] batchKeys;
+    private final Object[] batchValues;
+    private int batchSize;
+    private int batchPos;
+
+    /** The entries of a key given to the iterator up front */
+    private Object pendingValues;
+    private Object currKey;
+    private Iterator valuesIterator;
+    private boolean nextReady;
+
+    final long iteratorStartTime = ((LocalRegion) region).getGemFireCache().cacheTimeMillis();
+    private final PrimitiveKeyIndexStoreEntry currentEntry =
+        new PrimitiveKeyIndexStoreEntry(iteratorStartTime);
+
+    /** Iterates over the entries of one key, or none if entries is null */
+    PrimitiveKeyIndexStoreIterator(Object key, Object entries) {
+      this.lo = 0;
+      this.hi = 0;
+      this.descending = false;
+      this.keysToRemove = null;
+      this.exhausted = true;
+      this.batchKeys = null;
+      this.batchValues = null;
+      this.currKey = key;
+      this.pendingValues = entries;
+    }
+
+    PrimitiveKeyIndexStoreIterator(long lo, long hi, boolean descending,
+        Collection keysToRemove) {
+      this.lo = lo;
+      this.hi = hi;
+      this.descending = descending;
+      this.keysToRemove = keysToRemove;
+      this.cursor = descending ? hi : lo;
+      this.batchKeys = new long[LEAF_SIZE];
+      this.batchValues = new Object[LEAF_SIZE];
+    }
+
+    public boolean hasNext() {
+      if (this.nextReady) {
+        return true;
+      }
+      while (true) {
+        if (this.valuesIterator != null) {
+          while (this.valuesIterator.hasNext()) {
+            RegionEntry re = (RegionEntry) this.valuesIterator.next();
+            if (re != null) {
+              return setNext(re);
+            }
+          }
+          this.valuesIterator = null;
+        }
+
+        Object values;
+        if (this.pendingValues != null) {
+          values = this.pendingValues;
+          this.pendingValues = null;
+        } else {
+          if (this.batchPos == this.batchSize && !fetch()) {
+            this.currKey = null;
+            return false;
+          }
+          long key = this.batchKeys[this.batchPos];
+          values = this.batchValues[this.batchPos];
+          this.batchValues[this.batchPos++] = null;
+          this.currKey = toIndexKey(key);
+          if (this.keysToRemove != null
+              && removeFromKeysToRemove(this.keysToRemove, this.currKey)) {
+            continue;
+          }
+        }
+
+        if (values instanceof RegionEntry) {
+          return setNext((RegionEntry) values);
+        }
+        this.valuesIterator = ((Collection) values).iterator();
+      }
+    }
+
+    private boolean setNext(RegionEntry re) {
+      this.currentEntry.setEntry(this.currKey, re);
+      this.nextReady = true;
+      return true;
+    }
+
+    public IndexStoreEntry next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      this.nextReady = false;
+      return this.currentEntry;
+    }
+
+    /**
+     * Copies the next keys in the range and their entries.
+     *
+     * @return false if there are no more keys
+     */
+    private boolean fetch() {
+      if (this.exhausted) {
+        return false;
+      }
+      this.batchSize = 0;
+      this.batchPos = 0;
+      lock.readLock().lock();
+      try {
+        if (this.descending) {
+          copyDescending();
+        } else {
+          copyAscending();
+        }
+      } finally {
+        lock.readLock().unlock();
+      }
+      if (this.batchSize == 0) {
+        this.exhausted = true;
+        return false;
+      }
+      long last = this.batchKeys[this.batchSize - 1];
+      if (this.descending) {
+        if (last == this.lo) {
+          this.exhausted = true;
+        } else {
+          this.cursor = last - 1;
+        }
+      } else {
+        if (last == this.hi) {
+          this.exhausted = true;
+        } else {
+          this.cursor = last + 1;
+        }
+      }
+      return true;
+    }
+
+    private void copyAscending() {
+      Map.Entry<Long, Leaf> e = leaves.floorEntry(this.cursor);
+      if (e == null) {
+        e = leaves.firstEntry();
+      }
+      while (e != null) {
+        Leaf leaf = e.getValue();
+        int pos = leaf.search(this.cursor);
+        if (pos < 0) {
+          pos = -pos - 1;
+        }
+        for (; pos < leaf.size; pos++) {
+          if (leaf.keys[pos] > this.hi || this.batchSize == this.batchKeys.length) {
+            return;
+          }
+          this.batchKeys[this.batchSize] = leaf.keys[pos];
+          this.batchValues[this.batchSize++] = leaf.values[pos];
+        }
+        e = leaves.higherEntry(e.getKey());
+      }
+    }
+
+    private void copyDescending() {
+      Map.Entry<Long, Leaf> e = leaves.floorEntry(this.cursor);
+      while (e != null) {
+        Leaf leaf = e.getValue();
+        int pos = leaf.search(this.cursor);
+        if (pos < 0) {
+          pos = -pos - 2;
+        }
+        for (; pos >= 0; pos--) {
+          if (leaf.keys[pos] < this.lo || this.batchSize == this.batchKeys.length) {
+            return;
+          }
+          this.batchKeys[this.batchSize] = leaf.keys[pos];
+          this.batchValues[this.batchSize++] = leaf.values[pos];
+        }
+        e = leaves.lowerEntry(e.getKey());
+      }
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    public void close() {
+      // do nothing
+    }
+
+    private boolean removeFromKeysToRemove(Collection keysToRemove, Object key) {
+      Iterator iterator = keysToRemove.iterator();
+      while (iterator.hasNext()) {
+        try {
+          if (TypeUtils
+              .compare(key, iterator.next(), OQLLexerTokenTypes.TOK_EQ).equals(
+                  Boolean.TRUE)) {
+            iterator.remove();
+            return true;
+          }
+        } catch (TypeMismatchException e) {
+          // they are not equals, so we just continue iterating
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * An index key and one of the RegionEntries it maps to
+   */
+  class PrimitiveKeyIndexStoreEntry implements IndexStoreEntry {
+    private Object deserializedIndexKey;
+    private RegionEntry regionEntry;
+    private boolean updateInProgress;
+    private Object value;
+    private final long iteratorStartTime;
+
+    private PrimitiveKeyIndexStoreEntry(long iteratorStartTime) {
+      this.iteratorStartTime = iteratorStartTime;
+    }
+
+    void setEntry(Object deserializedIndexKey, RegionEntry regionEntry) {
+      this.deserializedIndexKey = deserializedIndexKey;
+      this.regionEntry = regionEntry;
+      this.updateInProgress = regionEntry.isUpdateInProgress();
+      this.value = getTargetObject(regionEntry);
+    }
+
+    @Override
+    public Object getDeserializedKey() {
+      return deserializedIndexKey;
+    }
+
+    @Override
+    public Object getDeserializedValue() {
+      return value;
+    }
+
+    @Override
+    public Object getDeserializedRegionKey() {
+      return regionEntry.getKey();
+    }
+
+    public RegionEntry getRegionEntry() {
+      return regionEntry;
+    }
+
+    @Override
+    public boolean isUpdateInProgress() {
+      return updateInProgress
+          || asyncMaintenance
+          || regionEntry.isUpdateInProgress()
+          // The index update could have started just before the iterator was
+          // created. The entry still needs to be re-evaluated in this case.
+          || IndexManager.needsRecalculation(iteratorStartTime,
+              regionEntry.getLastModified());
+    }
+  }
+}
@@ -38,6 +38,7 @@ import com.gemstone.gemfire.cache.query.SelectResults;
 import com.gemstone.gemfire.cache.query.TypeMismatchException;
 import com.gemstone.gemfire.cache.query.internal.CompiledSortCriterion;
 import com.gemstone.gemfire.cache.query.internal.CompiledValue;
+import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
 import com.gemstone.gemfire.cache.query.internal.ExecutionContext;
 import com.gemstone.gemfire.cache.query.internal.QueryMonitor;
 import com.gemstone.gemfire.cache.query.internal.QueryObserver;
@@ -697,6 +698,10 @@ public class RangeIndex extends AbstractIndex  {
           break;
         case OQLLexerTokenTypes.TOK_LE:
         case OQLLexerTokenTypes.TOK_LT:
+          size = estimateFromHistogram(key, operator, matchLevel);
+          if (size >= 0) {
+            break;
+          }
           if (matchLevel <= 0 && key instanceof Number) {
             int totalSize = valueToEntriesMapSize;// this.valueToEntriesMap.size();
             if (RangeIndex.testHook != null) {
@@ -737,6 +742,10 @@ public class RangeIndex extends AbstractIndex  {
 
         case OQLLexerTokenTypes.TOK_GE:
         case OQLLexerTokenTypes.TOK_GT:
+          size = estimateFromHistogram(key, operator, matchLevel);
+          if (size >= 0) {
+            break;
+          }
           if (matchLevel <= 0 && key instanceof Number) {
             int totalSize = valueToEntriesMapSize;// this.valueToEntriesMap.size();
             if (testHook != null) {
@@ -786,6 +795,64 @@ public class RangeIndex extends AbstractIndex  {
     return size;
   }
 
+  @Override
+  public int getSizeEstimate(Object lowerBoundKey, int lowerBoundOperator,
+      Object upperBoundKey, int upperBoundOperator, int matchLevel)
+      throws TypeMismatchException {
+    if (DefaultQuery.COST_BASED_INDEX_SELECTION && matchLevel <= 0
+        && lowerBoundKey != null && upperBoundKey != null) {
+      IndexHistogram histogram = getKeyHistogram();
+      if (histogram != null) {
+        int size = histogram.estimate(histogramKey(lowerBoundKey),
+            lowerBoundOperator, histogramKey(upperBoundKey),
+            upperBoundOperator);
+        if (size >= 0) {
+          return size;
+        }
+      }
+    }
+    return super.getSizeEstimate(lowerBoundKey, lowerBoundOperator,
+        upperBoundKey, upperBoundOperator, matchLevel);
+  }
+
+  /**
+   * Estimates the number of values selected by a single sided range
+   * condition from the key histogram, if cost based index selection is on.
+   * 
+   * @return the estimate, or -1 if there is none
+   */
+  private int estimateFromHistogram(Object key, int operator, int matchLevel)
+      throws TypeMismatchException {
+    if (!DefaultQuery.COST_BASED_INDEX_SELECTION || matchLevel > 0
+        || key == null || key == QueryService.UNDEFINED) {
+      return -1;
+    }
+    if (RangeIndex.testHook != null) {
+      RangeIndex.testHook.hook(operator == OQLLexerTokenTypes.TOK_LT
+          || operator == OQLLexerTokenTypes.TOK_LE ? 1 : 2);
+    }
+    IndexHistogram histogram = getKeyHistogram();
+    return histogram == null ? -1 : histogram.estimate(operator,
+        histogramKey(key));
+  }
+
+  private Object histogramKey(Object key) throws TypeMismatchException {
+    return getPdxStringForIndexedPdxKeys(TypeUtils.indexKeyFor(key));
+  }
+
+  @Override
+  IndexHistogram buildKeyHistogram(long updates) {
+    IndexHistogram.Builder builder = new IndexHistogram.Builder(
+        this.region.size());
+    for (Iterator iterator = this.valueToEntriesMap.entrySet().iterator(); iterator
+        .hasNext();) {
+      Map.Entry entry = (Map.Entry)iterator.next();
+      builder.add(entry.getKey(),
+          ((RegionEntryToValuesMap)entry.getValue()).getNumValues());
+    }
+    return builder.create(updates);
+  }
+
   private void evaluate(Object key, int operator, Collection results,
       Set keysToRemove, int limit, ExecutionContext context)
       throws TypeMismatchException {
@@ -1563,10 +1630,12 @@ public String dump() {
     }
 
     public void incNumUpdates() {
+      incLocalUpdates(1);
       this.vsdStats.incNumUpdates();
     }
 
     public void incNumUpdates(int delta) {
+      incLocalUpdates(delta);
       this.vsdStats.incNumUpdates(delta);
     }
 
@@ -1595,6 +1664,14 @@ public String dump() {
       this.vsdStats.incReadLockCount(delta);
     }
 
+    public void incPopulatesInProgress(int delta) {
+      this.vsdStats.incPopulatesInProgress(delta);
+    }
+
+    public void incPopulateTime(long delta) {
+      this.vsdStats.incPopulateTime(delta);
+    }
+
     public long getUseTime() {
       return this.vsdStats.getUseTime();
     }
@@ -1649,6 +1726,14 @@ public String dump() {
       return this.vsdStats.getReadLockCount();
     }
 
+    public int getPopulatesInProgress() {
+      return this.vsdStats.getPopulatesInProgress();
+    }
+
+    public long getPopulateTime() {
+      return this.vsdStats.getPopulateTime();
+    }
+
     public void close() {
       this.vsdStats.close();
     }
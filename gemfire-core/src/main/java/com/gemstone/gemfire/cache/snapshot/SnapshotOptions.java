@@ -31,7 +31,17 @@ public interface SnapshotOptions<K, V> extends Serializable {
    */
   public enum SnapshotFormat {
     /** an optimized binary format specific to GemFire */
-    GEMFIRE
+    GEMFIRE,
+    
+    /** 
+     * a compressed, column-oriented binary format specific to GemFire.  PDX
+     * values are stored by field so that individual fields can be read
+     * without reading the entire snapshot.
+     * 
+     * @see SnapshotReader#read(java.io.File, java.util.Set)
+     * @since 9.0
+     */
+    GEMFIRE_COLUMNAR
   }
   
   /**
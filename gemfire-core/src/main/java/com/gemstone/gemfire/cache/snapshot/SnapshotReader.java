@@ -9,9 +9,11 @@ package com.gemstone.gemfire.cache.snapshot;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Set;
 
 import com.gemstone.gemfire.DataSerializer;
 import com.gemstone.gemfire.Instantiator;
+import com.gemstone.gemfire.cache.snapshot.SnapshotOptions.SnapshotFormat;
 import com.gemstone.gemfire.internal.cache.snapshot.GFSnapshot;
 import com.gemstone.gemfire.pdx.PdxSerializer;
 
@@ -45,5 +47,54 @@ public class SnapshotReader {
       throws IOException, ClassNotFoundException {
     return GFSnapshot.read(snapshot);
   }
+  
+  /**
+   * Reads selected PDX fields from a snapshot file and passes the entries to
+   * the application.  For snapshots created using 
+   * {@link SnapshotFormat#GEMFIRE_COLUMNAR} only the data for the requested
+   * fields is read; the remaining fields of each PDX value contain their
+   * default value (zero, false, or null).  Values that are not PDX instances
+   * and snapshots in other formats are read in their entirety.
+   * 
+   * @param <K> the key type
+   * @param <V> the value type
+   * 
+   * @param snapshot the snapshot file
+   * @param fields the names of the PDX fields to read
+   * @return the snapshot iterator
+   * 
+   * @throws IOException error reading the snapshot file
+   * @throws ClassNotFoundException unable deserialize entry
+   * @since 9.0
+   */
+  public static <K, V> SnapshotIterator<K, V> read(File snapshot, Set<String> fields) 
+      throws IOException, ClassNotFoundException {
+    return GFSnapshot.read(snapshot, fields);
+  }
+  
+  /**
+   * Reads a chain of snapshot files consisting of a full snapshot followed
+   * by the incremental snapshots that were created from it, and passes the
+   * resulting entries to the application.  Each entry is returned once with
+   * its most recent value; entries that were destroyed are not returned.
+   * <p>
+   * The keys contained in the incremental snapshots are held in memory 
+   * while reading the chain.
+   * 
+   * @param <K> the key type
+   * @param <V> the value type
+   * 
+   * @param chain the snapshot files, starting with the full snapshot and
+   *        followed by the incremental snapshots in the order they were
+   *        created
+   * @return the snapshot iterator
+   * 
+   * @throws IOException error reading the snapshot file
+   * @throws ClassNotFoundException unable deserialize entry
+   * @since 9.0
+   */
+  public static <K, V> SnapshotIterator<K, V> read(File[] chain) 
+      throws IOException, ClassNotFoundException {
+    return GFSnapshot.read(chain);
+  }
 }
-
@@ -22,6 +22,7 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -59,7 +60,7 @@ public class BucketRegionQueue extends AbstractBucketRegionQueue {
    * necesaary for Colocated regions and if any of the regions use same key for
    * data.
    */
-  private final Map indexes;
+  private final ConcurrentMap indexes;
 
   /**
    * A transient queue to maintain the eventSeqNum of the events that are to be
@@ -301,7 +302,11 @@ public class BucketRegionQueue extends AbstractBucketRegionQueue {
       Map latestIndexesForRegion = (Map)this.indexes.get(rName);
       if (latestIndexesForRegion == null) {
         latestIndexesForRegion = new ConcurrentHashMap();
-        this.indexes.put(rName, latestIndexesForRegion);
+        Map existing = (Map)this.indexes.putIfAbsent(rName,
+            latestIndexesForRegion);
+        if (existing != null) {
+          latestIndexesForRegion = existing;
+        }
       }
       Long previousTailKey = (Long)latestIndexesForRegion.put(keyToConflate,
           tailKey);
@@ -336,15 +341,15 @@ public class BucketRegionQueue extends AbstractBucketRegionQueue {
         // Otherwise, remove the index from the indexes map.
         String rName = object.getRegionToConflate();
         Object key = object.getKeyToConflate();
-        Map latestIndexesForRegion = (Map)this.indexes.get(rName);
+        ConcurrentMap latestIndexesForRegion = (ConcurrentMap)this.indexes.get(rName);
         if (latestIndexesForRegion != null) {
-          // Remove the index.
-          Long index = (Long)latestIndexesForRegion.remove(key);
-          if (index != null) {
+          // Remove the index unless it already moved to a newer event of the
+          // key, which happens when this event is destroyed by conflation
+          if (latestIndexesForRegion.remove(key, qkey)) {
             this.getPartitionedRegion().getParallelGatewaySender()
                 .getStatistics().decConflationIndexesMapSize();
             if (logger.isDebugEnabled()) {
-              logger.debug("{}: Removed index {} for {}", this, index, object);
+              logger.debug("{}: Removed index {} for {}", this, qkey, object);
             }
           }
         }
@@ -405,7 +410,7 @@ public class BucketRegionQueue extends AbstractBucketRegionQueue {
         throw new BucketRegionQueueUnavailableException();
       }
       key = this.eventSeqNumQueue.peek();
-      if (key != null) {
+      while (key != null) {
         object = optimalGet(key);
         if (object == null && !this.getPartitionedRegion().isConflationEnabled()) {
           if (logger.isDebugEnabled()) {
@@ -423,6 +428,13 @@ public class BucketRegionQueue extends AbstractBucketRegionQueue {
         // //queue.addToPeekedKeys(key);
         // }
         this.eventSeqNumQueue.remove(key);
+        if (!isConflated((Long)key, object)) {
+          break;
+        }
+        // a newer event of the same entry is queued, this one is destroyed
+        // by conflation and need not be sent
+        object = null;
+        key = this.eventSeqNumQueue.peek();
       }
       return object; // OFFHEAP: ok since callers are careful to do destroys on
                      // region queue after finished with peeked object.
@@ -432,6 +444,34 @@ public class BucketRegionQueue extends AbstractBucketRegionQueue {
     }
   }
 
+  /**
+   * Returns whether the event at the given queue key was superseded by a
+   * newer event of the same entry, according to the conflation index.
+   */
+  private boolean isConflated(Long qkey, Object object) {
+    if (!(object instanceof Conflatable)
+        || !getPartitionedRegion().isConflationEnabled()) {
+      return false;
+    }
+    Conflatable conflatable = (Conflatable)object;
+    if (!conflatable.shouldBeConflated()) {
+      return false;
+    }
+    Map latestIndexesForRegion = (Map)this.indexes.get(conflatable
+        .getRegionToConflate());
+    if (latestIndexesForRegion == null) {
+      return false;
+    }
+    Long latest = (Long)latestIndexesForRegion.get(conflatable
+        .getKeyToConflate());
+    if (latest == null || latest.longValue() <= qkey.longValue()) {
+      return false;
+    }
+    this.getPartitionedRegion().getParallelGatewaySender().getStatistics()
+        .incEventsNotQueuedConflated();
+    return true;
+  }
+
   protected void addToEventQueue(Object key, boolean didPut, EntryEventImpl event, int sizeOfHDFSEvent) {
     if (didPut) {
       if (this.initialized) {
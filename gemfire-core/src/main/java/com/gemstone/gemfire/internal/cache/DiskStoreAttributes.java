@@ -16,6 +16,8 @@ import java.util.UUID;
 
 import com.gemstone.gemfire.cache.DiskStore;
 import com.gemstone.gemfire.cache.DiskStoreFactory;
+import com.gemstone.gemfire.internal.cache.xmlcache.CacheXml;
+import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
 
 /**
  * Creates an attribute object for DiskStore.
@@ -30,6 +32,7 @@ public class DiskStoreAttributes implements Serializable, DiskStore {
   public boolean autoCompact;
 
   public int compactionThreshold;
+  public int compactionThreads;
   public int queueSize;
   public int writeBufferSize;
 
@@ -44,6 +47,7 @@ public class DiskStoreAttributes implements Serializable, DiskStore {
   
   private volatile float diskUsageWarningPct;
   private volatile float diskUsageCriticalPct;
+  private volatile long compactionMaxBytesPerSecond;
 
   public DiskStoreAttributes() {
     // set all to defaults
@@ -58,6 +62,8 @@ public class DiskStoreAttributes implements Serializable, DiskStore {
     this.diskDirSizes = DiskStoreFactory.DEFAULT_DISK_DIR_SIZES;
     this.diskUsageWarningPct = DiskStoreFactory.DEFAULT_DISK_USAGE_WARNING_PERCENTAGE;
     this.diskUsageCriticalPct = DiskStoreFactory.DEFAULT_DISK_USAGE_CRITICAL_PERCENTAGE;
+    this.compactionThreads = DiskStoreFactory.DEFAULT_COMPACTION_THREADS;
+    this.compactionMaxBytesPerSecond = DiskStoreFactory.DEFAULT_COMPACTION_MAX_BYTES_PER_SECOND;
   }
 
   public UUID getDiskStoreUUID() {
@@ -85,6 +91,40 @@ public class DiskStoreAttributes implements Serializable, DiskStore {
     return this.compactionThreshold;
   }
 
+  /* (non-Javadoc)
+   * @see com.gemstone.gemfire.cache.DiskStore#getCompactionThreads()
+   */
+  public int getCompactionThreads() {
+    return this.compactionThreads;
+  }
+
+  /* (non-Javadoc)
+   * @see com.gemstone.gemfire.cache.DiskStore#getCompactionMaxBytesPerSecond()
+   */
+  public long getCompactionMaxBytesPerSecond() {
+    return this.compactionMaxBytesPerSecond;
+  }
+
+  /* (non-Javadoc)
+   * @see com.gemstone.gemfire.cache.DiskStore#setCompactionMaxBytesPerSecond(long)
+   */
+  public void setCompactionMaxBytesPerSecond(long maxBytesPerSecond) {
+    checkCompactionMaxBytesPerSecond(maxBytesPerSecond);
+    this.compactionMaxBytesPerSecond = maxBytesPerSecond;
+  }
+
+  static void checkCompactionThreads(int compactionThreads) {
+    if (compactionThreads < 1) {
+      throw new IllegalArgumentException(LocalizedStrings.DiskWriteAttributesImpl_0_HAS_TO_BE_POSITIVE_NUMBER_AND_THE_VALUE_GIVEN_1_IS_NOT_ACCEPTABLE.toLocalizedString(new Object[] {CacheXml.COMPACTION_THREADS, Integer.valueOf(compactionThreads)}));
+    }
+  }
+
+  static void checkCompactionMaxBytesPerSecond(long maxBytesPerSecond) {
+    if (maxBytesPerSecond < 0) {
+      throw new IllegalArgumentException(LocalizedStrings.DiskWriteAttributesImpl_0_HAS_TO_BE_POSITIVE_NUMBER_AND_THE_VALUE_GIVEN_1_IS_NOT_ACCEPTABLE.toLocalizedString(new Object[] {CacheXml.COMPACTION_MAX_BYTES_PER_SECOND, Long.valueOf(maxBytesPerSecond)}));
+    }
+  }
+
   /* (non-Javadoc)
    * @see com.gemstone.gemfire.cache.DiskStore#getDiskDirSizes()
    */
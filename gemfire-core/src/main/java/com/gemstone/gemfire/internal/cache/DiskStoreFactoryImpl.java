@@ -45,6 +45,8 @@ public class DiskStoreFactoryImpl implements DiskStoreFactory
     setAutoCompact(attrs.getAutoCompact());
     setAllowForceCompaction(attrs.getAllowForceCompaction());
     setCompactionThreshold(attrs.getCompactionThreshold());
+    setCompactionThreads(attrs.getCompactionThreads());
+    setCompactionMaxBytesPerSecond(attrs.getCompactionMaxBytesPerSecond());
     setMaxOplogSizeInBytes(attrs.getMaxOplogSizeInBytes());
     setTimeInterval(attrs.getTimeInterval());
     setWriteBufferSize(attrs.getWriteBufferSize());
@@ -92,6 +94,17 @@ public class DiskStoreFactoryImpl implements DiskStoreFactory
     this.attrs.compactionThreshold = compactionThreshold;
     return this;
   }
+
+  public DiskStoreFactory setCompactionThreads(int compactionThreads) {
+    DiskStoreAttributes.checkCompactionThreads(compactionThreads);
+    this.attrs.compactionThreads = compactionThreads;
+    return this;
+  }
+
+  public DiskStoreFactory setCompactionMaxBytesPerSecond(long maxBytesPerSecond) {
+    this.attrs.setCompactionMaxBytesPerSecond(maxBytesPerSecond);
+    return this;
+  }
   
   public DiskStoreFactory setTimeInterval(long timeInterval) {
     if (timeInterval < 0) {
@@ -214,6 +214,28 @@ public class DiskStoreImpl implements DiskStore {
    * These tasks are things like unpreblow oplogs, delete oplogs, etc. 
    */
   public static final int MAX_PENDING_TASKS = Integer.getInteger("gemfire.disk.MAX_PENDING_TASKS", 6);
+  /**
+   * This system property sets the number of threads used to read krf files
+   * ahead of the thread recovering the oplogs. Setting it to 1 or less
+   * reads each krf file on the recovering thread. Made non static so tests
+   * can set it.
+   */
+  final int RECOVERY_THREADS = Integer.getInteger("gemfire.disk.RECOVERY_THREADS",
+      Runtime.getRuntime().availableProcessors());
+  /**
+   * This system property sets the maximum number of krf bytes held in memory
+   * by the krf reader threads at any one time. A krf larger than this is
+   * streamed from disk by the recovering thread. Made non static so tests
+   * can set it.
+   */
+  final long RECOVERY_PREFETCH_BYTES = Long.getLong("gemfire.disk.RECOVERY_PREFETCH_BYTES",
+      64L * 1024 * 1024);
+  /**
+   * This system property sets the maximum number of bytes a throttled
+   * compaction copies forward while holding the compactor locks.
+   */
+  static final long COMPACTION_BATCH_BYTES = Long.getLong("gemfire.disk.COMPACTION_BATCH_BYTES",
+      1024 * 1024);
   /**
    * This system property indicates that IF should also be preallocated. This property 
    * will be used in conjunction with the PREALLOCATE_OPLOGS property. If PREALLOCATE_OPLOGS
@@ -281,6 +303,12 @@ public class DiskStoreImpl implements DiskStore {
 
   private final int compactionThreshold;
 
+  /** the number of oplogs that can be compacted at the same time */
+  private final int compactionThreads;
+
+  /** limits the rate at which compaction copies entries forward */
+  private final IORateLimiter compactionRateLimiter;
+
   /**
    * The limit of how many items can be in the async queue before async starts
    * blocking and a flush is forced. If this value is 0 then no limit.
@@ -413,6 +441,8 @@ public class DiskStoreImpl implements DiskStore {
     this.allowForceCompaction = props.getAllowForceCompaction();
     this.compactionThreshold = calcCompactionThreshold(props
         .getCompactionThreshold());
+    this.compactionThreads = props.getCompactionThreads();
+    this.compactionRateLimiter = new IORateLimiter(props.getCompactionMaxBytesPerSecond());
     this.maxOplogSizeInBytes = props.getMaxOplogSizeInBytes();
     this.timeInterval = props.getTimeInterval();
     this.queueSize = props.getQueueSize();
@@ -488,7 +518,7 @@ public class DiskStoreImpl implements DiskStore {
       this.oplogCompactor = null;
     }
     
-    int MAXT = DiskStoreImpl.MAX_CONCURRENT_COMPACTIONS;
+    int MAXT = Math.max(DiskStoreImpl.MAX_CONCURRENT_COMPACTIONS, getCompactionThreads());
     final ThreadGroup compactThreadGroup = LoggingThreadGroup.createThreadGroup("Oplog Compactor Thread Group", this.logger);
     final ThreadFactory compactThreadFactory = GemfireCacheHelper.CreateThreadFactory(compactThreadGroup, "Idle OplogCompactor");
     this.diskStoreTaskPool = new ThreadPoolExecutor(MAXT, MAXT, 10, TimeUnit.SECONDS,
@@ -524,6 +554,11 @@ public class DiskStoreImpl implements DiskStore {
         logger.debug("CompactionThreshold {} != {}", getCompactionThreshold(), props.getCompactionThreshold());
       }
     }
+    if (getCompactionThreads() != props.getCompactionThreads()) {
+      if (logger.isDebugEnabled()) {
+        logger.debug("CompactionThreads {} != {}", getCompactionThreads(), props.getCompactionThreads());
+      }
+    }
     if (getMaxOplogSizeInBytes() != props.getMaxOplogSizeInBytes()) {
       if (logger.isDebugEnabled()) {
         logger.debug("MaxOplogSizeInBytes {} != {}", getMaxOplogSizeInBytes(), props.getMaxOplogSizeInBytes());
@@ -561,6 +596,7 @@ public class DiskStoreImpl implements DiskStore {
     return getAllowForceCompaction() == props.getAllowForceCompaction()
         && getAutoCompact() == props.getAutoCompact()
         && getCompactionThreshold() == props.getCompactionThreshold()
+        && getCompactionThreads() == props.getCompactionThreads()
         && getMaxOplogSizeInBytes() == props.getMaxOplogSizeInBytes()
         && getName().equals(props.getName())
         && getQueueSize() == props.getQueueSize()
@@ -1969,8 +2005,10 @@ public class DiskStoreImpl implements DiskStore {
         boolean backupFilesExist = !persistentBackupFiles.isEmpty();
         boolean ifRequired = backupFilesExist || isOffline();
 
+        long startInitFile = getStats().getStatTime();
         this.initFile = new DiskInitFile(partialFileName, this, ifRequired,
             persistentBackupFiles.keySet());
+        getStats().endInitFileRecovery(startInitFile);
         if (this.upgradeVersionOnly) {
           if (Version.CURRENT.compareTo(getRecoveredGFVersion()) <= 0) {
             if (getCache() != null) {
@@ -2116,6 +2154,19 @@ public class DiskStoreImpl implements DiskStore {
     return this.compactionThreshold;
   }
 
+  public int getCompactionThreads() {
+    return this.compactionThreads;
+  }
+
+  public long getCompactionMaxBytesPerSecond() {
+    return this.compactionRateLimiter.getBytesPerSecond();
+  }
+
+  public void setCompactionMaxBytesPerSecond(long maxBytesPerSecond) {
+    DiskStoreAttributes.checkCompactionMaxBytesPerSecond(maxBytesPerSecond);
+    this.compactionRateLimiter.setBytesPerSecond(maxBytesPerSecond);
+  }
+
   private final boolean isCompactionPossible;
 
   final boolean isCompactionPossible() {
@@ -2124,7 +2175,9 @@ public class DiskStoreImpl implements DiskStore {
 
   void scheduleCompaction() {
     if (isCompactionEnabled() && !isOfflineCompacting()) {
-      this.oplogCompactor.scheduleIfNeeded(getOplogToBeCompacted());
+      // start a compaction on each idle compaction thread
+      while (this.oplogCompactor.scheduleIfNeeded(getOplogToBeCompacted())) {
+      }
     }
   }
 
@@ -2751,15 +2804,24 @@ public class DiskStoreImpl implements DiskStore {
         && MAX_OPLOGS_PER_COMPACTION > 0) {
       max = MAX_OPLOGS_PER_COMPACTION;
     }
-    persistentOplogs.getCompactableOplogs(l, max);
+    // Oplogs already being compacted by another compaction thread are skipped,
+    // so collect them all and then trim the list to max.
+    persistentOplogs.getCompactableOplogs(l, Integer.MAX_VALUE);
 
     // Note this always puts overflow oplogs on the end of the list.
     // They may get starved.
-    overflowOplogs.getCompactableOplogs(l, max);
+    overflowOplogs.getCompactableOplogs(l, Integer.MAX_VALUE);
+
+    if (!all && this.oplogCompactor != null) {
+      l.removeAll(this.oplogCompactor.getCompactingOplogs());
+    }
     
     if(l.isEmpty()) {
       return null;
     }
+    if (l.size() > max) {
+      l.subList(max, l.size()).clear();
+    }
       
     return l.toArray(new CompactableOplog[0]);
   }
@@ -2866,22 +2928,40 @@ public class DiskStoreImpl implements DiskStore {
   final AtomicLong undeletedOplogSize = new AtomicLong();
 
   /**
-   * Compacts oplogs
+   * The progress of one oplog compaction. A throttled compaction copies
+   * entries forward in batches and waits on the compaction rate limit
+   * between batches, after it has released the compactor locks.
+   */
+  static final class CompactionBatch {
+    /** the number of entries copied forward by the compaction */
+    int count;
+    /** the bytes copied forward since the compaction last waited */
+    long bytes;
+    /** true if the batch ended before all the live entries were copied */
+    boolean paused;
+  }
+
+  /**
+   * Compacts oplogs. Up to {@link DiskStoreImpl#getCompactionThreads} compactions
+   * run at the same time on the disk store task pool, each on different
+   * oplogs. All of them share the disk store's compaction rate limit.
    * 
    * @author Mitul Bid
    * @author Asif
    * @since 5.1
    * 
    */
-  class OplogCompactor implements Runnable {
+  class OplogCompactor {
     /** boolean for the thread to continue compaction* */
     private volatile boolean compactorEnabled;
-    private volatile boolean scheduled;
-    private CompactableOplog[] scheduledOplogs;
+    /** the number of compactions that have been scheduled but not finished */
+    private int scheduledCount;
+    /** the oplogs being compacted by the scheduled compactions */
+    private final Set<CompactableOplog> compactingOplogs = new HashSet<CompactableOplog>();
     /**
-     * used to keep track of the Thread currently invoking run on this compactor
+     * used to keep track of the Threads currently running a compaction
      */
-    private volatile Thread me;
+    private final Set<Thread> compactorThreads = new HashSet<Thread>();
 
     // Boolean which decides if the compactor can terminate early i.e midway
     // between compaction.
@@ -2922,11 +3002,18 @@ public class DiskStoreImpl implements DiskStore {
       }
     }
 
+    /**
+     * Returns the oplogs that are being compacted by a scheduled compaction.
+     */
+    synchronized Set<CompactableOplog> getCompactingOplogs() {
+      return new HashSet<CompactableOplog>(this.compactingOplogs);
+    }
+
     /**
      * @return true if compaction done; false if it was not
      */
     private synchronized boolean scheduleIfNeeded(CompactableOplog[] opLogs) {
-      if (!this.scheduled) {
+      if (this.scheduledCount < getCompactionThreads()) {
         return schedule(opLogs);
       } else {
         return false;
@@ -2937,18 +3024,27 @@ public class DiskStoreImpl implements DiskStore {
      * @return true if compaction done; false if it was not
      */
     private synchronized boolean schedule(CompactableOplog[] opLogs) {
-      assert !this.scheduled;
       if (!this.compactorEnabled)
         return false;
       if (opLogs != null) {
+        List<CompactableOplog> l = new ArrayList<CompactableOplog>(opLogs.length);
         for (int i = 0; i < opLogs.length; i++) {
-          opLogs[i].prepareForCompact();
+          if (!this.compactingOplogs.contains(opLogs[i])) {
+            l.add(opLogs[i]);
+          }
         }
-        this.scheduled = true;
-        this.scheduledOplogs = opLogs;
-        boolean result = executeDiskStoreTask(this);
+        if (l.isEmpty()) {
+          return false;
+        }
+        CompactableOplog[] oplogs = l.toArray(new CompactableOplog[l.size()]);
+        for (int i = 0; i < oplogs.length; i++) {
+          oplogs[i].prepareForCompact();
+        }
+        this.scheduledCount++;
+        this.compactingOplogs.addAll(l);
+        boolean result = executeDiskStoreTask(new Compaction(oplogs));
         if (!result) {
-          reschedule(false);
+          reschedule(oplogs, false);
           return false;
         } else {
           return true;
@@ -2963,8 +3059,7 @@ public class DiskStoreImpl implements DiskStore {
      * being compacted that are still alive (have not been deleted or modified
      * in a future oplog) to be copied forward to the current active oplog
      */
-    private boolean compact() {
-      CompactableOplog[] oplogs = this.scheduledOplogs;
+    private boolean compact(CompactableOplog[] oplogs) {
       int totalCount = 0;
       long compactionStart = getStats().startCompaction();
       long start = System.nanoTime();
@@ -2999,82 +3094,96 @@ public class DiskStoreImpl implements DiskStore {
     }
 
     /**
-     * Just do compaction and then check to see if another needs to be done and
-     * if so schedule it. Asif:The compactor thread checks for an oplog in the
-     * LinkedHasMap in a synchronization on the oplogIdToOplog object. This will
-     * ensure that an addition of an Oplog to the Map does not get missed.
-     * Notifications need not be sent if the thread is already compaction
+     * Compacts one set of oplogs and then checks to see if another compaction
+     * needs to be done and if so schedules it.
      */
-    public void run() {
-      getCache().getCachePerfStats().decDiskTasksWaiting();
-      if (!this.scheduled)
-        return;
-      boolean compactedSuccessfully = false;
-      try {
-        SystemFailure.checkFailure();
-        if (isClosing()) {
-          return;
-        }
-        if (!this.compactorEnabled)
-          return;
-        final CompactableOplog[] oplogs = this.scheduledOplogs;
-        this.me = Thread.currentThread();
+    private class Compaction implements Runnable {
+      private final CompactableOplog[] oplogs;
+
+      Compaction(CompactableOplog[] oplogs) {
+        this.oplogs = oplogs;
+      }
+
+      /**
+       * Just do compaction and then check to see if another needs to be done and
+       * if so schedule it. Asif:The compactor thread checks for an oplog in the
+       * LinkedHasMap in a synchronization on the oplogIdToOplog object. This will
+       * ensure that an addition of an Oplog to the Map does not get missed.
+       * Notifications need not be sent if the thread is already compaction
+       */
+      public void run() {
+        getCache().getCachePerfStats().decDiskTasksWaiting();
+        boolean compactedSuccessfully = false;
         try {
-          // set our thread's name
-          String tName = "OplogCompactor " + getName() + " for oplog "
-              + oplogs[0].toString();
-          Thread.currentThread().setName(tName);
-
-          StringBuffer buffer = new StringBuffer();
-          for (int j = 0; j < oplogs.length; ++j) {
-            buffer.append(oplogs[j].toString());
-            if (j + 1 < oplogs.length) {
-              buffer.append(", ");
-            }
+          SystemFailure.checkFailure();
+          if (isClosing()) {
+            return;
           }
-          String ids = buffer.toString();
-          logger.info(LocalizedMessage.create(LocalizedStrings.DiskRegion_COMPACTION_OPLOGIDS,
-              new Object[] { getName(), ids }));
-          if (LocalRegion.ISSUE_CALLBACKS_TO_CACHE_OBSERVER) {
-            CacheObserverHolder.getInstance().beforeGoingToCompact();
+          if (!compactorEnabled)
+            return;
+          final Thread me = Thread.currentThread();
+          synchronized (OplogCompactor.this) {
+            compactorThreads.add(me);
           }
-          compactedSuccessfully = compact();
-          if (compactedSuccessfully) {
-            if (LocalRegion.ISSUE_CALLBACKS_TO_CACHE_OBSERVER) {
-              CacheObserverHolder.getInstance().afterHavingCompacted();
+          try {
+            // set our thread's name
+            String tName = "OplogCompactor " + getName() + " for oplog "
+                + oplogs[0].toString();
+            me.setName(tName);
+
+            StringBuffer buffer = new StringBuffer();
+            for (int j = 0; j < oplogs.length; ++j) {
+              buffer.append(oplogs[j].toString());
+              if (j + 1 < oplogs.length) {
+                buffer.append(", ");
+              }
             }
-          } else {
-            logger.warn(LocalizedMessage.create(LocalizedStrings.DiskRegion_COMPACTION_FAILURE,
+            String ids = buffer.toString();
+            logger.info(LocalizedMessage.create(LocalizedStrings.DiskRegion_COMPACTION_OPLOGIDS,
                 new Object[] { getName(), ids }));
+            if (LocalRegion.ISSUE_CALLBACKS_TO_CACHE_OBSERVER) {
+              CacheObserverHolder.getInstance().beforeGoingToCompact();
+            }
+            compactedSuccessfully = compact(oplogs);
+            if (compactedSuccessfully) {
+              if (LocalRegion.ISSUE_CALLBACKS_TO_CACHE_OBSERVER) {
+                CacheObserverHolder.getInstance().afterHavingCompacted();
+              }
+            } else {
+              logger.warn(LocalizedMessage.create(LocalizedStrings.DiskRegion_COMPACTION_FAILURE,
+                  new Object[] { getName(), ids }));
+            }
+          } catch (DiskAccessException dae) {
+            handleDiskAccessException(dae);
+            throw dae;
+          } catch (KillCompactorException ex) {
+            if (logger.isDebugEnabled()) {
+              logger.debug("compactor thread terminated by test");
+            }
+            throw ex;
+          } finally {
+            if (compactedSuccessfully) {
+              me.setName("Idle OplogCompactor");
+            }
+            synchronized (OplogCompactor.this) {
+              compactorThreads.remove(me);
+            }
           }
-        } catch (DiskAccessException dae) {
-          handleDiskAccessException(dae);
-          throw dae;
-        } catch (KillCompactorException ex) {
-          if (logger.isDebugEnabled()) {
-            logger.debug("compactor thread terminated by test");
-          }
-          throw ex;
-        } finally {
-          if (compactedSuccessfully) {
-            this.me.setName("Idle OplogCompactor");
-          }
-          this.me = null;
+        } catch (CancelException ignore) {
+          // if cache is closed, just about the compaction
+        }
+        finally {
+          reschedule(oplogs, compactedSuccessfully);
         }
-      } catch (CancelException ignore) {
-        // if cache is closed, just about the compaction
-      }
-      finally {
-        reschedule(compactedSuccessfully);
       }
     }
 
     synchronized void waitForRunToComplete() {
-      if (this.me == Thread.currentThread()) {
+      if (this.compactorThreads.contains(Thread.currentThread())) {
         // no need to wait since we are the compactor to fix bug 40630
         return;
       }
-      while (this.scheduled) {
+      while (this.scheduledCount > 0) {
         try {
           wait();
         } catch (InterruptedException ex) {
@@ -3083,9 +3192,9 @@ public class DiskStoreImpl implements DiskStore {
       }
     }
 
-    private synchronized void reschedule(boolean success) {
-      this.scheduled = false;
-      this.scheduledOplogs = null;
+    private synchronized void reschedule(CompactableOplog[] oplogs, boolean success) {
+      this.scheduledCount--;
+      this.compactingOplogs.removeAll(Arrays.asList(oplogs));
       notifyAll();
       if (!success)
         return;
@@ -3097,7 +3206,9 @@ public class DiskStoreImpl implements DiskStore {
       //synchronized (DiskStoreImpl.this.oplogIdToOplog) {
         if (this.compactorEnabled) {
           if (isCompactionEnabled()) {
-            schedule(getOplogToBeCompacted());
+            while (this.scheduledCount < getCompactionThreads()
+                && schedule(getOplogToBeCompacted())) {
+            }
           }
         }
       //}
@@ -3106,6 +3217,28 @@ public class DiskStoreImpl implements DiskStore {
     boolean keepCompactorRunning() {
       return this.compactorEnabled || this.compactionCompletionRequired;
     }
+
+    /**
+     * Returns true if a compaction that has copied the given number of bytes
+     * forward since it last waited should release its locks and wait on the
+     * compaction rate limit. A batch is at most a tenth of a second of IO.
+     */
+    boolean isBatchFull(long bytes) {
+      long rate = compactionRateLimiter.getBytesPerSecond();
+      return rate > 0 && bytes >= Math.min(COMPACTION_BATCH_BYTES, Math.max(1, rate / 10));
+    }
+
+    /**
+     * Waits until the compaction rate limit allows the given number of bytes
+     * to be copied forward. Must not be called while holding the compactor
+     * locks or an entry lock.
+     */
+    void throttle(long bytes) {
+      long waited = compactionRateLimiter.acquire(bytes);
+      if (waited > 0) {
+        getStats().incCompactionThrottleTime(waited);
+      }
+    }
   }
 
   /**
@@ -41,10 +41,17 @@ public class DiskStoreStats {
   private static final int recoveredEntryDestroysId;
   private static final int recoveredValuesSkippedDueToLRUId;
   private static final int recoveryRecordsSkippedId;
+  private static final int initFileRecoveryTimeId;
+  private static final int drfRecoveryTimeId;
+  private static final int crfRecoveryTimeId;
+  private static final int regionInitRecoveryTimeId;
+  private static final int krfPrefetchesId;
+  private static final int krfPrefetchTimeId;
   private static final int compactsInProgressId;
   private static final int writesInProgressId;
   private static final int flushesInProgressId;
   private static final int compactTimeId;
+  private static final int compactThrottleTimeId;
   private static final int compactsId;
   private static final int oplogRecoveriesId;
   private static final int oplogRecoveryTimeId;
@@ -138,6 +145,12 @@ public class DiskStoreStats {
          f.createLongCounter("recoveredValuesSkippedDueToLRU", "The total number of entry values that did not need to be recovered due to the LRU.", "values"),
 
          f.createLongCounter("recoveryRecordsSkipped", "The total number of oplog records skipped during recovery.", "ops"),
+         f.createLongCounter("initFileRecoveryTime", "The total amount of time spent reading the disk store init file during a recovery", "nanoseconds"),
+         f.createLongCounter("drfRecoveryTime", "The total amount of time spent reading drf files during a recovery", "nanoseconds"),
+         f.createLongCounter("crfRecoveryTime", "The total amount of time spent reading krf and crf files into the recovered regions during a recovery", "nanoseconds"),
+         f.createLongCounter("regionInitRecoveryTime", "The total amount of time spent initializing the recovered regions and oplogs after the oplogs were read", "nanoseconds"),
+         f.createLongCounter("krfPrefetches", "The total number of krf files read ahead by the recovery threads", "ops"),
+         f.createLongCounter("krfPrefetchTime", "The total amount of time the recovery threads spent reading krf files ahead of the recovery", "nanoseconds"),
 
          f.createIntCounter("oplogRecoveries", oplogRecoveriesDesc, "ops"),
          f.createLongCounter("oplogRecoveryTime", oplogRecoveryTimeDesc, "nanoseconds"),
@@ -155,6 +168,7 @@ public class DiskStoreStats {
          f.createIntGauge("writesInProgress", "current number of oplog writes that are in progress", "writes"),
          f.createIntGauge("flushesInProgress", "current number of oplog flushes that are in progress", "flushes"),
          f.createLongCounter("compactTime", "Total amount of time, in nanoseconds, spent compacting oplogs", "nanoseconds"),
+         f.createLongCounter("compactThrottleTime", "Total amount of time, in nanoseconds, compactions waited to stay within the disk store's compaction-max-bytes-per-second", "nanoseconds"),
          f.createIntCounter("compacts", "Total number of completed oplog compacts", "compacts"),
          f.createIntGauge("openOplogs", "Current number of oplogs this disk store has open", "oplogs"),
          f.createIntGauge("compactableOplogs", "Current number of oplogs ready to be compacted", "oplogs"),
@@ -184,11 +198,18 @@ public class DiskStoreStats {
     recoveredEntryDestroysId = type.nameToId("recoveredEntryDestroys");
     recoveredValuesSkippedDueToLRUId = type.nameToId("recoveredValuesSkippedDueToLRU");
     recoveryRecordsSkippedId = type.nameToId("recoveryRecordsSkipped");
+    initFileRecoveryTimeId = type.nameToId("initFileRecoveryTime");
+    drfRecoveryTimeId = type.nameToId("drfRecoveryTime");
+    crfRecoveryTimeId = type.nameToId("crfRecoveryTime");
+    regionInitRecoveryTimeId = type.nameToId("regionInitRecoveryTime");
+    krfPrefetchesId = type.nameToId("krfPrefetches");
+    krfPrefetchTimeId = type.nameToId("krfPrefetchTime");
 
     compactsInProgressId = type.nameToId("compactsInProgress");
     writesInProgressId = type.nameToId("writesInProgress");
     flushesInProgressId = type.nameToId("flushesInProgress");
     compactTimeId = type.nameToId("compactTime");
+    compactThrottleTimeId = type.nameToId("compactThrottleTime");
     compactsId = type.nameToId("compacts");
     oplogRecoveriesId = type.nameToId("oplogRecoveries");
     oplogRecoveryTimeId = type.nameToId("oplogRecoveryTime");
@@ -426,6 +447,14 @@ public class DiskStoreStats {
     this.stats.incLong(compactTimeId, end - start);
   }
 
+  public void incCompactionThrottleTime(long delta) {
+    this.stats.incLong(compactThrottleTimeId, delta);
+  }
+
+  public long getCompactionThrottleTime() {
+    return this.stats.getLong(compactThrottleTimeId);
+  }
+
   public void endOplogRead(long start, long bytesRead) {
     long end = DistributionStats.getStatTime();
     this.stats.incInt(oplogRecoveriesId, 1);
@@ -448,6 +477,44 @@ public class DiskStoreStats {
     this.stats.incLong(recoveredValuesSkippedDueToLRUId, 1);
   }
 
+  /**
+   * Invoked after the init file has been read during a recovery
+   *
+   * @param start
+   *        The time at which the init file recovery started
+   */
+  public void endInitFileRecovery(long start) {
+    this.stats.incLong(initFileRecoveryTimeId, getStatTime() - start);
+  }
+  public void endDrfRecovery(long start) {
+    this.stats.incLong(drfRecoveryTimeId, getStatTime() - start);
+  }
+  public void endCrfRecovery(long start) {
+    this.stats.incLong(crfRecoveryTimeId, getStatTime() - start);
+  }
+  public void endRegionInitRecovery(long start) {
+    this.stats.incLong(regionInitRecoveryTimeId, getStatTime() - start);
+  }
+  public void endKrfPrefetch(long start) {
+    this.stats.incLong(krfPrefetchesId, 1);
+    this.stats.incLong(krfPrefetchTimeId, getStatTime() - start);
+  }
+  public long getInitFileRecoveryTime() {
+    return this.stats.getLong(initFileRecoveryTimeId);
+  }
+  public long getDrfRecoveryTime() {
+    return this.stats.getLong(drfRecoveryTimeId);
+  }
+  public long getCrfRecoveryTime() {
+    return this.stats.getLong(crfRecoveryTimeId);
+  }
+  public long getRegionInitRecoveryTime() {
+    return this.stats.getLong(regionInitRecoveryTimeId);
+  }
+  public long getKrfPrefetches() {
+    return this.stats.getLong(krfPrefetchesId);
+  }
+
   /**
    * Invoked before data is removed from disk.
    *
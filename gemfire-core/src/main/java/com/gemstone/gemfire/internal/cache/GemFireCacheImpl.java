@@ -122,8 +122,10 @@ import com.gemstone.gemfire.cache.hdfs.internal.HDFSStoreCreation;
 import com.gemstone.gemfire.cache.hdfs.internal.HDFSStoreFactoryImpl;
 import com.gemstone.gemfire.cache.hdfs.internal.HDFSStoreImpl;
 import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSFlushQueueFunction;
+import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSExportFunction;
 import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSForceCompactionFunction;
 import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSLastCompactionTimeFunction;
+import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSRangeScanFunction;
 import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSRegionDirector;
 import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSStoreDirector;
 import com.gemstone.gemfire.cache.lucene.LuceneService;
@@ -890,6 +892,8 @@ public class GemFireCacheImpl implements InternalCache, ClientCache, HasCachePer
       FunctionService.registerFunction(new PRContainsValueFunction());
       FunctionService.registerFunction(new HDFSLastCompactionTimeFunction());
       FunctionService.registerFunction(new HDFSForceCompactionFunction());
+      FunctionService.registerFunction(new HDFSRangeScanFunction());
+      FunctionService.registerFunction(new HDFSExportFunction());
       FunctionService.registerFunction(new HDFSFlushQueueFunction());
       this.expirationScheduler = new ExpirationScheduler(this.system);
 
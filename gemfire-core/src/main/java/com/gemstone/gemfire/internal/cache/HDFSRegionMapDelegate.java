@@ -499,6 +499,20 @@ public class HDFSRegionMapDelegate {
     return value;
   }
 
+  /**
+   * Returns an iterator over the raw events of this bucket between the given
+   * serialized keys, or null if the HDFS queue is not available yet.
+   * 
+   * @see HDFSEntriesSet#iterator(byte[], byte[])
+   */
+  public HDFSIterator rangeIterator(byte[] from, byte[] to)
+      throws ForceReattemptException {
+    ConcurrentParallelGatewaySenderQueue q = getHDFSQueue();
+    if (q == null) return null;
+    HDFSBucketRegionQueue brq = q.getBucketRegionQueue(this.owner.getPartitionedRegion(), owner.getId());
+    return new HDFSEntriesSet(owner, brq, owner.getHoplogOrganizer(), null, null).iterator(from, to);
+  }
+
   private Set createEntriesSet(IteratorType type)
       throws ForceReattemptException {
     ConcurrentParallelGatewaySenderQueue q = getHDFSQueue();
@@ -0,0 +1,95 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket that limits the rate at which bytes are written to disk.
+ * The bucket fills at the configured rate and holds at most one second of
+ * writes, so an idle writer can burst for up to one second. A thread that
+ * takes more bytes than are available is delayed until the bucket has
+ * refilled enough to cover them. One limiter can be shared by several
+ * threads so that together they stay within the rate.
+ *
+ * @since 9.0
+ */
+public class IORateLimiter {
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  /** the maximum rate; zero or less if writes are not limited */
+  private volatile long bytesPerSecond;
+
+  /** the bytes that can be written without waiting; negative if in debt */
+  private double available;
+
+  /** the time, in nanoseconds, the bucket was last refilled */
+  private long lastRefill;
+
+  public IORateLimiter(long bytesPerSecond) {
+    setBytesPerSecond(bytesPerSecond);
+  }
+
+  public long getBytesPerSecond() {
+    return this.bytesPerSecond;
+  }
+
+  /**
+   * Changes the rate of this limiter. The bucket starts out empty at the new
+   * rate.
+   *
+   * @param bytesPerSecond the maximum rate; 0 if writes are not limited
+   */
+  public synchronized void setBytesPerSecond(long bytesPerSecond) {
+    this.bytesPerSecond = bytesPerSecond;
+    this.available = 0;
+    this.lastRefill = System.nanoTime();
+  }
+
+  /**
+   * Takes bytes from the bucket, waiting if the bytes are not yet available.
+   *
+   * @param bytes the number of bytes about to be written
+   * @return the number of nanoseconds the calling thread waited
+   */
+  public long acquire(long bytes) {
+    long delay = reserve(bytes);
+    if (delay <= 0) {
+      return 0;
+    }
+    long start = System.nanoTime();
+    try {
+      TimeUnit.NANOSECONDS.sleep(delay);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * Takes bytes from the bucket and returns how long the caller needs to
+   * wait before using them.
+   */
+  private synchronized long reserve(long bytes) {
+    long rate = this.bytesPerSecond;
+    if (rate <= 0 || bytes <= 0) {
+      return 0;
+    }
+    long now = System.nanoTime();
+    long elapsed = now - this.lastRefill;
+    if (elapsed > 0) {
+      this.available = Math.min(rate, this.available + elapsed * rate / NANOS_PER_SECOND);
+      this.lastRefill = now;
+    }
+    this.available -= bytes;
+    if (this.available >= 0) {
+      return 0;
+    }
+    return (long) (-this.available * NANOS_PER_SECOND / rate);
+  }
+}
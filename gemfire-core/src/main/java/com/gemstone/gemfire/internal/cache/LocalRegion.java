@@ -2893,6 +2893,13 @@ public class LocalRegion extends AbstractRegion
             if (this instanceof BucketRegion) {
               this.indexManager.removeBucketIndexes(getPartitionedRegion());
             }
+            Operation op = event.getOperation();
+            if (op == Operation.REGION_CLOSE || op == Operation.CACHE_CLOSE) {
+              // persistent regions keep their indexes for the next recovery
+              this.indexManager.saveIndexes();
+            } else if (!isClose) {
+              this.indexManager.deleteSavedIndexes();
+            }
             this.indexManager.destroy();
           }
           catch (QueryException e) {
@@ -10272,6 +10279,31 @@ public class LocalRegion extends AbstractRegion
     }
   }
 
+  /**
+   * Called when importing a snapshot to remove the entries that were
+   * destroyed since the base snapshot was created.
+   * @param keys the keys of the destroyed entries
+   * @param skipCallbacks true if callbacks should not be invoked
+   */
+  public VersionedObjectList basicImportRemoveAll(Collection<Object> keys, boolean skipCallbacks) {
+    long startOp = CachePerfStats.getStatTime();
+
+    EntryEventImpl event = EntryEventImpl.create(this, Operation.REMOVEALL_DESTROY,
+        null, null, null, true, getMyId(), !skipCallbacks);
+    try {
+    DistributedRemoveAllOperation removeAllOp = new DistributedRemoveAllOperation(event, keys.size(), false);
+    try {
+    VersionedObjectList result = basicRemoveAll(keys, removeAllOp, null);
+    getCachePerfStats().endRemoveAll(startOp);
+    return result;
+    } finally {
+      removeAllOp.freeOffHeapResources();
+    }
+    } finally {
+      event.release();
+    }
+  }
+
   @Override
   public final void putAll(Map map, Object callbackArg) {
     long startPut = CachePerfStats.getStatTime();
@@ -12960,6 +12992,12 @@ public class LocalRegion extends AbstractRegion
     throw new UnsupportedOperationException();
   }
 
+  public Map<Object, Object> scan(Object fromKey, Object toKey, int limit) {
+    throw new UnsupportedOperationException(
+        LocalizedStrings.HOPLOG_DOES_NOT_USE_HDFSSTORE
+            .toLocalizedString(getName()));
+  }
+
   public static void simulateClearForTests(boolean flag) {
     simulateClearForTests = flag;
     
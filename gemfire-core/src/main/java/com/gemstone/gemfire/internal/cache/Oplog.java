@@ -14,6 +14,7 @@ import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.BufferedOutputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
@@ -25,6 +26,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.SyncFailedException;
 import java.nio.ByteBuffer;
@@ -40,8 +42,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -76,6 +82,7 @@ import com.gemstone.gemfire.internal.Version;
 import com.gemstone.gemfire.internal.cache.DiskEntry.Helper.Flushable;
 import com.gemstone.gemfire.internal.cache.DiskEntry.Helper.ValueWrapper;
 import com.gemstone.gemfire.internal.cache.DiskInitFile.DiskRegionFlag;
+import com.gemstone.gemfire.internal.cache.DiskStoreImpl.CompactionBatch;
 import com.gemstone.gemfire.internal.cache.DiskStoreImpl.OplogCompactor;
 import com.gemstone.gemfire.internal.cache.DiskStoreImpl.OplogEntryIdSet;
 import com.gemstone.gemfire.internal.cache.DistributedRegion.DiskPosition;
@@ -213,6 +220,11 @@ public final class Oplog implements CompactableOplog, Flushable {
    * Set to true after the first crf recovery.
    */
   private boolean haveRecoveredCrf = true;
+  /**
+   * The contents of the krf file if it is being read ahead of the crf
+   * recovery by a recovery thread.
+   */
+  private volatile Future<byte[]> prefetchedKrf;
   private OpState opState;
 
   /** OPCODES - byte appended before being written to disk* */
@@ -1713,9 +1725,10 @@ public final class Oplog implements CompactableOplog, Flushable {
       return false;
     }
 
-    FileInputStream fis;
+    final byte[] krfBytes = takePrefetchedKrf();
+    InputStream fis;
     try {
-      fis = new FileInputStream(f);
+      fis = openKrf(f, krfBytes);
     } catch (FileNotFoundException ex) {
       return false;
     }
@@ -1746,7 +1759,7 @@ public final class Oplog implements CompactableOplog, Flushable {
           // beginning or this is not a valid file at all. Try reading it as a
           // file in old format
           fis.close();
-          fis = new FileInputStream(f);
+          fis = openKrf(f, krfBytes);
           dis = new DataInputStream(new BufferedInputStream(fis, 1024 * 1024));
           readDiskStoreRecord(dis, f);
         } catch (IllegalStateException notOldFileErr) {
@@ -1754,7 +1767,7 @@ public final class Oplog implements CompactableOplog, Flushable {
           // is in new format which has a magic seq in the beginning or this is
           // not a valid file at all
           fis.close();
-          fis = new FileInputStream(f);
+          fis = openKrf(f, krfBytes);
           dis = new DataInputStream(new BufferedInputStream(fis, 1024 * 1024));
           readDiskStoreRecord(dis, f);
         }
@@ -1891,6 +1904,95 @@ public final class Oplog implements CompactableOplog, Flushable {
     return true;
   }
 
+  /**
+   * Returns the krf {@link #recoverCrf} will read for this oplog, or null if
+   * the krf of this oplog can't be read ahead.
+   */
+  File getKrfToPrefetch() {
+    if (this.crf.f == null || !getParent().getDiskInitFile().hasKrf(this.oplogId)) {
+      return null;
+    }
+    // crf might not exist; but drf always will
+    return new File(this.drf.f.getParentFile(), oplogSet.getPrefix() + getParent().getName() + "_" + this.oplogId + KRF_FILE_EXT);
+  }
+
+  /**
+   * Returns the number of bytes {@link #prefetchKrf} would read into memory
+   * for the given krf, or 0 if there is no krf.
+   */
+  static long getKrfPrefetchSize(File krf) {
+    if (krf == null) {
+      return 0;
+    }
+    long length = krf.length();
+    return length > Integer.MAX_VALUE ? Long.MAX_VALUE : length;
+  }
+
+  /**
+   * Starts reading the krf of this oplog into memory using one of the
+   * recovery threads so that the recovery of this oplog does not have to
+   * wait on the disk. The krf is only read ahead; the recovered entries are
+   * still added to the regions by the recovering thread, in oplog order.
+   * 
+   * @param f the krf, from {@link #getKrfToPrefetch()}
+   * @param length the size of the krf, from {@link #getKrfPrefetchSize(File)}
+   */
+  void prefetchKrf(ExecutorService executor, final File f, final long length) {
+    this.prefetchedKrf = executor.submit(new Callable<byte[]>() {
+      public byte[] call() throws IOException {
+        long start = stats.getStatTime();
+        byte[] bytes = new byte[(int) length];
+        DataInputStream dis = new DataInputStream(new FileInputStream(f));
+        try {
+          dis.readFully(bytes);
+        } finally {
+          dis.close();
+        }
+        stats.endKrfPrefetch(start);
+        return bytes;
+      }
+    });
+  }
+
+  /**
+   * Discards the krf read ahead for this oplog, if any.
+   */
+  void clearPrefetchedKrf() {
+    this.prefetchedKrf = null;
+  }
+
+  /**
+   * Returns the krf read ahead for this oplog, or null if the krf was not
+   * read ahead or could not be read.
+   */
+  private byte[] takePrefetchedKrf() {
+    Future<byte[]> prefetched = this.prefetchedKrf;
+    if (prefetched == null) {
+      return null;
+    }
+    this.prefetchedKrf = null;
+    try {
+      return prefetched.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      // read the krf from disk instead so that the failure is reported
+      // against the file
+      if (logger.isDebugEnabled()) {
+        logger.debug("Unable to read ahead krf for oplogId={}", this.oplogId, e.getCause());
+      }
+      return null;
+    }
+  }
+
+  private InputStream openKrf(File f, byte[] krfBytes) throws FileNotFoundException {
+    if (krfBytes != null && f.exists()) {
+      return new ByteArrayInputStream(krfBytes);
+    }
+    return new FileInputStream(f);
+  }
+
   private void validateOpcode(DataInputStream dis, byte expect) throws IOException {
     byte opCode = dis.readByte();
     if (opCode != expect) {
@@ -5901,6 +6003,23 @@ public final class Oplog implements CompactableOplog, Flushable {
     return false;
   }
 
+  /**
+   * Returns the fraction of the records written to this oplog that are still
+   * live. Compacting the oplog with the lowest ratio frees the most space for
+   * the fewest bytes copied forward.
+   */
+  double getLiveRatio() {
+    long total = this.totalCount.get();
+    if (total <= 0) {
+      return 0;
+    }
+    long live = this.totalLiveCount.get();
+    if (live < 0) {
+      live = 0;
+    }
+    return (double) live / total;
+  }
+
   public boolean hadLiveEntries() {
     return this.totalCount.get() != 0;
   }
@@ -6060,16 +6179,38 @@ public final class Oplog implements CompactableOplog, Flushable {
     }
     isCompactorThread.set(Boolean.TRUE);
     assert calledByCompactorThread();
+    try {
+      CompactionBatch batch = new CompactionBatch();
+      do {
+        batch.paused = false;
+        compactBatch(compactor, batch);
+        // wait, if needed, after releasing the compactor locks
+        compactor.throttle(batch.bytes);
+        batch.bytes = 0;
+      } while (batch.paused);
+      return batch.count;
+    } finally {
+      assert calledByCompactorThread();
+      isCompactorThread.remove();
+    }
+  }
+
+  /**
+   * Copies live entries forward until none are left or, if compaction is
+   * throttled, until the batch is full. The compactor locks are held for the
+   * duration of one batch.
+   */
+  private void compactBatch(OplogCompactor compactor, CompactionBatch batch) {
     getParent().acquireCompactorReadLock();
     try {
       if (!compactor.keepCompactorRunning()) {
-        return 0;
+        return;
       }
       lockCompactor();
       try {
         if (hasNoLiveValues()) {
           handleNoLiveValues();
-          return 0; // do this while holding compactorLock
+          return; // do this while holding compactorLock
         }
 
         // Asif:Start with a fresh wrapper on every compaction so that
@@ -6083,13 +6224,15 @@ public final class Oplog implements CompactableOplog, Flushable {
         boolean compactFailed = /*
                                  * getParent().getOwner().isDestroyed ||
                                  */!compactor.keepCompactorRunning();
-        int totalCount = 0;
         for (DiskRegionInfo dri : this.regionMap.values()) {
+          if (batch.paused)
+            break;
           final DiskRegionView dr = dri.getDiskRegion();
           if (dr == null)
             continue;
           boolean didCompact = false;
-          while ((de = dri.getNextLiveEntry()) != null) {
+          int copiedBytes = 0;
+          while (!batch.paused && (de = dri.getNextLiveEntry()) != null) {
             if (/*
                  * getParent().getOwner().isDestroyed ||
                  */!compactor.keepCompactorRunning()) {
@@ -6124,6 +6267,8 @@ public final class Oplog implements CompactableOplog, Flushable {
                     }
                     continue;
                   }
+                  copiedBytes = wrapper.getDataChunk() != null ? wrapper.getDataChunk().getDataSize()
+                      : wrapper.getValidLength();
                   // write it to the current oplog
                   getOplogSet().getChild().copyForwardModifyForCompact(dr, de, wrapper);
                   // the did's oplogId will now be set to the current active oplog
@@ -6132,7 +6277,8 @@ public final class Oplog implements CompactableOplog, Flushable {
               } // did
             } // de
             if (didCompact) {
-              totalCount++;
+              batch.count++;
+              batch.bytes += copiedBytes;
               getStats().endCompactionUpdate(opStart);
               opStart = getStats().getStatTime();
               // Asif: Check if the value byte array happens to be any of the
@@ -6145,11 +6291,13 @@ public final class Oplog implements CompactableOplog, Flushable {
               if (!wrapper.isReusable()) {
                 wrapper = new BytesAndBitsForCompactor();
               }
+              // release the compactor locks before waiting on the rate limit
+              batch.paused = compactor.isBatchFull(batch.bytes);
             }
           }
         }
 
-        if (!compactFailed) {
+        if (!compactFailed && !batch.paused) {
           // Need to still remove the oplog even if it had nothing to compact.
           handleNoLiveValues();
 
@@ -6157,14 +6305,11 @@ public final class Oplog implements CompactableOplog, Flushable {
           // in which our liveEntries list is empty but the liveCount has not
           // yet been decremented.
         }
-        return totalCount;
       } finally {
         unlockCompactor();
       }
     } finally {
       getParent().releaseCompactorReadLock();
-      assert calledByCompactorThread();
-      isCompactorThread.remove();
     }
   }
 
@@ -28,6 +28,7 @@ import com.gemstone.gemfire.distributed.OplogCancelledException;
 import com.gemstone.gemfire.internal.Assert;
 import com.gemstone.gemfire.internal.cache.DiskEntry.Helper.Flushable;
 import com.gemstone.gemfire.internal.cache.DiskEntry.Helper.ValueWrapper;
+import com.gemstone.gemfire.internal.cache.DiskStoreImpl.CompactionBatch;
 import com.gemstone.gemfire.internal.cache.DiskStoreImpl.OplogCompactor;
 import com.gemstone.gemfire.internal.cache.Oplog.OplogDiskEntry;
 import com.gemstone.gemfire.internal.cache.persistence.BytesAndBits;
@@ -1327,13 +1328,33 @@ class OverflowOplog implements CompactableOplog, Flushable {
       return 0;
     }
     isCompactorThread.set(Boolean.TRUE);
+    try {
+      CompactionBatch batch = new CompactionBatch();
+      do {
+        batch.paused = false;
+        compactBatch(compactor, batch);
+        // wait, if needed, after releasing the compactor locks
+        compactor.throttle(batch.bytes);
+        batch.bytes = 0;
+      } while (batch.paused);
+      return batch.count;
+    } finally {
+      isCompactorThread.remove();
+    }
+  }
+
+  /**
+   * Copies live entries forward until none are left or, if compaction is
+   * throttled, until the batch is full.
+   */
+  private void compactBatch(OplogCompactor compactor, CompactionBatch batch) {
     getParent().acquireCompactorReadLock();
     try {
     lockCompactor();
     try {
       if (hasNoLiveValues()) {
         handleNoLiveValues();
-        return 0;
+        return;
       }
       //Asif:Start with a fresh wrapper on every compaction so that 
       //if previous run used some high memory byte array which was
@@ -1344,9 +1365,9 @@ class OverflowOplog implements CompactableOplog, Flushable {
       DiskEntry de;
       DiskEntry lastDe = null;
       boolean compactFailed = !compactor.keepCompactorRunning();
-      int totalCount = 0;
       boolean didCompact = false;
-      while ((de = getNextLiveEntry()) != null) {
+      int copiedBytes = 0;
+      while (!batch.paused && (de = getNextLiveEntry()) != null) {
         if (!compactor.keepCompactorRunning()) {
           compactFailed = true;
           break;
@@ -1400,11 +1421,13 @@ class OverflowOplog implements CompactableOplog, Flushable {
             getOplogSet().copyForwardForOverflowCompact(de, valueBytes, length, userBits);
             // the did's oplogId will now be set to the current active oplog
             didCompact = true;
+            copiedBytes = length;
           }
         } // did
         } // de
         if (didCompact) {
-          totalCount++;
+          batch.count++;
+          batch.bytes += copiedBytes;
           getStats().endCompactionUpdate(opStart);
           opStart = getStats().getStatTime();
           //Asif: Check if the value byte array happens to be any of the constant
@@ -1415,17 +1438,17 @@ class OverflowOplog implements CompactableOplog, Flushable {
           if (!wrapper.isReusable()) {
             wrapper = new BytesAndBitsForCompactor();
           }
+          // release the compactor locks before waiting on the rate limit
+          batch.paused = compactor.isBatchFull(batch.bytes);
         }
       }
     
-      if (!compactFailed) {
+      if (!compactFailed && !batch.paused) {
         // Need to still remove the oplog even if it had nothing to compact.
         handleNoLiveValues();
       }
-      return totalCount;
     } finally {
       unlockCompactor();
-      isCompactorThread.remove();
     } 
     } finally {
       getParent().releaseCompactorReadLock();
@@ -14,16 +14,18 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.logging.log4j.Logger;
 
@@ -34,15 +36,13 @@ import com.gemstone.gemfire.cache.query.QueryException;
 import com.gemstone.gemfire.cache.query.QueryInvocationTargetException;
 import com.gemstone.gemfire.cache.query.QueryService;
 import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.cache.query.internal.CompiledGroupBySelect;
 import com.gemstone.gemfire.cache.query.internal.CompiledSelect;
 import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
 import com.gemstone.gemfire.cache.query.internal.ExecutionContext;
-import com.gemstone.gemfire.cache.query.internal.IndexTrackingQueryObserver;
 import com.gemstone.gemfire.cache.query.internal.NWayMergeResults;
 import com.gemstone.gemfire.cache.query.internal.QueryExecutionContext;
 import com.gemstone.gemfire.cache.query.internal.QueryMonitor;
-import com.gemstone.gemfire.cache.query.internal.QueryObserver;
-import com.gemstone.gemfire.cache.query.internal.QueryObserverHolder;
 import com.gemstone.gemfire.cache.query.types.ObjectType;
 import com.gemstone.gemfire.internal.Assert;
 import com.gemstone.gemfire.internal.DataSerializableFixedID;
@@ -55,14 +55,15 @@ import com.gemstone.gemfire.internal.logging.LogService;
 
 /**
  * This class takes the responsibility of executing the query on a data store
- * for the buckets specified in bucketList. It contains a
- * <code>PRQueryExecutor</code> thread-pool executor that takes a
- * <code>Callable</code> task identified by <code>PartitionedRegion</code>,
- * queryString and bucketId.
+ * for the buckets specified in bucketList. When more than one thread is
+ * configured the buckets are queried in parallel on the
+ * <code>PRQueryExecutor</code> work-stealing pool.
  * 
- * The QueryTasks add results directly to a results queue.
- * The BucketQueryResult is used not only to indicate completion, and holds an exception if there one occurred while
- * processing a query.
+ * The BucketQueryTasks add the results of each bucket directly to the result
+ * collector. A query with a LIMIT that does not need the results of every
+ * bucket stops querying buckets once the limit is reached. The results of
+ * queries that need no merging on the data store can be streamed back bucket
+ * by bucket with {@link #executeQueryStreaming()}.
  *
  * @author rreja
  * @author Eric Zoerner
@@ -73,7 +74,17 @@ public class PRQueryProcessor
   
   final static int BUCKET_QUERY_TIMEOUT = 60;
   
-  public final static int NUM_THREADS  = Integer.getInteger("gemfire.PRQueryProcessor.numThreads", 1).intValue();
+  /**
+   * The number of threads that query the buckets of a data store in
+   * parallel. Defaults to the number of processors; set
+   * gemfire.PRQueryProcessor.numThreads to 1 to query the buckets one at a
+   * time in the calling thread.
+   */
+  public final static int NUM_THREADS  = Integer.getInteger("gemfire.PRQueryProcessor.numThreads",
+      Runtime.getRuntime().availableProcessors()).intValue();
+
+  /** marks the end of the results handed out by {@link StreamingResults} */
+  private static final Collection END_OF_RESULTS = new ArrayList(0);
 
   /* For Test purpose */
   public static int TEST_NUM_THREADS = 0;
@@ -93,6 +104,7 @@ public class PRQueryProcessor
       DefaultQuery query, Object[] parameters, List<Integer> buckets) {
     Assert.assertTrue(!buckets.isEmpty(), "bucket list can not be empty. ");
     this._prds = prDS;
+    this.pr = prDS.partitionedRegion;
     this._bucketsToQuery = buckets;
     ((GemFireCacheImpl)prDS.partitionedRegion.getCache()).getLocalQueryService();
     this.query = query;
@@ -133,90 +145,98 @@ public class PRQueryProcessor
       //((IndexTrackingQueryObserver)observer).setIndexInfo(resultCollector.getIndexInfoMap());
     //}
     
-    if (NUM_THREADS > 1 || this.TEST_NUM_THREADS > 1) {  
+    if (isParallel()) {  
       executeWithThreadPool(resultCollector);
     } else {
       executeSequentially(resultCollector, this._bucketsToQuery);
     }
     return this.resultType.isStructType();
   }
+
+  /**
+   * Returns true if the buckets are queried in parallel on the
+   * {@link PRQueryExecutor} pool.
+   */
+  private boolean isParallel() {
+    return (NUM_THREADS > 1 || TEST_NUM_THREADS > 1) && this._bucketsToQuery.size() > 1;
+  }
+
+  /**
+   * Returns true if the results of each bucket can be sent back as soon as the
+   * bucket has been queried. The buckets have to be queried in parallel and
+   * the results of the buckets must not need to be merged on this member.
+   */
+  public boolean canStreamResults() {
+    CompiledSelect cs = this.query.getSimpleSelect();
+    return isParallel() && cs != null && !cs.isOrderBy() && !cs.isGroupBy()
+        && !(cs instanceof CompiledGroupBySelect);
+  }
+
+  /**
+   * Starts querying the buckets in parallel and returns without waiting for
+   * the buckets to be queried. The results are handed out bucket by bucket by
+   * the returned {@link StreamingResults}.
+   * 
+   * @see #canStreamResults()
+   */
+  public StreamingResults executeQueryStreaming()
+    throws QueryException, InterruptedException {
+    if (Thread.interrupted()) throw new InterruptedException();
+    Assert.assertTrue(canStreamResults(), "query results can not be streamed");
+    ParallelExecution execution = new ParallelExecution(
+        new LinkedBlockingQueue<Collection>(), true);
+    StreamingResults results = new StreamingResults(execution);
+    PRQueryExecutor.getExecutorService().execute(
+        new BucketQueryTask(execution, 0, this._bucketsToQuery.size(), true));
+    return results;
+  }
   
   private void executeWithThreadPool(Collection<Collection> resultCollector)
     throws QueryException, InterruptedException, ForceReattemptException {
     if (Thread.interrupted()) throw new InterruptedException();
       
-    java.util.List callableTasks = buildCallableTaskList(resultCollector);
-    ExecutorService execService = PRQueryExecutor.getExecutorService();
-
-    boolean reattemptNeeded = false;
-    ForceReattemptException fre = null;
-    
-    if (callableTasks != null && !callableTasks.isEmpty()) {
-      List futures = null;
-      try {
-        futures = execService.invokeAll(callableTasks, 300, TimeUnit.SECONDS);
-      }
-      catch (RejectedExecutionException rejectedExecutionEx) {
-        //this._prds.partitionedRegion.checkReadiness();
-        throw rejectedExecutionEx;
-      }
-      
-      if (futures != null) {
-        Iterator itr = futures.iterator();
-        while (itr.hasNext() && !execService.isShutdown() && !execService.isTerminated()) {
-          //this._prds.partitionedRegion.checkReadiness();
-          Future fut = (Future)itr.next();
-          QueryTask.BucketQueryResult bqr = null;
-          
-          try {
-            bqr = (QueryTask.BucketQueryResult)fut.get(BUCKET_QUERY_TIMEOUT, TimeUnit.SECONDS);
-            //if (retry.booleanValue()) {
-            //  reattemptNeeded = true;
-              //fre = (ForceReattemptException)bqr.getException();
-            //} else {
-              bqr.handleAndThrowException(); // handles an exception if there was one,
-              //  otherwise, the results have already been added to the resultQueue
-            //}
-            if (bqr.retry) {
-              reattemptNeeded = true;
-            }
-            
-          } catch (TimeoutException e) {
+    ForkJoinPool execService = PRQueryExecutor.getExecutorService();
+    ParallelExecution execution = new ParallelExecution(resultCollector, false);
+    ForkJoinTask<Void> task = execService.submit(
+        new BucketQueryTask(execution, 0, this._bucketsToQuery.size(), true));
+    try {
+      // each bucket gets BUCKET_QUERY_TIMEOUT seconds; the query only times
+      // out if no bucket finishes in that time
+      int finished = execution.getFinishedBuckets();
+      for (;;) {
+        try {
+          task.get(BUCKET_QUERY_TIMEOUT, TimeUnit.SECONDS);
+          break;
+        } catch (TimeoutException e) {
+          int nowFinished = execution.getFinishedBuckets();
+          if (nowFinished == finished) {
+            execution.cancel();
             throw new InternalGemFireException(LocalizedStrings.PRQueryProcessor_TIMED_OUT_WHILE_EXECUTING_QUERY_TIME_EXCEEDED_0.toLocalizedString(
                 Integer.valueOf(BUCKET_QUERY_TIMEOUT)), e);
-          } catch (ExecutionException ee) {
-            Throwable cause = ee.getCause();
-            if (cause instanceof QueryException) {
-              throw (QueryException)cause;
-            }
-            else {
-              throw new InternalGemFireException(LocalizedStrings.PRQueryProcessor_GOT_UNEXPECTED_EXCEPTION_WHILE_EXECUTING_QUERY_ON_PARTITIONED_REGION_BUCKET.toLocalizedString(), 
-              cause);
-            }
           }
-        }
-        
-        CompiledSelect cs = this.query.getSimpleSelect();
-       
-        if(cs != null && (cs.isOrderBy() || cs.isGroupBy())) {      
-          ExecutionContext context = new QueryExecutionContext(this.parameters, pr.getCache());
-          int limit = this.query.getLimit(parameters);
-          Collection mergedResults =coalesceOrderedResults(resultCollector, context, cs, limit);
-          resultCollector.clear();
-          resultCollector.add(mergedResults);
+          finished = nowFinished;
         }
       }
+    } catch (ExecutionException ee) {
+      throw new InternalGemFireException(LocalizedStrings.PRQueryProcessor_GOT_UNEXPECTED_EXCEPTION_WHILE_EXECUTING_QUERY_ON_PARTITIONED_REGION_BUCKET.toLocalizedString(), 
+          ee.getCause());
+    } catch (InterruptedException e) {
+      execution.cancel();
+      throw e;
     }
-    
-    if (execService == null || execService.isShutdown()
-        || execService.isTerminated()) {
-      this._prds.partitionedRegion.checkReadiness();
+    if (execService.isShutdown()) {
+      this.pr.checkReadiness();
     }
-    
-    if (reattemptNeeded) {
-      throw fre;
+    execution.throwFailure();
+        
+    CompiledSelect cs = this.query.getSimpleSelect();
+    if(cs != null && cs.isOrderBy()) {      
+      ExecutionContext context = new QueryExecutionContext(this.parameters, pr.getCache());
+      int limit = this.query.getLimit(parameters);
+      Collection mergedResults =coalesceOrderedResults(resultCollector, context, cs, limit);
+      resultCollector.clear();
+      resultCollector.add(mergedResults);
     }
-    
   }
 
   /**
@@ -355,7 +375,7 @@ public class PRQueryProcessor
   }
   
   private Collection coalesceOrderedResults(Collection<Collection> results, 
-      ExecutionContext context, CompiledSelect cs, int limit) {
+      ExecutionContext context, CompiledSelect cs, int limit) throws QueryException {
     List<Collection> sortedResults = new ArrayList<Collection>(results.size());
     //TODO :Asif : Deal with UNDEFINED
     for(Object o : results) {
@@ -366,11 +386,15 @@ public class PRQueryProcessor
    
     NWayMergeResults mergedResults = new NWayMergeResults(sortedResults, cs.isDistinct(), limit, 
         cs.getOrderByAttrs(), context,cs.getElementTypeForOrderByQueries());
+    if (cs instanceof CompiledGroupBySelect) {
+      // send one row of partial aggregates per group instead of one per bucket
+      return ((CompiledGroupBySelect)cs).combineBucketResults(mergedResults, context);
+    }
     return mergedResults;
   
   }
 
-  private void executeQueryOnBuckets(Collection<Collection> resultCollector,
+  private SelectResults executeQueryOnBuckets(Collection<Collection> resultCollector,
       ExecutionContext context) throws ForceReattemptException,
       QueryInvocationTargetException, QueryException {
     // Check if QueryMonitor is enabled, if so add query to be monitored.
@@ -400,7 +424,7 @@ public class PRQueryProcessor
         //}
       }
       isIndexUsedForLocalQuery =((QueryExecutionContext)context).isIndexUsed();
-      
+      return (SelectResults) results;
     } catch (BucketMovedException bme) {
       if (logger.isDebugEnabled()) {
         logger.debug("Query targeted local bucket not found. {}", bme.getMessage(), bme);
@@ -422,16 +446,6 @@ public class PRQueryProcessor
     }
   }
 
-  private List buildCallableTaskList(Collection<Collection> resultsColl)
-  {
-    List callableTasks = new ArrayList();
-    for (Iterator itr = _bucketsToQuery.iterator(); itr.hasNext();) {
-      Integer bId = (Integer)itr.next();
-      callableTasks.add(new QueryTask(this.query, this.parameters, _prds, bId, resultsColl));
-    }
-    return callableTasks;
-  }
-  
   public boolean isIndexUsed() {
     return isIndexUsedForLocalQuery;
   }
@@ -447,15 +461,24 @@ public class PRQueryProcessor
   }
 
   /**
-   * A ThreadPool ( Fixed Size ) with an executor service to execute the query
-   * execution spread over buckets.
+   * A work-stealing pool that executes the query on the buckets in parallel.
    * 
    * @author rreja
    * 
    */
   static class PRQueryExecutor {
 
-    private static ExecutorService execService = null;
+    private static ForkJoinPool execService = null;
+
+    /** names the pool threads so that they can be told apart in thread dumps */
+    private static final ForkJoinPool.ForkJoinWorkerThreadFactory THREAD_FACTORY = new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+      @Override
+      public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("PRQueryProcessor Thread " + thread.getPoolIndex());
+        return thread;
+      }
+    };
 
     /**
      * Closes the executor service. This is called from
@@ -472,10 +495,8 @@ public class PRQueryProcessor
         execService.shutdownNow();
     }
 
-    static synchronized ExecutorService getExecutorService() {
-      if (execService == null) {
-        initializeExecutorService();
-      }
+    static synchronized ForkJoinPool getExecutorService() {
+      initializeExecutorService();
       assert execService != null;
       return execService;
     }
@@ -484,11 +505,261 @@ public class PRQueryProcessor
      * Creates the Executor Service.
      */
     static synchronized void initializeExecutorService() {
+      int numThreads = Math.max(1, TEST_NUM_THREADS > 1 ? TEST_NUM_THREADS : NUM_THREADS);
       if (execService == null || execService.isShutdown()
-          || execService.isTerminated()) {
-        int numThreads = (TEST_NUM_THREADS > 1 ? TEST_NUM_THREADS : NUM_THREADS);
-        execService = Executors.newFixedThreadPool(numThreads);
+          || execService.isTerminated()
+          || execService.getParallelism() != numThreads) {
+        if (execService != null) {
+          execService.shutdown();
+        }
+        execService = new ForkJoinPool(numThreads, THREAD_FACTORY, null, false);
+      }
+    }
+  }
+
+  /**
+   * The state shared by the tasks that query the buckets in parallel.
+   */
+  private final class ParallelExecution {
+    /** the collection the results of each bucket are added to */
+    private final Collection<Collection> resultCollector;
+    /**
+     * the results of each bucket, in the order of the buckets to query, or
+     * null if the results are streamed as the buckets finish
+     */
+    private final Collection[] bucketResults;
+    /** true if the results are being streamed */
+    private final boolean streaming;
+    /**
+     * the number of results after which the remaining buckets need not be
+     * queried, or -1 if all of the buckets have to be queried
+     */
+    private final int limit;
+    private final AtomicInteger numResults = new AtomicInteger();
+    /** the number of bucket tasks that have finished or been skipped */
+    private final AtomicInteger finishedBuckets = new AtomicInteger();
+    /** set by the first bucket query, which updates the index use stats */
+    private final AtomicBoolean indexUseStatsClaimed = new AtomicBoolean();
+    /** the first exception thrown by a bucket query */
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    private volatile boolean canceled;
+    /** the pdx read serialized setting of the thread that started the query */
+    private final boolean pdxReadSerialized = DefaultQuery.getPdxReadSerialized();
+
+    ParallelExecution(Collection<Collection> resultCollector, boolean streaming)
+        throws QueryException {
+      this.resultCollector = resultCollector;
+      this.streaming = streaming;
+      this.bucketResults = streaming ? null : new Collection[_bucketsToQuery.size()];
+      // The buckets can stop early only if every result counts towards the
+      // limit, that is, if the results do not need to be sorted, grouped,
+      // aggregated or made distinct.
+      CompiledSelect cs = query.getSimpleSelect();
+      int limit = -1;
+      if (cs != null && !cs.isOrderBy() && !cs.isGroupBy() && !cs.isDistinct()
+          && !cs.isCount() && !(cs instanceof CompiledGroupBySelect)) {
+        limit = query.getLimit(parameters);
+      }
+      this.limit = limit > 0 ? limit : -1;
+    }
+
+    /**
+     * Returns true if the remaining buckets need not be queried.
+     */
+    boolean isDone() {
+      return this.canceled || this.failure.get() != null
+          || (this.limit > 0 && this.numResults.get() >= this.limit);
+    }
+
+    void cancel() {
+      this.canceled = true;
+    }
+
+    int getFinishedBuckets() {
+      return this.finishedBuckets.get();
+    }
+
+    /**
+     * Returns true for the first bucket query only, so that the index uses
+     * are counted once for the query, whichever buckets are skipped.
+     */
+    boolean claimIndexUseStats() {
+      return this.indexUseStatsClaimed.compareAndSet(false, true);
+    }
+
+    void addResults(int index, Collection results) {
+      this.numResults.addAndGet(results.size());
+      if (this.streaming) {
+        this.resultCollector.add(results);
+      } else {
+        this.bucketResults[index] = results;
+      }
+    }
+
+    void fail(Throwable t) {
+      this.failure.compareAndSet(null, t);
+    }
+
+    /**
+     * Called once all of the bucket tasks have finished. Unless streaming,
+     * the results are collected in bucket order so that the results do not
+     * depend on which bucket finished first.
+     */
+    void complete() {
+      if (this.streaming) {
+        this.resultCollector.add(END_OF_RESULTS);
+        return;
+      }
+      synchronized (this.resultCollector) {
+        for (Collection results : this.bucketResults) {
+          if (results != null) {
+            this.resultCollector.add(results);
+          }
+        }
+      }
+    }
+
+    void throwFailure() throws QueryException, ForceReattemptException {
+      Throwable t = this.failure.get();
+      if (t == null) {
+        return;
+      }
+      if (t instanceof QueryException) {
+        throw (QueryException)t;
+      } else if (t instanceof ForceReattemptException) {
+        throw (ForceReattemptException)t;
+      } else if (t instanceof CacheRuntimeException) {
+        throw (CacheRuntimeException)t;
+      } else if (t instanceof Error) {
+        throw (Error)t;
       }
+      throw new InternalGemFireException(LocalizedStrings.PRQueryProcessor_GOT_UNEXPECTED_EXCEPTION_WHILE_EXECUTING_QUERY_ON_PARTITIONED_REGION_BUCKET.toLocalizedString(), 
+          t);
+    }
+  }
+
+  /**
+   * Queries a range of the buckets. The range is split in half until a single
+   * bucket is left so that idle pool threads can steal the other half.
+   */
+  @SuppressWarnings("synthetic-access")
+  private final class BucketQueryTask extends RecursiveAction {
+    private static final long serialVersionUID = 3447221402472316960L;
+    private final ParallelExecution execution;
+    private final int from;
+    private final int to;
+    private final boolean root;
+
+    BucketQueryTask(ParallelExecution execution, int from, int to, boolean root) {
+      this.execution = execution;
+      this.from = from;
+      this.to = to;
+      this.root = root;
+    }
+
+    @Override
+    protected void compute() {
+      try {
+        if (this.to - this.from == 1) {
+          queryBucket(this.from);
+        } else {
+          int mid = (this.from + this.to) >>> 1;
+          invokeAll(new BucketQueryTask(this.execution, this.from, mid, false),
+              new BucketQueryTask(this.execution, mid, this.to, false));
+        }
+      } finally {
+        if (this.root) {
+          this.execution.complete();
+        }
+      }
+    }
+
+    private void queryBucket(int index) {
+      try {
+        if (!this.execution.isDone()) {
+          doQueryBucket(index);
+        }
+      } finally {
+        this.execution.finishedBuckets.incrementAndGet();
+      }
+    }
+
+    private void doQueryBucket(int index) {
+      boolean pdxReadSerialized = DefaultQuery.getPdxReadSerialized();
+      DefaultQuery.setPdxReadSerialized(this.execution.pdxReadSerialized);
+      try {
+        List<Integer> bucketList = Collections.singletonList(_bucketsToQuery.get(index));
+        ExecutionContext context = new QueryExecutionContext(parameters, pr.getCache(), query);
+        context.setBucketList(bucketList);
+        // the index uses are counted once for the query, not once per bucket
+        context.setUpdateIndexUseStats(this.execution.claimIndexUseStats());
+        SelectResults results = executeQueryOnBuckets(
+            new ArrayList<Collection>(1), context);
+        this.execution.addResults(index, results);
+      } catch (ForceReattemptException fre) {
+        this.execution.fail(fre);
+      } catch (QueryException e) {
+        this.execution.fail(e);
+      } catch (RuntimeException re) {
+        this.execution.fail(re);
+      } catch (Error err) {
+        this.execution.fail(err);
+        throw err;
+      } finally {
+        DefaultQuery.setPdxReadSerialized(pdxReadSerialized);
+      }
+    }
+  }
+
+  /**
+   * The results of a query whose buckets are queried in parallel, handed out
+   * bucket by bucket as the buckets finish.
+   */
+  public final class StreamingResults {
+    private final ParallelExecution execution;
+    private final LinkedBlockingQueue<Collection> queue;
+    private boolean done;
+
+    @SuppressWarnings("synthetic-access")
+    StreamingResults(ParallelExecution execution) {
+      this.execution = execution;
+      this.queue = (LinkedBlockingQueue<Collection>) execution.resultCollector;
+    }
+
+    /**
+     * Returns the results of the next bucket to finish, waiting for it if
+     * needed.
+     * 
+     * @return the results, or null if all of the buckets have been queried
+     * @throws QueryException if querying a bucket failed
+     * @throws ForceReattemptException if a bucket moved
+     */
+    @SuppressWarnings("synthetic-access")
+    public Collection next() throws QueryException, ForceReattemptException,
+        InterruptedException {
+      if (this.done) {
+        return null;
+      }
+      Collection results = this.queue.poll(BUCKET_QUERY_TIMEOUT, TimeUnit.SECONDS);
+      if (results == null) {
+        this.execution.cancel();
+        throw new InternalGemFireException(LocalizedStrings.PRQueryProcessor_TIMED_OUT_WHILE_EXECUTING_QUERY_TIME_EXCEEDED_0.toLocalizedString(
+            Integer.valueOf(BUCKET_QUERY_TIMEOUT)));
+      }
+      if (results == END_OF_RESULTS) {
+        this.done = true;
+        this.execution.throwFailure();
+        return null;
+      }
+      return results;
+    }
+
+    /**
+     * Stops querying the buckets that have not been queried yet.
+     */
+    @SuppressWarnings("synthetic-access")
+    public void close() {
+      this.execution.cancel();
     }
   }
   
@@ -536,115 +807,4 @@ public class PRQueryProcessor
       return null;
     }    
   }
-  
-  /**
-   * Implementation of call-able task to execute query on a bucket region. This
-   * task will be generated by the PRQueryProcessor.
-   * 
-   * @author rreja
-   */
-  @SuppressWarnings("synthetic-access")
-  private final class QueryTask implements Callable {
-    private final DefaultQuery query;
-    private final Object[] parameters;
-    private final PartitionedRegionDataStore _prDs;
-    private final Integer _bucketId;
-    private final Collection<Collection> resultColl;
-    
-    public QueryTask(DefaultQuery query, Object[] parameters, PartitionedRegionDataStore prDS, 
-        Integer bucketId, final Collection<Collection> rColl) {
-      this.query = query;
-      this._prDs = prDS;
-      this._bucketId = bucketId;
-      this.resultColl = rColl;
-      this.parameters = parameters;
-    }
-    
-    public Object call() throws Exception {
-      BucketQueryResult bukResult = new BucketQueryResult(this._bucketId);
-      boolean retry = false;
-      try {
-        //Add indexInfo of this thread to result collector
-        QueryObserver observer = QueryObserverHolder.getInstance();
-        if (observer != null && observer instanceof IndexTrackingQueryObserver) {
-          //((IndexTrackingQueryObserver)observer).setIndexInfo(resultColl.getIndexInfoMap());
-        }
-        
-        final Integer bId = Integer.valueOf(this._bucketId);
-        List<Integer> bucketList = Collections.singletonList(bId);       
-        ExecutionContext context = new QueryExecutionContext(this.parameters, pr.getCache(), this.query);
-        context.setBucketList(bucketList);
-        executeQueryOnBuckets(this.resultColl, context);
-        //executeSequentially(this.resultColl, bucketList);
-        // success
-        //doBucketQuery(bId, this._prDs, this.query, this.parameters, this.resultColl);
-      } catch (ForceReattemptException fre) {
-        bukResult.setException(fre);
-      } catch (QueryException e) {
-        bukResult.setException(e);
-      } catch (CacheRuntimeException cre) {
-        bukResult.setException(cre);
-      }
-      // Exception
-      return bukResult;
-    }
-    
-    /**
-      * Encapsulates the result for the query on the bucket.
-     * 
-     * @author rreja
-     */
-    private final class BucketQueryResult {
-      
-      private int _buk;
-      private Exception _ex = null;
-      public boolean retry = false;
-      
-      /**
-        * Constructor
-       * 
-       * @param bukId
-       */
-      public BucketQueryResult(int bukId) {
-        this._buk = bukId;
-      }
-      
-      public Exception getException()
-      {
-        return _ex;
-      }
-      
-      public boolean exceptionOccured()
-      {
-        return _ex != null;
-      }
-      
-      public void setException(Exception e)
-      {
-        this._ex = e;
-      }
-      
-      public Integer getBucketId()
-      {
-        return Integer.valueOf(this._buk);
-      }
-      
-      public boolean isReattemptNeeded() {
-        return this._ex instanceof ForceReattemptException;
-      }
-      
-      public void handleAndThrowException() throws QueryException
-      {
-        if (_ex != null) {
-          if (_ex instanceof QueryException) {
-            throw (QueryException)_ex;
-          }
-          else if (_ex instanceof CacheRuntimeException) {
-            throw (CacheRuntimeException)_ex;
-          }
-        }
-      }
-    }  
-  }
 }
-
@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +47,7 @@ import org.apache.logging.log4j.Logger;
 
 import com.gemstone.gemfire.CancelException;
 import com.gemstone.gemfire.InternalGemFireException;
+import com.gemstone.gemfire.SerializationException;
 import com.gemstone.gemfire.StatisticsFactory;
 import com.gemstone.gemfire.SystemFailure;
 import com.gemstone.gemfire.cache.AttributesFactory;
@@ -94,13 +96,18 @@ import com.gemstone.gemfire.cache.execute.FunctionService;
 import com.gemstone.gemfire.cache.execute.ResultCollector;
 import com.gemstone.gemfire.cache.hdfs.internal.HDFSEntriesSet.HDFSIterator;
 import com.gemstone.gemfire.cache.hdfs.internal.HDFSStoreFactoryImpl;
+import com.gemstone.gemfire.cache.hdfs.internal.HDFSStoreImpl;
 import com.gemstone.gemfire.cache.hdfs.internal.hoplog.CompactionStatus;
 import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSFlushQueueFunction;
+import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSExportFunction;
 import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSForceCompactionArgs;
 import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSForceCompactionFunction;
 import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSForceCompactionResultCollector;
 import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSLastCompactionTimeFunction;
+import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSRangeScanFunction;
+import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSRangeScanResultCollector;
 import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSRegionDirector;
+import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSStoreDirector;
 import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HoplogOrganizer;
 import com.gemstone.gemfire.cache.partition.PartitionListener;
 import com.gemstone.gemfire.cache.partition.PartitionNotAvailableException;
@@ -231,6 +238,7 @@ import com.gemstone.gemfire.internal.cache.persistence.PRPersistentConfig;
 import com.gemstone.gemfire.internal.cache.persistence.query.CloseableIterator;
 import com.gemstone.gemfire.internal.cache.tier.InterestType;
 import com.gemstone.gemfire.internal.cache.tier.sockets.BaseCommand;
+import com.gemstone.gemfire.internal.cache.tier.sockets.CacheServerHelper;
 import com.gemstone.gemfire.internal.cache.tier.sockets.ClientProxyMembershipID;
 import com.gemstone.gemfire.internal.cache.tier.sockets.ServerConnection;
 import com.gemstone.gemfire.internal.cache.tier.sockets.VersionedObjectList;
@@ -9428,6 +9436,9 @@ public class PartitionedRegion extends LocalRegion implements
       HashMap<String, Exception> exceptionsMap) {
     boolean throwException = false;
     if (getDataStore() != null && indexes.size() > 0) {
+      // the buckets are populated in parallel, each with one pass over its
+      // entries for all the indexes
+      Map<IndexManager, Collection<Index>> bucketIndexSets = new LinkedHashMap<IndexManager, Collection<Index>>();
       Set localBuckets = getDataStore().getAllLocalBuckets();
       Iterator it = localBuckets.iterator();
       while (it.hasNext()) {
@@ -9439,12 +9450,13 @@ public class PartitionedRegion extends LocalRegion implements
         }
         IndexManager bucketIndexManager = IndexUtils.getIndexManager(bucket, true);
         Set<Index> bucketIndexes = getBucketIndexesForPRIndexes(bucket, indexes);
-        try {
-          bucketIndexManager.populateIndexes(bucketIndexes);
-        } catch (MultiIndexCreationException ex) {
-          exceptionsMap.putAll(ex.getExceptionsMap());
-          throwException = true;
-        }
+        bucketIndexSets.put(bucketIndexManager, bucketIndexes);
+      }
+      try {
+        IndexManager.populateIndexesInParallel(bucketIndexSets);
+      } catch (MultiIndexCreationException ex) {
+        exceptionsMap.putAll(ex.getExceptionsMap());
+        throwException = true;
       }
     }
     return throwException;
@@ -11372,6 +11384,166 @@ public class PartitionedRegion extends LocalRegion implements
     return min;
   }
 
+  /**
+   * Returns the entries of an HDFS read/write region whose keys fall between
+   * the given keys, ordered by key. The scan runs on the primary of every
+   * bucket and reads the HDFS queue and the sorted hoplogs in key order, so
+   * only the requested entries are read. Destroyed entries are skipped.
+   * <p>
+   * Keys are compared by their serialized form, which is their natural order
+   * only for non-negative integral keys of one type, so the start and end keys
+   * must be non-negative Bytes, Shorts, Integers or Longs of the same type.
+   * Every member returns at most <code>limit</code> entries, so the scan does
+   * not read the whole region into memory; scan the next page from the last
+   * key returned plus one.
+   * 
+   * @param fromKey
+   *          the inclusive start key, or null to start at the first key
+   * @param toKey
+   *          the exclusive end key, or null to end at the last key
+   * @param limit
+   *          the maximum number of entries to return, must be positive
+   * @return the entries in key order
+   * @throws IllegalArgumentException
+   *           if the limit is not positive or the serialized order of the
+   *           keys is not their natural order
+   */
+  @Override
+  public Map<Object, Object> scan(Object fromKey, Object toKey, int limit) {
+    if (!this.isHDFSReadWriteRegion()) {
+      if (this.isHDFSRegion()) {
+        throw new UnsupportedOperationException(
+            LocalizedStrings.HOPLOG_CONFIGURED_AS_WRITEONLY
+                .toLocalizedString(getName()));
+      }
+      throw new UnsupportedOperationException(
+          LocalizedStrings.HOPLOG_DOES_NOT_USE_HDFSSTORE
+              .toLocalizedString(getName()));
+    }
+    if (limit <= 0) {
+      throw new IllegalArgumentException("limit must be positive: " + limit);
+    }
+    checkScanKey(fromKey);
+    checkScanKey(toKey);
+    if (fromKey != null && toKey != null && fromKey.getClass() != toKey.getClass()) {
+      throw new IllegalArgumentException("start key " + fromKey + " and end key "
+          + toKey + " are not of the same type");
+    }
+    Object args = HDFSRangeScanFunction.createArgs(serializeScanKey(fromKey),
+        serializeScanKey(toKey), limit);
+    List<Object[]> merged = (List<Object[]>) FunctionService.onRegion(this)
+        .withArgs(args)
+        .withCollector(new HDFSRangeScanResultCollector(limit))
+        .execute(HDFSRangeScanFunction.ID)
+        .getResult();
+    if (logger.isDebugEnabled()) {
+      logger.debug("HDFS: range scan returned " + merged.size() + " entries");
+    }
+    Map<Object, Object> entries = new LinkedHashMap<Object, Object>();
+    for (Object[] entry : merged) {
+      entries.put(EntryEventImpl.deserialize((byte[]) entry[0]), entry[1]);
+    }
+    return entries;
+  }
+
+  /**
+   * Throws IllegalArgumentException unless the serialized order of keys of the
+   * type of the given one is their natural order.
+   */
+  private static void checkScanKey(Object key) {
+    if (key == null) {
+      return;
+    }
+    if (!(key instanceof Byte || key instanceof Short || key instanceof Integer
+        || key instanceof Long)) {
+      throw new IllegalArgumentException("keys of type " + key.getClass().getName()
+          + " are not serialized in their natural order: " + key);
+    }
+    if (((Number) key).longValue() < 0) {
+      throw new IllegalArgumentException(
+          "negative keys are not serialized in their natural order: " + key);
+    }
+  }
+
+  private byte[] serializeScanKey(Object key) {
+    if (key == null) {
+      return null;
+    }
+    try {
+      // serialized the same way as the keys of the HDFS events
+      return CacheServerHelper.serialize(key);
+    } catch (IOException e) {
+      throw new SerializationException(e.getLocalizedMessage(), e);
+    }
+  }
+
+  /**
+   * Exports the data of this region to an HDFS store. The primary of every
+   * bucket writes the bucket's entries into a new sorted hoplog in the store,
+   * all buckets in parallel, without going through the HDFS event queue. Each
+   * export is a full copy; when the region is exported to the same store
+   * again, readers of the store see the entries of the latest export first.
+   * If some bucket could not be exported, the hoplogs written for the other
+   * buckets are deleted, so the export can be retried without duplicating
+   * their entries.
+   * 
+   * @param storeName
+   *          name of the HDFS store to write the hoplogs to, it can not be the
+   *          store used by this region
+   * @return the number of entries exported
+   */
+  public long exportToHDFS(String storeName) {
+    if (storeName.equals(getHDFSStoreName())) {
+      throw new IllegalArgumentException(
+          LocalizedStrings.HOPLOG_CANNOT_EXPORT_REGION_0_TO_ITS_OWN_HDFS_STORE_1
+              .toLocalizedString(new Object[] { getName(), storeName }));
+    }
+    HDFSStoreImpl store = HDFSStoreDirector.getInstance().getHDFSStore(storeName);
+    if (store == null) {
+      throw new IllegalArgumentException(
+          LocalizedStrings.HOPLOG_HDFS_STORE_NOT_FOUND.toLocalizedString(storeName));
+    }
+    long timestamp = System.currentTimeMillis();
+    Object args = HDFSExportFunction.createArgs(storeName, timestamp);
+    boolean exported = false;
+    try {
+      List<Map<Integer, Integer>> result = (List<Map<Integer, Integer>>) FunctionService.onRegion(this)
+          .withArgs(args)
+          .execute(HDFSExportFunction.ID)
+          .getResult();
+
+      long count = 0;
+      Set<Integer> failedBuckets = new HashSet<Integer>(getRegionAdvisor().getBucketSet());
+      for (Map<Integer, Integer> memberResult : result) {
+        for (Map.Entry<Integer, Integer> bucket : memberResult.entrySet()) {
+          if (failedBuckets.remove(bucket.getKey())) {
+            count += bucket.getValue();
+          }
+        }
+      }
+      if (logger.isDebugEnabled()) {
+        logger.debug("HDFS: exported " + count + " entries of " + getFullPath() + " to " + storeName);
+      }
+      if (!failedBuckets.isEmpty()) {
+        checkReadiness();
+        throw new FunctionException("Could not export following buckets:" + failedBuckets);
+      }
+      exported = true;
+      return count;
+    } finally {
+      if (!exported) {
+        try {
+          HDFSExportFunction.deleteExport(store, getFullPath(),
+              getTotalNumberOfBuckets(), timestamp);
+        } catch (IOException e) {
+          logger.warn(LocalizedMessage.create(
+              LocalizedStrings.HOPLOG_FAILED_TO_DELETE_PARTIAL_EXPORT_OF_REGION_0_TO_1,
+              new Object[] { getFullPath(), storeName }), e);
+        }
+      }
+    }
+  }
+
   public long lastLocalMajorHDFSCompaction() {
     if (!isDataStore() || hdfsManager == null) {
       // nothing to do
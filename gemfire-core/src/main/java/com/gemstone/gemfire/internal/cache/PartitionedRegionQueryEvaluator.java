@@ -11,6 +11,7 @@ package com.gemstone.gemfire.internal.cache;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -21,6 +22,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
@@ -141,6 +143,7 @@ public class PartitionedRegionQueryEvaluator extends StreamingPartitionOperation
    */
   public static class MemberResultsList extends ArrayList {
     private boolean isLastChunkReceived = false;
+    private boolean isInSequence = true;
     
     public boolean isLastChunkReceived() {
       return isLastChunkReceived;
@@ -149,6 +152,79 @@ public class PartitionedRegionQueryEvaluator extends StreamingPartitionOperation
     public void setLastChunkReceived(boolean isLastChunkReceived) {
       this.isLastChunkReceived = isLastChunkReceived;
     }
+
+    /**
+     * Adds a chunk of results, noting whether the chunks are being added in
+     * the order in which the member sent them.
+     */
+    public void addChunk(List chunk, int sequenceNum) {
+      if (sequenceNum != size()) {
+        this.isInSequence = false;
+      }
+      add(chunk);
+    }
+
+    /**
+     * Returns true if the chunks were added in the order in which they were
+     * sent.
+     */
+    public boolean isInSequence() {
+      return this.isInSequence;
+    }
+  }
+
+  /**
+   * The chunks of ordered results sent by a member, read one after the other
+   * as a single sorted stream.
+   * @since 9.0
+   */
+  static class MemberSortedResults extends AbstractCollection {
+    private final Collection<Collection> chunks;
+
+    MemberSortedResults(Collection<Collection> chunks) {
+      this.chunks = chunks;
+    }
+
+    @Override
+    public int size() {
+      int size = 0;
+      for (Collection chunk : this.chunks) {
+        size += chunk.size();
+      }
+      return size;
+    }
+
+    @Override
+    public Iterator iterator() {
+      final Iterator<Collection> chunkIter = this.chunks.iterator();
+      return new Iterator() {
+        private Iterator current = Collections.emptyList().iterator();
+
+        @Override
+        public boolean hasNext() {
+          while (!this.current.hasNext()) {
+            if (!chunkIter.hasNext()) {
+              return false;
+            }
+            this.current = chunkIter.next().iterator();
+          }
+          return true;
+        }
+
+        @Override
+        public Object next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return this.current.next();
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
   }
 
   /**
@@ -288,7 +364,7 @@ public class PartitionedRegionQueryEvaluator extends StreamingPartitionOperation
 
     synchronized (results) {
       if (!QueryMonitor.isLowMemory()) {        
-          results.add(objects);        
+          ((MemberResultsList) results).addChunk(objects, sequenceNum);
       } else {
         if (logger.isDebugEnabled()) {
           logger.debug("query canceled while gathering results, aborting");
@@ -929,8 +1005,24 @@ public class PartitionedRegionQueryEvaluator extends StreamingPartitionOperation
           this.pr.cache);
 
       
+      // Each member sends its results already sorted, so the chunks of a
+      // member are merged as one sorted stream. The chunks of members older
+      // than 9.0 are only sorted chunk by chunk.
       List<Collection> allResults = new ArrayList<Collection>();
-      for (Collection<Collection> memberResults : this.resultsPerMember.values()) {
+      for (Map.Entry<InternalDistributedMember, Collection<Collection>> entry : this.resultsPerMember.entrySet()) {
+        Collection<Collection> memberResults = entry.getValue();
+        if (memberResults.size() > 1
+            && entry.getKey().getVersionObject().compareTo(Version.GFE_90) >= 0
+            && (!(memberResults instanceof MemberResultsList) || ((MemberResultsList) memberResults).isInSequence())) {
+          List<Collection> chunks = new ArrayList<Collection>(memberResults.size());
+          for (Collection res : memberResults) {
+            if (res != null) {
+              chunks.add(res);
+            }
+          }
+          allResults.add(new MemberSortedResults(chunks));
+          continue;
+        }
         for (Collection res : memberResults) {
           if (res != null) {
             allResults.add(res);
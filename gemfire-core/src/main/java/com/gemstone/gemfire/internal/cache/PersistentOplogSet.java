@@ -12,6 +12,7 @@ import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -21,6 +22,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -38,6 +44,7 @@ import com.gemstone.gemfire.internal.cache.persistence.OplogType;
 import com.gemstone.gemfire.internal.cache.versions.RegionVersionVector;
 import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
 import com.gemstone.gemfire.internal.logging.LogService;
+import com.gemstone.gemfire.internal.logging.LoggingThreadGroup;
 import com.gemstone.gemfire.internal.logging.log4j.LocalizedMessage;
 import com.gemstone.gemfire.internal.logging.log4j.LogMarker;
 import com.gemstone.gemfire.internal.sequencelog.EntryLogger;
@@ -442,6 +449,7 @@ public class PersistentOplogSet implements OplogSet {
     }
     if (oplogSet.size() > 0) {
       long startOpLogRecovery = System.currentTimeMillis();
+      long startDrfRecovery = parent.getStats().getStatTime();
       // first figure out all entries that have been destroyed
       boolean latestOplog = true;
       for (Oplog oplog: oplogSet) {
@@ -454,36 +462,80 @@ public class PersistentOplogSet implements OplogSet {
         }
       }
       parent.incDeadRecordCount(deletedIds.size());
+      parent.getStats().endDrfRecovery(startDrfRecovery);
       // now figure out live entries
-      latestOplog = true;
-      for (Oplog oplog: oplogSet) {
-        long startOpLogRead = parent.getStats().startOplogRead();
-        long bytesRead = oplog.recoverCrf(deletedIds,
-                                          // @todo make recoverValues per region
-                                          recoverValues(),
-                                          recoverValuesSync(),
-                                          this.alreadyRecoveredOnce.get(),
-                                          oplogsNeedingValueRecovery, 
-                                          latestOplog);
-        latestOplog = false;
-        if (!this.alreadyRecoveredOnce.get()) {
-          updateOplogEntryId(oplog.getMaxRecoveredOplogEntryId());
+      long startCrfRecovery = parent.getStats().getStatTime();
+      Oplog[] oplogs = oplogSet.toArray(new Oplog[oplogSet.size()]);
+      // The entries of a newer oplog must be recovered before those of an
+      // older one, so the oplogs are still recovered one at a time. The
+      // krf reader threads read the krfs of the next oplogs into memory
+      // while this thread adds the entries of the current one to the regions.
+      // The krfs held in memory are bounded by RECOVERY_PREFETCH_BYTES.
+      ExecutorService krfReaders = createKrfReaders(oplogs.length);
+      long[] prefetchedBytes = new long[oplogs.length];
+      long prefetchedTotal = 0;
+      int prefetched = 0;
+      try {
+        latestOplog = true;
+        for (int i = 0; i < oplogs.length; i++) {
+          Oplog oplog = oplogs[i];
+          if (krfReaders != null) {
+            for (; prefetched < oplogs.length && prefetched <= i + parent.RECOVERY_THREADS; prefetched++) {
+              File krf = oplogs[prefetched].getKrfToPrefetch();
+              long size = Oplog.getKrfPrefetchSize(krf);
+              if (size > parent.RECOVERY_PREFETCH_BYTES) {
+                // too large to hold in memory; streamed when it is recovered
+                continue;
+              }
+              if (prefetchedTotal + size > parent.RECOVERY_PREFETCH_BYTES) {
+                // wait for the krfs ahead of it to be consumed
+                break;
+              }
+              if (size > 0) {
+                oplogs[prefetched].prefetchKrf(krfReaders, krf, size);
+                prefetchedBytes[prefetched] = size;
+                prefetchedTotal += size;
+              }
+            }
+          }
+          long startOpLogRead = parent.getStats().startOplogRead();
+          long bytesRead = oplog.recoverCrf(deletedIds,
+                                            // @todo make recoverValues per region
+                                            recoverValues(),
+                                            recoverValuesSync(),
+                                            this.alreadyRecoveredOnce.get(),
+                                            oplogsNeedingValueRecovery, 
+                                            latestOplog);
+          prefetchedTotal -= prefetchedBytes[i];
+          latestOplog = false;
+          if (!this.alreadyRecoveredOnce.get()) {
+            updateOplogEntryId(oplog.getMaxRecoveredOplogEntryId());
+          }
+          byteCount += bytesRead;
+          parent.getStats().endOplogRead(startOpLogRead, bytesRead);
+          
+          //Callback to the disk regions to indicate the oplog is recovered
+          //Used for offline export
+          for (DiskRecoveryStore drs: this.currentRecoveryMap.values()) {
+            drs.getDiskRegionView().oplogRecovered(oplog.oplogId);
+          }
         }
-        byteCount += bytesRead;
-        parent.getStats().endOplogRead(startOpLogRead, bytesRead);
-        
-        //Callback to the disk regions to indicate the oplog is recovered
-        //Used for offline export
-        for (DiskRecoveryStore drs: this.currentRecoveryMap.values()) {
-          drs.getDiskRegionView().oplogRecovered(oplog.oplogId);
+      } finally {
+        if (krfReaders != null) {
+          krfReaders.shutdown();
+          for (int i = 0; i < prefetched; i++) {
+            oplogs[i].clearPrefetchedKrf();
+          }
         }
       }
+      parent.getStats().endCrfRecovery(startCrfRecovery);
       long endOpLogRecovery = System.currentTimeMillis();
       long elapsed = endOpLogRecovery - startOpLogRecovery;
       logger.info(LocalizedMessage.create(LocalizedStrings.DiskRegion_OPLOG_LOAD_TIME, elapsed));
     }
     if (!parent.isOfflineCompacting()) {
       long startRegionInit = System.currentTimeMillis();
+      long startRegionInitRecovery = parent.getStats().getStatTime();
       // create the oplogs now so that loadRegionData can have them available
       //Create an array of Oplogs so that we are able to add it in a single shot
       // to the map
@@ -523,10 +575,28 @@ public class PersistentOplogSet implements OplogSet {
         long endRegionInit = System.currentTimeMillis();
         logger.info(LocalizedMessage.create(LocalizedStrings.DiskRegion_REGION_INIT_TIME, endRegionInit - startRegionInit));
       }
+      parent.getStats().endRegionInitRecovery(startRegionInitRecovery);
     }
     return byteCount;
   }
 
+  /**
+   * Creates the threads that read krf files ahead of the oplog recovery.
+   * 
+   * @return the executor, or null if the krfs should be read by the
+   *         recovering thread
+   */
+  private ExecutorService createKrfReaders(int oplogCount) {
+    int threads = Math.min(parent.RECOVERY_THREADS, oplogCount - 1);
+    if (parent.RECOVERY_THREADS <= 1 || threads < 1 || recoverValuesSync() || (parent.isOffline() && !parent.FORCE_KRF_RECOVERY)) {
+      return null;
+    }
+    final ThreadGroup group = LoggingThreadGroup.createThreadGroup("Oplog Recovery Thread Group", logger);
+    final ThreadFactory factory = GemfireCacheHelper.CreateThreadFactory(group, "Krf Reader for " + parent.getName());
+    return new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS,
+                                  new LinkedBlockingQueue<Runnable>(), factory);
+  }
+
   protected boolean recoverValuesSync() {
     return parent.RECOVER_VALUES_SYNC;
   }
@@ -1045,29 +1115,37 @@ public class PersistentOplogSet implements OplogSet {
   }
   
   /**
-   * Add compactable oplogs to the list, up to the maximum size.
+   * Add compactable oplogs to the list, up to the maximum size. The oplogs
+   * with the most garbage are added first; oplogs with the same amount of
+   * garbage are added oldest first.
    * @param l
    * @param max
    */
   public void getCompactableOplogs(List<CompactableOplog> l, int max) {
+    ArrayList<Oplog> compactable = new ArrayList<Oplog>();
     synchronized (this.oplogIdToOplog) {
-      // Sort this list so we compact the oldest first instead of the one
-      // that was
-      // compactable first.
-      // ArrayList<CompactableOplog> l = new
-      // ArrayList<CompactableOplog>(this.oplogIdToOplog.values());
-      // Collections.sort(l);
-      // Iterator<Oplog> itr = l.iterator();
-      {
-        Iterator<Oplog> itr = this.oplogIdToOplog.values().iterator();
-        while (itr.hasNext() && l.size() < max) {
-          Oplog oplog = itr.next();
-          if (oplog.needsCompaction()) {
-            l.add(oplog);
-          }
+      for (Oplog oplog : this.oplogIdToOplog.values()) {
+        if (oplog.needsCompaction()) {
+          compactable.add(oplog);
         }
       }
     }
+    // Snapshot the ratios so that the sort sees consistent values while
+    // entries keep being modified.
+    final Map<Oplog, Double> liveRatios = new HashMap<Oplog, Double>();
+    for (Oplog oplog : compactable) {
+      liveRatios.put(oplog, oplog.getLiveRatio());
+    }
+    Collections.sort(compactable, new Comparator<Oplog>() {
+      @Override
+      public int compare(Oplog o1, Oplog o2) {
+        return Double.compare(liveRatios.get(o1), liveRatios.get(o2));
+      }
+    });
+    Iterator<Oplog> itr = compactable.iterator();
+    while (itr.hasNext() && l.size() < max) {
+      l.add(itr.next());
+    }
   }
 
   public void scheduleForRecovery(DiskRecoveryStore drs) {
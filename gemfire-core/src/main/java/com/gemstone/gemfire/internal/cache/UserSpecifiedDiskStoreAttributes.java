@@ -35,7 +35,9 @@ public class UserSpecifiedDiskStoreAttributes extends DiskStoreAttributes
   private boolean hasDiskDirSizes = false;
   private boolean hasDiskUsageWarningPercentage = false;
   private boolean hasDiskUsageCriticalPercentage = false;
-  private static final int HAS_COUNT = 11;
+  private boolean hasCompactionThreads = false;
+  private boolean hasCompactionMaxBytesPerSecond = false;
+  private static final int HAS_COUNT = 13;
   
   public boolean hasAutoCompact() {
     return hasAutoCompact;
@@ -81,6 +83,14 @@ public class UserSpecifiedDiskStoreAttributes extends DiskStoreAttributes
     return hasDiskUsageCriticalPercentage;
   }
 
+  public boolean hasCompactionThreads() {
+    return hasCompactionThreads;
+  }
+
+  public boolean hasCompactionMaxBytesPerSecond() {
+    return hasCompactionMaxBytesPerSecond;
+  }
+
   public void setHasAutoCompact(boolean hasAutoCompact) {
     this.hasAutoCompact = hasAutoCompact;
   }
@@ -125,6 +135,14 @@ public class UserSpecifiedDiskStoreAttributes extends DiskStoreAttributes
     this.hasDiskUsageCriticalPercentage = true;
   }
 
+  public void setHasCompactionThreads(boolean hasCompactionThreads) {
+    this.hasCompactionThreads = hasCompactionThreads;
+  }
+
+  public void setHasCompactionMaxBytesPerSecond(boolean hasCompactionMaxBytesPerSecond) {
+    this.hasCompactionMaxBytesPerSecond = hasCompactionMaxBytesPerSecond;
+  }
+
   public void setAllHasFields(boolean b) {
     int hasCounter = 0;
     Field thisFields[] = UserSpecifiedDiskStoreAttributes.class.getDeclaredFields();
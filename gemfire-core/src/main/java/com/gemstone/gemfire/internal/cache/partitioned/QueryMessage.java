@@ -23,6 +23,7 @@ import com.gemstone.gemfire.DataSerializer;
 import com.gemstone.gemfire.cache.CacheException;
 import com.gemstone.gemfire.cache.query.QueryException;
 import com.gemstone.gemfire.cache.query.QueryExecutionLowMemoryException;
+import com.gemstone.gemfire.cache.query.SelectResults;
 import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
 import com.gemstone.gemfire.cache.query.internal.IndexTrackingQueryObserver;
 import com.gemstone.gemfire.cache.query.internal.PRQueryTraceInfo;
@@ -36,6 +37,7 @@ import com.gemstone.gemfire.distributed.internal.ReplyException;
 import com.gemstone.gemfire.distributed.internal.ReplyProcessor21;
 import com.gemstone.gemfire.distributed.internal.membership.InternalDistributedMember;
 import com.gemstone.gemfire.distributed.internal.streaming.StreamingOperation.StreamingReplyMessage;
+import com.gemstone.gemfire.internal.InternalDataSerializer;
 import com.gemstone.gemfire.internal.NanoTimer;
 import com.gemstone.gemfire.internal.Version;
 import com.gemstone.gemfire.internal.cache.ForceReattemptException;
@@ -57,6 +59,8 @@ public final class QueryMessage extends StreamingPartitionOperation.StreamingPar
   private volatile List buckets;
   private volatile boolean isPdxSerialized;
   private volatile boolean traceOn;
+  /** how long the query waits for asynchronous index updates, from 9.0 on */
+  private volatile long asyncIndexWaitTime = DefaultQuery.ASYNC_INDEX_WAIT_TIME;
 
 //  private transient PRQueryResultCollector resultCollector = new PRQueryResultCollector();
   private transient List<Collection> resultCollector = new ArrayList<Collection>();
@@ -65,6 +69,8 @@ public final class QueryMessage extends StreamingPartitionOperation.StreamingPar
   private transient Iterator<Collection> currentSelectResultIterator;
   private transient boolean isTraceInfoIteration = false;
   private transient boolean isStructType = false;
+  /** the results of each bucket, if they are streamed as the buckets finish */
+  private transient PRQueryProcessor.StreamingResults streamingResults;
 
   /**
    * Empty constructor to satisfy {@link DataSerializer} requirements
@@ -79,6 +85,7 @@ public final class QueryMessage extends StreamingPartitionOperation.StreamingPar
     this.parameters = parameters;
     this.cqQuery = query.isCqQuery();
     this.traceOn = query.isTraced() || DefaultQuery.QUERY_VERBOSE;
+    this.asyncIndexWaitTime = query.getAsyncIndexWaitTime();
   }
 
 
@@ -97,19 +104,29 @@ public final class QueryMessage extends StreamingPartitionOperation.StreamingPar
     if (Thread.interrupted()) throw new InterruptedException();
     
     while ((this.currentResultIterator == null || !this.currentResultIterator.hasNext())) {
-      if (this.currentSelectResultIterator.hasNext()) {
+      Collection results;
+      if (this.streamingResults != null) {
+        results = nextStreamedResults();
+        if (results instanceof SelectResults) {
+          this.isStructType = ((SelectResults)results).getCollectionType()
+              .getElementType().isStructType();
+        }
+      } else if (this.currentSelectResultIterator.hasNext()) {
         if(this.isTraceInfoIteration && this.currentResultIterator != null) {
           this.isTraceInfoIteration = false;
         }
-        Collection results = this.currentSelectResultIterator.next();
-        if (isDebugEnabled) {
-          logger.debug("Query result size: {}", results.size());
-        }
-        this.currentResultIterator = results.iterator();
+        results = this.currentSelectResultIterator.next();
       } else {
+        results = null;
+      }
+      if (results == null) {
         //Assert.assertTrue(this.resultCollector.isEmpty());
         return Token.END_OF_STREAM;
       }
+      if (isDebugEnabled) {
+        logger.debug("Query result size: {}", results.size());
+      }
+      this.currentResultIterator = results.iterator();
     }
     Object data = this.currentResultIterator.next();
     boolean isPostGFE_8_1 = this.getSender().getVersionObject().compareTo(Version.GFE_81) > 0 ;
@@ -131,6 +148,22 @@ public final class QueryMessage extends StreamingPartitionOperation.StreamingPar
   }
 
 
+  /**
+   * Waits for the next bucket to finish when the results are streamed.
+   * 
+   * @return the results of the bucket, or null if all of the buckets are done
+   */
+  private Collection nextStreamedResults() throws ForceReattemptException,
+      InterruptedException {
+    try {
+      return this.streamingResults.next();
+    } catch (QueryException e) {
+      // getNextReplyObject can not throw a QueryException, so it is unwrapped
+      // by operateOnPartitionedRegion
+      throw new StreamedQueryException(e);
+    }
+  }
+
   @Override
   protected boolean operateOnPartitionedRegion(DistributionManager dm, PartitionedRegion r, long startTime)
   throws CacheException, QueryException, ForceReattemptException, InterruptedException {
@@ -169,6 +202,7 @@ public final class QueryMessage extends StreamingPartitionOperation.StreamingPar
     boolean isQueryTraced = false;
     try {
       query.setIsCqQuery(this.cqQuery);
+      query.setAsyncIndexWaitTime(this.asyncIndexWaitTime);
       // ds.queryLocalNode(query, this.parameters, this.buckets,
       // this.resultCollector);
       PRQueryProcessor qp = new PRQueryProcessor(r, query, parameters, buckets);
@@ -187,7 +221,13 @@ public final class QueryMessage extends StreamingPartitionOperation.StreamingPar
         
       }
 
-      this.isStructType = qp.executeQuery(this.resultCollector);
+      if (!this.traceOn && !query.isTraced() && qp.canStreamResults()) {
+        // Send the results of each bucket back as soon as the bucket has been
+        // queried instead of waiting for all of the buckets.
+        this.streamingResults = qp.executeQueryStreaming();
+      } else {
+        this.isStructType = qp.executeQuery(this.resultCollector);
+      }
       //Add the trace info list object after the NWayMergeResults is created so as to 
       //exclude it from the sorted collection of NWayMergeResults
       if(isQueryTraced) {
@@ -237,8 +277,15 @@ public final class QueryMessage extends StreamingPartitionOperation.StreamingPar
             .toLocalizedString(QueryMonitor.getMemoryUsedDuringLowMemory());
         throw new QueryExecutionLowMemoryException(reason);
       }
-      super.operateOnPartitionedRegion(dm, r, startTime);
+      try {
+        super.operateOnPartitionedRegion(dm, r, startTime);
+      } catch (StreamedQueryException e) {
+        throw e.getQueryException();
+      }
     } finally {
+      if (this.streamingResults != null) {
+        this.streamingResults.close();
+      }
       // remove trace info so that it is not included in the num results when
       // logged
       if (isQueryTraced) {
@@ -300,6 +347,11 @@ public final class QueryMessage extends StreamingPartitionOperation.StreamingPar
     this.cqQuery = DataSerializer.readBoolean(in);
     this.isPdxSerialized = DataSerializer.readBoolean(in);
     this.traceOn = DataSerializer.readBoolean(in);
+    // extra field post 9.0
+    if (InternalDataSerializer.getVersionForDataStream(in).compareTo(
+        Version.GFE_90) >= 0) {
+      this.asyncIndexWaitTime = in.readLong();
+    }
   }
 
   @Override
@@ -312,6 +364,26 @@ public final class QueryMessage extends StreamingPartitionOperation.StreamingPar
     DataSerializer.writeBoolean(this.cqQuery, out);
     DataSerializer.writeBoolean(true, out);
     DataSerializer.writeBoolean(this.traceOn, out);
+    // extra field post 9.0
+    if (InternalDataSerializer.getVersionForDataStream(out).compareTo(
+        Version.GFE_90) >= 0) {
+      out.writeLong(this.asyncIndexWaitTime);
+    }
+  }
+
+  /**
+   * Carries a {@link QueryException} thrown while streaming the results out
+   * of {@link #getNextReplyObject(PartitionedRegion)}.
+   */
+  private static final class StreamedQueryException extends RuntimeException {
+    private static final long serialVersionUID = -2497839487367925484L;
+
+    StreamedQueryException(QueryException cause) {
+      super(cause);
+    }
+
+    QueryException getQueryException() {
+      return (QueryException)getCause();
+    }
   }
-  
 }
@@ -22,6 +22,8 @@ public class HFileStoreStatistics {
   
   private final CacheOperation blockCache;
   
+  private final BloomOperation bloom;
+  
   public HFileStoreStatistics(String typeName, String name) {
     this(new DummyStatisticsFactory(), typeName, name);
   }
@@ -35,13 +37,16 @@ public class HFileStoreStatistics {
     StatisticDescriptor bcBytesCached = tf.createLongGauge("blockBytesCached", "The current number of bytes cached", "bytes");
     StatisticDescriptor bcBytesEvicted = tf.createLongCounter("blockBytesEvicted", "The total number of bytes cached", "bytes");
 
+    StatisticDescriptor bloomNegatives = tf.createLongCounter("bloomNegatives", "The total number of reads of a key that a bloom filter found not to be in a file", "reads");
+    StatisticDescriptor bloomFalsePositives = tf.createLongCounter("bloomFalsePositives", "The total number of reads of a key that a bloom filter wrongly found to be in a file", "reads");
     
     StatisticsType type = tf.createType(typeName, 
         "Statistics about structured I/O operations for a region", new StatisticDescriptor[] {
-        bcMisses, bcHits, bcCached, bcBytesCached, bcBytesEvicted
+        bcMisses, bcHits, bcCached, bcBytesCached, bcBytesEvicted, bloomNegatives, bloomFalsePositives
     });
 
     blockCache = new CacheOperation(bcMisses.getId(), bcHits.getId(), bcCached.getId(), bcBytesCached.getId(), bcBytesEvicted.getId());
+    bloom = new BloomOperation(bloomNegatives.getId(), bloomFalsePositives.getId());
 
 
     stats = factory.createAtomicStatistics(type, name);
@@ -59,11 +64,15 @@ public class HFileStoreStatistics {
     return blockCache;
   }
   
+  public BloomOperation getBloom() {
+    return bloom;
+  }
   
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
     sb.append("blockCache = {").append(blockCache).append("}\n");
+    sb.append("bloom = {").append(bloom).append("}\n");
     
     return sb.toString();
   }
@@ -193,4 +202,39 @@ public class HFileStoreStatistics {
       return sb.toString();
     }
   }
+  
+  public class BloomOperation {
+    private final int negativesId;
+    private final int falsePositivesId;
+    
+    public BloomOperation(int negativesId, int falsePositivesId) {
+      this.negativesId = negativesId;
+      this.falsePositivesId = falsePositivesId;
+    }
+    
+    public void negative() {
+      stats.incLong(negativesId, 1);
+    }
+    
+    public void falsePositive() {
+      stats.incLong(falsePositivesId, 1);
+    }
+    
+    public long getNegatives() {
+      return stats.getLong(negativesId);
+    }
+    
+    public long getFalsePositives() {
+      return stats.getLong(falsePositivesId);
+    }
+    
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder();
+      sb.append("negatives=").append(getNegatives());
+      sb.append(";falsePositives=").append(getFalsePositives());
+      
+      return sb.toString();
+    }
+  }
 }
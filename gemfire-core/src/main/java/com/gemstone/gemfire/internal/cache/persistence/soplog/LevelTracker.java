@@ -9,12 +9,16 @@ package com.gemstone.gemfire.internal.cache.persistence.soplog;
 
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.LineNumberReader;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
-import java.util.HashSet;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
@@ -25,7 +29,10 @@ import com.gemstone.gemfire.internal.cache.persistence.soplog.Compactor.Compacti
 import com.gemstone.gemfire.internal.cache.persistence.soplog.Compactor.Fileset;
 
 /**
- * A simple, non-robust file tracker for tracking soplogs by level.
+ * A file tracker for tracking soplogs by level.  The manifest is rewritten
+ * after every change and replaced atomically, so a recovery finds the files
+ * of either the previous or the next change but never a mix of both.  The
+ * files of a level are recovered in the order they were added.
  * 
  * @author bakera
  */
@@ -50,7 +57,7 @@ public class LevelTracker implements Fileset<Integer>, CompactionTracker<Integer
     try {
       String line;
       while ((line = rdr.readLine()) != null) {
-        String[] parts = line.split(",");
+        String[] parts = line.split(",", 2);
         int level = Integer.parseInt(parts[0]);
         File f = new File(parts[1]);
         add(f, level);
@@ -61,8 +68,13 @@ public class LevelTracker implements Fileset<Integer>, CompactionTracker<Integer
   }
   
   @Override
-  public SortedMap<Integer, ? extends Iterable<File>> recover() {
-    return levels;
+  public synchronized SortedMap<Integer, ? extends Iterable<File>> recover() {
+    // copied since the compactor adds the recovered files back while iterating
+    SortedMap<Integer, Set<File>> copy = new TreeMap<Integer, Set<File>>();
+    for (Map.Entry<Integer, Set<File>> entry : levels.entrySet()) {
+      copy.put(entry.getKey(), new LinkedHashSet<File>(entry.getValue()));
+    }
+    return copy;
   }
 
   @Override
@@ -72,13 +84,17 @@ public class LevelTracker implements Fileset<Integer>, CompactionTracker<Integer
   }
 
   @Override
-  public void fileAdded(File f, Integer attach) {
-    add(f, attach);
+  public synchronized void fileAdded(File f, Integer attach) {
+    if (add(f, attach)) {
+      save();
+    }
   }
 
   @Override
-  public void fileRemoved(File f, Integer attach) {
-    levels.get(attach).remove(f);
+  public synchronized void fileRemoved(File f, Integer attach) {
+    if (remove(f, attach)) {
+      save();
+    }
   }
 
   @Override
@@ -86,26 +102,54 @@ public class LevelTracker implements Fileset<Integer>, CompactionTracker<Integer
   }
 
   @Override
-  public void close() throws IOException {
-    Writer wtr = new FileWriter(manifest);
+  public synchronized void close() throws IOException {
+    write();
+  }
+  
+  private boolean add(File f, int level) {
+    Set<File> files = levels.get(level);
+    if (files == null) {
+      files = new LinkedHashSet<File>();
+      levels.put(level, files);
+    }
+    return files.add(f);
+  }
+  
+  private boolean remove(File f, int level) {
+    Set<File> files = levels.get(level);
+    return files != null && files.remove(f);
+  }
+
+  private void save() {
     try {
+      write();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write manifest " + manifest, e);
+    }
+  }
+  
+  private void write() throws IOException {
+    File tmp = new File(manifest.getPath() + ".tmp");
+    FileOutputStream out = new FileOutputStream(tmp);
+    try {
+      Writer wtr = new OutputStreamWriter(out);
       for (Map.Entry<Integer, Set<File>> entry : levels.entrySet()) {
         for (File f : entry.getValue()) {
           wtr.write(entry.getKey() + "," + f + "\n");
         }
       }
-    } finally {
       wtr.flush();
-      wtr.close();
+      out.getFD().sync();
+    } finally {
+      out.close();
     }
-  }
-  
-  private void add(File f, int level) {
-    Set<File> files = levels.get(level);
-    if (files == null) {
-      files = new HashSet<File>();
-      levels.put(level, files);
+    
+    // File.renameTo does not replace an existing file on windows, and
+    // deleting the manifest first would leave no manifest to recover from
+    try {
+      Files.move(tmp.toPath(), manifest.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(tmp.toPath(), manifest.toPath(), StandardCopyOption.REPLACE_EXISTING);
     }
-    files.add(f);
   }
 }
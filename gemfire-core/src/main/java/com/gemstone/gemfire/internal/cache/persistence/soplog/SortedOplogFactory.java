@@ -109,6 +109,7 @@ public interface SortedOplogFactory {
       compression = Compression.NONE;
       keyEncoding = KeyEncoding.NONE;
       comparator = new ByteComparator();
+      metaCompactors = new EnumMap<Metadata, MetadataCompactor>(Metadata.class);
       this.cacheDataBlocksOnRead = true;
       this.storeStats = storeStats;
       this.blockCache = blockCache;
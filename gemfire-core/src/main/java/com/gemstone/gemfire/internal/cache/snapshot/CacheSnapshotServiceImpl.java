@@ -20,7 +20,7 @@ import com.gemstone.gemfire.cache.snapshot.RegionSnapshotService;
 import com.gemstone.gemfire.cache.snapshot.SnapshotOptions;
 import com.gemstone.gemfire.cache.snapshot.SnapshotOptions.SnapshotFormat;
 import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
-import com.gemstone.gemfire.internal.cache.snapshot.GFSnapshot.GFSnapshotImporter;
+import com.gemstone.gemfire.internal.cache.snapshot.GFSnapshot.SnapshotImporter;
 import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
 
 /**
@@ -88,7 +88,7 @@ public class CacheSnapshotServiceImpl implements CacheSnapshotService {
       ClassNotFoundException {
     
     for (File f : snapshots) {
-      GFSnapshotImporter in = new GFSnapshotImporter(f);
+      SnapshotImporter in = GFSnapshot.createImporter(f, null);
       try {
         byte version = in.getVersion();
         if (version == GFSnapshot.SNAP_VER_1) {
@@ -116,6 +116,17 @@ public class CacheSnapshotServiceImpl implements CacheSnapshotService {
     RegionSnapshotService<?, ?> rs = region.getSnapshotService();
     String name = "snapshot" + region.getFullPath().replace('/', '-');
     File f = new File(dir, name);
+    
+    // the base of a cache snapshot is the directory of an earlier cache
+    // snapshot, each region is compared against its own file in it
+    if (options instanceof SnapshotOptionsImpl) {
+      SnapshotOptionsImpl<?, ?> impl = (SnapshotOptionsImpl<?, ?>) options;
+      File base = impl.getBaseSnapshot();
+      if (base != null) {
+        File regionBase = new File(base, name);
+        options = impl.withBaseSnapshot(regionBase.exists() ? regionBase : null);
+      }
+    }
     rs.save(f, format, options);
   }
 }
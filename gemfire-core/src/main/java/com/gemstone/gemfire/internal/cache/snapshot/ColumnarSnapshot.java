@@ -0,0 +1,683 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.gemstone.gemfire.DataSerializer;
+import com.gemstone.gemfire.cache.CacheClosedException;
+import com.gemstone.gemfire.compression.Compressor;
+import com.gemstone.gemfire.compression.SnappyCompressor;
+import com.gemstone.gemfire.internal.ByteArrayDataInput;
+import com.gemstone.gemfire.internal.DSCODE;
+import com.gemstone.gemfire.internal.HeapDataOutputStream;
+import com.gemstone.gemfire.internal.InternalDataSerializer;
+import com.gemstone.gemfire.internal.Version;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.cache.snapshot.GFSnapshot.SnapshotImporter;
+import com.gemstone.gemfire.internal.cache.snapshot.GFSnapshot.SnapshotWriter;
+import com.gemstone.gemfire.internal.cache.snapshot.SnapshotPacket.SnapshotRecord;
+import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+import com.gemstone.gemfire.internal.tcp.ByteBufferInputStream.ByteSource;
+import com.gemstone.gemfire.pdx.internal.PdxField;
+import com.gemstone.gemfire.pdx.internal.PdxInputStream;
+import com.gemstone.gemfire.pdx.internal.PdxInstanceImpl;
+import com.gemstone.gemfire.pdx.internal.PdxType;
+import com.gemstone.gemfire.pdx.internal.PdxWriterImpl;
+
+/**
+ * Provides support for reading and writing columnar snapshot files.
+ * <p>
+ * Entries are grouped by the PDX type of their value into blocks of rows.
+ * Each block stores the keys and every PDX field in separate column chunks.
+ * A chunk is dictionary and run-length encoded when its values repeat and
+ * then compressed.  Values that are not PDX instances (or that are
+ * invalid) are stored in blocks containing a single value column.  The file
+ * layout is:
+ * <pre>
+ * header:  version (byte), format (3 bytes), footer position (long), region (UTF)
+ * blocks:  column chunks
+ * pdx:     the exported pdx registry
+ * versions: the region versions (optional)
+ * footer:  pdx position (long), versions position (long), block count (int),
+ *          block index entries
+ * </pre>
+ * The footer index locates each column chunk so that a reader can skip the
+ * columns it is not interested in.
+ *
+ * @see GFSnapshot#create(File, String, com.gemstone.gemfire.cache.snapshot.SnapshotOptions.SnapshotFormat)
+ */
+public class ColumnarSnapshot {
+  /** the maximum number of rows in a block */
+  static final int ROWS_PER_BLOCK = Integer.getInteger("gemfire.ColumnarSnapshot.ROWS_PER_BLOCK", 8192);
+
+  /** the type id used for blocks that contain opaque (non-PDX) values */
+  static final int OPAQUE_TYPE = -1;
+
+  /** the columnar snapshot file format */
+  static final byte[] SNAP_FMT = { 0x47, 0x46, 0x43 };
+
+  /** column values are stored as a sequence of byte arrays */
+  private static final byte ENCODING_PLAIN = 0;
+
+  /** column values are stored as a dictionary and runs of dictionary ids */
+  private static final byte ENCODING_DICTIONARY = 1;
+
+  /** the column chunk is not compressed */
+  private static final byte CODEC_NONE = 0;
+
+  /** the column chunk is compressed with snappy */
+  private static final byte CODEC_SNAPPY = 1;
+
+  private ColumnarSnapshot() {
+  }
+
+  /**
+   * Creates a columnar snapshot file and provides a serializer to write
+   * entries to the snapshot.
+   *
+   * @param snapshot the snapshot file
+   * @param region the region name
+   * @param versions the region versions of the snapshot entries, or null
+   * @return the callback to allow the invoker to provide the snapshot entries
+   * @throws IOException error writing the snapshot file
+   */
+  public static SnapshotWriter create(File snapshot, String region, SnapshotVersions versions) 
+      throws IOException {
+    final ColumnarSnapshotExporter out = new ColumnarSnapshotExporter(snapshot, region, versions);
+    return new SnapshotWriter() {
+      @Override
+      public void snapshotEntry(SnapshotRecord entry) throws IOException {
+        out.writeSnapshotEntry(entry);
+      }
+
+      @Override
+      public void snapshotComplete() throws IOException {
+        out.close();
+      }
+    };
+  }
+
+  /**
+   * Reads the region versions from a columnar snapshot file.
+   *
+   * @param raf the snapshot file, positioned after the version byte
+   * @return the versions, or null if the snapshot does not contain versions
+   * @throws IOException unable to read the versions
+   * @throws ClassNotFoundException unable to read the versions
+   */
+  static SnapshotVersions readVersions(RandomAccessFile raf) throws IOException, ClassNotFoundException {
+    raf.seek(4);
+    long footerPosition = raf.readLong();
+    
+    raf.seek(footerPosition + 8);
+    long versionsPosition = raf.readLong();
+    if (versionsPosition == -1) {
+      return null;
+    }
+    
+    raf.seek(versionsPosition);
+    return GFSnapshot.readVersions(raf, footerPosition - versionsPosition);
+  }
+
+  /**
+   * Encodes a column of values.  Columns with many repeated values are
+   * dictionary encoded with run-length encoded dictionary ids.
+   *
+   * @param values the column values, which may contain nulls
+   * @param count the number of values
+   * @param out the output
+   * @throws IOException unable to encode the column
+   */
+  static void encodeColumn(byte[][] values, int count, DataOutput out) throws IOException {
+    Map<ByteBuffer, Integer> dictionary = new HashMap<ByteBuffer, Integer>();
+    List<byte[]> entries = new ArrayList<byte[]>();
+    int[] ids = new int[count];
+
+    for (int i = 0; i < count; i++) {
+      ByteBuffer key = values[i] == null ? null : ByteBuffer.wrap(values[i]);
+      Integer id = dictionary.get(key);
+      if (id == null) {
+        id = entries.size();
+        dictionary.put(key, id);
+        entries.add(values[i]);
+      }
+      ids[i] = id;
+    }
+
+    if (entries.size() * 2 > count) {
+      out.writeByte(ENCODING_PLAIN);
+      for (int i = 0; i < count; i++) {
+        DataSerializer.writeByteArray(values[i], out);
+      }
+      return;
+    }
+
+    out.writeByte(ENCODING_DICTIONARY);
+    InternalDataSerializer.writeArrayLength(entries.size(), out);
+    for (byte[] entry : entries) {
+      DataSerializer.writeByteArray(entry, out);
+    }
+
+    int i = 0;
+    while (i < count) {
+      int run = 1;
+      while (i + run < count && ids[i + run] == ids[i]) {
+        run++;
+      }
+      InternalDataSerializer.writeUnsignedVL(ids[i], out);
+      InternalDataSerializer.writeUnsignedVL(run, out);
+      i += run;
+    }
+  }
+
+  /**
+   * Decodes a column of values written by
+   * {@link #encodeColumn(byte[][], int, DataOutput)}.
+   *
+   * @param in the input
+   * @param count the number of values
+   * @return the column values
+   * @throws IOException unable to decode the column
+   */
+  static byte[][] decodeColumn(DataInput in, int count) throws IOException {
+    byte[][] values = new byte[count][];
+    byte encoding = in.readByte();
+    if (encoding == ENCODING_PLAIN) {
+      for (int i = 0; i < count; i++) {
+        values[i] = DataSerializer.readByteArray(in);
+      }
+
+    } else if (encoding == ENCODING_DICTIONARY) {
+      byte[][] entries = new byte[InternalDataSerializer.readArrayLength(in)][];
+      for (int i = 0; i < entries.length; i++) {
+        entries[i] = DataSerializer.readByteArray(in);
+      }
+
+      int i = 0;
+      while (i < count) {
+        byte[] val = entries[(int) InternalDataSerializer.readUnsignedVL(in)];
+        int run = (int) InternalDataSerializer.readUnsignedVL(in);
+        Arrays.fill(values, i, i + run, val);
+        i += run;
+      }
+
+    } else {
+      throw new IOException("Unrecognized column encoding: " + encoding);
+    }
+    return values;
+  }
+
+  private static Compressor getCompressor() {
+    try {
+      return SnappyCompressor.getDefaultInstance();
+    } catch (IllegalStateException e) {
+      // native library is unavailable, store the chunks uncompressed
+      return null;
+    }
+  }
+
+  /**
+   * Describes the location of the column chunks in a block.
+   */
+  static class BlockIndex {
+    /** the pdx type id of the values in the block, or {@link #OPAQUE_TYPE} */
+    final int typeId;
+
+    /** the number of rows in the block */
+    final int rows;
+
+    /** the file offset of each column chunk, keys are in column 0 */
+    final long[] offsets;
+
+    /** the length in bytes of each column chunk */
+    final int[] lengths;
+
+    BlockIndex(int typeId, int rows, int columns) {
+      this.typeId = typeId;
+      this.rows = rows;
+      this.offsets = new long[columns];
+      this.lengths = new int[columns];
+    }
+
+    void toData(DataOutput out) throws IOException {
+      out.writeInt(typeId);
+      out.writeInt(rows);
+      out.writeInt(offsets.length);
+      for (int i = 0; i < offsets.length; i++) {
+        out.writeLong(offsets[i]);
+        out.writeInt(lengths[i]);
+      }
+    }
+
+    static BlockIndex fromData(DataInput in) throws IOException {
+      BlockIndex block = new BlockIndex(in.readInt(), in.readInt(), in.readInt());
+      for (int i = 0; i < block.offsets.length; i++) {
+        block.offsets[i] = in.readLong();
+        block.lengths[i] = in.readInt();
+      }
+      return block;
+    }
+  }
+
+  /**
+   * Accumulates the rows of a block prior to writing the column chunks.
+   */
+  private static class BlockBuilder {
+    private final int typeId;
+    private final byte[][][] columns;
+    private int rows;
+
+    public BlockBuilder(int typeId, int columnCount) {
+      this.typeId = typeId;
+      this.columns = new byte[columnCount][ROWS_PER_BLOCK][];
+    }
+
+    public void add(byte[][] row) {
+      for (int i = 0; i < columns.length; i++) {
+        columns[i][rows] = row[i];
+      }
+      rows++;
+    }
+
+    public boolean isFull() {
+      return rows == ROWS_PER_BLOCK;
+    }
+  }
+
+  /**
+   * Writes a columnar snapshot file.
+   */
+  static class ColumnarSnapshotExporter {
+    /** the file channel, used for random access */
+    private final FileChannel fc;
+
+    /** the output stream */
+    private final DataOutputStream dos;
+
+    /** the chunk compressor, or null if chunks are not compressed */
+    private final Compressor compressor;
+
+    /** the pdx types of the exported values */
+    private final Map<Integer, PdxType> types;
+
+    /** the blocks being accumulated, by type id */
+    private final Map<Integer, BlockBuilder> pending;
+
+    /** the index entries of the blocks that have been written */
+    private final List<BlockIndex> blocks;
+
+    /** the region versions, or null */
+    private final SnapshotVersions versions;
+
+    public ColumnarSnapshotExporter(File out, String region, SnapshotVersions versions) throws IOException {
+      this.versions = versions;
+
+      FileOutputStream fos = new FileOutputStream(out);
+      fc = fos.getChannel();
+      dos = new DataOutputStream(new BufferedOutputStream(fos));
+
+      compressor = getCompressor();
+      types = new HashMap<Integer, PdxType>();
+      pending = new LinkedHashMap<Integer, BlockBuilder>();
+      blocks = new ArrayList<BlockIndex>();
+
+      dos.writeByte(GFSnapshot.SNAP_VER_3);
+      dos.write(SNAP_FMT);
+
+      // write temporary footer location in bytes 4-11
+      dos.writeLong(-1);
+      dos.writeUTF(region);
+    }
+
+    /**
+     * Writes an entry in the snapshot.
+     *
+     * @param entry the snapshot entry
+     * @throws IOException unable to write entry
+     */
+    public void writeSnapshotEntry(SnapshotRecord entry) throws IOException {
+      byte[] value = entry.getValue();
+      PdxType type = getPdxType(value);
+
+      byte[][] row;
+      int typeId;
+      if (type == null) {
+        typeId = OPAQUE_TYPE;
+        row = new byte[][] { entry.getKey(), value };
+
+      } else {
+        typeId = type.getTypeId();
+        row = new byte[type.getFieldCount() + 1][];
+        row[0] = entry.getKey();
+
+        PdxInputStream in = new PdxInputStream(value);
+        in.readByte(); // skip the type byte
+        int len = in.readInt();
+        in.readInt(); // skip the type id
+
+        PdxInstanceImpl pi = new PdxInstanceImpl(type, in, len);
+        for (PdxField field : type.getFields()) {
+          ByteSource raw = pi.getRaw(field.getFieldIndex());
+          byte[] bytes = new byte[raw.remaining()];
+          raw.get(bytes);
+          row[field.getFieldIndex() + 1] = bytes;
+        }
+      }
+
+      BlockBuilder block = pending.get(typeId);
+      if (block == null) {
+        block = new BlockBuilder(typeId, row.length);
+        pending.put(typeId, block);
+      }
+
+      block.add(row);
+      if (block.isFull()) {
+        writeBlock(block);
+        pending.remove(typeId);
+      }
+    }
+
+    public void close() throws IOException {
+      for (BlockBuilder block : pending.values()) {
+        writeBlock(block);
+      }
+      pending.clear();
+
+      // write pdx types
+      dos.flush();
+      long registryPosition = fc.position();
+      try {
+        GemFireCacheImpl cache = GemFireCacheImpl.getForPdx("PDX registry is unavailable because the Cache has been closed.");
+        new ExportedRegistry(cache.getPdxRegistry()).toData(dos);
+      } catch (CacheClosedException e) {
+        // ignore pdx types
+        new ExportedRegistry().toData(dos);
+      }
+
+      // write versions
+      long versionsPosition = -1;
+      if (versions != null) {
+        dos.flush();
+        versionsPosition = fc.position();
+        versions.toData(dos);
+      }
+
+      // write footer
+      dos.flush();
+      long footerPosition = fc.position();
+      dos.writeLong(registryPosition);
+      dos.writeLong(versionsPosition);
+      dos.writeInt(blocks.size());
+      for (BlockIndex block : blocks) {
+        block.toData(dos);
+      }
+
+      // write the footer position
+      dos.flush();
+      fc.position(4);
+      dos.writeLong(footerPosition);
+
+      dos.close();
+    }
+
+    /**
+     * Returns the pdx type of a serialized value, or null if the value should
+     * be stored as an opaque byte array.
+     */
+    private PdxType getPdxType(byte[] value) {
+      if (value == null || value.length == 0 || value[0] != DSCODE.PDX) {
+        return null;
+      }
+
+      int typeId = ByteBuffer.wrap(value, 5, 4).getInt();
+      PdxType type = types.get(typeId);
+      if (type == null && !types.containsKey(typeId)) {
+        try {
+          GemFireCacheImpl cache = GemFireCacheImpl.getForPdx("PDX registry is unavailable because the Cache has been closed.");
+          type = cache.getPdxRegistry().getType(typeId);
+
+          // types with deleted fields can't be reassembled from their fields
+          if (type != null && type.getHasDeletedField()) {
+            type = null;
+          }
+        } catch (CacheClosedException e) {
+          type = null;
+        }
+        types.put(typeId, type);
+      }
+      return type;
+    }
+
+    private void writeBlock(BlockBuilder block) throws IOException {
+      BlockIndex index = new BlockIndex(block.typeId, block.rows, block.columns.length);
+      for (int i = 0; i < block.columns.length; i++) {
+        HeapDataOutputStream chunk = new HeapDataOutputStream(Version.CURRENT);
+        encodeColumn(block.columns[i], block.rows, chunk);
+
+        dos.flush();
+        index.offsets[i] = fc.position();
+
+        byte[] data = chunk.toByteArray();
+        if (compressor == null) {
+          dos.writeByte(CODEC_NONE);
+        } else {
+          dos.writeByte(CODEC_SNAPPY);
+          data = compressor.compress(data);
+        }
+        dos.write(data);
+        index.lengths[i] = data.length + 1;
+      }
+      blocks.add(index);
+    }
+  }
+
+  /**
+   * Reads a columnar snapshot file.  Only the columns of the selected PDX
+   * fields are read from disk; fields that are not selected are set to their
+   * default value.
+   */
+  static class ColumnarSnapshotImporter implements SnapshotImporter {
+    /** the region name */
+    private final String region;
+
+    /** the internal pdx registry (not the system-wide pdx registry) */
+    private final ExportedRegistry pdx;
+
+    /** the block index entries */
+    private final List<BlockIndex> blocks;
+
+    /** the region versions, or null */
+    private final SnapshotVersions versions;
+
+    /** the selected field names, or null to read all fields */
+    private final Set<String> fields;
+
+    /** the snapshot file */
+    private final RandomAccessFile raf;
+
+    /** the index of the next block */
+    private int nextBlock;
+
+    /** the decoded columns of the current block */
+    private byte[][][] columns;
+
+    /** the type of the current block */
+    private PdxType type;
+
+    /** the number of rows in the current block */
+    private int rows;
+
+    /** the index of the next row in the current block */
+    private int nextRow;
+
+    public ColumnarSnapshotImporter(File in, Set<String> fields) throws IOException, ClassNotFoundException {
+      this.fields = fields;
+      this.pdx = new ExportedRegistry();
+      this.blocks = new ArrayList<BlockIndex>();
+      this.raf = new RandomAccessFile(in, "r");
+
+      boolean ok = false;
+      try {
+        byte version = raf.readByte();
+        if (version != GFSnapshot.SNAP_VER_3) {
+          throw new IOException(LocalizedStrings.Snapshot_UNRECOGNIZED_FILE_VERSION_0.toLocalizedString(version) + ": " + in);
+        }
+
+        byte[] format = new byte[3];
+        raf.readFully(format);
+        if (!Arrays.equals(format, SNAP_FMT)) {
+          throw new IOException(LocalizedStrings.Snapshot_UNRECOGNIZED_FILE_TYPE_0.toLocalizedString(Arrays.toString(format)) + ": " + in);
+        }
+
+        long footerPosition = raf.readLong();
+        region = raf.readUTF();
+
+        // read footer
+        DataInput footer = readFully(footerPosition, (int) (raf.length() - footerPosition));
+        long registryPosition = footer.readLong();
+        long versionsPosition = footer.readLong();
+        int count = footer.readInt();
+        for (int i = 0; i < count; i++) {
+          blocks.add(BlockIndex.fromData(footer));
+        }
+
+        // read pdx and versions
+        long registryEnd = versionsPosition == -1 ? footerPosition : versionsPosition;
+        pdx.fromData(readFully(registryPosition, (int) (registryEnd - registryPosition)));
+        if (versionsPosition == -1) {
+          versions = null;
+        } else {
+          versions = GFSnapshot.readVersions(readFully(versionsPosition, 
+              (int) (footerPosition - versionsPosition)), footerPosition - versionsPosition);
+        }
+        ok = true;
+
+      } finally {
+        if (!ok) {
+          raf.close();
+        }
+      }
+
+      GFSnapshot.importPdxTypes(pdx);
+    }
+
+    @Override
+    public byte getVersion() {
+      return (byte) GFSnapshot.SNAP_VER_3;
+    }
+
+    @Override
+    public String getRegionName() {
+      return region;
+    }
+
+    @Override
+    public ExportedRegistry getPdxTypes() {
+      return pdx;
+    }
+
+    @Override
+    public SnapshotVersions getVersions() {
+      return versions;
+    }
+
+    @Override
+    public SnapshotRecord readSnapshotRecord() throws IOException, ClassNotFoundException {
+      while (nextRow == rows) {
+        if (nextBlock == blocks.size()) {
+          return null;
+        }
+        readBlock(blocks.get(nextBlock++));
+      }
+
+      int row = nextRow++;
+      byte[] key = columns[0][row];
+      if (type == null) {
+        return new SnapshotRecord(key, columns[1][row]);
+      }
+
+      byte[][] raw = new byte[type.getFieldCount()][];
+      for (int i = 0; i < raw.length; i++) {
+        if (columns[i + 1] != null) {
+          raw[i] = columns[i + 1][row];
+        }
+      }
+      return new SnapshotRecord(key, PdxWriterImpl.fromRawFields(type, raw));
+    }
+
+    @Override
+    public void close() throws IOException {
+      raf.close();
+    }
+
+    private void readBlock(BlockIndex block) throws IOException {
+      if (block.typeId == OPAQUE_TYPE) {
+        type = null;
+      } else {
+        type = pdx.types().get(block.typeId);
+        if (type == null) {
+          throw new IOException("Unknown pdx type " + block.typeId + " in snapshot");
+        }
+      }
+
+      columns = new byte[block.offsets.length][][];
+      for (int i = 0; i < columns.length; i++) {
+        if (i == 0 || type == null || fields == null
+            || fields.contains(type.getPdxFieldByIndex(i - 1).getFieldName())) {
+          columns[i] = readColumn(block, i);
+        }
+      }
+      rows = block.rows;
+      nextRow = 0;
+    }
+
+    private DataInput readFully(long position, int length) throws IOException {
+      byte[] data = new byte[length];
+      raf.seek(position);
+      raf.readFully(data);
+      
+      ByteArrayDataInput in = new ByteArrayDataInput();
+      in.initialize(data, Version.CURRENT);
+      return in;
+    }
+
+    private byte[][] readColumn(BlockIndex block, int column) throws IOException {
+      byte[] chunk = new byte[block.lengths[column]];
+      raf.seek(block.offsets[column]);
+      raf.readFully(chunk);
+
+      byte[] data = Arrays.copyOfRange(chunk, 1, chunk.length);
+      if (chunk[0] == CODEC_SNAPPY) {
+        data = SnappyCompressor.getDefaultInstance().decompress(data);
+      } else if (chunk[0] != CODEC_NONE) {
+        throw new IOException("Unrecognized column compression: " + chunk[0]);
+      }
+
+      ByteArrayDataInput in = new ByteArrayDataInput();
+      in.initialize(data, Version.CURRENT);
+      return decodeColumn(in, block.rows);
+    }
+  }
+}
@@ -9,26 +9,35 @@ package com.gemstone.gemfire.internal.cache.snapshot;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.TreeMap;
 
 import com.gemstone.gemfire.DataSerializer;
 import com.gemstone.gemfire.InternalGemFireError;
 import com.gemstone.gemfire.cache.CacheClosedException;
 import com.gemstone.gemfire.cache.snapshot.SnapshotIterator;
+import com.gemstone.gemfire.cache.snapshot.SnapshotOptions.SnapshotFormat;
 import com.gemstone.gemfire.internal.InternalDataSerializer;
 import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.cache.snapshot.ColumnarSnapshot.ColumnarSnapshotImporter;
 import com.gemstone.gemfire.internal.cache.snapshot.SnapshotPacket.SnapshotRecord;
 import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
 import com.gemstone.gemfire.pdx.PdxSerializationException;
@@ -59,12 +68,59 @@ public class GFSnapshot {
     void snapshotComplete() throws IOException;
   }
   
+  /**
+   * Reads cache entries from a snapshot.
+   */
+  public interface SnapshotImporter {
+    /**
+     * Returns the snapshot file version.
+     * @return the version
+     */
+    byte getVersion();
+    
+    /**
+     * Returns the original pathname of the region used to create the snapshot.
+     * @return the region name (full pathname)
+     */
+    String getRegionName();
+    
+    /**
+     * Returns the pdx types defined in the snapshot file.
+     * @return the pdx types
+     */
+    ExportedRegistry getPdxTypes();
+    
+    /**
+     * Returns the region versions recorded in the snapshot file.
+     * @return the versions, or null if the snapshot does not contain versions
+     */
+    SnapshotVersions getVersions();
+    
+    /**
+     * Reads a snapshot entry.  If the last entry has been read, a null value
+     * will be returned.
+     * 
+     * @return the entry or null
+     * @throws IOException unable to read entry
+     * @throws ClassNotFoundException unable to create entry
+     */
+    SnapshotRecord readSnapshotRecord() throws IOException, ClassNotFoundException;
+    
+    /**
+     * Closes the snapshot file.
+     */
+    void close() throws IOException;
+  }
+  
   /** the snapshot format version 1 */
   public static final int SNAP_VER_1   = 1;
   
   /** the snapshot format version 2 */
   public static final int SNAP_VER_2   = 2;
 
+  /** the snapshot format version 3, used by the columnar format */
+  public static final int SNAP_VER_3   = 3;
+
   /** the snapshot file format */
   private static final byte[] SNAP_FMT = { 0x47, 0x46, 0x53 };
   
@@ -77,7 +133,7 @@ public class GFSnapshot {
       System.exit(1);
     }
     
-    GFSnapshotImporter imp = new GFSnapshotImporter(new File(args[0]));
+    SnapshotImporter imp = createImporter(new File(args[0]), null);
     try {
       System.out.println("Snapshot format is version " + imp.getVersion());
       System.out.println("Snapshot region is " + imp.getRegionName());
@@ -115,7 +171,22 @@ public class GFSnapshot {
    */
   public static SnapshotWriter create(File snapshot, String region) 
       throws IOException {
-    final GFSnapshotExporter out = new GFSnapshotExporter(snapshot, region);
+    return create(snapshot, region, null);
+  }
+  
+  /**
+   * Creates a snapshot file and provides a serializer to write entries to the
+   * snapshot.  The region versions are stored following the pdx types.
+   * 
+   * @param snapshot the snapshot file
+   * @param region the region name
+   * @param versions the versions of the snapshot entries, or null
+   * @return the callback to allow the invoker to provide the snapshot entries
+   * @throws IOException error writing the snapshot file
+   */
+  private static SnapshotWriter create(File snapshot, String region, SnapshotVersions versions) 
+      throws IOException {
+    final GFSnapshotExporter out = new GFSnapshotExporter(snapshot, region, versions);
     return new SnapshotWriter() {
       @Override
       public void snapshotEntry(SnapshotRecord entry) throws IOException {
@@ -129,6 +200,107 @@ public class GFSnapshot {
     };
   }
   
+  /**
+   * Creates a snapshot file in the requested format and provides a serializer
+   * to write entries to the snapshot.
+   * 
+   * @param snapshot the snapshot file
+   * @param region the region name
+   * @param format the snapshot format
+   * @param versions the region versions of the snapshot entries, or null
+   *        if the versions are not known
+   * @return the callback to allow the invoker to provide the snapshot entries
+   * @throws IOException error writing the snapshot file
+   */
+  public static SnapshotWriter create(File snapshot, String region, SnapshotFormat format, 
+      SnapshotVersions versions) throws IOException {
+    if (format == SnapshotFormat.GEMFIRE_COLUMNAR) {
+      return ColumnarSnapshot.create(snapshot, region, versions);
+    }
+    return create(snapshot, region, versions);
+  }
+  
+  /**
+   * Opens a snapshot file for reading.  The snapshot format is determined by
+   * the file header.
+   * 
+   * @param snapshot the snapshot file
+   * @param fields the names of the PDX fields to read from a columnar 
+   *        snapshot, or null to read all fields
+   * @return the snapshot importer
+   * 
+   * @throws IOException error reading the snapshot file
+   * @throws ClassNotFoundException unable to read the pdx types
+   */
+  public static SnapshotImporter createImporter(File snapshot, Set<String> fields) 
+      throws IOException, ClassNotFoundException {
+    DataInputStream tmp = new DataInputStream(new FileInputStream(snapshot));
+    byte version;
+    try {
+      version = tmp.readByte();
+    } finally {
+      tmp.close();
+    }
+    
+    if (version == SNAP_VER_3) {
+      return new ColumnarSnapshotImporter(snapshot, fields);
+    }
+    return new GFSnapshotImporter(snapshot);
+  }
+  
+  /**
+   * Reads the region versions recorded in a snapshot file without reading 
+   * the snapshot entries.
+   * 
+   * @param snapshot the snapshot file
+   * @return the versions, or null if the snapshot does not contain versions
+   * 
+   * @throws IOException error reading the snapshot file
+   * @throws ClassNotFoundException unable to read the versions
+   */
+  public static SnapshotVersions readVersions(File snapshot) 
+      throws IOException, ClassNotFoundException {
+    RandomAccessFile raf = new RandomAccessFile(snapshot, "r");
+    try {
+      byte version = raf.readByte();
+      if (version == SNAP_VER_3) {
+        return ColumnarSnapshot.readVersions(raf);
+      } else if (version != SNAP_VER_2) {
+        throw new IOException(LocalizedStrings.Snapshot_UNRECOGNIZED_FILE_VERSION_0.toLocalizedString(version) + ": " + snapshot);
+      }
+      
+      raf.seek(4);
+      long registryPosition = raf.readLong();
+      if (registryPosition == -1) {
+        return null;
+      }
+      
+      raf.seek(registryPosition);
+      new ExportedRegistry().fromData(raf);
+      return readVersions(raf, raf.length() - raf.getFilePointer());
+      
+    } finally {
+      raf.close();
+    }
+  }
+  
+  /**
+   * Reads the region versions that follow the pdx types in a snapshot file.
+   * 
+   * @param in the input, positioned after the pdx types
+   * @param remaining the number of bytes remaining in the snapshot file
+   * @return the versions, or null if the snapshot does not contain versions
+   */
+  static SnapshotVersions readVersions(DataInput in, long remaining) 
+      throws IOException, ClassNotFoundException {
+    if (remaining <= 0) {
+      return null;
+    }
+    SnapshotVersions versions = new SnapshotVersions();
+    versions.fromData(in);
+    return versions;
+  }
+  
   /**
    * Reads a snapshot file.
    * 
@@ -141,8 +313,70 @@ public class GFSnapshot {
    * @throws ClassNotFoundException unable to deserialize entry
    */
   public static <K, V> SnapshotIterator<K, V> read(final File snapshot) throws IOException, ClassNotFoundException {
+    return read(snapshot, null);
+  }
+  
+  /**
+   * Reads a snapshot file.  When reading a columnar snapshot only the
+   * selected PDX fields are read and the remaining fields of each PDX value
+   * contain their default value.
+   * 
+   * @param <K> the key type
+   * @param <V> the value type
+   * @param snapshot the snapshot file
+   * @param fields the PDX fields to read, or null to read all fields
+   * @return the snapshot iterator
+   * 
+   * @throws IOException error reading the snapshot file
+   * @throws ClassNotFoundException unable to deserialize entry
+   */
+  public static <K, V> SnapshotIterator<K, V> read(final File snapshot, final Set<String> fields) 
+      throws IOException, ClassNotFoundException {
+    return read(new File[] { snapshot }, fields, Collections.<Set<Object>>singletonList(null));
+  }
+  
+  /**
+   * Reads a chain of snapshot files consisting of a base snapshot followed
+   * by incremental snapshots.  Each entry is returned once, with the value
+   * from the most recent snapshot that contains the entry.  Entries that 
+   * were destroyed are not returned.
+   * 
+   * @param <K> the key type
+   * @param <V> the value type
+   * @param chain the snapshot files, oldest first
+   * @return the snapshot iterator
+   * 
+   * @throws IOException error reading the snapshot file
+   * @throws ClassNotFoundException unable to deserialize entry
+   */
+  public static <K, V> SnapshotIterator<K, V> read(File[] chain) 
+      throws IOException, ClassNotFoundException {
+    // find the keys that are replaced by a later snapshot in the chain
+    LinkedList<Set<Object>> superseded = new LinkedList<Set<Object>>();
+    Set<Object> later = new HashSet<Object>();
+    for (int i = chain.length - 1; i >= 0; i--) {
+      superseded.addFirst(later.isEmpty() ? null : new HashSet<Object>(later));
+      if (i > 0) {
+        SnapshotImporter in = createImporter(chain[i], Collections.<String>emptySet());
+        try {
+          SnapshotRecord record;
+          while ((record = in.readSnapshotRecord()) != null) {
+            later.add(record.getKeyObject());
+          }
+        } finally {
+          in.close();
+        }
+      }
+    }
+    return read(chain, null, superseded);
+  }
+  
+  private static <K, V> SnapshotIterator<K, V> read(final File[] chain, final Set<String> fields, 
+      final List<Set<Object>> superseded) throws IOException, ClassNotFoundException {
     return new SnapshotIterator<K, V>() {
-      GFSnapshotImporter in = new GFSnapshotImporter(snapshot);
+      private int current = 0;
+      
+      SnapshotImporter in = createImporter(chain[0], fields);
 
       private boolean foundNext;
       private Entry<K, V> next;
@@ -175,10 +409,18 @@ public class GFSnapshot {
 
       private boolean moveNext() throws IOException, ClassNotFoundException {
         SnapshotRecord record;
-        while ((record = in.readSnapshotRecord()) != null) {
-          foundNext = true;
+        while ((record = readNext()) != null) {
+          if (record.isDestroyed()) {
+            continue;
+          }
           
           final K key = record.getKeyObject();
+          Set<Object> skip = superseded.get(current);
+          if (skip != null && skip.contains(key)) {
+            continue;
+          }
+          foundNext = true;
+          
           final V value = record.getValueObject();
           
           next = new Entry<K, V>() {
@@ -192,6 +434,15 @@ public class GFSnapshot {
         close();
         return false;
       }
+      
+      private SnapshotRecord readNext() throws IOException, ClassNotFoundException {
+        SnapshotRecord record;
+        while ((record = in.readSnapshotRecord()) == null && current < chain.length - 1) {
+          in.close();
+          in = createImporter(chain[++current], fields);
+        }
+        return record;
+      }
     };
   }
 
@@ -205,7 +456,16 @@ public class GFSnapshot {
     /** the output stream */
     private final DataOutputStream dos;
     
+    /** the region versions, or null */
+    private final SnapshotVersions versions;
+    
     public GFSnapshotExporter(File out, String region) throws IOException {
+      this(out, region, null);
+    }
+    
+    public GFSnapshotExporter(File out, String region, SnapshotVersions versions) throws IOException {
+      this.versions = versions;
+      
       FileOutputStream fos = new FileOutputStream(out);
       fc = fos.getChannel();
       
@@ -251,6 +511,11 @@ public class GFSnapshot {
         new ExportedRegistry().toData(dos);
       }
       
+      // write the versions following the pdx types
+      if (versions != null) {
+        versions.toData(dos);
+      }
+      
       // write the pdx position
       dos.flush();
       fc.position(4);
@@ -263,7 +528,7 @@ public class GFSnapshot {
   /**
    * Reads a snapshot file.  
    */
-  static class GFSnapshotImporter {
+  static class GFSnapshotImporter implements SnapshotImporter {
     /** the snapshot file version */
     private final byte version;
     
@@ -273,6 +538,9 @@ public class GFSnapshot {
     /** the internal pdx registry (not the system-wide pdx registry) */
     private final ExportedRegistry pdx;
     
+    /** the region versions, or null */
+    private final SnapshotVersions versions;
+    
     /** the input stream */
     private final DataInputStream dis;
     
@@ -306,10 +574,13 @@ public class GFSnapshot {
           region = tmp.readUTF();
           entryPosition = fc.position();
           
-          // read pdx
+          // read pdx and versions
           if (registryPosition != -1) {
             fc.position(registryPosition);
             pdx.fromData(tmp);
+            versions = readVersions(tmp, fc.size() - fc.position());
+          } else {
+            versions = null;
           }
         } else {
           throw new IOException(LocalizedStrings.Snapshot_UNRECOGNIZED_FILE_VERSION_0.toLocalizedString(version) + ": " + in);
@@ -321,8 +592,7 @@ public class GFSnapshot {
       // check compatibility with the existing pdx types so we don't have to 
       // do any translation...preexisting types or concurrent put ops may cause
       // this check to fail
-      checkPdxTypeCompatibility();
-      checkPdxEnumCompatibility();
+      importPdxTypes(pdx);
       
       // open new stream with buffering for reading entries
       dis = new DataInputStream(new BufferedInputStream(new FileInputStream(in)));
@@ -353,6 +623,11 @@ public class GFSnapshot {
       return pdx;
     }
     
+    @Override
+    public SnapshotVersions getVersions() {
+      return versions;
+    }
+    
     /**
      * Reads a snapshot entry.  If the last entry has been read, a null value
      * will be returned.
@@ -374,35 +649,26 @@ public class GFSnapshot {
     public void close() throws IOException {
       dis.close();
     }
-    
-    private TypeRegistry getRegistry() {
-      GemFireCacheImpl gfc = GemFireCacheImpl.getInstance();
-      if (gfc != null) {
-        return gfc.getPdxRegistry();
-      }
-      return null;
+  }
+  
+  /**
+   * Adds the pdx types and enums exported in a snapshot to the pdx registry
+   * of the cache, if one exists.
+   * 
+   * @param pdx the exported pdx types
+   */
+  static void importPdxTypes(ExportedRegistry pdx) {
+    GemFireCacheImpl gfc = GemFireCacheImpl.getInstance();
+    if (gfc == null) {
+      return;
     }
     
-    private void checkPdxTypeCompatibility() {
-      TypeRegistry tr = getRegistry();
-      if (tr == null) {
-        return;
-      }
-      
-      for (Map.Entry<Integer, PdxType> entry : pdx.types().entrySet()) {
-        tr.addImportedType(entry.getKey(), entry.getValue());
-      }
+    TypeRegistry tr = gfc.getPdxRegistry();
+    for (Map.Entry<Integer, PdxType> entry : pdx.types().entrySet()) {
+      tr.addImportedType(entry.getKey(), entry.getValue());
     }
-    
-    private void checkPdxEnumCompatibility() {
-      TypeRegistry tr = getRegistry();
-      if (tr == null) {
-        return;
-      }
-      
-      for (Map.Entry<Integer, EnumInfo> entry : pdx.enums().entrySet()) {
-        tr.addImportedEnum(entry.getKey(), entry.getValue());
-      }
+    for (Map.Entry<Integer, EnumInfo> entry : pdx.enums().entrySet()) {
+      tr.addImportedEnum(entry.getKey(), entry.getValue());
     }
   }
 }
@@ -8,12 +8,16 @@
 package com.gemstone.gemfire.internal.cache.snapshot;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import com.gemstone.gemfire.cache.EntryDestroyedException;
 import com.gemstone.gemfire.cache.Region;
 import com.gemstone.gemfire.cache.snapshot.SnapshotOptions;
 import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.cache.RegionEntry;
+import com.gemstone.gemfire.internal.cache.versions.RegionVersionVector;
+import com.gemstone.gemfire.internal.cache.versions.VersionStamp;
 import com.gemstone.gemfire.internal.cache.snapshot.RegionSnapshotServiceImpl.ExportSink;
 import com.gemstone.gemfire.internal.cache.snapshot.RegionSnapshotServiceImpl.Exporter;
 import com.gemstone.gemfire.internal.cache.snapshot.SnapshotPacket.SnapshotRecord;
@@ -22,6 +26,10 @@ import com.gemstone.gemfire.internal.cache.snapshot.SnapshotPacket.SnapshotRecor
  * Exports snapshot data directly to the supplied {@link ExportSink}.  All data
  * is assumed to be local so snapshot data is obtained directly by iterating
  * over the {@link Region#entrySet()}.
+ * <p>
+ * When the versions of a base snapshot are supplied only the entries that
+ * have changed since the base snapshot are exported.  The region entries are
+ * read directly so that destroyed entries (tombstones) can be included.
  * 
  * @author bakera
  *
@@ -29,8 +37,23 @@ import com.gemstone.gemfire.internal.cache.snapshot.SnapshotPacket.SnapshotRecor
  * @param <V> the value type
  */
 public class LocalExporter<K, V> implements Exporter<K, V> {
+  /** the versions of the base snapshot, or null to export all entries */
+  private final SnapshotVersions base;
+  
+  public LocalExporter() {
+    this(null);
+  }
+  
+  public LocalExporter(SnapshotVersions base) {
+    this.base = base;
+  }
+  
   @Override
   public long export(Region<K, V> region, ExportSink sink, SnapshotOptions<K, V> options) throws IOException {
+    if (base != null) {
+      return exportChanges(region, sink, options);
+    }
+    
     LocalRegion local = RegionSnapshotServiceImpl.getLocalRegion(region);
     
     long count = 0;
@@ -46,4 +69,45 @@ public class LocalExporter<K, V> implements Exporter<K, V> {
     }
     return count;
   }
+  
+  private long exportChanges(Region<K, V> region, ExportSink sink, SnapshotOptions<K, V> options) throws IOException {
+    long count = 0;
+    for (Map.Entry<Integer, LocalRegion> data : SnapshotVersions.getLocalData(region).entrySet()) {
+      LocalRegion local = data.getValue();
+      RegionVersionVector prior = base.getVersionVector(data.getKey());
+      
+      for (RegionEntry re : local.getRegionMap().regionEntries()) {
+        try {
+          Entry<K, V> entry = null;
+          SnapshotRecord rec;
+          
+          // read the version and the value together so the value can't be
+          // modified after checking the version
+          synchronized (re) {
+            VersionStamp stamp = re.getVersionStamp();
+            if (prior != null && stamp != null && SnapshotVersions.contains(prior, local, stamp)) {
+              continue;
+            }
+            
+            if (re.isTombstone()) {
+              rec = SnapshotRecord.createDestroyed(re.getKey());
+            } else if (re.isRemoved()) {
+              continue;
+            } else {
+              entry = local.new NonTXEntry(re);
+              rec = new SnapshotRecord(local, entry);
+            }
+          }
+          
+          if (entry == null || options.getFilter() == null || options.getFilter().accept(entry)) {
+            sink.write(rec);
+            count++;
+          }
+        } catch (EntryDestroyedException e) {
+          // continue to next entry
+        }
+      }
+    }
+    return count;
+  }
 }
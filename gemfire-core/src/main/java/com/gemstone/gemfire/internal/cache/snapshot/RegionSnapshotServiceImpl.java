@@ -14,12 +14,16 @@ import java.io.FileFilter;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
 import com.gemstone.gemfire.cache.DataPolicy;
@@ -46,8 +50,9 @@ import com.gemstone.gemfire.internal.cache.CachedDeserializableFactory;
 import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
 import com.gemstone.gemfire.internal.cache.LocalDataSet;
 import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.cache.PartitionedRegion;
 import com.gemstone.gemfire.internal.cache.Token;
-import com.gemstone.gemfire.internal.cache.snapshot.GFSnapshot.GFSnapshotImporter;
+import com.gemstone.gemfire.internal.cache.snapshot.GFSnapshot.SnapshotImporter;
 import com.gemstone.gemfire.internal.cache.snapshot.GFSnapshot.SnapshotWriter;
 import com.gemstone.gemfire.internal.cache.snapshot.SnapshotPacket.SnapshotRecord;
 import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
@@ -64,6 +69,11 @@ public class RegionSnapshotServiceImpl<K, V> implements RegionSnapshotService<K,
   // controls number of concurrent putAll ops during an import
   private static final int IMPORT_CONCURRENCY = Integer.getInteger("gemfire.RegionSnapshotServiceImpl.IMPORT_CONCURRENCY", 10);
   
+  // controls number of buckets (or files) concurrently exported or imported
+  // by a member during a parallel snapshot operation
+  static final int BUCKET_CONCURRENCY = Integer.getInteger("gemfire.RegionSnapshotServiceImpl.BUCKET_CONCURRENCY", 
+      Runtime.getRuntime().availableProcessors());
+  
   // controls the size (in bytes) of the r/w buffer during imoprt and export
   static final int BUFFER_SIZE = Integer.getInteger("gemfire.RegionSnapshotServiceImpl.BUFFER_SIZE", 1024 * 1024);
   
@@ -167,11 +177,15 @@ public class RegionSnapshotServiceImpl<K, V> implements RegionSnapshotService<K,
       throws IOException, ClassNotFoundException {
 
     if (shouldRunInParallel(options)) {
+      if (((SnapshotOptionsImpl<K, V>) options).isSharedDirectory()) {
+        // every bucket needs a primary to import its files
+        PartitionRegionHelper.assignBucketsToPartitions(region);
+      }
       snapshotInParallel(new ParallelArgs<K, V>(snapshot, format, options), new ParallelImportFunction<K, V>());
       return;
       
     } else {
-      importOnMember(snapshot, format, options);
+      importOnMember(snapshot, format, options, IMPORT_CONCURRENCY);
     }
   }
 
@@ -198,8 +212,14 @@ public class RegionSnapshotServiceImpl<K, V> implements RegionSnapshotService<K,
     }
   }
 
-  private void importOnMember(File snapshot, SnapshotFormat format, SnapshotOptions<K, V> options)
-      throws IOException, ClassNotFoundException {
+  /**
+   * Imports a snapshot file into the region.
+   * 
+   * @param concurrency the number of putAll batches in progress at once, or 0
+   *        to put each batch on the calling thread
+   */
+  private void importOnMember(File snapshot, SnapshotFormat format, SnapshotOptions<K, V> options,
+      int concurrency) throws IOException, ClassNotFoundException {
     final LocalRegion local = getLocalRegion(region);
     
     if (getLoggerI18n().infoEnabled())
@@ -212,17 +232,28 @@ public class RegionSnapshotServiceImpl<K, V> implements RegionSnapshotService<K,
     // Would be interesting to use a PriorityQueue ordered on isDone()
     // but this is probably close enough in practice.
     LinkedList<Future<?>> puts = new LinkedList<Future<?>>();
-    GFSnapshotImporter in = new GFSnapshotImporter(snapshot);
+    SnapshotImporter in = GFSnapshot.createImporter(snapshot, null);
 
     try {
       int bufferSize = 0;
       Map<K, V> buffer = new HashMap<K, V>();
+      List<Object> destroys = new ArrayList<Object>();
       
       SnapshotRecord record;
       while ((record = in.readSnapshotRecord()) != null) {
         bytes += record.getSize();
         K key = record.getKeyObject();
         
+        // entries destroyed since the base of an incremental snapshot are
+        // removed once the puts have completed
+        if (record.isDestroyed()) {
+          if (includeEntry(options, key, null)) {
+            destroys.add(key);
+            count++;
+          }
+          continue;
+        }
+        
         // Until we modify the semantics of put/putAll to allow null values we
         // have to subvert the API by using Token.INVALID.  Alternatively we could
         // invoke create/invalidate directly but that prevents us from using
@@ -251,8 +282,13 @@ public class RegionSnapshotServiceImpl<K, V> implements RegionSnapshotService<K,
           
           // Push entries into cache using putAll on a separate thread so we
           // can keep the disk busy. Throttle puts so we don't overwhelm the cache.
-          if (bufferSize > BUFFER_SIZE) {
-            if (puts.size() == IMPORT_CONCURRENCY) {
+          if (bufferSize > BUFFER_SIZE && concurrency == 0) {
+            local.basicImportPutAll(buffer, true);
+            buffer.clear();
+            bufferSize = 0;
+
+          } else if (bufferSize > BUFFER_SIZE) {
+            if (puts.size() == concurrency) {
               puts.removeFirst().get();
             }
             
@@ -283,6 +319,10 @@ public class RegionSnapshotServiceImpl<K, V> implements RegionSnapshotService<K,
       while (!puts.isEmpty()) {
         puts.removeFirst().get();
       }
+      
+      if (!destroys.isEmpty()) {
+        local.basicImportRemoveAll(destroys, true);
+      }
 
       if (getLoggerI18n().infoEnabled()) {
         getLoggerI18n().info(LocalizedStrings.Snapshot_IMPORT_END_0_1_2_3, 
@@ -313,13 +353,25 @@ public class RegionSnapshotServiceImpl<K, V> implements RegionSnapshotService<K,
     LocalRegion local = getLocalRegion(region);
     Exporter<K, V> exp = createExporter(region, options);
 
+    // capture the versions before reading any entries so that changes made
+    // during the export are included in the next incremental snapshot
+    SnapshotVersions versions = null;
+    if (exp instanceof LocalExporter) {
+      versions = SnapshotVersions.capture(region);
+    }
+    
+    File baseSnapshot = ((SnapshotOptionsImpl<K, V>) options).getBaseSnapshot();
+    if (baseSnapshot != null) {
+      exp = createIncrementalExporter(baseSnapshot, versions);
+    }
+
     if (getLoggerI18n().fineEnabled()) {
       getLoggerI18n().fine("Writing to snapshot " + snapshot.getAbsolutePath());
     }
     
     long count = 0;
     long start = CachePerfStats.getStatTime();
-    SnapshotWriter writer = GFSnapshot.create(snapshot, region.getFullPath());
+    SnapshotWriter writer = GFSnapshot.create(snapshot, region.getFullPath(), format, versions);
     try {
       if (getLoggerI18n().infoEnabled())
         getLoggerI18n().info(LocalizedStrings.Snapshot_EXPORT_BEGIN_0, region.getName());
@@ -338,6 +390,199 @@ public class RegionSnapshotServiceImpl<K, V> implements RegionSnapshotService<K,
     }
   }
 
+  private Exporter<K, V> createIncrementalExporter(File baseSnapshot, SnapshotVersions versions) 
+      throws IOException {
+    if (versions == null) {
+      throw new IllegalArgumentException(LocalizedStrings.Snapshot_INCREMENTAL_REQUIRES_LOCAL_VERSIONS_0
+          .toLocalizedString(region.getFullPath()));
+    }
+    
+    SnapshotVersions base;
+    try {
+      base = GFSnapshot.readVersions(baseSnapshot);
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+    if (base == null) {
+      throw new IOException(LocalizedStrings.Snapshot_BASE_HAS_NO_VERSIONS_0.toLocalizedString(baseSnapshot));
+    }
+    
+    if (base.hasCollectedTombstones(versions)) {
+      getLoggerI18n().warning(LocalizedStrings.Snapshot_TOMBSTONES_COLLECTED_SINCE_BASE_0_1, 
+          new Object[] { region.getFullPath(), baseSnapshot });
+    }
+    return new LocalExporter<K, V>(base);
+  }
+
+  /**
+   * Exports each bucket in the local data set to a separate snapshot file in
+   * the supplied directory.  Buckets are exported concurrently, subject to
+   * {@link #BUCKET_CONCURRENCY}.
+   * 
+   * @param local the local data set containing the buckets to export
+   * @param dir the destination directory
+   * @param format the snapshot format
+   * @param options the snapshot options
+   * @throws IOException error during export
+   */
+  static <K, V> void exportBuckets(LocalDataSet local, File dir, 
+      final SnapshotFormat format, SnapshotOptionsImpl<K, V> options) throws IOException {
+    final PartitionedRegion pr = local.getProxy();
+    
+    List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+    for (final Integer bucketId : local.getBucketSet()) {
+      final File f = new File(dir, getBucketFileName(pr, bucketId));
+      
+      // compare each bucket with its own base file, if there is one
+      final SnapshotOptionsImpl<K, V> bucketOptions;
+      File base = options.getBaseSnapshot();
+      if (base != null && base.isDirectory()) {
+        File bucketBase = new File(base, getBucketFileName(pr, bucketId));
+        bucketOptions = options.withBaseSnapshot(bucketBase.exists() ? bucketBase : null);
+      } else {
+        bucketOptions = options;
+      }
+      
+      tasks.add(new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          Region<K, V> bucket = new LocalDataSet(pr, Collections.singleton(bucketId));
+          bucket.getSnapshotService().save(f, format, bucketOptions);
+          return null;
+        }
+      });
+    }
+    invokeConcurrently(tasks);
+  }
+  
+  /**
+   * Imports the supplied snapshot files into the local data set.  Files are
+   * imported concurrently, subject to {@link #BUCKET_CONCURRENCY}.  When the
+   * files were created by a per-bucket export each import issues putAll
+   * batches that target a single bucket.  The putAll batches of concurrently
+   * imported files run on the thread importing the file so that the number of
+   * threads stays within the bucket concurrency.
+   * 
+   * @param local the local data set
+   * @param files the snapshot files to import
+   * @param format the snapshot format
+   * @param options the snapshot options
+   * @throws IOException error during import
+   */
+  static <K, V> void importFiles(final Region<K, V> local, File[] files, 
+      final SnapshotFormat format, final SnapshotOptions<K, V> options) throws IOException {
+    final RegionSnapshotServiceImpl<K, V> rss = new RegionSnapshotServiceImpl<K, V>(local);
+    final int concurrency = files.length > 1 ? 0 : IMPORT_CONCURRENCY;
+    
+    List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+    for (final File f : files) {
+      if (f.isDirectory() || !f.exists()) {
+        throw new IOException(LocalizedStrings.Snapshot_INVALID_IMPORT_FILE.toLocalizedString(f));
+      }
+      tasks.add(new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          rss.importOnMember(f, format, options, concurrency);
+          return null;
+        }
+      });
+    }
+    invokeConcurrently(tasks);
+  }
+  
+  /**
+   * Returns the files of a shared snapshot directory to be imported by this
+   * member: the files of the buckets in the local data set.  Files not named
+   * after a bucket are assigned to a bucket by the hash of their name.
+   * 
+   * @param local the local data set of the import
+   * @param files the files in the shared directory
+   * @return the files to import
+   */
+  static File[] selectLocalFiles(LocalDataSet local, File[] files) {
+    PartitionedRegion pr = local.getProxy();
+    String prefix = getBucketFileName(pr, 0);
+    prefix = prefix.substring(0, prefix.length() - 1);
+    
+    List<File> selected = new ArrayList<File>();
+    for (File f : files) {
+      int bucketId = -1;
+      if (f.getName().startsWith(prefix)) {
+        try {
+          bucketId = Integer.parseInt(f.getName().substring(prefix.length()));
+        } catch (NumberFormatException e) {
+          // not a bucket file
+        }
+      }
+      if (bucketId < 0 || bucketId >= pr.getTotalNumberOfBuckets()) {
+        bucketId = (f.getName().hashCode() & Integer.MAX_VALUE) % pr.getTotalNumberOfBuckets();
+      }
+      if (local.getBucketSet().contains(bucketId)) {
+        selected.add(f);
+      }
+    }
+    return selected.toArray(new File[selected.size()]);
+  }
+  
+  /**
+   * Returns the name of the snapshot file used for a bucket during a
+   * per-bucket export.
+   * 
+   * @param pr the partitioned region
+   * @param bucketId the bucket id
+   * @return the file name
+   */
+  static String getBucketFileName(PartitionedRegion pr, int bucketId) {
+    return "snapshot" + pr.getFullPath().replace('/', '-') + "-" + bucketId;
+  }
+  
+  private static void invokeConcurrently(List<Callable<Object>> tasks) throws IOException {
+    if (tasks.size() == 1) {
+      try {
+        tasks.get(0).call();
+        return;
+      } catch (IOException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IOException(e);
+      }
+    }
+    
+    ExecutorService pool = GemFireCacheImpl
+        .getExisting("Processing parallel snapshot")
+        .getDistributionManager().getWaitingThreadPool();
+    
+    LinkedList<Future<?>> running = new LinkedList<Future<?>>();
+    try {
+      for (Callable<Object> task : tasks) {
+        if (running.size() == BUCKET_CONCURRENCY) {
+          running.removeFirst().get();
+        }
+        running.addLast(pool.submit(task));
+      }
+      
+      while (!running.isEmpty()) {
+        running.removeFirst().get();
+      }
+      
+    } catch (InterruptedException e) {
+      while (!running.isEmpty()) {
+        running.removeFirst().cancel(true);
+      }
+      Thread.currentThread().interrupt();
+      throw (IOException) new InterruptedIOException().initCause(e);
+
+    } catch (ExecutionException e) {
+      while (!running.isEmpty()) {
+        running.removeFirst().cancel(true);
+      }
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+  
   private boolean includeEntry(SnapshotOptions<K, V> options, final K key, final V val) {
     if (options.getFilter() != null) {
       Entry<K, V> entry = new Entry<K, V>() {
@@ -357,6 +602,7 @@ public class RegionSnapshotServiceImpl<K, V> implements RegionSnapshotService<K,
   }
   
   static <K, V> Exporter<K, V> createExporter(Region<?, ?> region, SnapshotOptions<K, V> options) {
+    SnapshotOptionsImpl<K, V> opts = (SnapshotOptionsImpl<K, V>) options;
     String pool = region.getAttributes().getPoolName();
     if (pool != null) {
       return new ClientExporter<K, V>(PoolManager.find(pool));
@@ -364,13 +610,16 @@ public class RegionSnapshotServiceImpl<K, V> implements RegionSnapshotService<K,
     } else if (InternalDistributedSystem.getAnyInstance().isLoner()
         || region.getAttributes().getDataPolicy().equals(DataPolicy.NORMAL)
         || region.getAttributes().getDataPolicy().equals(DataPolicy.PRELOADED)
+        || (region.getAttributes().getDataPolicy().withReplication()
+            && (opts.isRecordVersions() || opts.getBaseSnapshot() != null))
         || region instanceof LocalDataSet
-        || (((SnapshotOptionsImpl<K, V>) options).isParallelMode() 
+        || (opts.isParallelMode() 
             && region.getAttributes().getDataPolicy().withPartitioning())) {
       
       // Avoid function execution:
       //    for loner systems to avoid inlining fn execution
       //    for NORMAL/PRELOAD since they don't support fn execution
+      //    for versioned replicated regions since the versions are local
       //    for LocalDataSet since we're already running a fn
       //    for parallel ops since we're already running a fn
       return new LocalExporter<K, V>();
@@ -477,14 +726,26 @@ public class RegionSnapshotServiceImpl<K, V> implements RegionSnapshotService<K,
         Region<K, V> local = PartitionRegionHelper.getLocalDataForContext((RegionFunctionContext) context);
         ParallelArgs<K, V> args = (ParallelArgs<K, V>) context.getArguments();
         
-        File f = args.getOptions().getMapper().mapExportPath(
-            local.getCache().getDistributedSystem().getDistributedMember(), args.getFile());
+        DistributedMember me = local.getCache().getDistributedSystem().getDistributedMember();
+        SnapshotOptionsImpl<K, V> options = args.getOptions();
+        File f = options.getMapper().mapExportPath(me, args.getFile());
         
-        if (f == null || f.isDirectory()) {
+        if (f == null) {
           throw new IOException(LocalizedStrings.Snapshot_INVALID_EXPORT_FILE.toLocalizedString(f));
         }
         
-        local.getSnapshotService().save(f, args.getFormat(), args.getOptions());
+        if (options.getBaseSnapshot() != null) {
+          options = options.withBaseSnapshot(options.getMapper().mapExportPath(me, options.getBaseSnapshot()));
+        }
+        
+        if (f.isDirectory()) {
+          if (!(local instanceof LocalDataSet)) {
+            throw new IOException(LocalizedStrings.Snapshot_INVALID_EXPORT_FILE.toLocalizedString(f));
+          }
+          exportBuckets((LocalDataSet) local, f, args.getFormat(), options);
+        } else {
+          local.getSnapshotService().save(f, args.getFormat(), options);
+        }
         context.getResultSender().lastResult(Boolean.TRUE);
         
       } catch (Exception e) {
@@ -523,13 +784,12 @@ public class RegionSnapshotServiceImpl<K, V> implements RegionSnapshotService<K,
         File[] files = args.getOptions().getMapper().mapImportPath(
             local.getCache().getDistributedSystem().getDistributedMember(), args.getFile());
         
+        if (files != null && args.getOptions().isSharedDirectory()
+            && local instanceof LocalDataSet) {
+          files = selectLocalFiles((LocalDataSet) local, files);
+        }
         if (files != null) {
-          for (File f : files) {
-            if (f.isDirectory() || !f.exists()) {
-              throw new IOException(LocalizedStrings.Snapshot_INVALID_IMPORT_FILE.toLocalizedString(f));
-            }
-            local.getSnapshotService().load(f, args.getFormat(), args.getOptions());
-          }
+          importFiles(local, files, args.getFormat(), args.getOptions());
         }
         context.getResultSender().lastResult(Boolean.TRUE);
         
@@ -7,6 +7,8 @@
  */
 package com.gemstone.gemfire.internal.cache.snapshot;
 
+import java.io.File;
+
 import com.gemstone.gemfire.cache.snapshot.SnapshotFilter;
 import com.gemstone.gemfire.cache.snapshot.SnapshotOptions;
 
@@ -30,6 +32,15 @@ public class SnapshotOptionsImpl<K, V> implements SnapshotOptions<K, V> {
   /** the file mapper, or null if parallel mode is not enabled */
   private volatile SnapshotFileMapper mapper;
   
+  /** the base snapshot for an incremental export, or null */
+  private volatile File baseSnapshot;
+  
+  /** true if all members read and write the same snapshot directory */
+  private volatile boolean sharedDirectory;
+  
+  /** true if the region versions of a replicated region are recorded */
+  private volatile boolean recordVersions;
+  
   public SnapshotOptionsImpl() {
     filter = null;
   }
@@ -70,6 +81,14 @@ public class SnapshotOptionsImpl<K, V> implements SnapshotOptions<K, V> {
    * If processes are colocated on the same machine and relative pathnames are
    * not used, a custom mapper <b>must</b> be supplied to disambiguate filenames.
    * This rule applies when writing to a shared network volume as well.
+   * <p>
+   * If the export path (after mapping) is an existing directory, each member 
+   * writes every local primary bucket to a separate file within the directory
+   * and buckets are exported concurrently.  Importing the directory loads the
+   * bucket files concurrently so that each bulk put targets a single bucket.
+   * Since bucket files are named by bucket id, members may share a directory
+   * during export.  To import a shared directory, see 
+   * {@link #setSharedDirectory(boolean)}.
    * 
    * @param parallel true if the snapshot operations will be performed in parallel
    * @return the snapshot options
@@ -112,4 +131,122 @@ public class SnapshotOptionsImpl<K, V> implements SnapshotOptions<K, V> {
   public SnapshotFileMapper getMapper() {
     return (mapper == null) ? RegionSnapshotServiceImpl.LOCAL_MAPPER : mapper;
   }
+  
+  /**
+   * Declares that the mapped path of a parallel import is the same directory
+   * for every member, e.g. a network volume.  Each member then imports only
+   * the files of the buckets it hosts the primary copy of, so every file is
+   * imported once.  The buckets of the region are created before the import
+   * starts.  Files that are not bucket files are handed out by the hash of
+   * their name.
+   * <p>
+   * Without this option every member imports every file the mapper returns.
+   * 
+   * @param shared true if the members share the snapshot directory
+   * @return the snapshot options
+   * @see #setParallelMode(boolean)
+   */
+  public SnapshotOptions<K, V> setSharedDirectory(boolean shared) {
+    this.sharedDirectory = shared;
+    return this;
+  }
+  
+  /**
+   * Returns true if the members share the snapshot directory of a parallel
+   * import.
+   * 
+   * @return true if the directory is shared
+   * @see #setSharedDirectory(boolean)
+   */
+  public boolean isSharedDirectory() {
+    return sharedDirectory;
+  }
+  
+  /**
+   * Enables incremental export.  Only the entries that have been created,
+   * updated, or destroyed since the base snapshot was created are exported.
+   * Destroyed entries are recorded so that loading the incremental snapshot
+   * removes them from the region.
+   * <p>
+   * Snapshots record the region versions of the exported data when the data
+   * is read locally.  This is the case for partitioned regions exported in
+   * parallel mode and for replicated regions exported with
+   * {@link #setRecordVersions(boolean)} or with a base snapshot.  Incremental
+   * export requires concurrency checks to be enabled on the region.
+   * <p>
+   * To restore the region, load the base snapshot followed by each 
+   * incremental snapshot in the order they were created.  In parallel mode
+   * the base path is mapped using the {@link SnapshotFileMapper}; if it is a
+   * directory of per-bucket snapshots, each bucket is compared against its
+   * own base file and buckets without a base file are exported in full.
+   * For a cache snapshot the base is the directory of an earlier cache
+   * snapshot: each region is compared against its own file in that directory,
+   * and regions without a base file are exported in full.
+   * <p>
+   * Destroyed entries are only retained by the region until their 
+   * tombstones are garbage collected, so incremental snapshots should be
+   * taken more frequently than the tombstone timeout.
+   * 
+   * @param base the base snapshot, or null to export all entries
+   * @return the snapshot options
+   * @see com.gemstone.gemfire.cache.snapshot.SnapshotReader#read(File[])
+   */
+  public SnapshotOptions<K, V> setBaseSnapshot(File base) {
+    this.baseSnapshot = base;
+    return this;
+  }
+  
+  /**
+   * Returns the base snapshot used for an incremental export.
+   * 
+   * @return the base snapshot, or null if incremental export is not enabled
+   * @see #setBaseSnapshot(File)
+   */
+  public File getBaseSnapshot() {
+    return baseSnapshot;
+  }
+  
+  /**
+   * Records the region versions of a replicated region so that the snapshot
+   * can be used as the base of an incremental export.  The entries are then
+   * read from the local replica instead of being streamed by a function, so
+   * the export runs on the calling member only.  Partitioned regions record
+   * their versions when exported in parallel mode, regardless of this
+   * option.
+   * 
+   * @param record true to record the region versions
+   * @return the snapshot options
+   * @see #setBaseSnapshot(File)
+   */
+  public SnapshotOptions<K, V> setRecordVersions(boolean record) {
+    this.recordVersions = record;
+    return this;
+  }
+  
+  /**
+   * Returns true if the region versions of a replicated region are recorded.
+   * 
+   * @return true if the versions are recorded
+   * @see #setRecordVersions(boolean)
+   */
+  public boolean isRecordVersions() {
+    return recordVersions;
+  }
+  
+  /**
+   * Returns a copy of these options using a different base snapshot.
+   * 
+   * @param base the base snapshot
+   * @return the options
+   */
+  SnapshotOptionsImpl<K, V> withBaseSnapshot(File base) {
+    SnapshotOptionsImpl<K, V> copy = new SnapshotOptionsImpl<K, V>();
+    copy.filter = filter;
+    copy.parallel = parallel;
+    copy.mapper = mapper;
+    copy.baseSnapshot = base;
+    copy.sharedDirectory = sharedDirectory;
+    copy.recordVersions = recordVersions;
+    return copy;
+  }
 }
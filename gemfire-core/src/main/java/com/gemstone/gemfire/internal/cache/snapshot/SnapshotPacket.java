@@ -40,6 +40,9 @@ public class SnapshotPacket implements DataSerializableFixedID {
    * Captures the key/value data from a cache entry for import or export.
    */
   public static class SnapshotRecord implements DataSerializableFixedID {
+    /** the value of a record describing a destroyed entry */
+    private static final byte[] DESTROYED = new byte[0];
+    
     /** the serialized key */
     private byte[] key;
     
@@ -74,6 +77,18 @@ public class SnapshotPacket implements DataSerializableFixedID {
       }
     }
 
+    /**
+     * Creates a record describing a destroyed entry.  Destroyed entries are
+     * included in incremental snapshots.
+     * 
+     * @param keyObj the key of the destroyed entry
+     * @return the record
+     * @throws IOException error serializing the key
+     */
+    public static SnapshotRecord createDestroyed(Object keyObj) throws IOException {
+      return new SnapshotRecord(BlobHelper.serializeToBlob(keyObj), DESTROYED);
+    }
+
     /**
      * Returns the serialized key.
      * @return the key
@@ -109,7 +124,7 @@ public class SnapshotPacket implements DataSerializableFixedID {
      * @throws ClassNotFoundException unable to deserialize value
      */
     public <V> V getValueObject() throws IOException, ClassNotFoundException {
-      return value == null ? null : (V) BlobHelper.deserializeBlob(value);
+      return (value == null || isDestroyed()) ? null : (V) BlobHelper.deserializeBlob(value);
     }
     
     /**
@@ -120,6 +135,15 @@ public class SnapshotPacket implements DataSerializableFixedID {
       return value != null;
     }
     
+    /**
+     * Returns true if the record describes a destroyed entry.  A serialized
+     * value is never empty so destroys are recorded using an empty value.
+     * @return true if the entry was destroyed
+     */
+    public boolean isDestroyed() {
+      return value != null && value.length == 0;
+    }
+    
     /**
      * Returns the size in bytes of the serialized key and value.
      * @return the record size
@@ -0,0 +1,175 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.snapshot;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.internal.InternalDataSerializer;
+import com.gemstone.gemfire.internal.cache.BucketRegion;
+import com.gemstone.gemfire.internal.cache.LocalDataSet;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.cache.PartitionedRegion;
+import com.gemstone.gemfire.internal.cache.versions.DiskRegionVersionVector;
+import com.gemstone.gemfire.internal.cache.versions.RegionVersionVector;
+import com.gemstone.gemfire.internal.cache.versions.VersionSource;
+import com.gemstone.gemfire.internal.cache.versions.VersionStamp;
+
+/**
+ * Captures the region version vectors of the data contained in a snapshot.
+ * A later snapshot can use the versions to export only the entries that
+ * have changed since the snapshot was created.  A partitioned region records
+ * a version vector for each exported bucket.
+ */
+public class SnapshotVersions {
+  /** the id used for the version vector of a region that is not partitioned */
+  static final int NO_BUCKET = -1;
+
+  /** the version vectors, by bucket id */
+  private final Map<Integer, RegionVersionVector> versions;
+
+  public SnapshotVersions() {
+    versions = new HashMap<Integer, RegionVersionVector>();
+  }
+
+  /**
+   * Captures the current version vectors of the local data of a region.
+   * The versions must be captured before reading the region entries.
+   *
+   * @param region the region, partitioned region or local data set
+   * @return the versions, or null if the region is not versioned
+   */
+  public static SnapshotVersions capture(Region<?, ?> region) {
+    SnapshotVersions result = new SnapshotVersions();
+    for (Map.Entry<Integer, LocalRegion> entry : getLocalData(region).entrySet()) {
+      RegionVersionVector rvv = entry.getValue().getVersionVector();
+      if (rvv == null) {
+        return null;
+      }
+      result.versions.put(entry.getKey(), rvv.getCloneForSnapshot());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the local regions containing the data of a region, by bucket id.
+   *
+   * @param region the region, partitioned region or local data set
+   * @return the local data
+   */
+  static Map<Integer, LocalRegion> getLocalData(Region<?, ?> region) {
+    LocalRegion local = RegionSnapshotServiceImpl.getLocalRegion(region);
+    if (!(local instanceof PartitionedRegion)) {
+      return Collections.singletonMap(NO_BUCKET, local);
+    }
+
+    Map<Integer, LocalRegion> buckets = new TreeMap<Integer, LocalRegion>();
+    PartitionedRegion pr = (PartitionedRegion) local;
+    if (pr.getDataStore() == null) {
+      return buckets;
+    }
+
+    if (region instanceof LocalDataSet) {
+      for (Integer bucketId : ((LocalDataSet) region).getBucketSet()) {
+        BucketRegion br = pr.getDataStore().getLocalBucketById(bucketId);
+        if (br != null) {
+          buckets.put(bucketId, br);
+        }
+      }
+    } else {
+      for (BucketRegion br : pr.getDataStore().getAllLocalBucketRegions()) {
+        buckets.put(br.getId(), br);
+      }
+    }
+    return buckets;
+  }
+
+  /**
+   * Returns the version vector recorded for a bucket.
+   *
+   * @param bucketId the bucket id, or {@link #NO_BUCKET}
+   * @return the version vector, or null if the bucket was not recorded
+   */
+  public RegionVersionVector getVersionVector(int bucketId) {
+    return versions.get(bucketId);
+  }
+
+  /**
+   * Returns true if no version vectors were recorded.
+   * @return true if empty
+   */
+  public boolean isEmpty() {
+    return versions.isEmpty();
+  }
+
+  /**
+   * Returns true if the change described by a version stamp is included in
+   * the recorded version vector.
+   *
+   * @param rvv the recorded version vector
+   * @param region the region containing the entry
+   * @param stamp the version stamp of the entry
+   * @return true if the change has been recorded
+   */
+  static boolean contains(RegionVersionVector rvv, LocalRegion region, VersionStamp stamp) {
+    VersionSource id = stamp.getMemberID();
+    if (id == null) {
+      id = region.getVersionMember();
+    }
+    return rvv.contains(id, stamp.getRegionVersion());
+  }
+
+  /**
+   * Returns true if tombstones that are not included in these versions have
+   * since been garbage collected from the region.  The destroy operations 
+   * for those tombstones can no longer be exported.
+   *
+   * @param current the current versions of the region
+   * @return true if tombstones were collected since the versions were recorded
+   */
+  public boolean hasCollectedTombstones(SnapshotVersions current) {
+    for (Map.Entry<Integer, RegionVersionVector> entry : current.versions.entrySet()) {
+      RegionVersionVector rvv = versions.get(entry.getKey());
+      if (rvv == null) {
+        continue;
+      }
+      
+      Map<VersionSource, Long> gcVersions = entry.getValue().getMemberToGCVersion();
+      for (Map.Entry<VersionSource, Long> gc : gcVersions.entrySet()) {
+        if (gc.getValue() > 0 && !rvv.contains(gc.getKey(), gc.getValue())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  public void toData(DataOutput out) throws IOException {
+    out.writeInt(versions.size());
+    for (Map.Entry<Integer, RegionVersionVector> entry : versions.entrySet()) {
+      out.writeInt(entry.getKey());
+      out.writeBoolean(entry.getValue() instanceof DiskRegionVersionVector);
+      InternalDataSerializer.invokeToData(entry.getValue(), out);
+    }
+  }
+
+  public void fromData(DataInput in) throws IOException, ClassNotFoundException {
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      int bucketId = in.readInt();
+      boolean persistent = in.readBoolean();
+      versions.put(bucketId, RegionVersionVector.create(persistent, in));
+    }
+  }
+}
@@ -182,6 +182,21 @@ public abstract class RegionVersionVector<T extends VersionSource<?>> implements
         clonedLocalHolder);
   }
   
+  /**
+   * Retrieve a vector that describes the entries of the region at this
+   * point in time, e.g. for recording in a region snapshot.  Local cache
+   * modifications that have already been assigned a version are allowed to
+   * complete before the vector is cloned.
+   */
+  public RegionVersionVector<T> getCloneForSnapshot() {
+    this.versionLock.writeLock().lock();
+    try {
+      return getCloneForTransmission();
+    } finally {
+      this.versionLock.writeLock().unlock();
+    }
+  }
+
   protected abstract RegionVersionVector<T> createCopy(T ownerId,
       ConcurrentHashMap<T, RegionVersionHolder<T>> vector, long version,
       ConcurrentHashMap<T, Long> gcVersions, long gcVersion, boolean singleMember,
@@ -65,6 +65,7 @@ import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
 import com.gemstone.gemfire.internal.logging.LogService;
 import com.gemstone.gemfire.internal.logging.LoggingThreadGroup;
 import com.gemstone.gemfire.internal.logging.log4j.LocalizedMessage;
+import com.gemstone.gemfire.internal.offheap.MemoryAllocator;
 import com.gemstone.gemfire.internal.offheap.Releasable;
 import com.gemstone.gemfire.internal.offheap.annotations.Retained;
 import com.gemstone.gemfire.internal.offheap.annotations.Unretained;
@@ -184,6 +185,21 @@ public abstract class AbstractGatewaySender implements GatewaySender,
   public static int TOKEN_TIMEOUT = Integer.getInteger(
       "GatewaySender.TOKEN_TIMEOUT", 15000).intValue();
 
+  /**
+   * Whether the senders and async event queues move the values of the events
+   * they queue to the off-heap memory of the cache, if it has one. The values
+   * of the events of off-heap regions are always kept off-heap.
+   */
+  public static boolean OFF_HEAP_QUEUE_VALUES = Boolean
+      .getBoolean("gemfire.GatewaySender.OFF_HEAP_QUEUE_VALUES");
+
+  /**
+   * The percentage of the off-heap memory that is kept free for the regions:
+   * the values of queued events stay on the heap when less is free.
+   */
+  public static final int OFF_HEAP_QUEUE_RESERVE_PERCENT = Integer.getInteger(
+      "gemfire.GatewaySender.OFF_HEAP_QUEUE_RESERVE_PERCENT", 10).intValue();
+
   /**
    * The name of the DistributedLockService used when accessing the GatewaySender's
    * meta data region.
@@ -632,6 +648,26 @@ public abstract class AbstractGatewaySender implements GatewaySender,
     logger.info(LocalizedMessage.create(LocalizedStrings.GatewayImpl_GATEWAY_0_HAS_BEEN_REBALANCED, this));
   }
 
+  /**
+   * Moves the value of an event about to be queued to the off-heap memory of
+   * the cache, if {@link #OFF_HEAP_QUEUE_VALUES} is set and the off-heap memory
+   * has more than its reserve free. The value stays on the heap if the
+   * allocation fails anyway.
+   */
+  public void moveValueOffHeap(GatewaySenderEventImpl event) {
+    if (!OFF_HEAP_QUEUE_VALUES) {
+      return;
+    }
+    MemoryAllocator allocator = ((GemFireCacheImpl)this.cache).getOffHeapStore();
+    if (allocator == null) {
+      return;
+    }
+    long reserve = allocator.getTotalMemory() * OFF_HEAP_QUEUE_RESERVE_PERCENT / 100;
+    if (allocator.getFreeMemory() - event.getSerializedValueSize() > reserve) {
+      event.moveValueOffHeap(allocator);
+    }
+  }
+
   public boolean beforeEnque(GatewayQueueEvent gatewayEvent) {
     boolean enque = true;
     for (GatewayEventFilter filter : getGatewayEventFilters()) {
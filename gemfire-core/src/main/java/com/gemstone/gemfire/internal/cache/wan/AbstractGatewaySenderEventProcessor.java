@@ -580,8 +580,7 @@ public abstract class AbstractGatewaySenderEventProcessor extends Thread {
             logBatchFine("During normal processing, dispatching the following ", conflatedEventsToBeDispatched);
           }
           
-          boolean success = this.dispatcher.dispatchBatch(conflatedEventsToBeDispatched,
-              sender.isRemoveFromQueueOnException(), false);
+          boolean success = dispatchBatch(conflatedEventsToBeDispatched, false);
           if (success) {
             if (isDebugEnabled) {
               logger.debug("During normal processing, successfully dispatched {} events (batch #{})",
@@ -624,8 +623,7 @@ public abstract class AbstractGatewaySenderEventProcessor extends Thread {
             } else {
               handleUnSuccessfulBatchDispatch(events);
               if (!resetLastPeekedEvents) {
-                while (!this.dispatcher.dispatchBatch(conflatedEventsToBeDispatched,
-                    sender.isRemoveFromQueueOnException(), true)) {
+                while (!dispatchBatch(conflatedEventsToBeDispatched, true)) {
                   if (isDebugEnabled) {
                     logger.debug("During normal processing, unsuccessfully dispatched {} events (batch #{})",
                         conflatedEventsToBeDispatched.size(), getBatchId());
@@ -1047,6 +1045,24 @@ public abstract class AbstractGatewaySenderEventProcessor extends Thread {
     }
   }
 
+  /**
+   * Dispatches a batch of events with the dispatcher of this processor.
+   * Processors that share their dispatch capacity with other processors
+   * override this method.
+   */
+  protected boolean dispatchBatch(List events, boolean isRetry) {
+    return this.dispatcher.dispatchBatch(events,
+        sender.isRemoveFromQueueOnException(), isRetry);
+  }
+
+  /**
+   * Called by a dispatcher that pipelines its batches when a batch it sent is
+   * no longer in flight, because it was acknowledged or its connection
+   * failed.
+   */
+  protected void inFlightBatchCompleted() {
+  }
+
   public void setRunningStatus() throws Exception {
     GemFireException ex = null;
     try {
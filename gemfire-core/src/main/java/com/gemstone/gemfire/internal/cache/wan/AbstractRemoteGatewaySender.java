@@ -0,0 +1,124 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan;
+
+import java.util.Properties;
+import java.util.StringTokenizer;
+
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.client.PoolManager;
+import com.gemstone.gemfire.cache.client.internal.PoolImpl;
+import com.gemstone.gemfire.cache.wan.GatewayReceiver;
+import com.gemstone.gemfire.distributed.internal.DistributionConfig;
+import com.gemstone.gemfire.distributed.internal.InternalDistributedSystem;
+import com.gemstone.gemfire.internal.cache.PoolFactoryImpl;
+import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+import com.gemstone.gemfire.internal.logging.LogService;
+
+/**
+ * A <code>GatewaySender</code> that sends its events to the
+ * <code>GatewayReceiver</code>s of a remote distributed system through a
+ * connection pool.
+ * <p>
+ * The receivers are found with the system property
+ * <code>gemfire.GatewaySender.&lt;senderId&gt;.RECEIVERS</code>, a comma
+ * separated list of <code>host[port]</code> receivers, or else with the
+ * locators of the <code>remote-locators</code> of the distributed system,
+ * which are asked for the servers of the receiver group.
+ *
+ * @since 9.0
+ */
+public abstract class AbstractRemoteGatewaySender extends AbstractGatewaySender {
+
+  private static final Logger logger = LogService.getLogger();
+
+  public AbstractRemoteGatewaySender() {
+    super();
+  }
+
+  public AbstractRemoteGatewaySender(Cache cache, GatewaySenderAttributes attrs) {
+    super(cache, attrs);
+  }
+
+  @Override
+  public synchronized void initProxy() {
+    if (this.proxy != null && !this.proxy.isDestroyed()) {
+      return;
+    }
+    Properties props = new Properties();
+    String receivers = System.getProperty("gemfire.GatewaySender." + getId()
+        + ".RECEIVERS");
+    String remoteLocators = ((InternalDistributedSystem)this.cache
+        .getDistributedSystem()).getConfig().getRemoteLocators();
+    boolean useLocators = false;
+    if (receivers != null && receivers.length() > 0) {
+      props.setProperty("endpoints", toEndpoints(getId(), receivers));
+    }
+    else if (remoteLocators != null && remoteLocators.length() > 0) {
+      props.setProperty(DistributionConfig.LOCATORS_NAME, remoteLocators);
+      useLocators = true;
+    }
+    else {
+      throw new GatewaySenderConfigurationException(
+          LocalizedStrings.AbstractGatewaySender_SENDER_0_COULD_NOT_GET_REMOTE_LOCATOR_INFORMATION_FOR_SITE_1
+              .toLocalizedString(new Object[] { getId(),
+                  Integer.valueOf(getRemoteDSId()) }));
+    }
+    props.setProperty("readTimeout", String.valueOf(getSocketReadTimeout()));
+    props.setProperty("socketBufferSize", String.valueOf(getSocketBufferSize()));
+    PoolFactoryImpl pf = (PoolFactoryImpl)PoolManager.createFactory();
+    pf.init(props, false, true, this);
+    if (useLocators) {
+      pf.setServerGroup(GatewayReceiver.RECEIVER_GROUP);
+    }
+    pf.setPRSingleHopEnabled(false);
+    this.proxy = (PoolImpl)pf.create(getId());
+    if (logger.isDebugEnabled()) {
+      logger.debug("{}: Created pool {} for remote site {}", this, getId(),
+          getRemoteDSId());
+    }
+  }
+
+  /**
+   * Converts a list of <code>host[port]</code> receivers to the endpoints
+   * property of a pool.
+   */
+  static String toEndpoints(String senderId, String receivers) {
+    StringBuilder sb = new StringBuilder();
+    StringTokenizer tokenizer = new StringTokenizer(receivers, ",");
+    int i = 0;
+    while (tokenizer.hasMoreTokens()) {
+      String receiver = tokenizer.nextToken().trim();
+      int bracket = receiver.indexOf('[');
+      if (bracket <= 0 || !receiver.endsWith("]")) {
+        throw new GatewaySenderConfigurationException(
+            LocalizedStrings.AbstractGatewaySender_SENDER_0_COULD_NOT_GET_REMOTE_LOCATOR_INFORMATION_FOR_SITE_1
+                .toLocalizedString(new Object[] { senderId, receivers }));
+      }
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append("receiver").append(i++).append('=')
+          .append(receiver.substring(0, bracket)).append(':')
+          .append(receiver.substring(bracket + 1, receiver.length() - 1));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Destroys the pool of the sender, after its processor stopped.
+   */
+  protected void destroyProxy() {
+    if (this.proxy != null) {
+      stompProxyDead();
+      this.proxy = null;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import com.gemstone.gemfire.cache.Declarable;
+import com.gemstone.gemfire.cache.wan.GatewayTransportFilter;
+
+/**
+ * A <code>GatewayTransportFilter</code> that compresses the batches sent
+ * between a <code>GatewaySender</code> and a <code>GatewayReceiver</code> with
+ * deflate. Both the sender and the receiver must be configured with it.
+ * <p>
+ * The compressed stream is flushed whenever a message is, so a message can be
+ * read as soon as it is sent. The compression level can be given with the
+ * <code>level</code> parameter, from 1 (fastest) to 9 (smallest); the default
+ * favors speed.
+ *
+ * @since 9.0
+ */
+public class CompressionGatewayTransportFilter implements
+    GatewayTransportFilter, Declarable {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private int level = Deflater.BEST_SPEED;
+
+  public CompressionGatewayTransportFilter() {
+  }
+
+  public CompressionGatewayTransportFilter(int level) {
+    this.level = level;
+  }
+
+  public void init(Properties props) {
+    String value = props.getProperty("level");
+    if (value != null) {
+      this.level = Integer.parseInt(value.trim());
+    }
+  }
+
+  public InputStream getInputStream(InputStream stream) {
+    return new InflaterInputStream(stream, new Inflater(), BUFFER_SIZE);
+  }
+
+  public OutputStream getOutputStream(OutputStream stream) {
+    return new DeflaterOutputStream(stream, new Deflater(this.level),
+        BUFFER_SIZE, true/* syncFlush */);
+  }
+
+  public void close() {
+  }
+
+  @Override
+  public String toString() {
+    return "CompressionGatewayTransportFilter[level=" + this.level + "]";
+  }
+}
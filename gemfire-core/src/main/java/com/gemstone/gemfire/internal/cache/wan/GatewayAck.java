@@ -0,0 +1,56 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan;
+
+/**
+ * The acknowledgement of a batch sent by a <code>GatewaySender</code>, as
+ * read from the <code>GatewayReceiver</code>.
+ *
+ * @since 9.0
+ */
+public class GatewayAck {
+  private final int batchId;
+
+  private final int numEvents;
+
+  private final BatchException70 be;
+
+  public GatewayAck(BatchException70 be, int batchId) {
+    this.be = be;
+    this.batchId = batchId;
+    this.numEvents = 0;
+  }
+
+  public GatewayAck(int batchId, int numEvents) {
+    this.batchId = batchId;
+    this.numEvents = numEvents;
+    this.be = null;
+  }
+
+  public int getBatchId() {
+    return this.batchId;
+  }
+
+  public int getNumEvents() {
+    return this.numEvents;
+  }
+
+  /**
+   * Returns the exception of a batch that failed on the receiver, or null if
+   * it succeeded.
+   */
+  public BatchException70 getBatchException() {
+    return this.be;
+  }
+
+  @Override
+  public String toString() {
+    return "GatewayAck[batchId=" + this.batchId + ", numEvents="
+        + this.numEvents + ", exception=" + this.be + "]";
+  }
+}
@@ -0,0 +1,227 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.server.CacheServer;
+import com.gemstone.gemfire.cache.wan.GatewayReceiver;
+import com.gemstone.gemfire.cache.wan.GatewayTransportFilter;
+import com.gemstone.gemfire.distributed.internal.InternalDistributedSystem;
+import com.gemstone.gemfire.distributed.internal.ResourceEvent;
+import com.gemstone.gemfire.internal.AvailablePort;
+import com.gemstone.gemfire.internal.SocketCreator;
+import com.gemstone.gemfire.internal.cache.BridgeServerImpl;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+import com.gemstone.gemfire.internal.logging.LogService;
+import com.gemstone.gemfire.internal.logging.log4j.LocalizedMessage;
+
+/**
+ * A <code>GatewayReceiver</code> backed by a cache server of the receiver
+ * group, listening on a port of its port range. The batches sent by the
+ * <code>GatewaySender</code>s of remote sites are applied by the
+ * <code>GatewayReceiverCommand</code> of the server.
+ *
+ * @since 9.0
+ */
+public class GatewayReceiverImpl implements GatewayReceiver {
+
+  private static final Logger logger = LogService.getLogger();
+
+  private static final Random RANDOM = new Random();
+
+  private final GemFireCacheImpl cache;
+
+  private final int startPort;
+
+  private final int endPort;
+
+  private final int timeBetPings;
+
+  private final int socketBufferSize;
+
+  private final String bindAddress;
+
+  private final String hostnameForSenders;
+
+  private final boolean manualStart;
+
+  private final List<GatewayTransportFilter> filters;
+
+  private final String host;
+
+  private volatile int port;
+
+  private volatile BridgeServerImpl receiver;
+
+  public GatewayReceiverImpl(Cache cache, int startPort, int endPort,
+      int timeBetPings, int socketBufferSize, String bindAddress,
+      List<GatewayTransportFilter> filters, String hostnameForSenders,
+      boolean manualStart) {
+    this.cache = (GemFireCacheImpl)cache;
+    this.startPort = startPort;
+    this.endPort = endPort;
+    this.timeBetPings = timeBetPings;
+    this.socketBufferSize = socketBufferSize;
+    this.bindAddress = bindAddress;
+    this.filters = filters;
+    this.hostnameForSenders = hostnameForSenders;
+    this.manualStart = manualStart;
+
+    // the host name given to senders takes precedence over the bind address
+    if (hostnameForSenders == null || hostnameForSenders.isEmpty()) {
+      if (bindAddress == null || bindAddress.isEmpty()) {
+        try {
+          logger.warn(LocalizedMessage.create(LocalizedStrings.GatewayReceiverImpl_USING_LOCAL_HOST));
+          this.host = SocketCreator.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+          throw new IllegalStateException(
+              LocalizedStrings.GatewayReceiverImpl_COULD_NOT_GET_HOST_NAME
+                  .toLocalizedString(), e);
+        }
+      }
+      else {
+        this.host = bindAddress;
+      }
+    }
+    else {
+      this.host = hostnameForSenders;
+    }
+  }
+
+  public synchronized void start() throws IOException {
+    if (isRunning()) {
+      logger.warn(LocalizedMessage.create(LocalizedStrings.GatewayReceiver_IS_ALREADY_RUNNING));
+      return;
+    }
+    if (this.receiver == null) {
+      this.receiver = (BridgeServerImpl)this.cache.addCacheServer(true);
+    }
+    this.receiver.setMaximumTimeBetweenPings(this.timeBetPings);
+    this.receiver.setSocketBufferSize(this.socketBufferSize);
+    this.receiver.setBindAddress(this.bindAddress);
+    this.receiver.setHostnameForClients(this.host);
+    this.receiver.setGroups(new String[] { GatewayReceiver.RECEIVER_GROUP });
+    this.receiver.setGatewayTransportFilter(this.filters);
+
+    // start from a random port of the range so that the receivers of a host
+    // do not all compete for the first port, or from the previous port of a
+    // restarted receiver so that the senders find it again
+    int range = this.endPort - this.startPort + 1;
+    int offset = this.port == 0 ? RANDOM.nextInt(range) : this.port
+        - this.startPort;
+    boolean started = false;
+    for (int i = 0; i < range && !started; i++) {
+      int candidate = this.startPort + (offset + i) % range;
+      // the port of a receiver that was just stopped may not be free yet, the
+      // acceptor retries its bind for a while
+      if (candidate != this.port
+          && !AvailablePort.isPortAvailable(candidate, AvailablePort.SOCKET)) {
+        continue;
+      }
+      this.receiver.setPort(candidate);
+      try {
+        this.receiver.start();
+        this.port = candidate;
+        started = true;
+      } catch (BindException e) {
+        // taken since it was checked, try the next port
+        if (logger.isDebugEnabled()) {
+          logger.debug("Port {} of GatewayReceiver is in use", candidate, e);
+        }
+      }
+    }
+    if (!started) {
+      throw new GatewayReceiverException(
+          LocalizedStrings.GatewayReceiver_Address_Already_In_Use
+              .toLocalizedString(this.startPort + "-" + this.endPort));
+    }
+    logger.info(LocalizedMessage.create(
+        LocalizedStrings.GatewayReceiver_STARTED_ON_PORT,
+        Integer.valueOf(this.port)));
+    InternalDistributedSystem system = this.cache.getDistributedSystem();
+    system.handleResourceEvent(ResourceEvent.GATEWAYRECEIVER_START, this);
+  }
+
+  public synchronized void stop() {
+    if (!isRunning()) {
+      throw new GatewayReceiverException(
+          LocalizedStrings.GatewayReceiver_IS_NOT_RUNNING.toLocalizedString());
+    }
+    this.receiver.stop();
+    InternalDistributedSystem system = this.cache.getDistributedSystem();
+    system.handleResourceEvent(ResourceEvent.GATEWAYRECEIVER_STOP, this);
+  }
+
+  public boolean isRunning() {
+    BridgeServerImpl server = this.receiver;
+    return server != null && server.isRunning();
+  }
+
+  public List<GatewayTransportFilter> getGatewayTransportFilters() {
+    return this.filters;
+  }
+
+  public int getMaximumTimeBetweenPings() {
+    return this.timeBetPings;
+  }
+
+  public int getPort() {
+    return this.port;
+  }
+
+  public int getStartPort() {
+    return this.startPort;
+  }
+
+  public int getEndPort() {
+    return this.endPort;
+  }
+
+  public String getHost() {
+    return this.host;
+  }
+
+  public int getSocketBufferSize() {
+    return this.socketBufferSize;
+  }
+
+  public String getBindAddress() {
+    return this.bindAddress;
+  }
+
+  public String getHostnameForSenders() {
+    return this.hostnameForSenders;
+  }
+
+  public boolean isManualStart() {
+    return this.manualStart;
+  }
+
+  public CacheServer getServer() {
+    return this.receiver;
+  }
+
+  @Override
+  public String toString() {
+    return "Gateway Receiver" + "@" + Integer.toHexString(hashCode())
+        + " [host='" + getHost() + "'; port=" + getPort()
+        + "; bindAddress=" + getBindAddress()
+        + "; maximumTimeBetweenPings=" + getMaximumTimeBetweenPings()
+        + "; socketBufferSize=" + getSocketBufferSize() + "; isRunning="
+        + isRunning() + "]";
+  }
+}
@@ -0,0 +1,117 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan;
+
+import java.util.List;
+
+import com.gemstone.gemfire.cache.Operation;
+import com.gemstone.gemfire.cache.asyncqueue.AsyncEvent;
+import com.gemstone.gemfire.cache.asyncqueue.AsyncEventBatch;
+import com.gemstone.gemfire.internal.DSCODE;
+import com.gemstone.gemfire.internal.InternalDataSerializer;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.pdx.PdxInstance;
+
+/**
+ * An {@link AsyncEventBatch} over a batch of
+ * <code>GatewaySenderEventImpl</code>s. The key, operation and region
+ * columns are filled when the batch is created, the value column the first
+ * time it is asked for. The values are the bytes already held by the events,
+ * except for values stored off-heap, which are copied to the heap only when
+ * the value column or the value of an event is asked for.
+ *
+ * @since 9.0
+ */
+public class GatewaySenderEventBatch implements AsyncEventBatch {
+
+  private final List<GatewaySenderEventImpl> events;
+
+  private final Object[] keys;
+
+  private final Operation[] operations;
+
+  private final String[] regionPaths;
+
+  private byte[][] values;
+
+  @SuppressWarnings("unchecked")
+  public GatewaySenderEventBatch(List events) {
+    this.events = events;
+    int size = events.size();
+    this.keys = new Object[size];
+    this.operations = new Operation[size];
+    this.regionPaths = new String[size];
+    for (int i = 0; i < size; i++) {
+      GatewaySenderEventImpl event = this.events.get(i);
+      this.keys[i] = event.getKey();
+      this.operations[i] = event.getOperation();
+      this.regionPaths[i] = event.getRegionPath();
+    }
+  }
+
+  public int size() {
+    return this.keys.length;
+  }
+
+  public Object[] getKeys() {
+    return this.keys;
+  }
+
+  public Operation[] getOperations() {
+    return this.operations;
+  }
+
+  public String[] getRegionPaths() {
+    return this.regionPaths;
+  }
+
+  public byte[][] getSerializedValues() {
+    byte[][] result = this.values;
+    if (result == null) {
+      result = new byte[this.keys.length][];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = this.events.get(i).getSerializedValue();
+      }
+      this.values = result;
+    }
+    return result;
+  }
+
+  public boolean isSerializedObject(int index) {
+    GatewaySenderEventImpl event = this.events.get(index);
+    return event.getValueIsObject() != 0x00 && event.hasValue();
+  }
+
+  public Object getDeserializedValue(int index) {
+    return this.events.get(index).getDeserializedValue();
+  }
+
+  public PdxInstance getPdxInstance(int index) {
+    if (!isSerializedObject(index)) {
+      return null;
+    }
+    byte[][] values = this.values;
+    byte[] value = values != null ? values[index] : this.events.get(index)
+        .getSerializedValue();
+    if (value == null || value.length == 0 || value[0] != DSCODE.PDX) {
+      return null;
+    }
+    return InternalDataSerializer.readPdxInstance(value,
+        GemFireCacheImpl.getExisting("reading a PDX value of a batch"));
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public List<AsyncEvent> getEvents() {
+    return (List)this.events;
+  }
+
+  @Override
+  public String toString() {
+    return "GatewaySenderEventBatch[size=" + size() + "]";
+  }
+}
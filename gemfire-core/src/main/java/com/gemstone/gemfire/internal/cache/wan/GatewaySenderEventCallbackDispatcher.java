@@ -16,6 +16,7 @@ import java.util.List;
 import org.apache.logging.log4j.Logger;
 
 import com.gemstone.gemfire.CancelException;
+import com.gemstone.gemfire.cache.asyncqueue.AsyncEventBatchListener;
 import com.gemstone.gemfire.cache.asyncqueue.AsyncEventListener;
 import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
 import com.gemstone.gemfire.internal.logging.LogService;
@@ -159,9 +160,20 @@ public class GatewaySenderEventCallbackDispatcher implements GatewaySenderEventD
     }
     int batchId = this.eventProcessor.getBatchId();
     boolean successAll = true;
+    GatewaySenderEventBatch batch = null;
     try {
       for (AsyncEventListener listener : this.eventListeners) {
-        boolean successOne = listener.processEvents(events);
+        boolean successOne;
+        if (listener instanceof AsyncEventBatchListener) {
+          // the columns are built once for all the batch listeners
+          if (batch == null) {
+            batch = new GatewaySenderEventBatch(events);
+          }
+          successOne = ((AsyncEventBatchListener)listener).processBatch(batch);
+        }
+        else {
+          successOne = listener.processEvents(events);
+        }
         if (!successOne) {
           successAll = false;
         }
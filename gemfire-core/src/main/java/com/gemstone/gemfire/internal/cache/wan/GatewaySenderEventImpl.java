@@ -16,6 +16,7 @@ import java.io.InputStream;
 
 import com.gemstone.gemfire.DataSerializer;
 import com.gemstone.gemfire.InternalGemFireError;
+import com.gemstone.gemfire.OutOfOffHeapMemoryException;
 import com.gemstone.gemfire.cache.CacheEvent;
 import com.gemstone.gemfire.cache.CacheFactory;
 import com.gemstone.gemfire.cache.EntryEvent;
@@ -42,11 +43,13 @@ import com.gemstone.gemfire.internal.cache.WrappedCallbackArgument;
 import com.gemstone.gemfire.internal.cache.lru.Sizeable;
 import com.gemstone.gemfire.internal.cache.tier.sockets.CacheServerHelper;
 import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+import com.gemstone.gemfire.internal.offheap.MemoryAllocator;
 import com.gemstone.gemfire.internal.offheap.OffHeapHelper;
 import com.gemstone.gemfire.internal.offheap.Releasable;
 import com.gemstone.gemfire.internal.offheap.SimpleMemoryAllocatorImpl;
 import com.gemstone.gemfire.internal.offheap.SimpleMemoryAllocatorImpl.Chunk;
 import com.gemstone.gemfire.internal.offheap.SimpleMemoryAllocatorImpl.ChunkWithHeapForm;
+import com.gemstone.gemfire.internal.offheap.SimpleMemoryAllocatorImpl.GemFireChunk;
 import com.gemstone.gemfire.internal.offheap.StoredObject;
 import com.gemstone.gemfire.internal.offheap.annotations.OffHeapIdentifier;
 import com.gemstone.gemfire.internal.offheap.annotations.Released;
@@ -656,10 +659,25 @@ public class GatewaySenderEventImpl implements
     }
   }
 
+  /**
+   * Returns whether this event has a value, without copying a value stored
+   * off-heap to the heap.
+   */
+  public boolean hasValue() {
+    if (this.value != null) {
+      return true;
+    }
+    @Unretained(OffHeapIdentifier.GATEWAY_SENDER_EVENT_IMPL_VALUE)
+    Object vo = this.valueObj;
+    return vo != null && !(vo instanceof Token);
+  }
+
   /**
    * If the value owned of this event is just bytes return that byte array;
    * otherwise serialize the value object and return the serialized bytes.
    * Use {@link #getValueIsObject()} to determine if the result is raw or serialized bytes.
+   * A value stored off-heap is copied to the heap each time; the copy is not
+   * kept so that a queued event does not hold its value on the heap too.
    */
   public byte[] getSerializedValue() {
     byte[] result = this.value;
@@ -667,14 +685,7 @@ public class GatewaySenderEventImpl implements
       @Unretained(OffHeapIdentifier.GATEWAY_SENDER_EVENT_IMPL_VALUE)
       Object vo = this.valueObj;
       if (vo instanceof StoredObject) {
-        synchronized (this) {
-          result = this.value;
-          if (result == null) {
-            StoredObject so = (StoredObject) vo;
-            result = so.getValueAsHeapByteArray();
-            this.value = result;
-          }
-        }
+        result = ((StoredObject) vo).getValueAsHeapByteArray();
       } else {
         synchronized (this) {
           result = this.value;
@@ -1270,6 +1281,35 @@ public class GatewaySenderEventImpl implements
     return new GatewaySenderEventImpl(this);
   }
 
+  /**
+   * Moves the serialized value of this event from the heap to a chunk of the
+   * given off-heap memory. The chunk is then released like the off-heap value
+   * of a region that this event references: when the event is removed from its
+   * queue or its value is overflowed to disk. The value stays on the heap if
+   * the off-heap memory has no room for it.
+   * 
+   * @return whether the value was moved off-heap
+   */
+  @Retained(OffHeapIdentifier.GATEWAY_SENDER_EVENT_IMPL_VALUE)
+  public synchronized boolean moveValueOffHeap(MemoryAllocator allocator) {
+    byte[] bytes = this.value;
+    // a delta can not be stored as an off-heap value
+    if (bytes == null || this.valueObj != null || this.valueIsObject == 0x02) {
+      return false;
+    }
+    SimpleMemoryAllocatorImpl.setReferenceCountOwner(this);
+    try {
+      this.valueObj = allocator.allocateAndInitializeIfAvailable(bytes,
+          this.valueIsObject != 0x00, false, GemFireChunk.TYPE);
+    } catch (OutOfOffHeapMemoryException e) {
+      return false;
+    } finally {
+      SimpleMemoryAllocatorImpl.setReferenceCountOwner(null);
+    }
+    this.value = null;
+    return true;
+  }
+
   public void copyOffHeapValue() {
     if (this.value == null) {
       this.value = getSerializedValue();
@@ -0,0 +1,378 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan;
+
+import java.util.List;
+
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.CancelException;
+import com.gemstone.gemfire.GemFireException;
+import com.gemstone.gemfire.cache.client.ServerConnectivityException;
+import com.gemstone.gemfire.cache.client.internal.Connection;
+import com.gemstone.gemfire.cache.client.internal.GatewaySenderBatchOp;
+import com.gemstone.gemfire.cache.client.internal.PoolImpl;
+import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+import com.gemstone.gemfire.internal.logging.LogService;
+import com.gemstone.gemfire.internal.logging.LoggingThreadGroup;
+import com.gemstone.gemfire.internal.logging.log4j.LocalizedMessage;
+import com.gemstone.gemfire.security.GemFireSecurityException;
+
+/**
+ * Dispatches the batches of a <code>GatewaySender</code> to a
+ * <code>GatewayReceiver</code> of the remote site over a connection of the
+ * pool of the sender.
+ * <p>
+ * The batches are pipelined: a batch is sent without waiting for the
+ * acknowledgement of the previous ones, up to
+ * {@link #MAX_IN_FLIGHT_BATCHES} unacknowledged batches per connection. The
+ * batches of a connection are processed in order by the receiver, and an
+ * {@link AckReaderThread} reads their acknowledgements in that order and
+ * removes the acknowledged events from the queue. The processor keeps every
+ * unacknowledged batch in its batch id map, so when the connection fails all
+ * of them are peeked again and sent on a new connection.
+ *
+ * @since 9.0
+ */
+public class GatewaySenderEventRemoteDispatcher implements
+    GatewaySenderEventDispatcher {
+
+  private static final Logger logger = LogService.getLogger();
+
+  /**
+   * The maximum number of batches sent on a connection whose acknowledgement
+   * has not been read yet.
+   */
+  public static final int MAX_IN_FLIGHT_BATCHES = Math.max(1, Integer
+      .getInteger("gemfire.GatewaySender.MAX_IN_FLIGHT_BATCHES", 4)
+      .intValue());
+
+  /** Time to wait before dispatching again after a failure */
+  private static final long RETRY_INTERVAL = 100;
+
+  protected final AbstractGatewaySenderEventProcessor processor;
+
+  private final AbstractGatewaySender sender;
+
+  /** Protects the connection and its ack reader */
+  private final Object connectionLock = new Object();
+
+  private volatile Connection connection;
+
+  private volatile AckReaderThread ackReaderThread;
+
+  private volatile boolean shutdown;
+
+  public GatewaySenderEventRemoteDispatcher(
+      AbstractGatewaySenderEventProcessor processor) {
+    this.processor = processor;
+    this.sender = processor.getSender();
+    try {
+      // connect before the first batch is peeked so that resetting the batch
+      // id of the new connection does not fail that batch
+      getConnection();
+    } catch (GatewaySenderException e) {
+      if (e.getCause() instanceof GemFireSecurityException) {
+        throw e;
+      }
+      // the remote site may not be up yet, connect with the first batch
+    }
+  }
+
+  public boolean dispatchBatch(List events,
+      boolean removeFromQueueOnException, boolean isRetry) {
+    GatewaySenderStats statistics = this.sender.getStatistics();
+    boolean success = false;
+    try {
+      long start = statistics.startTime();
+      success = _dispatchBatch(events, removeFromQueueOnException);
+      if (success) {
+        statistics.endBatch(start, events.size());
+      }
+    } catch (GatewaySenderException e) {
+      PoolImpl pool = this.sender.getProxy();
+      if (!this.shutdown && pool != null && !pool.isDestroyed()) {
+        if (logger.isDebugEnabled()) {
+          logger.debug("{}: Failed to dispatch batch {}", this, this.processor
+              .getBatchId(), e);
+        }
+        // peek the unacknowledged batches again and send them on another
+        // connection
+        this.processor.handleException();
+        try {
+          Thread.sleep(RETRY_INTERVAL);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    } catch (CancelException e) {
+      this.processor.setIsStopped(true);
+      throw e;
+    } catch (Exception e) {
+      logger.fatal(LocalizedMessage.create(
+          LocalizedStrings.SerialGatewayEventCallbackDispatcher_STOPPING_THE_PROCESSOR_BECAUSE_THE_FOLLOWING_EXCEPTION_OCCURRED_WHILE_PROCESSING_A_BATCH),
+          e);
+      this.processor.setIsStopped(true);
+    }
+    return success;
+  }
+
+  private boolean _dispatchBatch(List events,
+      boolean removeFromQueueOnException) throws GatewaySenderException {
+    int currentBatchId = this.processor.getBatchId();
+    Connection con = getConnection();
+    // A new connection resets the batch id and the batches peeked for the
+    // previous connection, which are sent again from the first one
+    if (currentBatchId != this.processor.getBatchId()
+        || this.processor.isConnectionReset()) {
+      return false;
+    }
+    AckReaderThread reader = this.ackReaderThread;
+    try {
+      reader.waitForCapacity();
+      GatewaySenderBatchOp.executeOn(con, this.sender.getProxy(), events,
+          currentBatchId, this.sender.getMyDSId(), removeFromQueueOnException);
+      reader.batchSent();
+      return true;
+    } catch (ServerConnectivityException e) {
+      destroyConnection(con);
+      throw new GatewaySenderException(
+          LocalizedStrings.GatewayEventRemoteDispatcher_0_EXCEPTION_DURING_PROCESSING_BATCH_1_ON_CONNECTION_2
+              .toLocalizedString(new Object[] { this,
+                  Integer.valueOf(currentBatchId), con }), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      this.sender.getCancelCriterion().checkCancelInProgress(e);
+      return false;
+    }
+  }
+
+  /**
+   * Returns the connection to the remote site, acquiring a new one from the
+   * pool of the sender if there is none.
+   */
+  Connection getConnection() throws GatewaySenderException {
+    synchronized (this.connectionLock) {
+      Connection con = this.connection;
+      if (con != null && !con.isDestroyed()) {
+        return con;
+      }
+      PoolImpl pool = this.sender.getProxy();
+      if (this.shutdown || pool == null || pool.isDestroyed()) {
+        throw new GatewaySenderException(
+            LocalizedStrings.GatewaySenderEventRemoteDispatcher_0_COULD_NOT_CONNECT_TO_REMOTE_SITE_1
+                .toLocalizedString(new Object[] { this,
+                    Integer.valueOf(this.sender.getRemoteDSId()) }));
+      }
+      try {
+        con = pool.acquireConnection();
+      } catch (ServerConnectivityException e) {
+        throw new GatewaySenderException(
+            LocalizedStrings.GatewaySenderEventRemoteDispatcher_0_COULD_NOT_CONNECT_TO_REMOTE_SITE_1
+                .toLocalizedString(new Object[] { this,
+                    Integer.valueOf(this.sender.getRemoteDSId()) }), e);
+      } catch (GemFireSecurityException e) {
+        throw new GatewaySenderException(e.getMessage(), e);
+      }
+      // the receiver expects the batch ids of a new connection to start from
+      // 0, and the batches not acknowledged on the previous one are resent
+      this.processor.resetBatchId();
+      this.processor.checkIfPdxNeedsResend(con.getQueueStatus().getPdxSize());
+      this.connection = con;
+      AckReaderThread reader = new AckReaderThread(con);
+      this.ackReaderThread = reader;
+      reader.start();
+      if (logger.isDebugEnabled()) {
+        logger.debug("{}: Using connection {} to remote site {}", this, con,
+            this.sender.getRemoteDSId());
+      }
+      return con;
+    }
+  }
+
+  /**
+   * Destroys the given connection if it is still the connection of this
+   * dispatcher. Its ack reader stops when the connection is destroyed.
+   */
+  private void destroyConnection(Connection con) {
+    synchronized (this.connectionLock) {
+      if (this.connection != con) {
+        return;
+      }
+      this.connection = null;
+      AckReaderThread reader = this.ackReaderThread;
+      if (reader != null) {
+        reader.shutdown();
+      }
+      try {
+        con.destroy();
+      } catch (Exception e) {
+        if (logger.isDebugEnabled()) {
+          logger.debug("{}: Exception destroying connection {}", this, con, e);
+        }
+      }
+    }
+  }
+
+  public boolean isRemoteDispatcher() {
+    return true;
+  }
+
+  public boolean isConnectedToRemote() {
+    Connection con = this.connection;
+    return con != null && !con.isDestroyed();
+  }
+
+  public void stop() {
+    this.shutdown = true;
+    Connection con = this.connection;
+    if (con != null) {
+      destroyConnection(con);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "GatewaySenderEventRemoteDispatcher[" + this.processor.getName()
+        + "]";
+  }
+
+  /**
+   * Reads the acknowledgements of the batches sent on a connection, in the
+   * order they were sent, and counts the batches in flight on it.
+   */
+  class AckReaderThread extends Thread {
+
+    private final Connection con;
+
+    /** Batches sent on the connection whose acknowledgement was not read */
+    private int inFlightBatches;
+
+    /** Whether the batches in flight were given up when this reader stopped */
+    private boolean drained;
+
+    private volatile boolean stopped;
+
+    AckReaderThread(Connection con) {
+      super(LoggingThreadGroup.createThreadGroup("AckReaderThread", logger),
+          "AckReaderThread for : " + processor.getName());
+      this.con = con;
+      setDaemon(true);
+    }
+
+    /**
+     * Waits until the batches in flight on the connection are fewer than the
+     * maximum.
+     */
+    synchronized void waitForCapacity() throws InterruptedException {
+      while (this.inFlightBatches >= MAX_IN_FLIGHT_BATCHES && !this.stopped) {
+        wait(1000);
+        sender.getCancelCriterion().checkCancelInProgress(null);
+      }
+    }
+
+    synchronized void batchSent() {
+      if (this.drained) {
+        // the connection failed meanwhile, the batch is sent again on a new
+        // one
+        processor.inFlightBatchCompleted();
+        return;
+      }
+      this.inFlightBatches++;
+      notifyAll();
+    }
+
+    void shutdown() {
+      this.stopped = true;
+      synchronized (this) {
+        notifyAll();
+      }
+    }
+
+    private synchronized boolean waitForBatch() throws InterruptedException {
+      while (this.inFlightBatches == 0 && !this.stopped) {
+        wait(1000);
+      }
+      return !this.stopped;
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (waitForBatch()) {
+          GatewayAck ack = GatewaySenderBatchOp.readAck(this.con, sender
+              .getProxy());
+          synchronized (this) {
+            this.inFlightBatches--;
+            notifyAll();
+          }
+          processor.inFlightBatchCompleted();
+          if (this.stopped) {
+            break;
+          }
+          BatchException70 be = ack.getBatchException();
+          if (be == null) {
+            if (logger.isDebugEnabled()) {
+              logger.debug(LocalizedMessage.create(
+                  LocalizedStrings.GatewaySenderEventRemoteDispatcher_GATEWAY_SENDER_0_RECEIVED_ACK_FOR_BATCH_ID_1_OF_2_EVENTS,
+                  new Object[] { processor.getSender(),
+                      Integer.valueOf(ack.getBatchId()),
+                      Integer.valueOf(ack.getNumEvents()) }));
+            }
+            processor.handleSuccessBatchAck(ack.getBatchId());
+          }
+          else {
+            logger.warn(LocalizedMessage.create(
+                LocalizedStrings.GatewaySenderEventRemoteDispatcher_GATEWAY_SENDER_0_RECEIVED_ACK_FOR_BATCH_ID_1_WITH_EXCEPTION,
+                new Object[] { processor.getSender(),
+                    Integer.valueOf(ack.getBatchId()) }), be);
+            if (sender.isRemoveFromQueueOnException()) {
+              // the receiver applied the rest of the batch
+              processor.handleSuccessBatchAck(ack.getBatchId());
+            }
+            else {
+              // the batches after this one are sent again, in order, on
+              // another connection
+              processor.handleUnSuccessBatchAck(ack.getBatchId());
+              destroyConnection(this.con);
+              processor.handleException();
+              break;
+            }
+          }
+        }
+      } catch (CancelException e) {
+        if (logger.isDebugEnabled()) {
+          logger.debug(LocalizedMessage.create(
+              LocalizedStrings.GatewaySender_ACKREADERTHREAD_IGNORED_CANCELLATION));
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (GemFireException e) {
+        if (!this.stopped && !shutdown) {
+          logger.warn(LocalizedMessage.create(
+              LocalizedStrings.GatewaySenderEventRemoteDispatcher_0_EXCEPTION_READING_ACKS_ON_CONNECTION_1,
+              new Object[] { GatewaySenderEventRemoteDispatcher.this, this.con }),
+              e);
+          destroyConnection(this.con);
+          processor.handleException();
+        }
+      } finally {
+        shutdown();
+        int abandoned;
+        synchronized (this) {
+          abandoned = this.inFlightBatches;
+          this.inFlightBatches = 0;
+          this.drained = true;
+        }
+        for (int i = 0; i < abandoned; i++) {
+          processor.inFlightBatchCompleted();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,48 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan;
+
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.client.internal.locator.wan.LocatorMembershipListener;
+import com.gemstone.gemfire.cache.wan.GatewayReceiverFactory;
+import com.gemstone.gemfire.cache.wan.GatewaySenderFactory;
+import com.gemstone.gemfire.distributed.internal.WanLocatorDiscoverer;
+import com.gemstone.gemfire.internal.cache.wan.spi.WANFactory;
+
+/**
+ * The <code>WANFactory</code> registered with the {@link WANServiceProvider}
+ * that creates the factories of the remote <code>GatewaySender</code>s and of
+ * the <code>GatewayReceiver</code>s.
+ * <p>
+ * The exchange of locators between sites is not provided: the senders find
+ * the receivers of a remote site with their own configuration, see
+ * {@link AbstractRemoteGatewaySender}.
+ *
+ * @since 9.0
+ */
+public class WANFactoryImpl implements WANFactory {
+
+  public GatewaySenderFactory createGatewaySenderFactory(Cache cache) {
+    return new GatewaySenderFactoryImpl(cache);
+  }
+
+  public GatewayReceiverFactory createGatewayReceiverFactory(Cache cache) {
+    return new GatewayReceiverFactoryImpl(cache);
+  }
+
+  public WanLocatorDiscoverer createLocatorDiscoverer() {
+    return null;
+  }
+
+  public LocatorMembershipListener createLocatorMembershipListener() {
+    return null;
+  }
+
+  public void initialize() {
+  }
+}
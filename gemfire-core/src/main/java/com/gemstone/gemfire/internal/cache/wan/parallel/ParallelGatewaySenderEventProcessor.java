@@ -141,6 +141,9 @@ public class ParallelGatewaySenderEventProcessor extends
           event, substituteValue, true, eventID.getBucketID());
 
       if (getSender().beforeEnque(gatewayQueueEvent)) {
+        if (!sender.getIsHDFSQueue()) {
+          getSender().moveValueOffHeap(gatewayQueueEvent);
+        }
         long start = getSender().getStatistics().startTime();
         try {
           this.queue.put(gatewayQueueEvent);
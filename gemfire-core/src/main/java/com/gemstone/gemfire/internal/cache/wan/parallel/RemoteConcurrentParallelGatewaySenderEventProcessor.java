@@ -0,0 +1,41 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan.parallel;
+
+import java.util.Set;
+
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.internal.cache.wan.AbstractGatewaySender;
+
+/**
+ * A <code>ConcurrentParallelGatewaySenderEventProcessor</code> whose
+ * dispatcher threads each dispatch the batches of their buckets to the
+ * <code>GatewayReceiver</code>s of a remote site on their own connection.
+ *
+ * @since 9.0
+ */
+public class RemoteConcurrentParallelGatewaySenderEventProcessor extends
+    ConcurrentParallelGatewaySenderEventProcessor {
+
+  public RemoteConcurrentParallelGatewaySenderEventProcessor(
+      AbstractGatewaySender sender) {
+    super(sender);
+  }
+
+  @Override
+  protected void createProcessors(int dispatcherThreads, Set<Region> targetRs) {
+    processors = new RemoteParallelGatewaySenderEventProcessor[dispatcherThreads];
+    if (logger.isDebugEnabled()) {
+      logger.debug("Creating RemoteParallelGatewaySenderEventProcessors");
+    }
+    for (int i = 0; i < dispatcherThreads; i++) {
+      processors[i] = new RemoteParallelGatewaySenderEventProcessor(sender,
+          targetRs, i, dispatcherThreads);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan.parallel;
+
+import java.util.Set;
+
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.internal.cache.wan.AbstractGatewaySender;
+import com.gemstone.gemfire.internal.cache.wan.GatewaySenderEventRemoteDispatcher;
+import com.gemstone.gemfire.internal.logging.LogService;
+
+/**
+ * A <code>ParallelGatewaySenderEventProcessor</code> that dispatches the
+ * batches of its buckets to the <code>GatewayReceiver</code>s of a remote
+ * site.
+ *
+ * @since 9.0
+ */
+public class RemoteParallelGatewaySenderEventProcessor extends
+    ParallelGatewaySenderEventProcessor {
+
+  private static final Logger logger = LogService.getLogger();
+
+  protected RemoteParallelGatewaySenderEventProcessor(
+      AbstractGatewaySender sender, Set<Region> userRegions, int id,
+      int nDispatcher) {
+    super(sender, userRegions, id, nDispatcher);
+  }
+
+  @Override
+  public void initializeEventDispatcher() {
+    if (logger.isDebugEnabled()) {
+      logger.debug(" Creating the GatewaySenderEventRemoteDispatcher");
+    }
+    this.dispatcher = new GatewaySenderEventRemoteDispatcher(this);
+  }
+}
@@ -63,6 +63,8 @@ public class ConcurrentSerialGatewaySenderEventProcessor extends
   private GemFireException ex = null;
 
   private final Set<RegionQueue> queues;
+
+  private DispatcherThreadsController dispatcherThreadsController;
   /**
    * @param sender
    */
@@ -78,6 +80,20 @@ public class ConcurrentSerialGatewaySenderEventProcessor extends
     for (SerialGatewaySenderEventProcessor processor : processors) {
       queues.add(processor.getQueue());
     }
+    if (DispatcherThreadsController.ADAPTIVE && processors.size() > 1) {
+      // the events keep going to the queue of their key, only the number of
+      // batches in flight at the same time adapts to the load
+      int maxSlots = 0;
+      for (SerialGatewaySenderEventProcessor processor : processors) {
+        maxSlots += processor.getMaxInFlightBatches();
+      }
+      this.dispatcherThreadsController = new DispatcherThreadsController(
+          sender.getId(), maxSlots, sender.getBatchSize(),
+          sender.getStatistics());
+      for (SerialGatewaySenderEventProcessor processor : processors) {
+        processor.setDispatcherThreadsController(this.dispatcherThreadsController);
+      }
+    }
     setDaemon(true);
   }
 
@@ -332,6 +348,14 @@ public class ConcurrentSerialGatewaySenderEventProcessor extends
     }
   }
 
+  /**
+   * Returns the controller of the dispatcher threads dispatching at the same
+   * time, or null if all of them dispatch concurrently.
+   */
+  public DispatcherThreadsController getDispatcherThreadsController() {
+    return this.dispatcherThreadsController;
+  }
+
   /**
    * @return the queues
    */
@@ -0,0 +1,240 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan.serial;
+
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.internal.cache.wan.GatewaySenderStats;
+import com.gemstone.gemfire.internal.logging.LogService;
+
+/**
+ * Controls how many batches the dispatcher threads of a
+ * {@link ConcurrentSerialGatewaySenderEventProcessor} have in flight at the
+ * same time.
+ * <p>
+ * Every dispatcher thread keeps its own queue, and an event is always queued
+ * on the dispatcher thread of its key (or thread, or partition), so the order
+ * of the events of a key is kept whatever the number of active slots is. A
+ * dispatcher thread that peeked a batch waits for one of the active slots
+ * before it dispatches it, and holds the slot until the batch is
+ * acknowledged, so that the batches pipelined on the connections of the
+ * threads are counted too.
+ * <p>
+ * The number of active slots starts at a floor and is adjusted with the queue
+ * depth and the batch latency of the {@link GatewaySenderStats} of the
+ * sender:
+ * <ul>
+ * <li>It is doubled, up to the ceiling, while the queue holds more than a
+ * batch per active slot and dispatcher threads had to wait for a slot, unless
+ * the batches got much slower since the last increase (the remote side is
+ * saturated).</li>
+ * <li>It is decremented, down to the floor, when the queue holds less than
+ * half a batch per remaining slot, or when the last increase made the batches
+ * much slower.</li>
+ * </ul>
+ * Fewer active slots send fewer and bigger batches when the traffic is light,
+ * more active slots drain a burst faster.
+ *
+ * @since 9.0
+ */
+public class DispatcherThreadsController {
+
+  private static final Logger logger = LogService.getLogger();
+
+  /**
+   * Whether the concurrent serial processors adjust their active dispatcher
+   * threads. False by default, all dispatcher threads dispatch concurrently.
+   */
+  public static final boolean ADAPTIVE = Boolean
+      .getBoolean("gemfire.GatewaySender.ADAPTIVE_DISPATCHER_THREADS");
+
+  /**
+   * The number of active slots the controllers start with, and never go
+   * below.
+   */
+  public static final int MIN_SLOTS = Math.max(1, Integer.getInteger(
+      "gemfire.GatewaySender.MIN_DISPATCH_SLOTS", 1).intValue());
+
+  /**
+   * Milliseconds between two adjustments of the active slots.
+   */
+  public static final long ADJUST_INTERVAL = Long.getLong(
+      "gemfire.GatewaySender.DISPATCHER_THREADS_ADJUST_INTERVAL", 1000)
+      .longValue();
+
+  /**
+   * How much slower than before the last increase the batches may get before
+   * the increase is undone, in percent.
+   */
+  static final int SATURATION_PERCENT = 150;
+
+  private final String id;
+
+  private final int minSlots;
+
+  private final int maxSlots;
+
+  private final int batchSize;
+
+  private final GatewaySenderStats stats;
+
+  private final long adjustInterval;
+
+  /** Number of batches allowed in flight at the same time */
+  private int activeSlots;
+
+  /** Number of batches being dispatched or waiting for their acknowledgement */
+  private int inFlight;
+
+  /** Number of times a dispatcher thread waited for a slot since the last adjustment */
+  private int waits;
+
+  private long lastAdjustTime;
+
+  private long lastBatchTime;
+
+  private int lastBatches;
+
+  /**
+   * Average batch latency before the last increase of the active threads, or
+   * -1 if it is not known or the last adjustment was not an increase
+   */
+  private long latencyBeforeIncrease = -1;
+
+  /**
+   * @param maxSlots
+   *          the ceiling of the active slots, the number of dispatcher threads
+   *          times the batches each of them may have in flight
+   */
+  public DispatcherThreadsController(String id, int maxSlots, int batchSize,
+      GatewaySenderStats stats) {
+    this(id, Math.min(MIN_SLOTS, maxSlots), maxSlots, batchSize, stats,
+        ADJUST_INTERVAL);
+  }
+
+  DispatcherThreadsController(String id, int minSlots, int maxSlots,
+      int batchSize, GatewaySenderStats stats, long adjustInterval) {
+    this.id = id;
+    this.minSlots = minSlots;
+    this.maxSlots = maxSlots;
+    this.batchSize = batchSize;
+    this.stats = stats;
+    this.adjustInterval = adjustInterval;
+    this.activeSlots = minSlots;
+    this.lastAdjustTime = System.currentTimeMillis();
+    if (stats != null) {
+      this.lastBatchTime = stats.getBatchDistributionTime();
+      this.lastBatches = stats.getBatchesDistributed();
+    }
+  }
+
+  /**
+   * Waits up to the given time for a slot to dispatch a batch.
+   *
+   * @return true if the caller got a slot and must {@link #release()} it
+   *         once the batch is acknowledged or failed
+   */
+  public synchronized boolean tryAcquire(long timeoutMillis)
+      throws InterruptedException {
+    adjustIfDue(System.currentTimeMillis());
+    if (this.inFlight >= this.activeSlots) {
+      this.waits++;
+      long end = System.currentTimeMillis() + timeoutMillis;
+      long remaining = timeoutMillis;
+      while (this.inFlight >= this.activeSlots) {
+        if (remaining <= 0) {
+          return false;
+        }
+        wait(remaining);
+        remaining = end - System.currentTimeMillis();
+      }
+    }
+    this.inFlight++;
+    return true;
+  }
+
+  /**
+   * Releases the slot of a batch that was acknowledged or failed.
+   */
+  public synchronized void release() {
+    this.inFlight--;
+    notifyAll();
+  }
+
+  public synchronized int getActiveSlots() {
+    return this.activeSlots;
+  }
+
+  public int getMinSlots() {
+    return this.minSlots;
+  }
+
+  public int getMaxSlots() {
+    return this.maxSlots;
+  }
+
+  private void adjustIfDue(long now) {
+    if (this.stats == null || now - this.lastAdjustTime < this.adjustInterval) {
+      return;
+    }
+    int batches = this.stats.getBatchesDistributed();
+    long batchTime = this.stats.getBatchDistributionTime();
+    long latency = batches > this.lastBatches ? (batchTime - this.lastBatchTime)
+        / (batches - this.lastBatches) : -1;
+    this.lastBatches = batches;
+    this.lastBatchTime = batchTime;
+    adjust(this.stats.getEventQueueSize(), latency);
+    this.lastAdjustTime = now;
+  }
+
+  /**
+   * Adjusts the active slots.
+   *
+   * @param queueSize
+   *          the number of events queued in all the dispatcher threads
+   * @param latency
+   *          the average time to dispatch a batch since the last adjustment,
+   *          or -1 if no batch was dispatched or time statistics are disabled
+   */
+  synchronized void adjust(int queueSize, long latency) {
+    int previous = this.activeSlots;
+    boolean saturated = this.latencyBeforeIncrease > 0 && latency > 0
+        && latency * 100 > this.latencyBeforeIncrease * SATURATION_PERCENT;
+    if (saturated) {
+      // the last increase made the batches slower, the remote side can not
+      // take more concurrent batches
+      this.activeSlots = Math.max(this.minSlots, this.activeSlots - 1);
+      this.latencyBeforeIncrease = -1;
+    }
+    else if (queueSize > this.activeSlots * this.batchSize && this.waits > 0
+        && this.activeSlots < this.maxSlots) {
+      this.activeSlots = Math.min(this.maxSlots, this.activeSlots * 2);
+      this.latencyBeforeIncrease = latency;
+    }
+    else if (this.activeSlots > this.minSlots
+        && queueSize * 2 < (this.activeSlots - 1) * this.batchSize) {
+      this.activeSlots--;
+      this.latencyBeforeIncrease = -1;
+    }
+    this.waits = 0;
+    if (this.activeSlots != previous) {
+      if (logger.isDebugEnabled()) {
+        logger.debug("{}: Changed active dispatch slots from {} to {} (queue size={}, batch latency={})",
+            this.id, previous, this.activeSlots, queueSize, latency);
+      }
+      notifyAll();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "DispatcherThreadsController[" + this.id + "; active="
+        + getActiveSlots() + "; min=" + this.minSlots + "; max="
+        + this.maxSlots + "]";
+  }
+}
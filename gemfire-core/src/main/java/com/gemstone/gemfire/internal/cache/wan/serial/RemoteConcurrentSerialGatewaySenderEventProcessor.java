@@ -0,0 +1,42 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan.serial;
+
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.internal.cache.wan.AbstractGatewaySender;
+import com.gemstone.gemfire.internal.logging.LogService;
+
+/**
+ * A <code>ConcurrentSerialGatewaySenderEventProcessor</code> whose dispatcher
+ * threads each dispatch their batches to the <code>GatewayReceiver</code>s of
+ * a remote site on their own connection.
+ *
+ * @since 9.0
+ */
+public class RemoteConcurrentSerialGatewaySenderEventProcessor extends
+    ConcurrentSerialGatewaySenderEventProcessor {
+
+  private static final Logger logger = LogService.getLogger();
+
+  public RemoteConcurrentSerialGatewaySenderEventProcessor(
+      AbstractGatewaySender sender) {
+    super(sender);
+  }
+
+  @Override
+  protected void initializeMessageQueue(String id) {
+    for (int i = 0; i < sender.getDispatcherThreads(); i++) {
+      processors.add(new RemoteSerialGatewaySenderEventProcessor(this.sender,
+          id + "." + i));
+      if (logger.isDebugEnabled()) {
+        logger.debug("Created the RemoteSerialGatewayEventProcessor_{}->{}", i, processors.get(i));
+      }
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan.serial;
+
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.internal.cache.wan.AbstractGatewaySender;
+import com.gemstone.gemfire.internal.cache.wan.GatewaySenderEventRemoteDispatcher;
+import com.gemstone.gemfire.internal.logging.LogService;
+
+/**
+ * A <code>SerialGatewaySenderEventProcessor</code> that dispatches its batches
+ * to the <code>GatewayReceiver</code>s of a remote site.
+ *
+ * @since 9.0
+ */
+public class RemoteSerialGatewaySenderEventProcessor extends
+    SerialGatewaySenderEventProcessor {
+
+  private static final Logger logger = LogService.getLogger();
+
+  public RemoteSerialGatewaySenderEventProcessor(AbstractGatewaySender sender,
+      String id) {
+    super(sender, id);
+  }
+
+  @Override
+  public void initializeEventDispatcher() {
+    if (logger.isDebugEnabled()) {
+      logger.debug(" Creating the GatewaySenderEventRemoteDispatcher");
+    }
+    this.dispatcher = new GatewaySenderEventRemoteDispatcher(this);
+  }
+
+  @Override
+  protected int getMaxInFlightBatches() {
+    return GatewaySenderEventRemoteDispatcher.MAX_IN_FLIGHT_BATCHES;
+  }
+
+  @Override
+  protected boolean pipelinesBatches() {
+    return true;
+  }
+}
@@ -12,6 +12,7 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.Executor;
@@ -21,6 +22,7 @@ import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.Logger;
 
@@ -75,6 +77,15 @@ public class SerialGatewaySenderEventProcessor extends AbstractGatewaySenderEven
    */
   private Map<EventID, EventWrapper> unprocessedEvents;
 
+  /**
+   * Limits how many of the dispatcher threads of a concurrent serial sender
+   * dispatch at the same time, or null if they are not limited
+   */
+  private volatile DispatcherThreadsController dispatcherThreadsController;
+
+  /** Number of slots of the dispatcherThreadsController held by this processor */
+  private final AtomicInteger heldSlots = new AtomicInteger();
+
   /**
    * A <code>Map</code> of tokens (i.e. longs) of entries that we have heard of
    * from the primary but not yet the secondary. This map is created and used by
@@ -443,9 +454,12 @@ public class SerialGatewaySenderEventProcessor extends AbstractGatewaySenderEven
       statistics.incEventsFiltered();
       return;
     }
+    this.sender.moveValueOffHeap(gatewayEvent);
     long start = statistics.startTime();
+    boolean queued = false;
     try {
       this.queue.put(gatewayEvent);
+      queued = true;
     } catch (InterruptedException e) {
       // Asif Not expected from SingleWriteSingleReadRegionQueue as it does not
       // throw
@@ -454,6 +468,11 @@ public class SerialGatewaySenderEventProcessor extends AbstractGatewaySenderEven
       // extend RegionQueue , it has to handle InterruptedException
       Thread.currentThread().interrupt();
       getSender().getCancelCriterion().checkCancelInProgress(e);
+    } finally {
+      if (!queued) {
+        // release the off-heap value the queue did not take
+        gatewayEvent.release();
+      }
     }
     statistics.endPut(start);
     if (logger.isDebugEnabled()) {
@@ -828,6 +847,78 @@ public class SerialGatewaySenderEventProcessor extends AbstractGatewaySenderEven
     this.queue.removeCacheListener();
   }
 
+  void setDispatcherThreadsController(DispatcherThreadsController controller) {
+    this.dispatcherThreadsController = controller;
+  }
+
+  @Override
+  protected boolean dispatchBatch(List events, boolean isRetry) {
+    DispatcherThreadsController controller = this.dispatcherThreadsController;
+    if (controller == null) {
+      return super.dispatchBatch(events, isRetry);
+    }
+    boolean acquired = false;
+    try {
+      // a stopping processor dispatches without a slot so that it does not
+      // wait for the other dispatcher threads
+      while (!acquired && !stopped()) {
+        acquired = controller.tryAcquire(100);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (acquired) {
+      this.heldSlots.incrementAndGet();
+    }
+    boolean sent = false;
+    try {
+      sent = super.dispatchBatch(events, isRetry);
+      return sent;
+    } finally {
+      // a pipelined batch keeps its slot until it is acknowledged
+      if (acquired && !(sent && pipelinesBatches())) {
+        releaseSlot();
+      }
+    }
+  }
+
+  @Override
+  protected void inFlightBatchCompleted() {
+    releaseSlot();
+  }
+
+  private void releaseSlot() {
+    DispatcherThreadsController controller = this.dispatcherThreadsController;
+    // the batches dispatched without a slot while stopping hold none
+    while (controller != null) {
+      int held = this.heldSlots.get();
+      if (held == 0) {
+        return;
+      }
+      if (this.heldSlots.compareAndSet(held, held - 1)) {
+        controller.release();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of batches this processor may have in flight, sent
+   * but not acknowledged yet.
+   */
+  protected int getMaxInFlightBatches() {
+    return 1;
+  }
+
+  /**
+   * Whether the batches sent by the dispatcher of this processor stay in
+   * flight until the dispatcher reports them with
+   * {@link #inFlightBatchCompleted()}.
+   */
+  protected boolean pipelinesBatches() {
+    return false;
+  }
+
   @Override
   public void initializeEventDispatcher() {
     if (logger.isDebugEnabled()) {
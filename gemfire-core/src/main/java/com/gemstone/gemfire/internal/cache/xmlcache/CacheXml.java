@@ -599,6 +599,10 @@ public abstract class CacheXml implements EntityResolver2, ErrorHandler {
   public static final String AUTO_COMPACT = "auto-compact";
   public static final String ALLOW_FORCE_COMPACTION = "allow-force-compaction";
   public static final String COMPACTION_THRESHOLD = "compaction-threshold";
+  /** name of the disk store property for the number of concurrent compactions */
+  public static final String COMPACTION_THREADS = "compaction-threads";
+  /** name of the disk store property for the compaction write rate limit */
+  public static final String COMPACTION_MAX_BYTES_PER_SECOND = "compaction-max-bytes-per-second";
   /** Name of disk region property specifying the max oplog size in megabytes **/
   public static final String MAX_OPLOG_SIZE = "max-oplog-size";
   
@@ -755,6 +759,7 @@ public abstract class CacheXml implements EntityResolver2, ErrorHandler {
   public static final String HDFS_STORE = "hdfs-store";
   protected static final String HDFS_HOME_DIR = "home-dir";
   protected static final String HDFS_READ_CACHE_SIZE = "read-cache-size";
+  protected static final String HDFS_BLOOM_FILTER_FALSE_POSITIVE_RATE = "bloom-filter-false-positive-rate";
   protected static final String HDFS_MAX_MEMORY = "max-memory";
   protected static final String HDFS_BATCH_SIZE = "batch-size";
   protected static final String HDFS_BATCH_INTERVAL = "batch-interval";
@@ -1167,6 +1167,22 @@ public class CacheXmlGenerator extends CacheXml implements XMLReader {
               String.valueOf(ds.getDiskUsageCriticalPercentage()));
         }
       }
+
+      if (this.version.compareTo(CacheXmlVersion.VERSION_9_0) >= 0) {
+        if ((!(ds instanceof DiskStoreAttributesCreation) ||
+            ((DiskStoreAttributesCreation) ds).hasCompactionThreads())) {
+          if (generateDefaults() || ds.getCompactionThreads() != DiskStoreFactory.DEFAULT_COMPACTION_THREADS)
+          atts.addAttribute("", "", COMPACTION_THREADS, "", 
+              String.valueOf(ds.getCompactionThreads()));
+        }
+
+        if ((!(ds instanceof DiskStoreAttributesCreation) ||
+            ((DiskStoreAttributesCreation) ds).hasCompactionMaxBytesPerSecond())) {
+          if (generateDefaults() || ds.getCompactionMaxBytesPerSecond() != DiskStoreFactory.DEFAULT_COMPACTION_MAX_BYTES_PER_SECOND)
+          atts.addAttribute("", "", COMPACTION_MAX_BYTES_PER_SECOND, "", 
+              String.valueOf(ds.getCompactionMaxBytesPerSecond()));
+        }
+      }
     } finally {
       handler.startElement("", DISK_STORE, DISK_STORE, atts);
       
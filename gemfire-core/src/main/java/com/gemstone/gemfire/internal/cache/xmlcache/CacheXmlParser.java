@@ -995,6 +995,16 @@ public class CacheXmlParser extends CacheXml implements ContentHandler {
     if (allowForceCompaction != null) {
       attrs.setAllowForceCompaction(Boolean.valueOf(allowForceCompaction).booleanValue());
     }
+
+    String compactionThreads = atts.getValue(COMPACTION_THREADS);
+    if (compactionThreads != null) {
+      attrs.setCompactionThreads(parseInt(compactionThreads));
+    }
+
+    String compactionMaxBytesPerSecond = atts.getValue(COMPACTION_MAX_BYTES_PER_SECOND);
+    if (compactionMaxBytesPerSecond != null) {
+      attrs.setCompactionMaxBytesPerSecond(parseLong(compactionMaxBytesPerSecond));
+    }
     
     String maxOplogSize = atts.getValue(MAX_OPLOG_SIZE);
     if (maxOplogSize != null) {
@@ -1080,6 +1090,18 @@ public class CacheXmlParser extends CacheXml implements ContentHandler {
             e);
       }
     }
+
+    String bloomFalsePositiveRate = atts.getValue(HDFS_BLOOM_FILTER_FALSE_POSITIVE_RATE);
+    if (bloomFalsePositiveRate != null) {
+      try {
+        attrs.setBloomFilterFalsePositiveRate(Float.valueOf(bloomFalsePositiveRate));
+      } catch (NumberFormatException e) {
+        throw new CacheXmlException(
+            LocalizedStrings.DistributedSystemConfigImpl_0_IS_NOT_A_VALID_INTEGER_1
+            .toLocalizedString(new Object[] { bloomFalsePositiveRate, HDFS_BLOOM_FILTER_FALSE_POSITIVE_RATE }),
+            e);
+      }
+    }
     
     Integer maxMemory = getIntValue(atts, HDFS_MAX_MEMORY);
     if (maxMemory != null) {
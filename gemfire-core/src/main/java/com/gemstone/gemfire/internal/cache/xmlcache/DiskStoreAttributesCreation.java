@@ -52,6 +52,7 @@ public class DiskStoreAttributesCreation extends UserSpecifiedDiskStoreAttribute
     this.name = attrs.getName();
     this.autoCompact = attrs.getAutoCompact();
     this.compactionThreshold = attrs.getCompactionThreshold();
+    this.compactionThreads = attrs.getCompactionThreads();
     this.allowForceCompaction = attrs.getAllowForceCompaction();
     this.maxOplogSizeInBytes = attrs.getMaxOplogSizeInBytes();
     this.timeInterval = attrs.getTimeInterval();
@@ -62,6 +63,7 @@ public class DiskStoreAttributesCreation extends UserSpecifiedDiskStoreAttribute
     
     setDiskUsageWarningPercentage(attrs.getDiskUsageWarningPercentage());
     setDiskUsageCriticalPercentage(attrs.getDiskUsageCriticalPercentage());
+    setCompactionMaxBytesPerSecond(attrs.getCompactionMaxBytesPerSecond());
 
     if (attrs instanceof UserSpecifiedDiskStoreAttributes) {
       // Selectively set has* fields to true, propagating those non-default 
@@ -203,6 +205,12 @@ public class DiskStoreAttributesCreation extends UserSpecifiedDiskStoreAttribute
     if (! equal(getDiskUsageCriticalPercentage(), other.getDiskUsageCriticalPercentage())) {
       throw new RuntimeException(LocalizedStrings.DiskStoreAttributesCreation_DISK_USAGE_CRITICAL_ARE_NOT_THE_SAME.toLocalizedString(name));
     }
+    if (this.compactionThreads != other.getCompactionThreads()) {
+      throw new RuntimeException(LocalizedStrings.DiskStoreAttributesCreation_COMPACTIONTHREADS_OF_0_IS_NOT_THE_SAME_THIS_1_OTHER_2.toLocalizedString(new Object[] {name, this.compactionThreads, other.getCompactionThreads()}));
+    }
+    if (getCompactionMaxBytesPerSecond() != other.getCompactionMaxBytesPerSecond()) {
+      throw new RuntimeException(LocalizedStrings.DiskStoreAttributesCreation_COMPACTIONMAXBYTESPERSECOND_OF_0_IS_NOT_THE_SAME_THIS_1_OTHER_2.toLocalizedString(new Object[] {name, getCompactionMaxBytesPerSecond(), other.getCompactionMaxBytesPerSecond()}));
+    }
     return true;
   }
   
@@ -225,6 +233,16 @@ public class DiskStoreAttributesCreation extends UserSpecifiedDiskStoreAttribute
     this.setHasAllowForceCompaction(true);
   }
 
+  public void setCompactionThreads(int compactionThreads) {
+    this.compactionThreads = compactionThreads;
+    this.setHasCompactionThreads(true);
+  }
+
+  public void setCompactionMaxBytesPerSecond(long maxBytesPerSecond) {
+    super.setCompactionMaxBytesPerSecond(maxBytesPerSecond);
+    this.setHasCompactionMaxBytesPerSecond(true);
+  }
+
   public void setMaxOplogSize(long maxOplogSize) {
     this.maxOplogSizeInBytes = maxOplogSize *1024*1024;
     this.setHasMaxOplogSize(true);
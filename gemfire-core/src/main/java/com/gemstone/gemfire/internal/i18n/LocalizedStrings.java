@@ -1999,7 +1999,7 @@ public class LocalizedStrings extends ParentLocalizedStrings {
   public static final StringId HOPLOG_CLOSE_FAILED = new StringIdImpl(5510, "IO error while trying to close hoplog.");
   public static final StringId HOPLOG_FLUSH_FOR_BATCH_FAILED = new StringIdImpl(5511, "A batch of data could not be persisted on HDFS. It will be retried.");
   public static final StringId HOPLOG_HDFS_STORE_NOT_FOUND = new StringIdImpl(5512, "HDFS store ''{0}'' does not exist.");
-  public static final StringId HOPLOG_TRYING_TO_CREATE_STANDALONE_SYSTEM = new StringIdImpl(5513, "The namenode url {0} is not valid. Please use the format hdfs://HOST:PORT");
+  public static final StringId HOPLOG_TRYING_TO_CREATE_STANDALONE_SYSTEM = new StringIdImpl(5513, "The namenode url {0} is not valid. Please use the format hdfs://HOST:PORT, or file:///PATH for a local file system");
   public static final StringId HOPLOG_DOES_NOT_USE_HDFSSTORE = new StringIdImpl(5514, "{0} does not use HDFSSTORE");
   public static final StringId HOPLOG_CONFIGURED_AS_WRITEONLY = new StringIdImpl(5515, "{0} is defined as WRITEONLY");
   public static final StringId HOPLOG_MISSING_IN_BUCKET_FORCED_CLOSED = new StringIdImpl(5516, "A hoplog file, {0}, was not found in bucket lists. Closing it now, it may impact active reads.");
@@ -2126,6 +2126,17 @@ public class LocalizedStrings extends ParentLocalizedStrings {
   public static final StringId MinimumSystemRequirements_NOT_MET = new StringIdImpl(6604, "Minimum system requirements not met. Unexpected behavior may result in additional errors.");
   public static final StringId MinimumSystemRequirements_JAVA_VERSION = new StringIdImpl(6605, "Java version older than {0}.");
 
+  public static final StringId Snapshot_INCREMENTAL_REQUIRES_LOCAL_VERSIONS_0 = new StringIdImpl(6606, "Incremental snapshots of region {0} require concurrency checks to be enabled and the region data to be exported locally. Use parallel mode for partitioned regions.");
+  public static final StringId Snapshot_BASE_HAS_NO_VERSIONS_0 = new StringIdImpl(6607, "Snapshot {0} does not contain version information and can not be used as the base of an incremental snapshot");
+  public static final StringId Snapshot_TOMBSTONES_COLLECTED_SINCE_BASE_0_1 = new StringIdImpl(6608, "Destroyed entries in region {0} have been garbage collected since the base snapshot {1} was created. Some destroys may not be applied when the incremental snapshot is loaded.");
+  public static final StringId DiskStoreAttributesCreation_COMPACTIONTHREADS_OF_0_IS_NOT_THE_SAME_THIS_1_OTHER_2 = new StringIdImpl(6609, "CompactionThreads of disk store {0} is not the same: this:  {1}  other:  {2}");
+  public static final StringId DiskStoreAttributesCreation_COMPACTIONMAXBYTESPERSECOND_OF_0_IS_NOT_THE_SAME_THIS_1_OTHER_2 = new StringIdImpl(6610, "CompactionMaxBytesPerSecond of disk store {0} is not the same: this:  {1}  other:  {2}");
+  public static final StringId GatewaySenderEventRemoteDispatcher_0_COULD_NOT_CONNECT_TO_REMOTE_SITE_1 = new StringIdImpl(6611, "{0} : Could not connect to a GatewayReceiver of remote site {1}");
+  public static final StringId GatewaySenderEventRemoteDispatcher_0_EXCEPTION_READING_ACKS_ON_CONNECTION_1 = new StringIdImpl(6612, "{0} : Exception while reading batch acknowledgements on connection {1}");
+  public static final StringId GatewayReceiver_START_PORT_0_GREATER_THAN_END_PORT_1 = new StringIdImpl(6613, "The start port {0} of a GatewayReceiver can not be greater than its end port {1}.");
+  public static final StringId HOPLOG_CANNOT_EXPORT_REGION_0_TO_ITS_OWN_HDFS_STORE_1 = new StringIdImpl(6614, "Region {0} can not be exported to {1}, the HDFS store it already uses.");
+  public static final StringId HOPLOG_FAILED_TO_DELETE_PARTIAL_EXPORT_OF_REGION_0_TO_1 = new StringIdImpl(6615, "Failed to delete the partial export of region {0} to HDFS store {1}");
+
   /**JGroups strings, messageId 15000-90000 **/
   
   /** Testing strings, messageId 90000-99999 **/
@@ -1,5 +1,6 @@
 package com.gemstone.gemfire.internal.offheap;
 
+import com.gemstone.gemfire.OutOfOffHeapMemoryException;
 import com.gemstone.gemfire.compression.Compressor;
 import com.gemstone.gemfire.internal.offheap.SimpleMemoryAllocatorImpl.ChunkType;
 
@@ -18,6 +19,15 @@ public interface MemoryAllocator {
    * @throws IllegalStateException if the heap does not have enough memory to grant the request
    */
   public MemoryChunk allocate(int size, ChunkType chunkType);
+
+  /**
+   * Like {@link #allocate(int, ChunkType)}, for data that can be kept
+   * elsewhere when the heap does not have enough memory for it. Running out of
+   * memory is not reported to the OutOfOffHeapMemoryListener, which would
+   * close the cache.
+   * @throws OutOfOffHeapMemoryException if the heap does not have enough memory to grant the request
+   */
+  public MemoryChunk allocateIfAvailable(int size, ChunkType chunkType);
   
   /**
    * Allocates off heap memory for the given data and returns a MemoryChunk
@@ -29,6 +39,15 @@ public interface MemoryAllocator {
    * @throws IllegalStateException if the heap does not have enough memory to grant the request
    */
   public StoredObject allocateAndInitialize(byte[] data, boolean isSerialized, boolean isCompressed, ChunkType chunkType);
+
+  /**
+   * Like {@link #allocateAndInitialize(byte[], boolean, boolean, ChunkType)},
+   * for data that can be kept elsewhere when the heap does not have enough
+   * memory for it. Running out of memory is not reported to the
+   * OutOfOffHeapMemoryListener, which would close the cache.
+   * @throws OutOfOffHeapMemoryException if the heap does not have enough memory to grant the request
+   */
+  public StoredObject allocateAndInitializeIfAvailable(byte[] data, boolean isSerialized, boolean isCompressed, ChunkType chunkType);
   
   public long getFreeMemory();
   
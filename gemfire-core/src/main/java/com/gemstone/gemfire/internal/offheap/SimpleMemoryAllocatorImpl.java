@@ -381,8 +381,17 @@ public final class SimpleMemoryAllocatorImpl implements MemoryAllocator, MemoryI
 
   @Override
   public MemoryChunk allocate(int size, ChunkType chunkType) {
+    return allocate(size, chunkType, true);
+  }
+
+  @Override
+  public MemoryChunk allocateIfAvailable(int size, ChunkType chunkType) {
+    return allocate(size, chunkType, false);
+  }
+
+  private MemoryChunk allocate(int size, ChunkType chunkType, boolean reportFailure) {
     //System.out.println("allocating " + size);
-    Chunk result = this.freeList.allocate(size, chunkType);
+    Chunk result = this.freeList.allocate(size, chunkType, reportFailure);
     //("allocated off heap object of size " + size + " @" + Long.toHexString(result.getMemoryAddress()), true);
     if (trackReferenceCounts()) {
       refCountChanged(result.getMemoryAddress(), false, 1);
@@ -558,6 +567,15 @@ public final class SimpleMemoryAllocatorImpl implements MemoryAllocator, MemoryI
   
   @Override
   public StoredObject allocateAndInitialize(byte[] v, boolean isSerialized, boolean isCompressed, ChunkType chunkType) {
+    return allocateAndInitialize(v, isSerialized, isCompressed, chunkType, true);
+  }
+
+  @Override
+  public StoredObject allocateAndInitializeIfAvailable(byte[] v, boolean isSerialized, boolean isCompressed, ChunkType chunkType) {
+    return allocateAndInitialize(v, isSerialized, isCompressed, chunkType, false);
+  }
+
+  private StoredObject allocateAndInitialize(byte[] v, boolean isSerialized, boolean isCompressed, ChunkType chunkType, boolean reportFailure) {
     long addr = OffHeapRegionEntryHelper.encodeDataAsAddress(v, isSerialized, isCompressed);
     if (addr != 0L) {
       return new DataAsAddress(addr);
@@ -566,7 +584,7 @@ public final class SimpleMemoryAllocatorImpl implements MemoryAllocator, MemoryI
       chunkType = GemFireChunk.TYPE;
     }
 
-    Chunk result = this.freeList.allocate(v.length, chunkType);
+    Chunk result = this.freeList.allocate(v.length, chunkType, reportFailure);
     //debugLog("allocated off heap object of size " + v.length + " @" + Long.toHexString(result.getMemoryAddress()), true);
     //debugLog("allocated off heap object of size " + v.length + " @" + Long.toHexString(result.getMemoryAddress()) +  "chunkSize=" + result.getSize() + " isSerialized=" + isSerialized + " v=" + Arrays.toString(v), true);
     if (trackReferenceCounts()) {
@@ -910,8 +928,17 @@ public final class SimpleMemoryAllocatorImpl implements MemoryAllocator, MemoryI
      * @return the allocated chunk
      * @throws IllegalStateException if a chunk can not be allocated.
      */
-    @SuppressWarnings("synthetic-access")
     public Chunk allocate(int size, ChunkType chunkType) {
+      return allocate(size, chunkType, true);
+    }
+
+    /**
+     * @param reportFailure
+     *          whether running out of memory is reported to the
+     *          OutOfOffHeapMemoryListener
+     */
+    @SuppressWarnings("synthetic-access")
+    public Chunk allocate(int size, ChunkType chunkType, boolean reportFailure) {
       Chunk result = null; /*tlCache.get();
       
       if (result != null && result.getDataSize() == size) {
@@ -921,7 +948,7 @@ public final class SimpleMemoryAllocatorImpl implements MemoryAllocator, MemoryI
         if (chunkType == null) {
           chunkType = GemFireChunk.TYPE;
         }
-        result = basicAllocate(size, true, chunkType);
+        result = basicAllocate(size, true, chunkType, reportFailure);
         result.setDataSize(size);
       }
       stats.incObjects(1);
@@ -936,6 +963,10 @@ public final class SimpleMemoryAllocatorImpl implements MemoryAllocator, MemoryI
     }
     
     private Chunk basicAllocate(int size, boolean useSlabs, ChunkType chunkType) {
+      return basicAllocate(size, useSlabs, chunkType, true);
+    }
+
+    private Chunk basicAllocate(int size, boolean useSlabs, ChunkType chunkType, boolean reportFailure) {
       if (useSlabs) {
         // Every object stored off heap has a header so we need
         // to adjust the size so that the header gets allocated.
@@ -944,15 +975,15 @@ public final class SimpleMemoryAllocatorImpl implements MemoryAllocator, MemoryI
         size += Chunk.OFF_HEAP_HEADER_SIZE;
       }
       if (size <= MAX_TINY) {
-        return allocateTiny(size, useSlabs, chunkType);
+        return allocateTiny(size, useSlabs, chunkType, reportFailure);
 //      } else if (size <= MAX_BIG) {
 //        return allocateBig(size, useSlabs);
       } else {
-        return allocateHuge(size, useSlabs, chunkType);
+        return allocateHuge(size, useSlabs, chunkType, reportFailure);
       }
     }
     
-    private Chunk allocateFromFragments(int chunkSize, ChunkType chunkType) {
+    private Chunk allocateFromFragments(int chunkSize, ChunkType chunkType, boolean reportFailure) {
       do {
         final int lastAllocationId = this.lastFragmentAllocation.get();
         for (int i=lastAllocationId; i < this.fragmentList.size(); i++) {
@@ -969,8 +1000,12 @@ public final class SimpleMemoryAllocatorImpl implements MemoryAllocator, MemoryI
         }
       } while (compact(chunkSize));
       // We tried all the fragments and didn't find any free memory.
-      logOffHeapState(chunkSize);
       final OutOfOffHeapMemoryException failure = new OutOfOffHeapMemoryException("Out of off-heap memory. Could not allocate size of " + chunkSize);
+      if (!reportFailure) {
+        // the caller keeps its data elsewhere
+        throw failure;
+      }
+      logOffHeapState(chunkSize);
       try {
         throw failure;
       } finally {
@@ -1333,13 +1368,13 @@ public final class SimpleMemoryAllocatorImpl implements MemoryAllocator, MemoryI
     private int round(int multiple, int value) {
       return (int) ((((long)value + (multiple-1)) / multiple) * multiple);
     }
-    private Chunk allocateTiny(int size, boolean useFragments, ChunkType chunkType) {
-      return basicAllocate(getNearestTinyMultiple(size), TINY_MULTIPLE, 0, this.tinyFreeLists, useFragments, chunkType);
+    private Chunk allocateTiny(int size, boolean useFragments, ChunkType chunkType, boolean reportFailure) {
+      return basicAllocate(getNearestTinyMultiple(size), TINY_MULTIPLE, 0, this.tinyFreeLists, useFragments, chunkType, reportFailure);
     }
 //    private Chunk allocateBig(int size, boolean useFragments) {
 //      return basicAllocate(getNearestBigMultiple(size), BIG_MULTIPLE, BIG_OFFSET, this.bigFreeLists, useFragments);
 //    }
-    private Chunk basicAllocate(int idx, int multiple, int offset, AtomicReferenceArray<SyncChunkStack> freeLists, boolean useFragments, ChunkType chunkType) {
+    private Chunk basicAllocate(int idx, int multiple, int offset, AtomicReferenceArray<SyncChunkStack> freeLists, boolean useFragments, ChunkType chunkType, boolean reportFailure) {
       SyncChunkStack clq = freeLists.get(idx);
       if (clq != null) {
         long memAddr = clq.poll();
@@ -1356,12 +1391,12 @@ public final class SimpleMemoryAllocatorImpl implements MemoryAllocator, MemoryI
         }
       }
       if (useFragments) {
-        return allocateFromFragments(((idx+1)*multiple)+offset, chunkType);
+        return allocateFromFragments(((idx+1)*multiple)+offset, chunkType, reportFailure);
       } else {
         return null;
       }
     }
-    private Chunk allocateHuge(int size, boolean useFragments, ChunkType chunkType) {
+    private Chunk allocateHuge(int size, boolean useFragments, ChunkType chunkType, boolean reportFailure) {
       // sizeHolder is a fake Chunk used to search our sorted hugeChunkSet.
       Chunk sizeHolder = newFakeChunk(size);
       NavigableSet<Chunk> ts = this.hugeChunkSet.tailSet(sizeHolder);
@@ -1388,7 +1423,7 @@ public final class SimpleMemoryAllocatorImpl implements MemoryAllocator, MemoryI
       if (useFragments) {
         // We round it up to the next multiple of TINY_MULTIPLE to make
         // sure we always have chunks allocated on an 8 byte boundary.
-        return allocateFromFragments(round(TINY_MULTIPLE, size), chunkType);
+        return allocateFromFragments(round(TINY_MULTIPLE, size), chunkType, reportFailure);
       } else {
         return null;
       }
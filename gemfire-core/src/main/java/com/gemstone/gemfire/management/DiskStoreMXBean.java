@@ -201,4 +201,30 @@ public interface DiskStoreMXBean {
    * @param criticalPercent the critical percent
    */
   public void setDiskUsageCriticalPercentage(float criticalPercent);
+
+  /**
+   * Returns the maximum number of oplog compactions that run at the same time.
+   * 
+   * @return the number of compaction threads
+   * @since 9.0
+   */
+  public int getCompactionThreads();
+
+  /**
+   * Returns the maximum rate, in bytes per second, at which compaction copies
+   * data forward. A value of 0 means that compaction is not throttled.
+   * 
+   * @return the compaction rate limit
+   * @since 9.0
+   */
+  public long getCompactionMaxBytesPerSecond();
+
+  /**
+   * Sets the maximum rate, in bytes per second, at which compaction copies
+   * data forward.
+   * 
+   * @param maxBytesPerSecond the compaction rate limit; 0 to not throttle
+   * @since 9.0
+   */
+  public void setCompactionMaxBytesPerSecond(long maxBytesPerSecond);
 }
@@ -162,6 +162,21 @@ public class DiskStoreMBean extends NotificationBroadcasterSupport implements
   public void setDiskUsageCriticalPercentage(float criticalPercent) {
     bridge.setDiskUsageCriticalPercentage(criticalPercent);
   }
+
+  @Override
+  public int getCompactionThreads() {
+    return bridge.getCompactionThreads();
+  }
+
+  @Override
+  public long getCompactionMaxBytesPerSecond() {
+    return bridge.getCompactionMaxBytesPerSecond();
+  }
+
+  @Override
+  public void setCompactionMaxBytesPerSecond(long maxBytesPerSecond) {
+    bridge.setCompactionMaxBytesPerSecond(maxBytesPerSecond);
+  }
   
   public DiskStoreMBeanBridge getBridge(){
     return bridge;
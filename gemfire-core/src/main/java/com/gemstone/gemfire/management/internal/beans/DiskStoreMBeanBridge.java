@@ -277,4 +277,16 @@ public class DiskStoreMBeanBridge {
   public void setDiskUsageCriticalPercentage(float criticalPercent) {
     diskStore.setDiskUsageCriticalPercentage(criticalPercent);
   }
+
+  public int getCompactionThreads() {
+    return diskStore.getCompactionThreads();
+  }
+
+  public long getCompactionMaxBytesPerSecond() {
+    return diskStore.getCompactionMaxBytesPerSecond();
+  }
+
+  public void setCompactionMaxBytesPerSecond(long maxBytesPerSecond) {
+    diskStore.setCompactionMaxBytesPerSecond(maxBytesPerSecond);
+  }
 }
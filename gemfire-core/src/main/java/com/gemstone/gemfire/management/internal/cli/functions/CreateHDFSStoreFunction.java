@@ -88,6 +88,7 @@ public class CreateHDFSStoreFunction extends FunctionAdapter implements Internal
     hdfsStoreFactory.setName(configHolder.getName());
     hdfsStoreFactory.setNameNodeURL(configHolder.getNameNodeURL());
     hdfsStoreFactory.setBlockCacheSize(configHolder.getBlockCacheSize());
+    hdfsStoreFactory.setBloomFilterFalsePositiveRate(configHolder.getBloomFilterFalsePositiveRate());
     hdfsStoreFactory.setWriteOnlyFileRolloverInterval(configHolder.getWriteOnlyFileRolloverInterval());
     hdfsStoreFactory.setHomeDir(configHolder.getHomeDir());
     hdfsStoreFactory.setHDFSClientConfigFile(configHolder.getHDFSClientConfigFile());
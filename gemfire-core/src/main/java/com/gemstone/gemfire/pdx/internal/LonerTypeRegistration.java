@@ -172,6 +172,10 @@ public class LonerTypeRegistration implements TypeRegistration {
   
   @Override
   public int getLocalSize() {
+    if(delegate == null) {
+      //no types have been defined yet
+      return 0;
+    }
     return delegate.getLocalSize();
   }
 }
@@ -617,6 +617,13 @@ public class PdxReaderImpl implements InternalPdxReader, java.io.Serializable {
     if (ft == null) {
       return null;
     }
+    return readField(ft);
+  }
+
+  /**
+   * Reads a field of the type of this reader that was looked up in advance.
+   */
+  public Object readField(PdxField ft) {
     switch (ft.getFieldType()) {
     case CHAR:
       return readChar(ft);
@@ -860,11 +867,21 @@ public class PdxReaderImpl implements InternalPdxReader, java.io.Serializable {
     if (ft == null) {
       return null;
     }
+    return readRawField(ft);
+  }
+
+  /**
+   * Reads a field of the type of this reader that was looked up in advance.
+   * 
+   * @return PdxString if field is a String otherwise invokes
+   *         {@link #readField(PdxField)}
+   */
+  public Object readRawField(PdxField ft) {
     if (ft.getFieldType() == FieldType.STRING) {
       return readPdxString(ft);
     }
     else{
-      return readField(field);
+      return readField(ft);
     }
   }
   
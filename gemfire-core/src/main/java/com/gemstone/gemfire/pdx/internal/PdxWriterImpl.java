@@ -589,6 +589,31 @@ public class PdxWriterImpl implements PdxWriter {
     return this.os.toByteArray();
   }
 
+  /**
+   * Assembles the serialized form of an instance of an existing pdx type
+   * from the raw bytes of each of its fields. Fields whose raw bytes are
+   * null are written with their default value.
+   *
+   * @param pdxType the existing type, which must not have deleted fields
+   * @param rawFields the raw field bytes, indexed by field index
+   * @return the serialized pdx instance, including the pdx header
+   */
+  public static byte[] fromRawFields(PdxType pdxType, byte[][] rawFields) {
+    PdxWriterImpl writer = new PdxWriterImpl(pdxType, new PdxOutputStream());
+    for (PdxField f : pdxType.getFields()) {
+      byte[] raw = rawFields[f.getFieldIndex()];
+      if (raw == null) {
+        // copy the shared default value so its position is not disturbed
+        ByteBuffer defaultBytes = f.getFieldType().getDefaultBytes().duplicate();
+        raw = new byte[defaultBytes.remaining()];
+        defaultBytes.get(raw);
+      }
+      writer.writeRawField(f, raw);
+    }
+    writer.completeByteStreamGeneration();
+    return writer.toByteArray();
+  }
+
 
   private void markVariableField() {
     if (!this.hasSeenFirstVlf) {
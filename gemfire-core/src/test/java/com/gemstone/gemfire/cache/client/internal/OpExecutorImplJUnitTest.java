@@ -494,6 +494,10 @@ public class OpExecutorImplJUnitTest extends TestCase {
       return null;
     }
 
+    public ByteBuffer getCommBufferForAsyncRead() {
+      return null;
+    }
+
     public ServerLocation getServer() {
       return server;
     }
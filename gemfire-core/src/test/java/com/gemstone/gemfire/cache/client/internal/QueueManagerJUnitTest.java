@@ -612,6 +612,10 @@ public class QueueManagerJUnitTest {
       return null;
     }
 
+    public ByteBuffer getCommBufferForAsyncRead() {
+      return null;
+    }
+
     public Endpoint getEndpoint() {
       return endpoint;
     }
@@ -801,6 +801,10 @@ public class ConnectionManagerJUnitTest {
           return null;
         }
 
+        public ByteBuffer getCommBufferForAsyncRead() {
+          return null;
+        }
+
         public Socket getSocket() {
           return null;
         }
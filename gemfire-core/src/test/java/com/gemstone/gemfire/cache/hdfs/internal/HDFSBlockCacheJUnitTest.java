@@ -0,0 +1,278 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.hdfs.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.io.hfile.BlockCache;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheKey;
+import org.apache.hadoop.hbase.io.hfile.BlockType;
+import org.apache.hadoop.hbase.io.hfile.Cacheable;
+import org.apache.hadoop.hbase.io.hfile.CacheableDeserializer;
+import org.apache.hadoop.hbase.regionserver.metrics.SchemaMetrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.OutOfOffHeapMemoryException;
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.hdfs.internal.HDFSBlockCache.StoreBlockCache;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.cache.persistence.soplog.HFileStoreStatistics;
+import com.gemstone.gemfire.internal.offheap.MemoryAllocator;
+import com.gemstone.gemfire.internal.offheap.MemoryChunk;
+import com.gemstone.gemfire.internal.offheap.SimpleMemoryAllocatorImpl;
+import com.gemstone.gemfire.internal.offheap.SimpleMemoryAllocatorImpl.GemFireChunk;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests the block cache shared by the hdfs stores of a cache.
+ */
+@Category(IntegrationTest.class)
+public class HDFSBlockCacheJUnitTest {
+
+  private static final int BLOCK_SIZE = 1024;
+
+  private GemFireCacheImpl cache;
+
+  private HFileStoreStatistics statsA;
+
+  private HFileStoreStatistics statsB;
+
+  @Before
+  public void setUp() {
+    this.cache = (GemFireCacheImpl)new CacheFactory().set("mcast-port", "0")
+        .set("locators", "").set("log-level", "warning")
+        .set("off-heap-memory-size", "10m").create();
+    this.statsA = new HFileStoreStatistics(this.cache.getDistributedSystem(),
+        "HDFSStoreStatistics", "storeA");
+    this.statsB = new HFileStoreStatistics(this.cache.getDistributedSystem(),
+        "HDFSStoreStatistics", "storeB");
+  }
+
+  @After
+  public void tearDown() {
+    if (this.cache != null) {
+      this.cache.close();
+    }
+    // do not reuse the memory fragmented by a test in the next one
+    SimpleMemoryAllocatorImpl.freeOffHeapMemory();
+  }
+
+  @Test
+  public void testStoresShareTheCapacity() {
+    StoreBlockCache storeA = HDFSBlockCache.addStore(10 * BLOCK_SIZE, this.statsA, null);
+    StoreBlockCache storeB = HDFSBlockCache.addStore(10 * BLOCK_SIZE, this.statsB, null);
+    BlockCache hoplogA = storeA.getHoplogBlockCache("/a/0/1-1-1.hop");
+    BlockCache hoplogB = storeB.getHoplogBlockCache("/b/0/1-1-1.hop");
+
+    // the hot store gets more than its share of the cache
+    for (int i = 0; i < 15; i++) {
+      hoplogA.cacheBlock(key(i), block(i));
+    }
+    assertEquals(15, storeA.getBlockCount());
+    assertEquals(15 * BLOCK_SIZE, this.statsA.getBlockCache().getBytesCached());
+
+    // the first blocks are read again, the next ones are evicted first
+    for (int i = 0; i < 5; i++) {
+      assertNotNull(hoplogA.getBlock(key(i), true, false));
+    }
+    for (int i = 0; i < 10; i++) {
+      hoplogB.cacheBlock(key(i), block(100 + i));
+    }
+    assertTrue(storeA.getCurrentSize() <= 20 * BLOCK_SIZE);
+    for (int i = 0; i < 5; i++) {
+      assertNotNull(hoplogA.getBlock(key(i), true, false));
+    }
+    assertNull(hoplogA.getBlock(key(5), true, false));
+    assertTrue(this.statsA.getBlockCache().getBytesEvicted() > 0);
+    assertEquals(0, this.statsB.getBlockCache().getBytesEvicted());
+    assertEquals(10, this.statsA.getBlockCache().getHits());
+    assertEquals(1, this.statsA.getBlockCache().getMisses());
+
+    storeA.shutdown();
+    storeB.shutdown();
+  }
+
+  @Test
+  public void testHoplogsOfTheSameNameAreToldApart() {
+    StoreBlockCache store = HDFSBlockCache.addStore(10 * BLOCK_SIZE, this.statsA, null);
+    BlockCache hoplog1 = store.getHoplogBlockCache("/store/region1/0/0-1-1.hop");
+    BlockCache hoplog2 = store.getHoplogBlockCache("/store/region2/0/0-1-1.hop");
+
+    hoplog1.cacheBlock(key(0), block(1));
+    hoplog2.cacheBlock(key(0), block(2));
+    assertArrayEquals(block(1).data, ((TestBlock)hoplog1.getBlock(key(0), true, false)).data);
+    assertArrayEquals(block(2).data, ((TestBlock)hoplog2.getBlock(key(0), true, false)).data);
+
+    assertEquals(1, hoplog1.evictBlocksByHfileName(key(0).getHfileName()));
+    assertNull(hoplog1.getBlock(key(0), true, false));
+    assertNotNull(hoplog2.getBlock(key(0), true, false));
+    store.shutdown();
+  }
+
+  @Test
+  public void testShutdownEvictsTheBlocksOfTheStore() {
+    StoreBlockCache storeA = HDFSBlockCache.addStore(10 * BLOCK_SIZE, this.statsA, null);
+    StoreBlockCache storeB = HDFSBlockCache.addStore(10 * BLOCK_SIZE, this.statsB, null);
+    storeA.getHoplogBlockCache("a").cacheBlock(key(0), block(0));
+    storeB.getHoplogBlockCache("b").cacheBlock(key(0), block(0));
+    assertEquals(2, storeB.getBlockCount());
+
+    storeA.shutdown();
+    assertEquals(1, storeB.getBlockCount());
+    assertEquals(10 * BLOCK_SIZE - BLOCK_SIZE, storeB.getFreeSize());
+    storeB.shutdown();
+  }
+
+  @Test
+  public void testBlocksAreKeptOffHeap() {
+    MemoryAllocator offHeap = this.cache.getOffHeapStore();
+    int objects = offHeap.getStats().getObjects();
+    StoreBlockCache store = HDFSBlockCache.addStore(10 * BLOCK_SIZE, this.statsA, offHeap);
+    BlockCache hoplog = store.getHoplogBlockCache("/a/0/1-1-1.hop");
+
+    for (int i = 0; i < 20; i++) {
+      hoplog.cacheBlock(key(i), block(i));
+    }
+    assertTrue(store.getCurrentSize() <= 10 * BLOCK_SIZE);
+    assertEquals(objects + store.getBlockCount(), offHeap.getStats().getObjects());
+
+    // the last blocks cached are read back from the off-heap memory
+    TestBlock read = (TestBlock)hoplog.getBlock(key(19), true, false);
+    assertArrayEquals(block(19).data, read.data);
+
+    store.shutdown();
+    assertEquals(objects, offHeap.getStats().getObjects());
+  }
+
+  @Test
+  public void testReadBlocksOutliveEvictions() {
+    StoreBlockCache store = HDFSBlockCache.addStore(10 * BLOCK_SIZE, this.statsA, null);
+    BlockCache hoplog = store.getHoplogBlockCache("/a/0/1-1-1.hop");
+
+    // the first block is read between the evictions of the blocks cached after
+    // it, and stays cached
+    for (int i = 0; i < 100; i++) {
+      hoplog.cacheBlock(key(i), block(i));
+      assertNotNull(hoplog.getBlock(key(0), true, false));
+    }
+    assertTrue(store.getCurrentSize() <= 10 * BLOCK_SIZE);
+    assertNotNull(hoplog.getBlock(key(99), true, false));
+    assertNull(hoplog.getBlock(key(50), true, false));
+    store.shutdown();
+    assertEquals(0, store.getBlockCount());
+  }
+
+  @Test
+  public void testBlocksNotCachedWhenOffHeapIsFragmented() {
+    MemoryAllocator offHeap = this.cache.getOffHeapStore();
+    // fill the off-heap memory, and free every other chunk so that no large
+    // block fits in a free fragment
+    List<MemoryChunk> chunks = new ArrayList<MemoryChunk>();
+    try {
+      while (true) {
+        chunks.add(offHeap.allocateIfAvailable(16 * BLOCK_SIZE, GemFireChunk.TYPE));
+      }
+    } catch (OutOfOffHeapMemoryException expected) {
+    }
+    try {
+      for (int i = 0; i < chunks.size(); i += 2) {
+        chunks.get(i).release();
+      }
+      StoreBlockCache store = HDFSBlockCache.addStore(1024 * BLOCK_SIZE, this.statsA, offHeap);
+      BlockCache hoplog = store.getHoplogBlockCache("/a/0/1-1-1.hop");
+      TestBlock large = new TestBlock(new byte[32 * BLOCK_SIZE]);
+      hoplog.cacheBlock(key(0), large);
+      assertEquals(0, store.getBlockCount());
+      assertNull(hoplog.getBlock(key(0), true, false));
+      assertFalse(this.cache.isClosed());
+
+      // a block that fits in a fragment is cached
+      hoplog.cacheBlock(key(1), block(1));
+      assertEquals(1, store.getBlockCount());
+      store.shutdown();
+    } finally {
+      for (int i = 1; i < chunks.size(); i += 2) {
+        chunks.get(i).release();
+      }
+    }
+  }
+
+  private static BlockCacheKey key(int offset) {
+    return new BlockCacheKey("0-1-1.hop", offset * BLOCK_SIZE);
+  }
+
+  private static TestBlock block(int i) {
+    byte[] data = new byte[BLOCK_SIZE];
+    data[0] = (byte)i;
+    data[BLOCK_SIZE - 1] = (byte)(i >> 8);
+    return new TestBlock(data);
+  }
+
+  /**
+   * A block of bytes, which are its heap and serialized size.
+   */
+  private static class TestBlock implements Cacheable {
+    private static final CacheableDeserializer<Cacheable> DESERIALIZER = new CacheableDeserializer<Cacheable>() {
+      @Override
+      public Cacheable deserialize(ByteBuffer b) throws IOException {
+        byte[] data = new byte[b.remaining()];
+        b.get(data);
+        return new TestBlock(data);
+      }
+    };
+
+    final byte[] data;
+
+    TestBlock(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    public long heapSize() {
+      return this.data.length;
+    }
+
+    @Override
+    public int getSerializedLength() {
+      return this.data.length;
+    }
+
+    @Override
+    public void serialize(ByteBuffer destination) {
+      destination.put(this.data);
+    }
+
+    @Override
+    public CacheableDeserializer<Cacheable> getDeserializer() {
+      return DESERIALIZER;
+    }
+
+    @Override
+    public BlockType getBlockType() {
+      return BlockType.DATA;
+    }
+
+    @Override
+    public SchemaMetrics getSchemaMetrics() {
+      return null;
+    }
+  }
+}
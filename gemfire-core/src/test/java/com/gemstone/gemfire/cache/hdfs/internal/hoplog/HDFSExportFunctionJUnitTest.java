@@ -0,0 +1,135 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.hdfs.internal.hoplog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.cache.execute.FunctionService;
+import com.gemstone.gemfire.cache.hdfs.internal.SortedHoplogPersistedEvent;
+import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSRegionDirector.HdfsRegionManager;
+import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HoplogSetReader.HoplogIterator;
+import com.gemstone.gemfire.internal.cache.PartitionedRegion;
+import com.gemstone.gemfire.internal.cache.PartitionedRegionHelper;
+import com.gemstone.gemfire.internal.util.BlobHelper;
+import com.gemstone.gemfire.test.junit.categories.HoplogTest;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+@Category({IntegrationTest.class, HoplogTest.class})
+public class HDFSExportFunctionJUnitTest extends BaseHoplogTestCase {
+  public void testExport() throws Exception {
+    Region<Object, Object> exported = cache.createRegionFactory(RegionShortcut.PARTITION)
+        .create("exported");
+    for (int i = 0; i < 100; i++) {
+      exported.put("key-" + i, "value-" + i);
+    }
+    exported.invalidate("key-0");
+
+    assertEquals(99, ((PartitionedRegion) exported).exportToHDFS(HDFS_STORE_NAME));
+
+    // every bucket is written to a sorted hoplog of its own
+    FileSystem fs = hdfsStore.getFileSystem();
+    Path regionPath = new Path(hdfsStore.getHomeDir(),
+        HdfsRegionManager.getRegionFolder(exported.getFullPath()));
+    Map<Object, Object> entries = new HashMap<Object, Object>();
+    for (FileStatus bucket : fs.listStatus(regionPath)) {
+      FileStatus[] hoplogs = fs.listStatus(bucket.getPath());
+      assertEquals(1, hoplogs.length);
+      assertTrue(hoplogs[0].getPath().getName().endsWith(
+          AbstractHoplogOrganizer.FLUSH_HOPLOG_EXTENSION));
+
+      Hoplog hoplog = new HFileSortedOplog(hdfsStore, hoplogs[0].getPath(), blockCache, stats, storeStats);
+      HoplogIterator<byte[], byte[]> iter = hoplog.getReader().scan();
+      byte[] previous = null;
+      while (iter.hasNext()) {
+        byte[] key = iter.next();
+        if (previous != null) {
+          assertTrue(Bytes.compareTo(previous, key) < 0);
+        }
+        previous = key;
+        SortedHoplogPersistedEvent evt = SortedHoplogPersistedEvent.fromBytes(iter.getValue());
+        entries.put(BlobHelper.deserializeBlob(key), evt.getDeserializedValue());
+      }
+      iter.close();
+      hoplog.close();
+    }
+    assertEquals(99, entries.size());
+    for (int i = 1; i < 100; i++) {
+      assertEquals("value-" + i, entries.get("key-" + i));
+    }
+    exported.destroyRegion();
+  }
+
+  public void testExportIsRepeatable() throws Exception {
+    PartitionedRegion exported = (PartitionedRegion) cache.createRegionFactory(RegionShortcut.PARTITION)
+        .create("exported");
+    for (int i = 0; i < 10; i++) {
+      exported.put(i, "value-" + i);
+    }
+    int bucketId = PartitionedRegionHelper.getHashKey(exported, Integer.valueOf(0));
+
+    // a re-execution of the same export replaces the hoplog of the bucket
+    long timestamp = System.currentTimeMillis();
+    int count = HDFSExportFunction.exportBucket(exported, bucketId, hdfsStore, timestamp);
+    assertTrue(count > 0);
+    assertEquals(count, HDFSExportFunction.exportBucket(exported, bucketId, hdfsStore, timestamp));
+    assertEquals(1, getExportedHoplogs(exported).length);
+    exported.destroyRegion();
+  }
+
+  public void testDeleteExport() throws Exception {
+    PartitionedRegion exported = (PartitionedRegion) cache.createRegionFactory(RegionShortcut.PARTITION)
+        .create("exported");
+    for (int i = 0; i < 100; i++) {
+      exported.put("key-" + i, "value-" + i);
+    }
+    long timestamp = System.currentTimeMillis();
+    FunctionService.onRegion(exported)
+        .withArgs(HDFSExportFunction.createArgs(HDFS_STORE_NAME, timestamp))
+        .execute(HDFSExportFunction.ID).getResult();
+    assertTrue(getExportedHoplogs(exported).length > 0);
+
+    // the hoplogs of a failed export are deleted so it can be retried
+    HDFSExportFunction.deleteExport(hdfsStore, exported.getFullPath(),
+        exported.getTotalNumberOfBuckets(), timestamp);
+    assertEquals(0, getExportedHoplogs(exported).length);
+    exported.destroyRegion();
+  }
+
+  private FileStatus[] getExportedHoplogs(Region<?, ?> exported) throws Exception {
+    FileSystem fs = hdfsStore.getFileSystem();
+    Path regionPath = new Path(hdfsStore.getHomeDir(),
+        HdfsRegionManager.getRegionFolder(exported.getFullPath()));
+    List<FileStatus> hoplogs = new ArrayList<FileStatus>();
+    if (fs.exists(regionPath)) {
+      for (FileStatus bucket : fs.listStatus(regionPath)) {
+        hoplogs.addAll(Arrays.asList(fs.listStatus(bucket.getPath())));
+      }
+    }
+    return hoplogs.toArray(new FileStatus[hoplogs.size()]);
+  }
+
+  public void testExportToOwnStore() throws Exception {
+    try {
+      ((PartitionedRegion) region).exportToHDFS(HDFS_STORE_NAME);
+      fail("exported to the store used by the region");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.hdfs.internal.hoplog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.jmock.Mockery;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HDFSRangeScanFunction.MergedEntries;
+import com.gemstone.gemfire.distributed.DistributedMember;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+/**
+ * Tests the merging of the sorted entries of the buckets and members of a
+ * range scan.
+ */
+@Category(UnitTest.class)
+public class HDFSRangeScanFunctionJUnitTest extends TestCase {
+
+  public void testMergeInKeyOrder() {
+    List<Iterator<Object[]>> sources = new ArrayList<Iterator<Object[]>>();
+    sources.add(entries("b", "e", "h").iterator());
+    sources.add(entries("a", "d").iterator());
+    sources.add(Collections.<Object[]> emptyList().iterator());
+    sources.add(entries("c", "f", "g", "i").iterator());
+    assertEquals(Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h", "i"),
+        keys(new MergedEntries(sources)));
+  }
+
+  public void testMergeOfNoSources() {
+    assertFalse(new MergedEntries(new ArrayList<Iterator<Object[]>>()).hasNext());
+  }
+
+  public void testDuplicateKeysKeepTheFirstSource() {
+    List<Object[]> first = entries("a", "c");
+    List<Object[]> second = entries("b", "c", "d");
+    List<Object[]> third = entries("c");
+    List<Iterator<Object[]>> sources = new ArrayList<Iterator<Object[]>>();
+    sources.add(first.iterator());
+    sources.add(second.iterator());
+    sources.add(third.iterator());
+
+    List<Object[]> merged = new ArrayList<Object[]>();
+    for (MergedEntries iter = new MergedEntries(sources); iter.hasNext();) {
+      merged.add(iter.next());
+    }
+    assertEquals(4, merged.size());
+    assertSame(first.get(1), merged.get(2));
+    assertEquals("d", Bytes.toString((byte[]) merged.get(3)[0]));
+  }
+
+  public void testSourcesAreReadAsFarAsMerged() {
+    List<CountingIterator> sources = new ArrayList<CountingIterator>();
+    for (int i = 0; i < 10; i++) {
+      List<Object[]> entries = new ArrayList<Object[]>();
+      for (int j = 0; j < 100; j++) {
+        entries.add(new Object[] { Bytes.toBytes(String.format("%03d-%d", j, i)) });
+      }
+      sources.add(new CountingIterator(entries.iterator()));
+    }
+    MergedEntries merged = new MergedEntries(sources);
+    for (int i = 0; i < 5; i++) {
+      merged.next();
+    }
+    // the heads of the sources plus the entries merged
+    int read = 0;
+    for (CountingIterator source : sources) {
+      read += source.read;
+    }
+    assertEquals(15, read);
+  }
+
+  public void testCollectorMergesTheChunksOfTheMembers() {
+    Mockery mockery = new Mockery();
+    DistributedMember member1 = mockery.mock(DistributedMember.class, "member1");
+    DistributedMember member2 = mockery.mock(DistributedMember.class, "member2");
+
+    HDFSRangeScanResultCollector rc = new HDFSRangeScanResultCollector(0);
+    rc.addResult(member1, entries("a", "c"));
+    rc.addResult(member2, entries("b", "c"));
+    rc.addResult(member1, entries("e", "g"));
+    rc.addResult(member2, entries("d", "f"));
+    rc.addResult(member1, entries());
+    rc.endResults();
+    assertEquals(Arrays.asList("a", "b", "c", "d", "e", "f", "g"),
+        keys(rc.getResult().iterator()));
+  }
+
+  public void testCollectorLimit() {
+    Mockery mockery = new Mockery();
+    DistributedMember member1 = mockery.mock(DistributedMember.class, "member1");
+    DistributedMember member2 = mockery.mock(DistributedMember.class, "member2");
+
+    HDFSRangeScanResultCollector rc = new HDFSRangeScanResultCollector(3);
+    rc.addResult(member1, entries("a", "c", "e"));
+    rc.addResult(member2, entries("b", "d", "f"));
+    assertEquals(Arrays.asList("a", "b", "c"), keys(rc.getResult().iterator()));
+  }
+
+  public void testCollectorIsClearedForRetry() {
+    Mockery mockery = new Mockery();
+    DistributedMember member = mockery.mock(DistributedMember.class);
+
+    HDFSRangeScanResultCollector rc = new HDFSRangeScanResultCollector(0);
+    rc.addResult(member, entries("a", "b"));
+    rc.clearResults();
+    rc.addResult(member, entries("a", "b", "c"));
+    assertEquals(Arrays.asList("a", "b", "c"), keys(rc.getResult().iterator()));
+  }
+
+  private static List<Object[]> entries(String... keys) {
+    List<Object[]> entries = new ArrayList<Object[]>();
+    for (String key : keys) {
+      entries.add(new Object[] { Bytes.toBytes(key), "value-" + key });
+    }
+    return entries;
+  }
+
+  private static List<String> keys(Iterator<Object[]> entries) {
+    List<String> keys = new ArrayList<String>();
+    while (entries.hasNext()) {
+      keys.add(Bytes.toString((byte[]) entries.next()[0]));
+    }
+    return keys;
+  }
+
+  private static class CountingIterator implements Iterator<Object[]> {
+    private final Iterator<Object[]> iter;
+
+    int read;
+
+    CountingIterator(Iterator<Object[]> iter) {
+      this.iter = iter;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return this.iter.hasNext();
+    }
+
+    @Override
+    public Object[] next() {
+      this.read++;
+      return this.iter.next();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
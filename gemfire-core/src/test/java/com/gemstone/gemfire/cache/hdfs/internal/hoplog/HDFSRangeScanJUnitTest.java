@@ -0,0 +1,134 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.hdfs.internal.hoplog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.cache.execute.FunctionService;
+import com.gemstone.gemfire.internal.cache.PartitionedRegion;
+import com.gemstone.gemfire.internal.util.BlobHelper;
+import com.gemstone.gemfire.test.junit.categories.HoplogTest;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests the range scan of an HDFS read/write region.
+ */
+@Category({IntegrationTest.class, HoplogTest.class})
+public class HDFSRangeScanJUnitTest extends BaseHoplogTestCase {
+
+  @Override
+  protected void configureHdfsStoreFactory() throws Exception {
+    super.configureHdfsStoreFactory();
+    // the queue is flushed by the tests
+    hsf.setBatchInterval(100000000);
+    hsf.setBatchSize(10000);
+  }
+
+  public void testScanReadsTheQueueAndTheHoplogs() throws Exception {
+    PartitionedRegion pr = (PartitionedRegion) region;
+    for (int i = 0; i < 100; i++) {
+      region.put(i, "value-" + i);
+    }
+    pr.flushHDFSQueue(0);
+    // newer values and a destroy in the queue
+    for (int i = 10; i < 15; i++) {
+      region.put(i, "updated-" + i);
+    }
+    region.destroy(15);
+
+    Map<Object, Object> entries = pr.scan(10, 20, 100);
+    assertEquals(Arrays.asList(10, 11, 12, 13, 14, 16, 17, 18, 19),
+        new ArrayList<Object>(entries.keySet()));
+    assertEquals("updated-12", entries.get(12));
+    assertEquals("value-17", entries.get(17));
+  }
+
+  public void testScanLimit() throws Exception {
+    PartitionedRegion pr = (PartitionedRegion) region;
+    for (int i = 0; i < 100; i++) {
+      region.put(i, "value-" + i);
+    }
+    pr.flushHDFSQueue(0);
+
+    assertEquals(Arrays.asList(0, 1, 2, 3, 4),
+        new ArrayList<Object>(pr.scan(null, null, 5).keySet()));
+    assertEquals(Arrays.asList(95, 96, 97, 98, 99),
+        new ArrayList<Object>(pr.scan(95, null, 10).keySet()));
+    assertEquals(100, pr.scan(null, null, 1000).size());
+    assertTrue(pr.scan(200, null, 10).isEmpty());
+  }
+
+  public void testFunctionSendsSortedChunks() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      region.put(i, "value-" + i);
+    }
+    Object args = HDFSRangeScanFunction.createArgs(BlobHelper.serializeToBlob(20),
+        BlobHelper.serializeToBlob(80), 30);
+    List<?> chunks = (List<?>) FunctionService.onRegion(region).withArgs(args)
+        .execute(HDFSRangeScanFunction.ID).getResult();
+
+    // the chunks of the member hold at most the limit, in key order
+    byte[] previous = null;
+    int count = 0;
+    for (Object chunk : chunks) {
+      for (Object[] entry : (List<Object[]>) chunk) {
+        byte[] key = (byte[]) entry[0];
+        if (previous != null) {
+          assertTrue(Bytes.compareTo(previous, key) < 0);
+        }
+        previous = key;
+        assertEquals("value-" + BlobHelper.deserializeBlob(key), entry[1]);
+        count++;
+      }
+    }
+    assertEquals(30, count);
+  }
+
+  public void testScanOfRegionWithoutStore() throws Exception {
+    Region<Object, Object> plain = cache.createRegionFactory(RegionShortcut.PARTITION)
+        .create("plain");
+    try {
+      ((PartitionedRegion) plain).scan(null, null, 10);
+      fail("scanned a region without an hdfs store");
+    } catch (UnsupportedOperationException expected) {
+    }
+    plain.destroyRegion();
+  }
+
+  public void testLimitMustBePositive() throws Exception {
+    PartitionedRegion pr = (PartitionedRegion) region;
+    assertScanFails(pr, null, null, -1);
+    assertScanFails(pr, null, null, 0);
+  }
+
+  public void testKeysMustBeSerializedInNaturalOrder() throws Exception {
+    PartitionedRegion pr = (PartitionedRegion) region;
+    assertScanFails(pr, -1, null, 10);
+    assertScanFails(pr, null, -5L, 10);
+    assertScanFails(pr, "a", "b", 10);
+    assertScanFails(pr, 1, 5L, 10);
+    assertScanFails(pr, 1.5d, null, 10);
+  }
+
+  private static void assertScanFails(PartitionedRegion pr, Object fromKey,
+      Object toKey, int limit) {
+    try {
+      pr.scan(fromKey, toKey, limit);
+      fail("scanned from " + fromKey + " to " + toKey + " with limit " + limit);
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.hdfs.internal.hoplog;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.hdfs.HDFSIOException;
+import com.gemstone.gemfire.cache.hdfs.internal.QueuedPersistentEvent;
+import com.gemstone.gemfire.internal.util.BlobHelper;
+import com.gemstone.gemfire.test.junit.categories.HoplogTest;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests a hdfs store persisted on the local file system given by a namenode
+ * url with the file scheme.
+ */
+@Category({IntegrationTest.class, HoplogTest.class})
+public class LocalFileSystemHoplogJUnitTest extends BaseHoplogTestCase {
+
+  private File localRoot;
+
+  @Override
+  protected void configureHdfsStoreFactory() throws Exception {
+    super.configureHdfsStoreFactory();
+    // the store is local because of its url, not of the test property
+    System.clearProperty(HoplogConfig.ALLOW_LOCAL_HDFS_PROP);
+
+    localRoot = new File("local-hoplogs-" + getName()).getAbsoluteFile();
+    hsf.setNameNodeURL(localRoot.toURI().toString());
+    hsf.setInputFileCountMin(3);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    super.tearDown();
+    FileUtils.deleteDirectory(localRoot);
+  }
+
+  public void testIsLocalFileSystem() throws Exception {
+    assertTrue(hdfsStore.isLocalFileSystem());
+  }
+
+  public void testHoplogsAreStoredInUrlDirectory() throws Exception {
+    HdfsSortedOplogOrganizer organizer = new HdfsSortedOplogOrganizer(regionManager, 0);
+    flush(organizer, "1", "2", "3");
+
+    File[] hoplogs = listBucketFiles(HdfsSortedOplogOrganizer.FLUSH_HOPLOG_EXTENSION);
+    assertEquals(1, hoplogs.length);
+    assertEquals(1, getBucketHoplogs(getName() + "/0",
+        HdfsSortedOplogOrganizer.FLUSH_HOPLOG_EXTENSION).length);
+    organizer.close();
+  }
+
+  public void testMinorCompaction() throws Exception {
+    HdfsSortedOplogOrganizer organizer = new HdfsSortedOplogOrganizer(regionManager, 0);
+    flush(organizer, "1", "2", "3", "4");
+    flush(organizer, "2", "4", "6", "8");
+    flush(organizer, "1", "3", "5", "7", "9");
+    assertEquals(3, listBucketFiles(HdfsSortedOplogOrganizer.FLUSH_HOPLOG_EXTENSION).length);
+
+    assertTrue(organizer.getCompactor().compact(false, false));
+    assertEquals(1, listBucketFiles(HdfsSortedOplogOrganizer.MINOR_HOPLOG_EXTENSION).length);
+    assertEquals(1, organizer.getSortedOplogs().size());
+    for (int i = 1; i <= 9; i++) {
+      assertNotNull(organizer.read(BlobHelper.serializeToBlob(String.valueOf(i))));
+    }
+    organizer.close();
+  }
+
+  public void testDefaultLocalFileSystemIsRejected() throws Exception {
+    hsf.setNameNodeURL(null);
+    hsf.setHomeDir("rejected");
+    try {
+      hsf.create("rejected");
+      fail("A store must not use the local file system without a file url");
+    } catch (HDFSIOException expected) {
+    }
+  }
+
+  private void flush(HdfsSortedOplogOrganizer organizer, String... keys)
+      throws Exception {
+    ArrayList<QueuedPersistentEvent> items = new ArrayList<QueuedPersistentEvent>();
+    for (String key : keys) {
+      items.add(new TestEvent(key, "1"));
+    }
+    organizer.flush(items.iterator(), items.size());
+  }
+
+  /**
+   * Lists the files of bucket 0 with java.io, to check where the store wrote
+   * them.
+   */
+  private File[] listBucketFiles(final String extension) {
+    File bucketDir = new File(localRoot, testDataDir + File.separator
+        + getName() + File.separator + "0");
+    File[] files = bucketDir.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.endsWith(extension);
+      }
+    });
+    return files == null ? new File[0] : files;
+  }
+}
@@ -15,6 +15,7 @@ import org.junit.experimental.categories.Category;
 
 import com.gemstone.gemfire.cache.hdfs.internal.PersistedEventImpl;
 import com.gemstone.gemfire.cache.hdfs.internal.SortedHoplogPersistedEvent;
+import com.gemstone.gemfire.cache.hdfs.internal.hoplog.HoplogSetReader.HoplogIterator;
 import com.gemstone.gemfire.internal.cache.persistence.soplog.TrackedReference;
 import com.gemstone.gemfire.internal.util.BlobHelper;
 import com.gemstone.gemfire.test.junit.categories.HoplogTest;
@@ -175,4 +176,43 @@ public class SortedOplogListIterJUnitTest extends BaseHoplogTestCase {
     assertEquals(10, count);
     organizer.close();
   }
+
+  public void testRangeScan() throws Exception {
+    HdfsSortedOplogOrganizer organizer = new HdfsSortedOplogOrganizer(regionManager, 0);
+
+    ArrayList<TestEvent> items = new ArrayList<TestEvent>();
+    items.add(new TestEvent(("1"), ("V1")));
+    items.add(new TestEvent(("3"), ("V1")));
+    items.add(new TestEvent(("5"), ("V1")));
+    items.add(new TestEvent(("7"), ("V1")));
+    organizer.flush(items.iterator(), items.size());
+
+    items.clear();
+    items.add(new TestEvent(("2"), ("V2")));
+    items.add(new TestEvent(("3"), ("V2")));
+    items.add(new TestEvent(("8"), ("V2")));
+    organizer.flush(items.iterator(), items.size());
+
+    // keys 2 to 7, the end key is excluded
+    HoplogIterator<byte[], SortedHoplogPersistedEvent> iter = organizer.scan(
+        BlobHelper.serializeToBlob("2"), BlobHelper.serializeToBlob("7"));
+    String[] expectedKeys = { "2", "3", "5" };
+    String[] expectedValues = { "V2", "V2", "V1" };
+    int count = 0;
+    while (iter.hasNext()) {
+      byte[] key = iter.next();
+      assertEquals(expectedKeys[count], BlobHelper.deserializeBlob(key));
+      assertEquals(expectedValues[count], iter.getValue().getValue());
+      count++;
+    }
+    iter.close();
+    assertEquals(3, count);
+
+    // a range between two keys
+    iter = organizer.scan(BlobHelper.serializeToBlob("5"), false,
+        BlobHelper.serializeToBlob("7"), false);
+    assertFalse(iter.hasNext());
+    iter.close();
+    organizer.close();
+  }
 }
@@ -976,7 +976,7 @@ public class CustomerOptimizationsJUnitTest
     final boolean [] expectedIndexUsed = new boolean[]{true};
     final boolean [] actualIndexUsed = new boolean[]{false};
     
-    final boolean [] expectedProjectionCallabck = new boolean[]{false};
+    final boolean [] expectedProjectionCallabck = new boolean[]{true};
     final boolean [] actualProjectionCallback = new boolean[]{false};
  
     final boolean [] expectedUnionCallback = {false};
@@ -1005,6 +1005,13 @@ public class CustomerOptimizationsJUnitTest
         actualIndexUsed[i] = true;
         indexesUsed.add(index);
       }
+
+      public void beforeIndexLookup(Index index, int lowerBoundOperator,
+          Object lowerBoundKey, int upperBoundOperator, Object upperBoundKey,
+          Set NotEqualKeys) {
+        actualIndexUsed[i] = true;
+        indexesUsed.add(index);
+      }
       
       public void beforeApplyingProjectionOnFilterEvaluatedResults(Object preProjectionApplied)
       {    
@@ -1027,7 +1034,9 @@ public class CustomerOptimizationsJUnitTest
       assertEquals(expectedProjectionCallabck[i],actualProjectionCallback[i]);
     }
     assertEquals(indexesUsed.size(),1);
-    assertEquals( ((Index)indexesUsed.iterator().next()).getName(),"CreateTime");
+    // the range selects 7 of the 200 entries and the IN condition 100, so the
+    // range is evaluated with its index
+    assertEquals( ((Index)indexesUsed.iterator().next()).getName(),"PortFolioID");
     CacheUtils.compareResultsOfWithAndWithoutIndex(sr, this);
   }
   
@@ -1,11 +1,23 @@
 package com.gemstone.gemfire.cache.query.functional;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import com.gemstone.gemfire.cache.AttributesFactory;
 import com.gemstone.gemfire.cache.PartitionAttributesFactory;
 import com.gemstone.gemfire.cache.Region;
 import com.gemstone.gemfire.cache.query.CacheUtils;
+import com.gemstone.gemfire.cache.query.Struct;
+import com.gemstone.gemfire.cache.query.data.Portfolio;
+import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
+import com.gemstone.gemfire.internal.cache.PRQueryProcessor;
+import com.gemstone.gemfire.internal.cache.PartitionedRegion;
 import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
 
 /**
@@ -31,4 +43,45 @@ public class GroupByPartitionedJUnitTest extends GroupByTestImpl {
     return r1;
 
   }
+
+  /**
+   * Tests that the data node sends one row of partial aggregates per group
+   * rather than one per bucket when the buckets are queried in parallel.
+   */
+  @Test
+  public void testBucketResultsCombinedPerGroup() throws Exception {
+    Region region = this.createRegion("portfolio", Portfolio.class);
+    for (int i = 1; i < 200; ++i) {
+      region.put("" + i, new Portfolio(i));
+    }
+    PartitionedRegion pr = (PartitionedRegion) region;
+    String queryStr = "select p.status as status, count(*), sum(p.ID), avg(p.ID) from /portfolio p where p.ID > 0 group by p.status";
+    List buckets = new ArrayList(pr.getDataStore().getAllLocalBucketIds());
+    PRQueryProcessor.TEST_NUM_THREADS = 10;
+    try {
+      DefaultQuery query = (DefaultQuery) CacheUtils.getQueryService().newQuery(queryStr);
+      PRQueryProcessor processor = new PRQueryProcessor(pr, query, null, buckets);
+      List<Collection> results = new ArrayList<Collection>();
+      processor.executeQuery(results);
+      assertEquals(1, results.size());
+      Collection rows = results.get(0);
+      assertEquals(2, rows.size());
+
+      int count = 0;
+      int sum = 0;
+      for (Object row : rows) {
+        Object[] values = ((Struct) row).getFieldValues();
+        count += ((Integer) values[1]).intValue();
+        sum += ((Number) values[2]).intValue();
+        // the average is sent as the number of values and their sum
+        Object[] avg = (Object[]) values[3];
+        assertEquals(values[1], avg[0]);
+        assertEquals(((Number) values[2]).intValue(), ((Number) avg[1]).intValue());
+      }
+      assertEquals(199, count);
+      assertEquals(199 * 200 / 2, sum);
+    } finally {
+      PRQueryProcessor.TEST_NUM_THREADS = 0;
+    }
+  }
 }
@@ -15,6 +15,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import com.gemstone.gemfire.Statistics;
 import com.gemstone.gemfire.cache.Region;
 import com.gemstone.gemfire.cache.RegionShortcut;
 import com.gemstone.gemfire.cache.query.CacheUtils;
@@ -30,6 +31,8 @@ import com.gemstone.gemfire.cache.query.internal.QueryObserverHolder;
 import com.gemstone.gemfire.cache.query.internal.index.CompactRangeIndex;
 import com.gemstone.gemfire.cache.query.internal.index.HashIndex;
 import com.gemstone.gemfire.cache.query.internal.index.PrimaryKeyIndex;
+import com.gemstone.gemfire.distributed.internal.InternalDistributedSystem;
+import com.gemstone.gemfire.internal.cache.PartitionedRegion;
 import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
 
 @Category(IntegrationTest.class)
@@ -365,5 +368,39 @@ public class MultiIndexCreationJUnitTest {
     QueryObserverHolder.setInstance(old);
   
   }
- 
+
+  @Test
+  public void testIndexCreationOnPRBucketsReportsProgress() throws Exception {
+    Region pr = CacheUtils.getCache().createRegionFactory(RegionShortcut.PARTITION).create(prRegionName);
+    for (int i = 0; i < 500; i++) {
+      pr.put("" + i, new Portfolio(i));
+    }
+    int numBuckets = ((PartitionedRegion) pr).getDataStore().getAllLocalBucketIds().size();
+    assertTrue(numBuckets > 1);
+
+    QueryService qs = CacheUtils.getQueryService();
+    qs.defineIndex("IDIndex", "ID", pr.getFullPath());
+    qs.defineIndex("statusIndex", "status", pr.getFullPath());
+    qs.defineHashIndex("pkidIndex", "pkid", pr.getFullPath());
+    List<Index> indexes = qs.createDefinedIndexes();
+    assertEquals(3, indexes.size());
+
+    for (Index ind : indexes) {
+      assertEquals(500, ind.getStatistics().getNumberOfValues());
+      Statistics stats = getIndexStats(ind.getName());
+      assertEquals(numBuckets, stats.getInt("numBucketIndexes"));
+      assertEquals(numBuckets, stats.getInt("numBucketIndexesPopulated"));
+      assertEquals(0, stats.getInt("populatesInProgress"));
+    }
+    SelectResults sr = (SelectResults) qs.newQuery(
+        "select * from " + pr.getFullPath() + " where ID < 100 and status = 'active'").execute();
+    assertEquals(50, sr.size());
+  }
+
+  private Statistics getIndexStats(String indexName) {
+    InternalDistributedSystem system = (InternalDistributedSystem) CacheUtils.getCache().getDistributedSystem();
+    Statistics[] stats = system.findStatisticsByTextId(indexName);
+    assertEquals(1, stats.length);
+    return stats[0];
+  }
 }
@@ -0,0 +1,197 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.query.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.EntryDestroyedException;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.query.CacheUtils;
+import com.gemstone.gemfire.cache.query.QueryInvocationTargetException;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.pdx.PdxInstance;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests the reads of attributes and the invocations of methods by queries
+ * through the accessors remembered for the class of the last target or the
+ * PdxType of the last PdxInstance.
+ */
+@Category(IntegrationTest.class)
+public class AttributeDescriptorJUnitTest {
+
+  @After
+  public void tearDown() throws Exception {
+    CacheUtils.closeCache();
+  }
+
+  @Test
+  public void testReadOfFieldsAndGetters() throws Exception {
+    AttributeDescriptor field = new AttributeDescriptor("id");
+    AttributeDescriptor getter = new AttributeDescriptor("name");
+    for (int i = 0; i < 3; i++) {
+      assertEquals(Integer.valueOf(i), field.read(new Item(i, "item" + i)));
+      assertEquals("item" + i, getter.read(new Item(i, "item" + i)));
+    }
+    // objects of different classes read with the same descriptor
+    assertEquals("sub", getter.read(new SubItem(5, "sub")));
+    assertEquals("item7", getter.read(new Item(7, "item7")));
+    assertEquals(Integer.valueOf(5), field.read(new SubItem(5, "sub")));
+    assertSame(QueryService.UNDEFINED, getter.read(null));
+  }
+
+  @Test
+  public void testExceptionsOfGetters() throws Exception {
+    AttributeDescriptor failing = new AttributeDescriptor("failing");
+    for (int i = 0; i < 2; i++) {
+      try {
+        failing.read(new Item(i, "item"));
+        fail("expected QueryInvocationTargetException");
+      } catch (QueryInvocationTargetException e) {
+        assertTrue(e.getCause() instanceof IllegalStateException);
+      }
+    }
+    AttributeDescriptor destroyed = new AttributeDescriptor("destroyed");
+    for (int i = 0; i < 2; i++) {
+      assertSame(QueryService.UNDEFINED, destroyed.read(new Item(i, "item")));
+    }
+  }
+
+  @Test
+  public void testMethodInvocations() throws Exception {
+    MethodDispatch concat = new MethodDispatch(Item.class, "concat",
+        Arrays.asList(new Class[] { String.class }));
+    assertEquals("item1x", concat.invoke(new Item(1, "item1"),
+        Collections.singletonList("x")));
+    // primitive parameters are invoked with reflection
+    MethodDispatch plus = new MethodDispatch(Item.class, "plus",
+        Arrays.asList(new Class[] { Integer.class }));
+    assertEquals(Integer.valueOf(3), plus.invoke(new Item(1, "item1"),
+        Collections.singletonList(Integer.valueOf(2))));
+    MethodDispatch failing = new MethodDispatch(Item.class, "getFailing",
+        Collections.EMPTY_LIST);
+    try {
+      failing.invoke(new Item(1, "item1"), Collections.EMPTY_LIST);
+      fail("expected QueryInvocationTargetException");
+    } catch (QueryInvocationTargetException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void testConversionErrorsMatchReflection() throws Exception {
+    MethodDispatch concat = new MethodDispatch(Item.class, "concat",
+        Arrays.asList(new Class[] { String.class }));
+    // reflection rejects an argument or a target of the wrong type with an
+    // IllegalArgumentException
+    try {
+      concat.invoke(new Item(1, "item1"), Collections.singletonList(Integer.valueOf(2)));
+      fail("expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      concat.invoke("item1", Collections.singletonList("x"));
+      fail("expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+    }
+    // a ClassCastException thrown by the method is wrapped like any other
+    MethodDispatch casting = new MethodDispatch(Item.class, "getCasting",
+        Collections.EMPTY_LIST);
+    try {
+      casting.invoke(new Item(1, "item1"), Collections.EMPTY_LIST);
+      fail("expected QueryInvocationTargetException");
+    } catch (QueryInvocationTargetException e) {
+      assertTrue(e.getCause() instanceof ClassCastException);
+    }
+  }
+
+  @Test
+  public void testQueryOnObjectsAndPdxInstances() throws Exception {
+    CacheUtils.startCache();
+    Region region = CacheUtils.createRegion("items", null);
+    for (int i = 0; i < 10; i++) {
+      region.put("item" + i, new Item(i, "item" + i));
+    }
+    // two PdxTypes with the field at different positions
+    GemFireCacheImpl cache = (GemFireCacheImpl)CacheUtils.getCache();
+    for (int i = 10; i < 20; i++) {
+      PdxInstance pdx;
+      if (i % 2 == 0) {
+        pdx = cache.createPdxInstanceFactory("Item1").writeInt("id", i)
+            .writeString("name", "item" + i).create();
+      }
+      else {
+        pdx = cache.createPdxInstanceFactory("Item2")
+            .writeString("name", "item" + i).writeLong("other", 0)
+            .writeInt("id", i).create();
+      }
+      region.put("item" + i, pdx);
+    }
+    SelectResults results = (SelectResults)CacheUtils.getQueryService()
+        .newQuery(
+            "select distinct name from /items where id >= 5 and name.concat('') != 'item7'")
+        .execute();
+    assertEquals(14, results.size());
+    assertTrue(results.contains("item19"));
+    assertTrue(results.contains("item5"));
+  }
+
+  public static class Item {
+    public final int id;
+
+    private final String name;
+
+    public Item(int id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+
+    public String getName() {
+      return this.name;
+    }
+
+    public String getFailing() {
+      throw new IllegalStateException("failing");
+    }
+
+    public String getCasting() {
+      Object name = this.name;
+      return String.valueOf(((Integer) name).intValue());
+    }
+
+    public String getDestroyed() {
+      throw new EntryDestroyedException("destroyed");
+    }
+
+    public String concat(String suffix) {
+      return this.name + suffix;
+    }
+
+    public int plus(int value) {
+      return this.id + value;
+    }
+  }
+
+  public static class SubItem extends Item {
+    public SubItem(int id, String name) {
+      super(id, name);
+    }
+  }
+}
@@ -14,6 +14,7 @@ import com.gemstone.gemfire.cache.Cache;
 import com.gemstone.gemfire.cache.query.Aggregator;
 import com.gemstone.gemfire.cache.query.internal.aggregate.Avg;
 import com.gemstone.gemfire.cache.query.internal.aggregate.AvgBucketNode;
+import com.gemstone.gemfire.cache.query.internal.aggregate.AvgBucketNodeCombiner;
 import com.gemstone.gemfire.cache.query.internal.aggregate.AvgDistinct;
 import com.gemstone.gemfire.cache.query.internal.aggregate.AvgDistinctPRQueryNode;
 import com.gemstone.gemfire.cache.query.internal.aggregate.AvgPRQueryNode;
@@ -22,6 +23,7 @@ import com.gemstone.gemfire.cache.query.internal.aggregate.CountDistinct;
 import com.gemstone.gemfire.cache.query.internal.aggregate.CountDistinctPRQueryNode;
 import com.gemstone.gemfire.cache.query.internal.aggregate.CountPRQueryNode;
 import com.gemstone.gemfire.cache.query.internal.aggregate.DistinctAggregator;
+import com.gemstone.gemfire.cache.query.internal.aggregate.DistinctBucketNodeCombiner;
 import com.gemstone.gemfire.cache.query.internal.aggregate.MaxMin;
 import com.gemstone.gemfire.cache.query.internal.aggregate.Sum;
 import com.gemstone.gemfire.cache.query.internal.aggregate.SumDistinct;
@@ -180,5 +182,26 @@ public class CompiledAggregateFunctionJUnitTest extends TestCase {
     assertFalse(((Boolean) findMax.get(maxMin1)).booleanValue());
   }
 
-  
+  @Test
+  public void testBucketResultsCombiner() throws Exception {
+    assertTrue(new CompiledAggregateFunction(null, OQLLexerTokenTypes.SUM)
+        .getBucketResultsCombiner() instanceof Sum);
+    assertTrue(new CompiledAggregateFunction(null, OQLLexerTokenTypes.SUM, true)
+        .getBucketResultsCombiner() instanceof DistinctBucketNodeCombiner);
+    assertTrue(new CompiledAggregateFunction(null, OQLLexerTokenTypes.MAX)
+        .getBucketResultsCombiner() instanceof MaxMin);
+    assertTrue(new CompiledAggregateFunction(null, OQLLexerTokenTypes.MIN)
+        .getBucketResultsCombiner() instanceof MaxMin);
+    assertTrue(new CompiledAggregateFunction(null, OQLLexerTokenTypes.AVG)
+        .getBucketResultsCombiner() instanceof AvgBucketNodeCombiner);
+    assertTrue(new CompiledAggregateFunction(null, OQLLexerTokenTypes.AVG, true)
+        .getBucketResultsCombiner() instanceof DistinctBucketNodeCombiner);
+    assertTrue(new CompiledAggregateFunction(null, OQLLexerTokenTypes.COUNT)
+        .getBucketResultsCombiner() instanceof CountPRQueryNode);
+    assertTrue(new CompiledAggregateFunction(null, OQLLexerTokenTypes.COUNT, true)
+        .getBucketResultsCombiner() instanceof DistinctBucketNodeCombiner);
+    // no combiner; the bucket results are sent as they are
+    assertNull(new CompiledAggregateFunction(null, OQLLexerTokenTypes.LITERAL_and)
+        .getBucketResultsCombiner());
+  }
 }
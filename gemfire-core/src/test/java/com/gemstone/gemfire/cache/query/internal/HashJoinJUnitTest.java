@@ -0,0 +1,220 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.query.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.AttributesFactory;
+import com.gemstone.gemfire.cache.EntryOperation;
+import com.gemstone.gemfire.cache.PartitionAttributesFactory;
+import com.gemstone.gemfire.cache.PartitionResolver;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.query.CacheUtils;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.cache.query.data.Portfolio;
+import com.gemstone.gemfire.cache.query.functional.StructSetOrResultsSet;
+import com.gemstone.gemfire.internal.cache.LocalDataSet;
+import com.gemstone.gemfire.internal.cache.PartitionedRegion;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests the evaluation of equality joins between two regions with a hash
+ * table, comparing the results with those of a nested iteration.
+ */
+@Category(IntegrationTest.class)
+public class HashJoinJUnitTest {
+
+  @Before
+  public void setUp() throws Exception {
+    CacheUtils.startCache();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    QueryObserverHolder.reset();
+    CacheUtils.closeCache();
+  }
+
+  @Test
+  public void testEqualityJoin() throws Exception {
+    Region portfolios = CacheUtils.createRegion("portfolios", Portfolio.class);
+    Region others = CacheUtils.createRegion("others", Portfolio.class);
+    for (int i = 0; i < 500; i++) {
+      portfolios.put("key" + i, new Portfolio(i));
+    }
+    for (int i = 0; i < 100; i++) {
+      others.put("key" + i, new Portfolio(i * 10));
+    }
+    // the OR with false is not a join so the where clause is evaluated for
+    // every pair
+    compareWithNestedIteration(
+        "select p.ID, o.ID from /portfolios p, /others o where p.ID = o.ID",
+        "select p.ID, o.ID from /portfolios p, /others o where p.ID = o.ID or false",
+        50, 500);
+    compareWithNestedIteration(
+        "select p.ID, o.pkid from /portfolios p, /others o where p.pkid = o.pkid and p.status = 'active'",
+        "select p.ID, o.pkid from /portfolios p, /others o where (p.pkid = o.pkid and p.status = 'active') or false",
+        50, 500);
+    // all the descriptions of the other portfolios are null
+    compareWithNestedIteration(
+        "select distinct p.ID from /others o, /portfolios p where o.description = p.description",
+        "select distinct p.ID from /others o, /portfolios p where o.description = p.description or false",
+        -1, 25000);
+  }
+
+  @Test
+  public void testJoinOfDifferentNumericTypes() throws Exception {
+    Region portfolios = CacheUtils.createRegion("portfolios", Portfolio.class);
+    Region numbers = CacheUtils.createRegion("numbers", Object.class);
+    for (int i = 0; i < 100; i++) {
+      portfolios.put("key" + i, new Portfolio(i));
+    }
+    numbers.put("long", Long.valueOf(5));
+    numbers.put("short", Short.valueOf((short)6));
+    // a double is compared with every portfolio
+    numbers.put("double", Double.valueOf(8));
+    compareWithNestedIteration(
+        "select p.ID from /portfolios p, /numbers n where p.ID = n",
+        "select p.ID from /portfolios p, /numbers n where p.ID = n or false",
+        3, -1);
+  }
+
+  @Test
+  public void testJoinWithLimit() throws Exception {
+    Region portfolios = CacheUtils.createRegion("portfolios", Portfolio.class);
+    Region others = CacheUtils.createRegion("others", Portfolio.class);
+    for (int i = 0; i < 100; i++) {
+      portfolios.put("key" + i, new Portfolio(i));
+      others.put("key" + i, new Portfolio(i));
+    }
+    SelectResults results = (SelectResults)CacheUtils.getQueryService()
+        .newQuery(
+            "select * from /portfolios p, /others o where p.ID = o.ID limit 10")
+        .execute();
+    assertEquals(10, results.size());
+  }
+
+  @Test
+  public void testJoinOfColocatedPartitionedRegions() throws Exception {
+    PartitionedRegion orders = createPartitionedRegion("orders", null);
+    PartitionedRegion items = createPartitionedRegion("items", "orders");
+    for (int i = 0; i < 200; i++) {
+      orders.put(i, new Portfolio(i));
+      if (i % 2 == 0) {
+        items.put(i, new Portfolio(i));
+      }
+    }
+    Set<Integer> buckets = new HashSet<Integer>();
+    for (int i = 0; i < 20; i++) {
+      buckets.add(i);
+    }
+    LocalDataSet localData = new LocalDataSet(orders, buckets);
+    IterationCounter counter = new IterationCounter();
+    QueryObserverHolder.setInstance(counter);
+    DefaultQuery query = (DefaultQuery)CacheUtils.getQueryService().newQuery(
+        "select o.ID from /orders o, /items i where o.ID = i.ID");
+    SelectResults results = (SelectResults)localData.executeQuery(query, null,
+        buckets);
+    assertEquals(100, results.size());
+    assertTrue(results.contains(Integer.valueOf(198)));
+    assertFalse(results.contains(Integer.valueOf(199)));
+    assertEquals(100, counter.whereClauseEvaluations);
+  }
+
+  @Test
+  public void testBloomFilter() {
+    HashJoin.BloomFilter filter = new HashJoin.BloomFilter(1000);
+    for (int i = 0; i < 1000; i++) {
+      filter.add(Long.valueOf(i * 2));
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(filter.mightContain(Long.valueOf(i * 2)));
+      if (filter.mightContain(Long.valueOf(i * 2 + 1))) {
+        falsePositives++;
+      }
+    }
+    assertTrue("too many false positives: " + falsePositives,
+        falsePositives < 150);
+  }
+
+  /**
+   * Executes the join and the equivalent query evaluated by nested iteration
+   * and compares their results.
+   *
+   * @param expectedSize
+   *          the number of results, or -1 to not check
+   * @param expectedEvaluations
+   *          the maximum number of evaluations of the where clause of the
+   *          join, or -1 to not check
+   */
+  private void compareWithNestedIteration(String join, String nested,
+      int expectedSize, int expectedEvaluations) throws Exception {
+    QueryService qs = CacheUtils.getQueryService();
+    IterationCounter counter = new IterationCounter();
+    QueryObserverHolder.setInstance(counter);
+    SelectResults[][] results = new SelectResults[1][2];
+    results[0][0] = (SelectResults)qs.newQuery(nested).execute();
+    int nestedEvaluations = counter.whereClauseEvaluations;
+    counter.whereClauseEvaluations = 0;
+    results[0][1] = (SelectResults)qs.newQuery(join).execute();
+    if (expectedSize >= 0) {
+      assertEquals(expectedSize, results[0][1].size());
+    }
+    if (expectedEvaluations >= 0) {
+      assertTrue(counter.whereClauseEvaluations <= expectedEvaluations);
+      assertTrue(counter.whereClauseEvaluations < nestedEvaluations);
+    }
+    new StructSetOrResultsSet().CompareQueryResultsWithoutAndWithIndexes(
+        results, 1, new String[] { join });
+  }
+
+  private PartitionedRegion createPartitionedRegion(String name,
+      String colocatedWith) {
+    AttributesFactory factory = new AttributesFactory();
+    factory.setPartitionAttributes(new PartitionAttributesFactory()
+        .setTotalNumBuckets(20).setColocatedWith(colocatedWith)
+        .setPartitionResolver(new KeyResolver()).create());
+    return (PartitionedRegion)CacheUtils.getCache().createRegion(name,
+        factory.create());
+  }
+
+  private static class KeyResolver implements PartitionResolver {
+    public String getName() {
+      return "KeyResolver";
+    }
+
+    public Serializable getRoutingObject(EntryOperation opDetails) {
+      return (Serializable)opDetails.getKey();
+    }
+
+    public void close() {
+    }
+  }
+
+  private static class IterationCounter extends QueryObserverAdapter {
+    int whereClauseEvaluations;
+
+    @Override
+    public void afterIterationEvaluation(Object result) {
+      whereClauseEvaluations++;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.gemstone.gemfire.cache.query.internal;
 
 import java.lang.reflect.Method;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -126,6 +127,25 @@ public class NWayMergeResultsJUnitTest extends TestCase {
     assertEquals(sortedSet.size(), mergedResults.size());
   }
 
+  public void testDistinctWithDuplicatesInSameResults() throws Exception {
+    Collection<List<Integer>> listOfSortedLists = new ArrayList<List<Integer>>();
+    listOfSortedLists.add(Arrays.asList(1, 1, 2, 2, 2, 3));
+    listOfSortedLists.add(Arrays.asList(1, 2, 3, 3, 4));
+    listOfSortedLists.add(new ArrayList<Integer>());
+    listOfSortedLists.add(Arrays.asList(4, 4, 4));
+
+    NWayMergeResults<Integer> mergedResults = createSingleFieldMergedResult(
+        listOfSortedLists, true, -1);
+
+    Iterator<Integer> iter = mergedResults.iterator();
+    for (int elem = 1; elem <= 4; elem++) {
+      assertTrue(iter.hasNext());
+      assertEquals(elem, iter.next().intValue());
+    }
+    assertFalse(iter.hasNext());
+    assertEquals(4, mergedResults.size());
+  }
+
   public void testLimitNoDistinct() throws Exception {
 
     final int numSortedLists = 40;
@@ -429,6 +449,75 @@ public class NWayMergeResultsJUnitTest extends TestCase {
 
   }
 
+  public void testLimitReadsOnlyRequiredElements() throws Exception {
+    final int numSortedLists = 100;
+    final int limit = 10;
+    final int[] numRead = new int[1];
+    Collection<Collection<Integer>> listOfSortedLists = new ArrayList<Collection<Integer>>();
+    for (int i = 0; i < numSortedLists; ++i) {
+      final List<Integer> list = new ArrayList<Integer>();
+      for (int j = 0; j < 1000; ++j) {
+        list.add(j * numSortedLists + i);
+      }
+      // counts the elements read from the sorted lists
+      listOfSortedLists.add(new AbstractCollection<Integer>() {
+        @Override
+        public Iterator<Integer> iterator() {
+          final Iterator<Integer> iter = list.iterator();
+          return new Iterator<Integer>() {
+            public boolean hasNext() {
+              return iter.hasNext();
+            }
+            public Integer next() {
+              ++numRead[0];
+              return iter.next();
+            }
+            public void remove() {
+              throw new UnsupportedOperationException();
+            }
+          };
+        }
+        @Override
+        public int size() {
+          return list.size();
+        }
+      });
+    }
+
+    NWayMergeResults<Integer> mergedResults = createSingleFieldMergedResult(
+        listOfSortedLists, false, limit);
+    Iterator<Integer> iter = mergedResults.iterator();
+    for (int i = 0; i < limit; ++i) {
+      assertEquals(i, iter.next().intValue());
+    }
+    assertFalse(iter.hasNext());
+    // the first element of each list, plus the ones that replaced the
+    // returned elements
+    assertTrue("read " + numRead[0], numRead[0] <= numSortedLists + limit);
+  }
+
+  public void testEqualElementsInResultsOrder() throws Exception {
+    List<String> results1 = Arrays.asList("a", "b", "b", "c");
+    List<String> results2 = Arrays.asList("b", "c");
+    List<String> results3 = Arrays.asList("a", "c", "d");
+    List<List<String>> sortedLists = new ArrayList<List<String>>();
+    sortedLists.add(results1);
+    sortedLists.add(results2);
+    sortedLists.add(results3);
+
+    List<String> merged = new ArrayList<String>();
+    for (String s : createSingleFieldMergedResult(sortedLists, false, -1)) {
+      merged.add(s);
+    }
+    assertEquals(Arrays.asList("a", "a", "b", "b", "b", "c", "c", "c", "d"), merged);
+
+    merged.clear();
+    for (String s : createSingleFieldMergedResult(sortedLists, true, -1)) {
+      merged.add(s);
+    }
+    assertEquals(Arrays.asList("a", "b", "c", "d"), merged);
+  }
+
   private <E> NWayMergeResults<E> createSingleFieldMergedResult(
       Collection<? extends Collection<E>> sortedResults, boolean isDistinct,
       int limit) throws Exception {
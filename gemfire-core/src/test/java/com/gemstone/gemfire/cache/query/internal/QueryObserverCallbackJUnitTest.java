@@ -410,6 +410,10 @@ public class QueryObserverCallbackJUnitTest{
     public void orderByColumnsEqual() {
       
     }
+
+    public void afterIndexSelection(Index index, int estimatedSize,
+        int numCandidates) {
+    }
     
   }
 }
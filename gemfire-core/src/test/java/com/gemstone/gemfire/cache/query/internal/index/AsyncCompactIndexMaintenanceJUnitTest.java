@@ -0,0 +1,150 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.AttributesFactory;
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.DataPolicy;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.query.CacheUtils;
+import com.gemstone.gemfire.cache.query.Index;
+import com.gemstone.gemfire.cache.query.IndexType;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.cache.query.data.Portfolio;
+import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests compact range and hash indexes on a region with asynchronous index
+ * maintenance.
+ */
+@Category(IntegrationTest.class)
+public class AsyncCompactIndexMaintenanceJUnitTest {
+  private Region region;
+
+  private QueryService qs;
+
+  @Before
+  public void setUp() throws Exception {
+    CacheUtils.startCache();
+    Cache cache = CacheUtils.getCache();
+    AttributesFactory af = new AttributesFactory();
+    af.setDataPolicy(DataPolicy.REPLICATE);
+    af.setIndexMaintenanceSynchronous(false);
+    region = cache.createRegion("portfolio", af.create());
+    qs = cache.getQueryService();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    IndexManager.testHook = null;
+    CacheUtils.closeCache();
+  }
+
+  @Test
+  public void testIndexesMatchRegionAfterUpdates() throws Exception {
+    Index compact = qs.createIndex("idIndex", IndexType.FUNCTIONAL, "p.ID", "/portfolio p");
+    Index hash = qs.createIndex("statusIndex", IndexType.HASH, "p.status", "/portfolio p");
+    assertTrue(compact instanceof CompactRangeIndex);
+    assertTrue(hash instanceof HashIndex);
+
+    for (int i = 0; i < 200; i++) {
+      region.put("key" + i, new Portfolio(i));
+    }
+    // move keys, destroy and invalidate entries whose old values are gone
+    // by the time the updater gets to them
+    for (int i = 0; i < 200; i += 2) {
+      region.put("key" + i, new Portfolio(i + 1000));
+    }
+    for (int i = 0; i < 200; i += 5) {
+      region.destroy("key" + i);
+    }
+    for (int i = 1; i < 200; i += 7) {
+      if (i % 5 != 0) {
+        region.invalidate("key" + i);
+      }
+    }
+    IndexManager indexManager = ((LocalRegion) region).getIndexManager();
+    assertTrue(indexManager.waitForIndexUpdates(30000));
+
+    int expected = 0;
+    int active = 0;
+    for (Object value : region.values()) {
+      Portfolio p = (Portfolio) value;
+      if (p.ID >= 1000) {
+        expected++;
+      }
+      if (p.status.equals("active")) {
+        active++;
+      }
+    }
+    assertEquals(expected, query("select * from /portfolio p where p.ID >= 1000").size());
+    assertEquals(active, query("select * from /portfolio p where p.status = 'active'").size());
+    assertEquals(region.values().size(), compact.getStatistics().getNumberOfValues());
+    assertEquals(region.values().size(), hash.getStatistics().getNumberOfValues());
+  }
+
+  @Test
+  public void testQueryWaitsForIndexUpdates() throws Exception {
+    qs.createIndex("idIndex", IndexType.FUNCTIONAL, "p.ID", "/portfolio p");
+    // slow down the updater so that the updates are still queued when the
+    // query is run
+    IndexManager.testHook = new IndexManager.TestHook() {
+      public void hook(int spot) {
+        if (spot == 6 && Thread.currentThread().getName().startsWith("OqlIndexUpdater")) {
+          try {
+            Thread.sleep(20);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    };
+    for (int i = 0; i < 50; i++) {
+      region.put("key" + i, new Portfolio(i));
+    }
+    DefaultQuery query = (DefaultQuery) qs.newQuery("select * from /portfolio p where p.ID >= 0");
+    query.setAsyncIndexWaitTime(30000);
+    assertEquals(50, ((SelectResults) query.execute()).size());
+  }
+
+  @Test
+  public void testWaitForIndexUpdatesTimesOut() throws Exception {
+    qs.createIndex("idIndex", IndexType.FUNCTIONAL, "p.ID", "/portfolio p");
+    IndexManager.testHook = new IndexManager.TestHook() {
+      public void hook(int spot) {
+        if (spot == 6 && Thread.currentThread().getName().startsWith("OqlIndexUpdater")) {
+          try {
+            Thread.sleep(500);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    };
+    region.put("key1", new Portfolio(1));
+    region.put("key2", new Portfolio(2));
+    IndexManager indexManager = ((LocalRegion) region).getIndexManager();
+    assertTrue(!indexManager.waitForIndexUpdates(10));
+    assertTrue(indexManager.waitForIndexUpdates(30000));
+  }
+
+  private SelectResults query(String queryString) throws Exception {
+    return (SelectResults) qs.newQuery(queryString).execute();
+  }
+}
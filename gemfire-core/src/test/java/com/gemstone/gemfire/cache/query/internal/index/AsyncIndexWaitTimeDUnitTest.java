@@ -0,0 +1,135 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import java.util.Set;
+
+import com.gemstone.gemfire.cache.AttributesFactory;
+import com.gemstone.gemfire.cache.CacheException;
+import com.gemstone.gemfire.cache.PartitionAttributesFactory;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.query.IndexType;
+import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.cache.query.data.Portfolio;
+import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
+import com.gemstone.gemfire.cache30.CacheSerializableRunnable;
+import com.gemstone.gemfire.cache30.CacheTestCase;
+import com.gemstone.gemfire.internal.cache.PartitionedRegion;
+
+import dunit.Host;
+import dunit.SerializableCallable;
+import dunit.VM;
+
+/**
+ * Tests that the async index wait time of a query on a partitioned region
+ * is applied by the members hosting the buckets the query runs on remotely.
+ */
+public class AsyncIndexWaitTimeDUnitTest extends CacheTestCase {
+
+  private static final String REGION_NAME = "portfolio";
+
+  private static final int NUM_ENTRIES = 100;
+
+  public AsyncIndexWaitTimeDUnitTest(String name) {
+    super(name);
+  }
+
+  public void tearDown2() throws Exception {
+    try {
+      invokeInEveryVM(new CacheSerializableRunnable("Reset the index test hook") {
+        @Override
+        public void run2() throws CacheException {
+          IndexManager.testHook = null;
+        }
+      });
+    } finally {
+      super.tearDown2();
+    }
+  }
+
+  public void testRemoteBucketsWaitForIndexUpdates() throws Exception {
+    Host host = Host.getHost(0);
+    VM vm0 = host.getVM(0);
+    VM vm1 = host.getVM(1);
+    createRegion(vm0);
+    createRegion(vm1);
+
+    vm0.invoke(new CacheSerializableRunnable("Create the index") {
+      @Override
+      public void run2() throws CacheException {
+        try {
+          getCache().getQueryService().createIndex("idIndex",
+              IndexType.FUNCTIONAL, "p.ID", "/" + REGION_NAME + " p");
+        } catch (Exception e) {
+          fail("Failed to create the index", e);
+        }
+      }
+    });
+
+    // slow down the index updater of the remote member so that its updates
+    // are still queued when the query runs
+    vm1.invoke(new CacheSerializableRunnable("Slow down the index updater") {
+      @Override
+      public void run2() throws CacheException {
+        IndexManager.testHook = new IndexManager.TestHook() {
+          public void hook(int spot) {
+            if (spot == 6 && Thread.currentThread().getName().startsWith("OqlIndexUpdater")) {
+              try {
+                Thread.sleep(50);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+          }
+        };
+      }
+    });
+
+    vm0.invoke(new CacheSerializableRunnable("Put the entries") {
+      @Override
+      public void run2() throws CacheException {
+        Region region = getCache().getRegion(REGION_NAME);
+        for (int i = 0; i < NUM_ENTRIES; i++) {
+          region.put("key" + i, new Portfolio(i));
+        }
+      }
+    });
+
+    Set remoteBuckets = (Set) vm1.invoke(new SerializableCallable("Get the buckets") {
+      public Object call() throws Exception {
+        PartitionedRegion pr = (PartitionedRegion) getCache().getRegion(REGION_NAME);
+        return pr.getDataStore().getAllLocalBucketIds();
+      }
+    });
+    assertFalse("the remote member hosts no buckets", remoteBuckets.isEmpty());
+
+    Integer size = (Integer) vm0.invoke(new SerializableCallable("Query the region") {
+      public Object call() throws Exception {
+        DefaultQuery query = (DefaultQuery) getCache().getQueryService().newQuery(
+            "select * from /" + REGION_NAME + " p where p.ID >= 0");
+        query.setAsyncIndexWaitTime(60000);
+        return ((SelectResults) query.execute()).size();
+      }
+    });
+    assertEquals(NUM_ENTRIES, size.intValue());
+  }
+
+  private void createRegion(VM vm) {
+    vm.invoke(new CacheSerializableRunnable("Create the partitioned region") {
+      @Override
+      public void run2() throws CacheException {
+        PartitionAttributesFactory paf = new PartitionAttributesFactory();
+        paf.setTotalNumBuckets(10);
+        AttributesFactory af = new AttributesFactory();
+        af.setPartitionAttributes(paf.create());
+        af.setIndexMaintenanceSynchronous(false);
+        getCache().createRegion(REGION_NAME, af.create());
+      }
+    });
+  }
+}
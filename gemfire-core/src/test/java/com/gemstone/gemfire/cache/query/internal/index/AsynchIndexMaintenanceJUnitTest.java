@@ -18,6 +18,7 @@ import com.gemstone.gemfire.cache.Region;
 import com.gemstone.gemfire.cache.query.CacheUtils;
 import com.gemstone.gemfire.cache.query.IndexType;
 import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.SelectResults;
 import com.gemstone.gemfire.cache.query.data.Portfolio;
 import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
 
@@ -196,6 +197,37 @@ public class AsynchIndexMaintenanceJUnitTest {
         
   }
   
+  @Test
+  public void testIndexMaintenanceWithFullQueue() throws Exception {
+    System.getProperties().put("gemfire.AsynchIndexMaintenanceThreshold", "1");
+    System.getProperties().put("gemfire.AsynchIndexMaintenanceInterval", "0");
+    final Index ri = qs.createIndex("statusIndex",
+        IndexType.FUNCTIONAL, "p.getID", "/portfolio p");
+    // writers that find the queue full update the index themselves, while
+    // older tasks of the same entries are still queued
+    for (int i = 0; i < 500; ++i) {
+      region.put("" + (i + 1), new Portfolio(i + 1));
+    }
+    for (int i = 0; i < 500; i += 2) {
+      region.destroy("" + (i + 1));
+    }
+    for (int i = 0; i < 100; i += 2) {
+      region.put("" + (i + 1), new Portfolio(i + 1));
+    }
+    WaitCriterion ev = new WaitCriterion() {
+      public boolean done() {
+        return getIndexSize(ri) == 300;
+      }
+      public String description() {
+        return "index size never became 300 but was " + getIndexSize(ri);
+      }
+    };
+    DistributedTestCase.waitForCriterion(ev, 10000, 200, true);
+    SelectResults results = (SelectResults)qs.newQuery(
+        "select * from /portfolio p where p.getID < 100").execute();
+    assertEquals(99, results.size());
+  }
+
   @Test
   public void testConcurrentIndexMaintenanceForNoDeadlocks() throws Exception {
     System.getProperties().put("gemfire.AsynchIndexMaintenanceThreshold", "700");
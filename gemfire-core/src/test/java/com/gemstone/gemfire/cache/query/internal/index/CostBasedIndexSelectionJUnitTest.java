@@ -0,0 +1,278 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.query.CacheUtils;
+import com.gemstone.gemfire.cache.query.Index;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.cache.query.data.Portfolio;
+import com.gemstone.gemfire.cache.query.internal.QueryObserverAdapter;
+import com.gemstone.gemfire.cache.query.internal.QueryObserverHolder;
+import com.gemstone.gemfire.cache.query.internal.parse.OQLLexerTokenTypes;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+import dunit.DistributedTestCase;
+import dunit.DistributedTestCase.WaitCriterion;
+
+/**
+ * Tests the estimates of the key histograms of indexes and the choice of the
+ * most selective index for a junction.
+ */
+@Category(IntegrationTest.class)
+public class CostBasedIndexSelectionJUnitTest {
+
+  private Region region;
+
+  @Before
+  public void setUp() throws Exception {
+    CacheUtils.startCache();
+    region = CacheUtils.createRegion("portfolios", Portfolio.class);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    QueryObserverHolder.reset();
+    CacheUtils.closeCache();
+  }
+
+  @Test
+  public void testHistogramEstimates() {
+    IndexHistogram.Builder builder = new IndexHistogram.Builder(1000);
+    builder.add(IndexManager.NULL, 10);
+    for (int i = 0; i < 1000; i++) {
+      builder.add(Integer.valueOf(i), 1);
+    }
+    IndexHistogram histogram = builder.create(0);
+    assertEquals(1000, histogram.getNumValues());
+    assertEquals(1000, histogram.getNumKeys());
+
+    assertClose(100, histogram.estimate(OQLLexerTokenTypes.TOK_LT, 100));
+    assertClose(10, histogram.estimate(OQLLexerTokenTypes.TOK_GE, 990));
+    assertEquals(0, histogram.estimate(OQLLexerTokenTypes.TOK_LT, -5));
+    assertEquals(1000, histogram.estimate(OQLLexerTokenTypes.TOK_LE, 5000));
+    assertClose(100, histogram.estimate(200, OQLLexerTokenTypes.TOK_GE, 300,
+        OQLLexerTokenTypes.TOK_LT));
+    assertEquals(-1, histogram.estimate(OQLLexerTokenTypes.TOK_LT, "abc"));
+
+    assertTrue(!histogram.isStale(IndexHistogram.NUM_BUCKETS));
+    assertTrue(histogram.isStale(101));
+  }
+
+  @Test
+  public void testMostSelectiveIndexChosen() throws Exception {
+    for (int i = 0; i < 1000; i++) {
+      region.put("key" + i, new Portfolio(i));
+    }
+    QueryService qs = CacheUtils.getQueryService();
+    Index statusIndex = qs.createIndex("statusIndex", "p.status", "/portfolios p");
+    Index idIndex = qs.createIndex("idIndex", "p.ID", "/portfolios p");
+    waitForKeyHistogram(statusIndex);
+    waitForKeyHistogram(idIndex);
+
+    SelectionObserver observer = new SelectionObserver();
+    QueryObserverHolder.setInstance(observer);
+    SelectResults results = (SelectResults)qs.newQuery(
+        "select * from /portfolios p where p.status = 'active' and p.ID > 990")
+        .execute();
+    assertEquals(4, results.size());
+    assertSame(idIndex, observer.index);
+    assertEquals(2, observer.numCandidates);
+    assertTrue(observer.estimatedSize < 50);
+
+    observer.index = null;
+    results = (SelectResults)qs.newQuery(
+        "select * from /portfolios p where p.status = 'active' and p.ID > 5 and p.ID < 20")
+        .execute();
+    assertEquals(7, results.size());
+    assertSame(idIndex, observer.index);
+  }
+
+  @Test
+  public void testHistogramRebuiltAfterUpdates() throws Exception {
+    for (int i = 0; i < 1000; i++) {
+      region.put("key" + i, new Portfolio(i));
+    }
+    IndexProtocol index = (IndexProtocol)CacheUtils.getQueryService()
+        .createIndex("idIndex", "p.ID", "/portfolios p");
+    waitForKeyHistogram((Index)index);
+    assertClose(100, index.getSizeEstimate(900, OQLLexerTokenTypes.TOK_GE, 0));
+    assertEquals(0, index.getSizeEstimate(1500, OQLLexerTokenTypes.TOK_GT, 0));
+
+    for (int i = 1000; i < 2000; i++) {
+      region.put("key" + i, new Portfolio(i));
+    }
+    // the out of date histogram is still used while a new one is built in
+    // the background
+    final IndexHistogram stale = ((AbstractIndex)index).getKeyHistogram();
+    assertEquals(1000, stale.getNumValues());
+    final AbstractIndex aIndex = (AbstractIndex)index;
+    WaitCriterion ev = new WaitCriterion() {
+      public boolean done() {
+        return aIndex.getKeyHistogram() != stale;
+      }
+      public String description() {
+        return "the key histogram was never rebuilt";
+      }
+    };
+    DistributedTestCase.waitForCriterion(ev, 10000, 50, true);
+    assertClose(500, index.getSizeEstimate(1500, OQLLexerTokenTypes.TOK_GE, 0));
+    assertClose(100, index.getSizeEstimate(1200, OQLLexerTokenTypes.TOK_GT,
+        1300, OQLLexerTokenTypes.TOK_LE, 0));
+  }
+
+  @Test
+  public void testHistogramBuiltInTheBackground() throws Exception {
+    for (int i = 0; i < 1000; i++) {
+      region.put("key" + i, new Portfolio(i));
+    }
+    // hold up the histogram builder until the index is created
+    final CountDownLatch release = new CountDownLatch(1);
+    IndexManager.getHistogramExecutor().execute(new Runnable() {
+      public void run() {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    IndexProtocol index;
+    try {
+      index = (IndexProtocol)CacheUtils.getQueryService().createIndex(
+          "idIndex", "p.ID", "/portfolios p");
+      // the index is usable and estimates without the histogram meanwhile
+      assertEquals(null, ((AbstractIndex)index).getKeyHistogram());
+      assertTrue(index.getSizeEstimate(900, OQLLexerTokenTypes.TOK_GE, 0) >= 0);
+    } finally {
+      release.countDown();
+    }
+    waitForKeyHistogram((Index)index);
+    assertClose(100, index.getSizeEstimate(900, OQLLexerTokenTypes.TOK_GE, 0));
+  }
+
+  /**
+   * Compares the number of attribute reads made to evaluate the remaining
+   * conditions of a junction whose index is chosen on its estimate, and of
+   * the same junction with the index the operator based rules used to choose
+   * forced by a hint.
+   */
+  @Test
+  public void testChosenIndexEvaluatesFewerEntries() throws Exception {
+    Region items = CacheUtils.createRegion("items", Item.class);
+    for (int i = 0; i < 1000; i++) {
+      items.put("key" + i, new Item(i, i % 2 == 0 ? "active" : "inactive", 10L));
+    }
+    QueryService qs = CacheUtils.getQueryService();
+    waitForKeyHistogram(qs.createIndex("statusIndex", "i.status", "/items i"));
+    waitForKeyHistogram(qs.createIndex("idIndex", "i.id", "/items i"));
+    waitForKeyHistogram(qs.createIndex("createTimeIndex", "i.createTime", "/items i"));
+
+    String[][] queries = {
+        { "select * from /items i where i.status = 'active' and i.id > 990",
+            "statusIndex" },
+        { "select * from /items i where i.id > 11 and i.id < 19 and i.createTime IN SET(10L)",
+            "createTimeIndex" } };
+    for (int i = 0; i < queries.length; i++) {
+      Item.reads.set(0);
+      SelectResults chosen = (SelectResults)qs.newQuery(queries[i][0])
+          .execute();
+      int chosenReads = Item.reads.get();
+      Item.reads.set(0);
+      SelectResults hinted = (SelectResults)qs.newQuery(
+          "<hint '" + queries[i][1] + "'>" + queries[i][0]).execute();
+      int hintedReads = Item.reads.get();
+
+      assertEquals(hinted.size(), chosen.size());
+      assertTrue(queries[i][0] + ": " + chosenReads + " reads, " + hintedReads
+          + " with " + queries[i][1], chosenReads * 10 < hintedReads);
+    }
+  }
+
+  private static void waitForKeyHistogram(Index index) {
+    final AbstractIndex aIndex = (AbstractIndex)index;
+    WaitCriterion ev = new WaitCriterion() {
+      public boolean done() {
+        return aIndex.getKeyHistogram() != null;
+      }
+      public String description() {
+        return "the key histogram was never built";
+      }
+    };
+    DistributedTestCase.waitForCriterion(ev, 10000, 50, true);
+  }
+
+  private static void assertClose(int expected, int actual) {
+    assertTrue("expected about " + expected + " but was " + actual,
+        Math.abs(expected - actual) <= Math.max(2, expected / 10));
+  }
+
+  /**
+   * A value that counts the reads of its attributes.
+   */
+  public static class Item implements Serializable {
+    static final AtomicInteger reads = new AtomicInteger();
+
+    private final int id;
+
+    private final String status;
+
+    private final long createTime;
+
+    public Item(int id, String status, long createTime) {
+      this.id = id;
+      this.status = status;
+      this.createTime = createTime;
+    }
+
+    public int getId() {
+      reads.incrementAndGet();
+      return this.id;
+    }
+
+    public String getStatus() {
+      reads.incrementAndGet();
+      return this.status;
+    }
+
+    public long getCreateTime() {
+      reads.incrementAndGet();
+      return this.createTime;
+    }
+  }
+
+  private static class SelectionObserver extends QueryObserverAdapter {
+    Index index;
+
+    int estimatedSize;
+
+    int numCandidates;
+
+    @Override
+    public void afterIndexSelection(Index index, int estimatedSize,
+        int numCandidates) {
+      this.index = index;
+      this.estimatedSize = estimatedSize;
+      this.numCandidates = numCandidates;
+    }
+  }
+}
@@ -32,13 +32,14 @@ import com.gemstone.gemfire.cache.RegionAttributes;
 import com.gemstone.gemfire.cache.RegionShortcut;
 import com.gemstone.gemfire.cache.query.CacheUtils;
 import com.gemstone.gemfire.cache.query.Index;
-import com.gemstone.gemfire.cache.query.IndexInvalidException;
 import com.gemstone.gemfire.cache.query.IndexStatistics;
 import com.gemstone.gemfire.cache.query.QueryService;
 import com.gemstone.gemfire.cache.query.SelectResults;
 import com.gemstone.gemfire.cache.query.data.Portfolio;
 import com.gemstone.gemfire.cache.query.internal.QueryObserverAdapter;
 import com.gemstone.gemfire.cache.query.internal.QueryObserverHolder;
+import com.gemstone.gemfire.internal.cache.BucketRegion;
+import com.gemstone.gemfire.internal.cache.PartitionedRegion;
 import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
 import com.gemstone.gemfire.pdx.PdxInstance;
 
@@ -1019,29 +1020,20 @@ public class HashIndexJUnitTest {
   }
   
   /**
-   * test async exception for hash index using partitioned region
+   * test hash index with async maintenance using partitioned region
    * @throws Exception
    */
   @Test
-  public void testHashIndexAsyncMaintenanceExceptionForPartitionedRegion() throws Exception {
+  public void testHashIndexAsyncMaintenanceForPartitionedRegion() throws Exception {
     createPartitionedRegion("portfolios_async", false);
-    helpTestAsyncMaintenance();
-  }
-  
-  private void helpTestAsyncMaintenance() throws Exception {
-    boolean expected = false;
-    try {
-      index = qs.createHashIndex("idHash", "p.ID", "/portfolios_async p");
-    }
-    catch ( UnsupportedOperationException e) {
-      expected = true;
-    }
-    catch (IndexInvalidException e) {
-      //for partition region execption;
-      expected = true;
+    index = qs.createHashIndex("idHash", "p.ID", "/portfolios_async p");
+    assertTrue(index instanceof PartitionedIndex);
+    createData(region, 100);
+    for (Object bucket : ((PartitionedRegion) region).getDataStore().getAllLocalBucketRegions()) {
+      assertTrue(((BucketRegion) bucket).getIndexManager().waitForIndexUpdates(30000));
     }
-  
-    assertTrue(expected);
+    SelectResults results = (SelectResults) qs.newQuery("select * from /portfolios_async p where p.ID = 7").execute();
+    assertEquals(1, results.size());
   }
   
   /**
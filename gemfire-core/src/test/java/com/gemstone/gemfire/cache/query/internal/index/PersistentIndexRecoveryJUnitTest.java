@@ -0,0 +1,146 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.DataPolicy;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.cache.query.Index;
+import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.internal.FileUtil;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests that the indexes of a persistent region are loaded from the contents
+ * saved when the region was closed, and rebuilt when the region changed.
+ */
+@Category(IntegrationTest.class)
+public class PersistentIndexRecoveryJUnitTest {
+  private File diskDir;
+
+  private Cache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    diskDir = new File("PersistentIndexRecoveryJUnitTest");
+    FileUtil.delete(diskDir);
+    diskDir.mkdir();
+    CountedValue.evaluations.set(0);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (cache != null && !cache.isClosed()) {
+      cache.close();
+    }
+    FileUtil.delete(diskDir);
+  }
+
+  @Test
+  public void testIndexLoadedOnRecovery() throws Exception {
+    Region region = createRegion();
+    createIndex();
+    for (int i = 0; i < 100; i++) {
+      region.put("key" + i, new CountedValue(i));
+    }
+    region.put("nullKey", new CountedValue(null));
+    cache.close();
+
+    CountedValue.evaluations.set(0);
+    region = createRegion();
+    Index index = createIndex();
+    assertEquals(0, CountedValue.evaluations.get());
+    assertEquals(101, index.getStatistics().getNumberOfValues());
+    assertEquals(10, query("select * from /portfolios p where p.id < 10").size());
+    assertEquals(1, query("select * from /portfolios p where p.id = null").size());
+
+    // the loaded index is maintained as usual
+    region.put("key5", new CountedValue(500));
+    region.destroy("key6");
+    assertEquals(8, query("select * from /portfolios p where p.id < 10").size());
+    assertEquals(1, query("select * from /portfolios p where p.id = 500").size());
+  }
+
+  @Test
+  public void testIndexRebuiltWhenRegionChanged() throws Exception {
+    Region region = createRegion();
+    createIndex();
+    for (int i = 0; i < 100; i++) {
+      region.put("key" + i, new CountedValue(i));
+    }
+    cache.close();
+
+    region = createRegion();
+    region.put("key1", new CountedValue(1000));
+    CountedValue.evaluations.set(0);
+    createIndex();
+    assertTrue(CountedValue.evaluations.get() >= 100);
+    assertEquals(9, query("select * from /portfolios p where p.id < 10").size());
+    assertEquals(1, query("select * from /portfolios p where p.id = 1000").size());
+  }
+
+  @Test
+  public void testSavedIndexesDeletedWithRegion() throws Exception {
+    Region region = createRegion();
+    createIndex();
+    region.put("key1", new CountedValue(1));
+    region.destroyRegion();
+    region = createRegion();
+    region.put("key2", new CountedValue(2));
+    CountedValue.evaluations.set(0);
+    createIndex();
+    assertEquals(1, CountedValue.evaluations.get());
+    assertEquals(1, query("select * from /portfolios p where p.id < 10").size());
+  }
+
+  private Region createRegion() {
+    cache = new CacheFactory().set("mcast-port", "0").set("log-level", "warning").create();
+    cache.createDiskStoreFactory().setDiskDirs(new File[] { diskDir }).create("store");
+    Region region = cache.createRegionFactory(RegionShortcut.REPLICATE_PERSISTENT)
+        .setDiskStoreName("store").create("portfolios");
+    assertEquals(DataPolicy.PERSISTENT_REPLICATE, region.getAttributes().getDataPolicy());
+    return region;
+  }
+
+  private Index createIndex() throws Exception {
+    return cache.getQueryService().createIndex("idIndex", "p.id", "/portfolios p");
+  }
+
+  private SelectResults query(String queryString) throws Exception {
+    return (SelectResults) cache.getQueryService().newQuery(queryString).execute();
+  }
+
+  public static class CountedValue implements Serializable {
+    static final AtomicInteger evaluations = new AtomicInteger();
+
+    private final Integer id;
+
+    public CountedValue(Integer id) {
+      this.id = id;
+    }
+
+    public Integer getId() {
+      evaluations.incrementAndGet();
+      return id;
+    }
+  }
+}
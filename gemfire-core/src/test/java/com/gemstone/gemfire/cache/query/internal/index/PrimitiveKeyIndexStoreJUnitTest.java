@@ -0,0 +1,176 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.cache.query.Index;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.QueryTestUtils;
+import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.cache.query.data.Portfolio;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Compares the results of queries that use an index kept in a
+ * {@link PrimitiveKeyIndexStore} with those of an index kept in a
+ * {@link MemoryIndexStore}.
+ */
+@Category(IntegrationTest.class)
+public class PrimitiveKeyIndexStoreJUnitTest {
+  private static final String[] QUERIES = {
+    "select * from /REGION p where p.ID < 100",
+    "select * from /REGION p where p.ID >= 500 and p.ID < 510",
+    "select * from /REGION p where p.ID > 2.5",
+    "select * from /REGION p where p.ID <= 10.5",
+    "select * from /REGION p where p.ID = 7",
+    "select * from /REGION p where p.ID = 7.5",
+    "select * from /REGION p where p.ID != 7",
+    "select * from /REGION p where p.ID in set(1, 5, 900, 5000)",
+    "select * from /REGION p where p.ID > -1 order by p.ID desc limit 5",
+    "select * from /REGION p where p.ID < 2000 order by p.ID",
+  };
+
+  private QueryTestUtils utils;
+
+  @Before
+  public void setUp() {
+    utils = new QueryTestUtils();
+    Properties props = new Properties();
+    props.setProperty("mcast-port", "0");
+    utils.createCache(props);
+    // the constraints give the indexed expressions of "primitive" a type
+    utils.getCache().<Long, Portfolio> createRegionFactory(RegionShortcut.REPLICATE)
+        .setKeyConstraint(Long.class).setValueConstraint(Portfolio.class)
+        .create("primitive");
+    utils.createReplicateRegion("memory");
+  }
+
+  @After
+  public void tearDown() {
+    utils.closeCache();
+  }
+
+  @Test
+  public void testQueriesMatchMemoryIndexStore() throws Exception {
+    Index primitive = utils.createIndex("primitiveID", "p.ID", "/primitive p");
+    Index memory = utils.createIndex("memoryID", "p.ID", "/memory p");
+    assertTrue(((CompactRangeIndex) primitive).getIndexStorage() instanceof PrimitiveKeyIndexStore);
+    assertTrue(((CompactRangeIndex) memory).getIndexStorage() instanceof MemoryIndexStore);
+
+    Region primitiveRegion = utils.getCache().getRegion("primitive");
+    Region memoryRegion = utils.getCache().getRegion("memory");
+    // enough keys to split leaves, with duplicate keys for some entries
+    for (int i = 0; i < 1000; i++) {
+      primitiveRegion.put((long) i, new Portfolio(i % 800));
+      memoryRegion.put((long) i, new Portfolio(i % 800));
+    }
+    compareResults();
+    assertEquals(memory.getStatistics().getNumberOfKeys(), primitive.getStatistics().getNumberOfKeys());
+    assertEquals(memory.getStatistics().getNumberOfValues(), primitive.getStatistics().getNumberOfValues());
+    assertTrue(primitive.getStatistics().getTotalUses() > 0);
+
+    // move keys and destroy most of the entries so that leaves are merged
+    for (int i = 0; i < 1000; i += 3) {
+      primitiveRegion.put((long) i, new Portfolio(i + 1000));
+      memoryRegion.put((long) i, new Portfolio(i + 1000));
+    }
+    for (int i = 0; i < 1000; i++) {
+      if (i % 7 != 0) {
+        primitiveRegion.destroy((long) i);
+        memoryRegion.destroy((long) i);
+      }
+    }
+    compareResults();
+    assertEquals(memory.getStatistics().getNumberOfKeys(), primitive.getStatistics().getNumberOfKeys());
+    assertEquals(memory.getStatistics().getNumberOfValues(), primitive.getStatistics().getNumberOfValues());
+  }
+
+  @Test
+  public void testStoreIsSelectedByTheTypeOfTheIndexedExpression() throws Exception {
+    assertTrue(getIndexStorage("intID", "p.ID", "/primitive p") instanceof PrimitiveKeyIndexStore);
+    assertTrue(getIndexStorage("intMethod", "p.getID()", "/primitive p") instanceof PrimitiveKeyIndexStore);
+    assertTrue(getIndexStorage("longTime", "p.createTime", "/primitive p") instanceof PrimitiveKeyIndexStore);
+    assertTrue(getIndexStorage("regionKey", "k", "/primitive.keys k") instanceof PrimitiveKeyIndexStore);
+    // a Date can be a java.sql.Timestamp, which can't be stored as a long
+    assertTrue(getIndexStorage("date", "p.createDate", "/primitive p") instanceof MemoryIndexStore);
+    assertTrue(getIndexStorage("short", "p.shortID", "/primitive p") instanceof MemoryIndexStore);
+    assertTrue(getIndexStorage("string", "p.status", "/primitive p") instanceof MemoryIndexStore);
+    // the type of the values of an unconstrained region is not known
+    assertTrue(getIndexStorage("unknown", "p.ID", "/memory p") instanceof MemoryIndexStore);
+  }
+
+  @Test
+  public void testIndexOnRegionKeys() throws Exception {
+    Index primitive = utils.createIndex("primitiveID", "k", "/primitive.keys k");
+    utils.createIndex("memoryID", "k", "/memory.keys k");
+    assertTrue(((CompactRangeIndex) primitive).getIndexStorage() instanceof PrimitiveKeyIndexStore);
+    Region primitiveRegion = utils.getCache().getRegion("primitive");
+    Region memoryRegion = utils.getCache().getRegion("memory");
+    for (long i = 0; i < 300; i++) {
+      primitiveRegion.put(i * 3, new Portfolio((int) i));
+      memoryRegion.put(i * 3, new Portfolio((int) i));
+    }
+    String[] queries = {
+        "select * from /REGION.keys k where k > 100L and k <= 200L",
+        "select * from /REGION.keys k where k = 300L",
+        "select * from /REGION.keys k where k < 50.5" };
+    for (String query : queries) {
+      assertEquals(query, getKeys(query.replace("REGION", "memory")),
+          getKeys(query.replace("REGION", "primitive")));
+    }
+    assertTrue(primitive.getStatistics().getTotalUses() > 0);
+  }
+
+  private IndexStore getIndexStorage(String name, String expression, String fromClause) throws Exception {
+    return ((CompactRangeIndex) utils.createIndex(name, expression, fromClause)).getIndexStorage();
+  }
+
+  private void compareResults() throws Exception {
+    for (String query : QUERIES) {
+      List expected = getIDs(query.replace("REGION", "memory"));
+      List actual = getIDs(query.replace("REGION", "primitive"));
+      assertEquals(query, expected, actual);
+    }
+  }
+
+  private List getKeys(String query) throws Exception {
+    QueryService qs = utils.getCache().getQueryService();
+    SelectResults results = (SelectResults) qs.newQuery(query).execute();
+    List<Long> keys = new ArrayList<Long>(results);
+    Collections.sort(keys);
+    return keys;
+  }
+
+  private List getIDs(String query) throws Exception {
+    QueryService qs = utils.getCache().getQueryService();
+    SelectResults results = (SelectResults) qs.newQuery(query).execute();
+    List<Integer> ids = new ArrayList<Integer>();
+    for (Object result : results) {
+      Object value = result instanceof Region.Entry ? ((Region.Entry) result).getValue() : result;
+      ids.add(((Portfolio) value).ID);
+    }
+    if (!query.contains("order by")) {
+      Collections.sort(ids);
+    }
+    return ids;
+  }
+}
@@ -17,7 +17,9 @@ import org.junit.experimental.categories.Category;
 
 import com.gemstone.gemfire.LogWriter;
 import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.query.Index;
 import com.gemstone.gemfire.cache.query.Query;
+import com.gemstone.gemfire.cache.query.QueryService;
 import com.gemstone.gemfire.cache.query.SelectResults;
 import com.gemstone.gemfire.cache.query.data.PortfolioData;
 import com.gemstone.gemfire.internal.Assert;
@@ -141,6 +143,66 @@ public class PRQueryNumThreadsJUnitTest
     }
   }
 
+  @Test
+  public void testLimitQuery() throws Exception
+  {
+    Region region = PartitionedRegionTestHelper.createPartitionedRegion(
+        regionName, "100", 0);
+    PortfolioData[] portfolios = new PortfolioData[100];
+    for (int j = 0; j < 100; j++) {
+      portfolios[j] = new PortfolioData(j);
+    }
+    PRQueryProcessor.TEST_NUM_THREADS = 10;
+    try {
+      populateData(region, portfolios);
+
+      String queryString = "Select * from /" + region.getName() + " p where p.ID >= 0 limit 5";
+      Query query = region.getCache().getQueryService().newQuery(queryString);
+      SelectResults sr = (SelectResults)query.execute();
+      Assert.assertTrue(sr.size() == 5);
+
+      // the count of every bucket is needed
+      queryString = "Select count(*) from /" + region.getName() + " p where p.ID >= 50";
+      query = region.getCache().getQueryService().newQuery(queryString);
+      sr = (SelectResults)query.execute();
+      Assert.assertTrue(sr.size() == 1);
+      Assert.assertTrue(((Integer)sr.iterator().next()).intValue() == 50);
+    } finally {
+      PRQueryProcessor.TEST_NUM_THREADS = 0;
+      region.close();
+    }
+  }
+
+  @Test
+  public void testIndexUsesCountedOnceWithLimit() throws Exception
+  {
+    Region region = PartitionedRegionTestHelper.createPartitionedRegion(
+        regionName, "100", 0);
+    PortfolioData[] portfolios = new PortfolioData[100];
+    for (int j = 0; j < 100; j++) {
+      portfolios[j] = new PortfolioData(j);
+    }
+    PRQueryProcessor.TEST_NUM_THREADS = 10;
+    try {
+      populateData(region, portfolios);
+      QueryService qs = region.getCache().getQueryService();
+      Index index = qs.createIndex("idIndex", "p.ID", "/" + region.getName() + " p");
+
+      // the limit may stop any of the buckets, including the first one,
+      // from being queried
+      String queryString = "Select * from /" + region.getName() + " p where p.ID >= 0 limit 5";
+      Query query = qs.newQuery(queryString);
+      for (int i = 1; i <= 10; i++) {
+        SelectResults sr = (SelectResults)query.execute();
+        Assert.assertTrue(sr.size() == 5);
+        Assert.assertTrue(index.getStatistics().getTotalUses() == i);
+      }
+    } finally {
+      PRQueryProcessor.TEST_NUM_THREADS = 0;
+      region.close();
+    }
+  }
+
   /**
    * Populates the region with the Objects stores in the data Object array.
    * 
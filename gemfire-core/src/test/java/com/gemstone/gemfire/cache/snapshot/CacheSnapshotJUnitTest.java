@@ -11,6 +11,7 @@ import static org.junit.Assert.assertEquals;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import org.junit.Test;
@@ -21,6 +22,7 @@ import com.gemstone.gemfire.cache.Region;
 import com.gemstone.gemfire.cache.snapshot.RegionGenerator.RegionType;
 import com.gemstone.gemfire.cache.snapshot.RegionGenerator.SerializationType;
 import com.gemstone.gemfire.cache.snapshot.SnapshotOptions.SnapshotFormat;
+import com.gemstone.gemfire.internal.cache.snapshot.SnapshotOptionsImpl;
 import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
 
 @Category(IntegrationTest.class)
@@ -116,4 +118,53 @@ public class CacheSnapshotJUnitTest extends SnapshotTestCase {
       }
     }
   }
+
+  @Test
+  public void testIncrementalExportAndImport() throws Exception {
+    RegionType[] types = { RegionType.REPLICATE, RegionType.PARTITION };
+    SerializationType st = SerializationType.DATA_SERIALIZABLE;
+    for (final RegionType rt : types) {
+      Region<Integer, MyObject> region = rgen.createRegion(cache, ds.getName(), rt, "test-" + rt.name());
+      region.putAll(createExpected(st));
+    }
+
+    // a full snapshot of the cache that records the region versions
+    CacheSnapshotService css = cache.getSnapshotService();
+    File base = new File(snaps, "base");
+    SnapshotOptionsImpl<Object, Object> options = (SnapshotOptionsImpl<Object, Object>) css.createOptions();
+    options.setRecordVersions(true);
+    css.save(base, SnapshotFormat.GEMFIRE, options);
+
+    // each region changes different entries
+    Region<Integer, MyObject> replicate = cache.getRegion("test-" + RegionType.REPLICATE.name());
+    Region<Integer, MyObject> partition = cache.getRegion("test-" + RegionType.PARTITION.name());
+    replicate.put(1, rgen.createData(st, 1, "updated"));
+    partition.put(2, rgen.createData(st, 2, "updated"));
+    partition.destroy(3);
+
+    // every region is compared against its own base file
+    File delta = new File(snaps, "delta");
+    options = (SnapshotOptionsImpl<Object, Object>) css.createOptions();
+    options.setRecordVersions(true);
+    options.setBaseSnapshot(base);
+    css.save(delta, SnapshotFormat.GEMFIRE, options);
+
+    Map<Integer, MyObject> expectedReplicate = createExpected(st);
+    expectedReplicate.put(1, replicate.get(1));
+    Map<Integer, MyObject> expectedPartition = createExpected(st);
+    expectedPartition.put(2, partition.get(2));
+    expectedPartition.remove(3);
+
+    for (final RegionType rt : types) {
+      cache.getRegion("test-" + rt.name()).destroyRegion();
+      rgen.createRegion(cache, ds.getName(), rt, "test-" + rt.name());
+    }
+    css.load(base, SnapshotFormat.GEMFIRE);
+    css.load(delta, SnapshotFormat.GEMFIRE);
+
+    replicate = cache.getRegion("test-" + RegionType.REPLICATE.name());
+    partition = cache.getRegion("test-" + RegionType.PARTITION.name());
+    assertEquals(expectedReplicate.entrySet(), replicate.entrySet());
+    assertEquals(expectedPartition.entrySet(), partition.entrySet());
+  }
 }
@@ -20,6 +20,7 @@ import com.gemstone.gemfire.cache.snapshot.RegionGenerator.RegionType;
 import com.gemstone.gemfire.cache.snapshot.SnapshotOptions.SnapshotFormat;
 import com.gemstone.gemfire.cache30.CacheTestCase;
 import com.gemstone.gemfire.distributed.DistributedMember;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
 import com.gemstone.gemfire.internal.cache.snapshot.SnapshotFileMapper;
 import com.gemstone.gemfire.internal.cache.snapshot.SnapshotOptionsImpl;
 
@@ -77,6 +78,52 @@ public class ParallelSnapshotDUnitTest extends CacheTestCase {
     }
   }
   
+  public void testSharedDirectoryExportImport() throws Exception {
+    Region region = getCache().getRegion("test");
+    for (int i = 0; i < 1000; i++) {
+      region.put(i, ffff);
+    }
+    
+    // every member writes its buckets to, and reads from, the same directory
+    final File dir = new File("mysnap-shared").getAbsoluteFile();
+    dir.mkdir();
+    
+    RegionSnapshotService rss = region.getSnapshotService();
+    SnapshotOptionsImpl opt = (SnapshotOptionsImpl) rss.createOptions();
+    opt.setParallelMode(true);
+    opt.setSharedDirectory(true);
+    rss.save(dir, SnapshotFormat.GEMFIRE, opt);
+    
+    for (int i = 0; i < 1000; i++) {
+      region.put(i, eeee);
+    }
+    
+    SerializableCallable imported = new SerializableCallable() {
+      @Override
+      public Object call() throws Exception {
+        LocalRegion lr = (LocalRegion) getCache().getRegion("test");
+        return lr.getCachePerfStats().getImportedEntriesCount();
+      }
+    };
+    long before = sumForEachVm(imported);
+    rss.load(dir, SnapshotFormat.GEMFIRE, opt);
+    
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(Arrays.equals(ffff, (byte[]) region.get(i)));
+    }
+    assertEquals("Each bucket file must be imported by one member", 1000, 
+        sumForEachVm(imported) - before);
+  }
+  
+  private long sumForEachVm(SerializableCallable call) throws Exception {
+    Host host = Host.getHost(0);
+    long sum = 0;
+    for (int i = 0; i < host.getVMCount(); ++i) {
+      sum += (Long) host.getVM(i).invoke(call);
+    }
+    return sum + (Long) call.call();
+  }
+  
   private void doExport(boolean explode) throws Exception {
     Region region = getCache().getRegion("test");
     for (int i = 0; i < 1000; i++) {
@@ -165,6 +212,12 @@ public class ParallelSnapshotDUnitTest extends CacheTestCase {
     
     if (snaps != null) {
       for (File f : snaps) {
+        File[] files = f.listFiles();
+        if (files != null) {
+          for (File file : files) {
+            file.delete();
+          }
+        }
         f.delete();
       }
     }
@@ -14,6 +14,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -33,6 +34,9 @@ import com.gemstone.gemfire.cache.snapshot.RegionGenerator.SerializationType;
 import com.gemstone.gemfire.cache.snapshot.SnapshotOptions.SnapshotFormat;
 import com.gemstone.gemfire.cache.util.CacheListenerAdapter;
 import com.gemstone.gemfire.cache.util.CacheWriterAdapter;
+import com.gemstone.gemfire.internal.cache.CachePerfStats;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.cache.snapshot.SnapshotOptionsImpl;
 import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
 
 @Category(IntegrationTest.class)
@@ -102,6 +106,61 @@ public class RegionSnapshotJUnitTest extends SnapshotTestCase {
     }
   }
   
+  @Test
+  public void testColumnarExportAndImport() throws Exception {
+    for (final RegionType rt : RegionType.values()) {
+      for (final SerializationType st : SerializationType.values()) {
+        String name = "test-" + rt.name() + "-" + st.name();
+        Region<Integer, MyObject> region = rgen.createRegion(cache, ds.getName(), rt, name);
+        final Map<Integer, MyObject> expected = createExpected(st);
+
+        region.putAll(expected);
+        region.getSnapshotService().save(f, SnapshotFormat.GEMFIRE_COLUMNAR);
+
+        region.destroyRegion();
+        region = rgen.createRegion(cache, ds.getName(), rt, name);
+        
+        region.getSnapshotService().load(f, SnapshotFormat.GEMFIRE_COLUMNAR);
+        assertEquals("Comparison failure for " + rt.name() + "/" + st.name(), expected.entrySet(), region.entrySet());
+      }
+    }
+  }
+  
+  @Test
+  public void testColumnarReadSelectedFields() throws Exception {
+    cache.close();
+    cache = new CacheFactory().set("mcast-port", "0")
+        .set("log-level", "error")
+        .setPdxSerializer(new MyPdxSerializer())
+        .create();
+
+    SerializationType st = SerializationType.PDX_SERIALIZER;
+    Region<Integer, MyObject> region = rgen.createRegion(cache, null, RegionType.REPLICATE, "test");
+    final Map<Integer, MyObject> expected = createExpected(st);
+    
+    region.putAll(expected);
+    region.create(-1, null);
+    region.getSnapshotService().save(f, SnapshotFormat.GEMFIRE_COLUMNAR);
+    
+    int count = 0;
+    SnapshotIterator<Integer, MyObject> iter = SnapshotReader.read(f, Collections.singleton("f2"));
+    try {
+      while (iter.hasNext()) {
+        Entry<Integer, MyObject> entry = iter.next();
+        count++;
+        if (entry.getKey() == -1) {
+          assertNull(entry.getValue());
+        } else {
+          assertEquals(expected.get(entry.getKey()).getF2(), entry.getValue().getF2());
+          assertEquals(0, entry.getValue().getF1());
+        }
+      }
+    } finally {
+      iter.close();
+    }
+    assertEquals(expected.size() + 1, count);
+  }
+  
   @Test
   public void testFilter() throws Exception {
     SnapshotFilter<Integer, MyObject> even = new SnapshotFilter<Integer, MyObject>() {
@@ -217,6 +276,131 @@ public class RegionSnapshotJUnitTest extends SnapshotTestCase {
     }
   }
 
+  @Test
+  public void testParallelExportAndImportByBucket() throws Exception {
+    for (final RegionType rt : new RegionType[] { RegionType.PARTITION, RegionType.PARTITION_PERSISTENT }) {
+      SerializationType st = SerializationType.DATA_SERIALIZABLE;
+      String name = "test-" + rt.name() + "-" + st.name();
+      Region<Integer, MyObject> region = rgen.createRegion(cache, ds.getName(), rt, name);
+      final Map<Integer, MyObject> expected = createExpected(st);
+
+      region.putAll(expected);
+      RegionSnapshotService<Integer, MyObject> rss = region.getSnapshotService();
+      SnapshotOptionsImpl<Integer, MyObject> options = (SnapshotOptionsImpl<Integer, MyObject>) rss.createOptions();
+      options.setParallelMode(true);
+      
+      File dir = new File(snaps, "buckets-" + rt.name());
+      dir.mkdir();
+      rss.save(dir, SnapshotFormat.GEMFIRE, options);
+      
+      File[] bucketFiles = dir.listFiles();
+      assertTrue("Expected one snapshot file per bucket", bucketFiles.length > 1);
+      
+      region.destroyRegion();
+      region = rgen.createRegion(cache, ds.getName(), rt, name);
+      
+      rss = region.getSnapshotService();
+      rss.load(dir, SnapshotFormat.GEMFIRE, options);
+      
+      assertEquals("Comparison failure for " + rt.name() + "/" + st.name(), expected.entrySet(), region.entrySet());
+      deleteFiles(dir);
+    }
+  }
+  
+  @Test
+  public void testParallelImportFromSharedDirectory() throws Exception {
+    String name = "test-shared";
+    Region<Integer, MyObject> region = rgen.createRegion(cache, ds.getName(), RegionType.PARTITION, name);
+    final Map<Integer, MyObject> expected = createExpected(SerializationType.DATA_SERIALIZABLE);
+
+    region.putAll(expected);
+    RegionSnapshotService<Integer, MyObject> rss = region.getSnapshotService();
+    SnapshotOptionsImpl<Integer, MyObject> options = (SnapshotOptionsImpl<Integer, MyObject>) rss.createOptions();
+    options.setParallelMode(true);
+    options.setSharedDirectory(true);
+    
+    File dir = new File(snaps, "shared").getAbsoluteFile();
+    dir.mkdir();
+    rss.save(dir, SnapshotFormat.GEMFIRE, options);
+    
+    region.destroyRegion();
+    region = rgen.createRegion(cache, ds.getName(), RegionType.PARTITION, name);
+    CachePerfStats stats = ((LocalRegion) region).getCachePerfStats();
+    long imported = stats.getImportedEntriesCount();
+    
+    rss = region.getSnapshotService();
+    rss.load(dir, SnapshotFormat.GEMFIRE, options);
+    
+    assertEquals(expected.entrySet(), region.entrySet());
+    assertEquals("Each bucket file must be imported once", expected.size(), 
+        stats.getImportedEntriesCount() - imported);
+    deleteFiles(dir);
+  }
+  
+  @Test
+  public void testIncrementalExportAndImport() throws Exception {
+    for (final RegionType rt : new RegionType[] { RegionType.REPLICATE, RegionType.PARTITION, RegionType.PARTITION_PERSISTENT }) {
+      SerializationType st = SerializationType.DATA_SERIALIZABLE;
+      String name = "test-" + rt.name() + "-" + st.name();
+      Region<Integer, MyObject> region = rgen.createRegion(cache, ds.getName(), rt, name);
+      final Map<Integer, MyObject> expected = createExpected(st);
+
+      region.putAll(expected);
+      region.getSnapshotService().save(f, SnapshotFormat.GEMFIRE);
+      
+      // modify the region after the full snapshot
+      expected.put(1, rgen.createData(st, 1, "updated"));
+      expected.put(5000, rgen.createData(st, 5000, "created"));
+      expected.remove(2);
+      region.put(1, expected.get(1));
+      region.put(5000, expected.get(5000));
+      region.destroy(2);
+      
+      RegionSnapshotService<Integer, MyObject> rss = region.getSnapshotService();
+      SnapshotOptionsImpl<Integer, MyObject> options = (SnapshotOptionsImpl<Integer, MyObject>) rss.createOptions();
+      options.setBaseSnapshot(f);
+      
+      File delta = new File(snaps, "delta-" + rt.name() + ".gfd");
+      rss.save(delta, SnapshotFormat.GEMFIRE, options);
+      
+      // only the changed entries are in the incremental snapshot
+      Map<Integer, MyObject> changes = new HashMap<Integer, MyObject>();
+      SnapshotIterator<Integer, MyObject> iter = SnapshotReader.read(delta);
+      try {
+        while (iter.hasNext()) {
+          Entry<Integer, MyObject> entry = iter.next();
+          changes.put(entry.getKey(), entry.getValue());
+        }
+      } finally {
+        iter.close();
+      }
+      assertEquals(2, changes.size());
+      assertEquals(expected.get(1), changes.get(1));
+      assertEquals(expected.get(5000), changes.get(5000));
+      
+      Map<Integer, MyObject> read = new HashMap<Integer, MyObject>();
+      iter = SnapshotReader.read(new File[] { f, delta });
+      try {
+        while (iter.hasNext()) {
+          Entry<Integer, MyObject> entry = iter.next();
+          assertNull("Duplicate entry " + entry.getKey(), read.put(entry.getKey(), entry.getValue()));
+        }
+      } finally {
+        iter.close();
+      }
+      assertEquals(expected, read);
+      
+      region.destroyRegion();
+      region = rgen.createRegion(cache, ds.getName(), rt, name);
+      
+      region.getSnapshotService().load(f, SnapshotFormat.GEMFIRE);
+      region.getSnapshotService().load(delta, SnapshotFormat.GEMFIRE);
+      assertEquals("Comparison failure for " + rt.name() + "/" + st.name(), expected.entrySet(), region.entrySet());
+      
+      region.destroyRegion();
+    }
+  }
+  
   @Test
   public void testInvalidate() throws Exception {
     Region<Integer, MyObject> region = rgen.createRegion(cache, ds.getName(), RegionType.REPLICATE, "test");
@@ -9,6 +9,8 @@ package com.gemstone.gemfire.cache.snapshot;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -27,6 +29,7 @@ import com.gemstone.gemfire.cache.snapshot.SnapshotOptions.SnapshotFormat;
 import com.gemstone.gemfire.cache.util.CacheListenerAdapter;
 import com.gemstone.gemfire.cache.util.CacheWriterAdapter;
 import com.gemstone.gemfire.cache30.CacheTestCase;
+import com.gemstone.gemfire.internal.cache.snapshot.SnapshotOptionsImpl;
 
 import dunit.Host;
 import dunit.SerializableCallable;
@@ -100,6 +103,52 @@ public class SnapshotDUnitTest extends CacheTestCase {
     }
   }
 
+  public void testIncrementalExportOfReplicatedRegion() throws Exception {
+    Region<Integer, MyObject> region = getCache().getRegion("test-" + RegionType.REPLICATE.name() 
+        + "-" + SerializationType.DATA_SERIALIZABLE.name());
+    RegionSnapshotService<Integer, MyObject> rss = region.getSnapshotService();
+    
+    // a plain export of a replicated region is streamed by a function and
+    // does not record versions, so it can't be the base of an increment
+    File plain = new File(getDiskDirs()[0], "plain.gfd");
+    rss.save(plain, SnapshotFormat.GEMFIRE);
+    
+    SnapshotOptionsImpl<Integer, MyObject> options = (SnapshotOptionsImpl<Integer, MyObject>) rss.createOptions();
+    options.setBaseSnapshot(plain);
+    try {
+      rss.save(new File(getDiskDirs()[0], "bad-delta.gfd"), SnapshotFormat.GEMFIRE, options);
+      fail("Expected an IOException for a base snapshot without versions");
+    } catch (IOException e) {
+      // expected
+    }
+    
+    File base = new File(getDiskDirs()[0], "base.gfd");
+    options = (SnapshotOptionsImpl<Integer, MyObject>) rss.createOptions();
+    options.setRecordVersions(true);
+    rss.save(base, SnapshotFormat.GEMFIRE, options);
+    
+    MyObject updated = new MyObject(Integer.MAX_VALUE, "updated");
+    region.put(1, updated);
+    region.destroy(2);
+    
+    File delta = new File(getDiskDirs()[0], "delta.gfd");
+    options = (SnapshotOptionsImpl<Integer, MyObject>) rss.createOptions();
+    options.setBaseSnapshot(base);
+    rss.save(delta, SnapshotFormat.GEMFIRE, options);
+    
+    Map<Integer, MyObject> changes = new HashMap<Integer, MyObject>();
+    SnapshotIterator<Integer, MyObject> iter = SnapshotReader.read(delta);
+    try {
+      while (iter.hasNext()) {
+        Entry<Integer, MyObject> entry = iter.next();
+        changes.put(entry.getKey(), entry.getValue());
+      }
+    } finally {
+      iter.close();
+    }
+    assertEquals(Collections.singletonMap(1, updated), changes);
+  }
+
   public void testCacheExportFilterException() throws Exception {
     SnapshotFilter<Object, Object> oops = new SnapshotFilter<Object, Object>() {
       @Override
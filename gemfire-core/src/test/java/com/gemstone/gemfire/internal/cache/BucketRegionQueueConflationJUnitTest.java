@@ -0,0 +1,142 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.PartitionAttributesFactory;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.cache.asyncqueue.AsyncEvent;
+import com.gemstone.gemfire.cache.asyncqueue.AsyncEventListener;
+import com.gemstone.gemfire.cache.asyncqueue.AsyncEventQueue;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests that a parallel queue with batch conflation sends only the latest
+ * event of an entry that was updated while its older events were queued.
+ */
+@Category(IntegrationTest.class)
+public class BucketRegionQueueConflationJUnitTest {
+
+  private static final int KEYS = 10;
+
+  private static final int UPDATES = 100;
+
+  private Cache cache;
+
+  private BlockingListener listener;
+
+  @Before
+  public void setUp() {
+    this.cache = new CacheFactory().set("mcast-port", "0").set("locators", "")
+        .set("log-level", "warning").create();
+    this.listener = new BlockingListener();
+  }
+
+  @After
+  public void tearDown() {
+    this.listener.release();
+    if (this.cache != null) {
+      this.cache.close();
+    }
+  }
+
+  @Test
+  public void testHotKeyUpdatesAreConflatedInQueue() throws Exception {
+    AsyncEventQueue queue = this.cache.createAsyncEventQueueFactory()
+        .setParallel(true).setBatchConflationEnabled(true)
+        .setBatchSize(KEYS * UPDATES * 2).setBatchTimeInterval(10)
+        .setDispatcherThreads(1).create("conflatedQueue", this.listener);
+    Region<String, Integer> region = this.cache
+        .<String, Integer> createRegionFactory(RegionShortcut.PARTITION)
+        .setPartitionAttributes(
+            new PartitionAttributesFactory().setTotalNumBuckets(1).create())
+        .addAsyncEventQueueId(queue.getId()).create("hot");
+
+    // the first batch blocks the dispatcher while the hot keys are updated
+    region.put("first", 0);
+    assertTrue(this.listener.blocked.await(30, TimeUnit.SECONDS));
+    for (int i = 1; i <= UPDATES; i++) {
+      for (int k = 0; k < KEYS; k++) {
+        region.put("key" + k, i);
+      }
+    }
+    this.listener.release();
+
+    long end = System.currentTimeMillis() + 30000;
+    while (queue.size() > 0 && System.currentTimeMillis() < end) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, queue.size());
+    // creates are not conflated, every key sends its create and latest update
+    assertEquals(1 + 2 * KEYS, this.listener.events.get());
+    for (int k = 0; k < KEYS; k++) {
+      assertEquals(Integer.valueOf(UPDATES), this.listener.getLastValue("key" + k));
+    }
+  }
+
+  /**
+   * Blocks in its first batch until released, and records the last value of
+   * every key it receives.
+   */
+  private static class BlockingListener implements AsyncEventListener {
+
+    final CountDownLatch blocked = new CountDownLatch(1);
+
+    final CountDownLatch released = new CountDownLatch(1);
+
+    final AtomicInteger events = new AtomicInteger();
+
+    private final Map<Object, Object> lastValues = new HashMap<Object, Object>();
+
+    public boolean processEvents(List<AsyncEvent> batch) {
+      synchronized (this.lastValues) {
+        for (AsyncEvent event : batch) {
+          this.lastValues.put(event.getKey(), event.getDeserializedValue());
+        }
+      }
+      this.events.addAndGet(batch.size());
+      this.blocked.countDown();
+      try {
+        this.released.await(30, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return true;
+    }
+
+    Object getLastValue(Object key) {
+      synchronized (this.lastValues) {
+        return this.lastValues.get(key);
+      }
+    }
+
+    void release() {
+      this.released.countDown();
+    }
+
+    public void close() {
+    }
+  }
+}
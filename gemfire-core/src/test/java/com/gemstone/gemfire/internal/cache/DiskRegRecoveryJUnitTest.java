@@ -1482,5 +1482,78 @@ public class DiskRegRecoveryJUnitTest extends DiskRegionTestingBase
   public void testVerifyStatsNoValues() {
     basicVerifyStats(false);
   }
-}
 
+  /**
+   * Tests that the krfs read ahead by the recovery threads recover the
+   * same entries as oplogs read by the recovering thread, with the entries
+   * of the latest oplog winning.
+   */
+  @Test
+  public void testConcurrentKrfRecovery() {
+    DiskStoreStats stats = recoverWithKrfReaders("testConcurrentKrfRecovery", null);
+    assertTrue(stats.getKrfPrefetches() > 0);
+  }
+
+  /**
+   * Tests that a krf larger than the read ahead limit is streamed by the
+   * recovering thread instead of being read into memory.
+   */
+  @Test
+  public void testKrfPrefetchBoundedByBytes() {
+    DiskStoreStats stats = recoverWithKrfReaders("testKrfPrefetchBoundedByBytes", "1");
+    assertEquals(0, stats.getKrfPrefetches());
+  }
+
+  private DiskStoreStats recoverWithKrfReaders(String regionName, String prefetchBytes) {
+    String oldValue = System.getProperty("gemfire.disk.RECOVERY_THREADS");
+    String oldBytes = System.getProperty("gemfire.disk.RECOVERY_PREFETCH_BYTES");
+    System.setProperty("gemfire.disk.RECOVERY_THREADS", "3");
+    if (prefetchBytes != null) {
+      System.setProperty("gemfire.disk.RECOVERY_PREFETCH_BYTES", prefetchBytes);
+    }
+    try {
+      diskProps.setDiskDirs(dirs);
+      diskProps.setPersistBackup(true);
+      diskProps.setRolling(false);
+      diskProps.setRegionName(regionName);
+      region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, diskProps, Scope.LOCAL);
+      for (int oplog = 0; oplog < 6; oplog++) {
+        for (int i = 0; i < 10; i++) {
+          region.put("key-" + i, "value-" + oplog);
+        }
+        region.put("only-" + oplog, "value-" + oplog);
+        if (oplog == 4) {
+          region.destroy("only-2");
+        }
+        region.forceRolling();
+      }
+      region.destroy("key-0");
+      region.close();
+
+      region = DiskRegionHelperFactory.getSyncPersistOnlyRegion(cache, diskProps, Scope.LOCAL);
+      assertEquals(14, region.size());
+      assertFalse(region.containsKey("key-0"));
+      assertFalse(region.containsKey("only-2"));
+      for (int i = 1; i < 10; i++) {
+        assertEquals("value-5", region.get("key-" + i));
+      }
+      for (int oplog = 0; oplog < 6; oplog++) {
+        if (oplog != 2) {
+          assertEquals("value-" + oplog, region.get("only-" + oplog));
+        }
+      }
+      return ((LocalRegion)region).getDiskStore().getStats();
+    } finally {
+      if (oldValue != null) {
+        System.setProperty("gemfire.disk.RECOVERY_THREADS", oldValue);
+      } else {
+        System.clearProperty("gemfire.disk.RECOVERY_THREADS");
+      }
+      if (oldBytes != null) {
+        System.setProperty("gemfire.disk.RECOVERY_PREFETCH_BYTES", oldBytes);
+      } else {
+        System.clearProperty("gemfire.disk.RECOVERY_PREFETCH_BYTES");
+      }
+    }
+  }
+}
@@ -83,6 +83,8 @@ public class DiskStoreFactoryJUnitTest
     assertEquals(DiskStoreFactory.DEFAULT_TIME_INTERVAL, ds.getTimeInterval());
     assertEquals(DiskStoreFactory.DEFAULT_WRITE_BUFFER_SIZE, ds.getWriteBufferSize());
     assertEquals(DiskStoreFactory.DEFAULT_QUEUE_SIZE, ds.getQueueSize());
+    assertEquals(DiskStoreFactory.DEFAULT_COMPACTION_THREADS, ds.getCompactionThreads());
+    assertEquals(DiskStoreFactory.DEFAULT_COMPACTION_MAX_BYTES_PER_SECOND, ds.getCompactionMaxBytesPerSecond());
     if (!Arrays.equals(DiskStoreFactory.DEFAULT_DISK_DIRS, ds.getDiskDirs())) {
       fail("expected=" + Arrays.toString(DiskStoreFactory.DEFAULT_DISK_DIRS)
            + " had=" + Arrays.toString(ds.getDiskDirs()));
@@ -141,6 +143,36 @@ public class DiskStoreFactoryJUnitTest
     }
   }
 
+  @Test
+  public void testCompactionThreads() {
+    DiskStoreFactory dsf = cache.createDiskStoreFactory();
+    String name = "testCompactionThreads";
+    DiskStore ds = dsf
+      .setCompactionThreads(4)
+      .setCompactionMaxBytesPerSecond(1024*1024)
+      .create(name);
+    assertEquals(4, ds.getCompactionThreads());
+    assertEquals(1024*1024, ds.getCompactionMaxBytesPerSecond());
+    ds.setCompactionMaxBytesPerSecond(0);
+    assertEquals(0, ds.getCompactionMaxBytesPerSecond());
+    // check illegal stuff
+    try {
+      dsf.setCompactionThreads(0);
+      fail("expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      dsf.setCompactionMaxBytesPerSecond(-1);
+      fail("expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      ds.setCompactionMaxBytesPerSecond(-1);
+      fail("expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
   @Test
   public void testQueueSize() {
     DiskStoreFactory dsf = cache.createDiskStoreFactory();
@@ -314,6 +346,48 @@ public class DiskStoreFactoryJUnitTest
     assertEquals(false, ds.forceCompaction());
   }
 
+  @Test
+  public void testConcurrentCompaction() throws Exception {
+    DiskStoreFactory dsf = cache.createDiskStoreFactory();
+    String name = "testConcurrentCompaction";
+    DiskStoreImpl ds = (DiskStoreImpl) dsf
+      .setMaxOplogSize(1)
+      .setCompactionThreads(2)
+      .setCompactionMaxBytesPerSecond(64*1024)
+      .create(name);
+    Region<Integer, byte[]> region = cache.<Integer, byte[]>createRegionFactory(RegionShortcut.LOCAL_PERSISTENT)
+      .setDiskStoreName(name)
+      .create("region");
+    byte[] value = new byte[10*1024];
+    for (int i = 0; i < 500; i++) {
+      region.put(i, value);
+    }
+    // leave a little live data in each oplog so that the compactions
+    // have something to copy forward
+    for (int i = 0; i < 500; i++) {
+      if (i % 10 != 0) {
+        region.destroy(i);
+      }
+    }
+    ds.forceRoll();
+
+    DiskStoreStats stats = ds.getStats();
+    long end = System.currentTimeMillis() + 60000;
+    while (ds.numCompactableOplogs() > 0 && System.currentTimeMillis() < end) {
+      Thread.sleep(100);
+    }
+    assertEquals(0, ds.numCompactableOplogs());
+    assertTrue(stats.getCompactionThrottleTime() > 0);
+    for (int i = 0; i < 500; i++) {
+      if (i % 10 == 0) {
+        assertEquals(value.length, region.get(i).length);
+      } else {
+        assertFalse(region.containsKey(i));
+      }
+    }
+    region.close();
+  }
+
   @Test
   public void testMissingInitFile() {
     DiskStoreFactory dsf = cache.createDiskStoreFactory();
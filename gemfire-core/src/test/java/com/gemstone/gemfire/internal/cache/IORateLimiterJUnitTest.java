@@ -0,0 +1,54 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+/**
+ * Tests the token bucket used to throttle oplog compaction.
+ */
+@Category(UnitTest.class)
+public class IORateLimiterJUnitTest {
+
+  @Test
+  public void testUnlimited() {
+    IORateLimiter limiter = new IORateLimiter(0);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(0, limiter.acquire(1024 * 1024));
+    }
+  }
+
+  @Test
+  public void testLimited() {
+    IORateLimiter limiter = new IORateLimiter(100 * 1024);
+    long start = System.nanoTime();
+    long waited = 0;
+    for (int i = 0; i < 5; i++) {
+      waited += limiter.acquire(10 * 1024);
+    }
+    long elapsed = System.nanoTime() - start;
+    // 50k at 100k per second takes at least half a second from an empty bucket
+    assertTrue("elapsed=" + elapsed, elapsed >= TimeUnit.MILLISECONDS.toNanos(450));
+    assertTrue("waited=" + waited, waited > 0);
+  }
+
+  @Test
+  public void testChangeRate() {
+    IORateLimiter limiter = new IORateLimiter(1);
+    limiter.setBytesPerSecond(0);
+    assertEquals(0, limiter.getBytesPerSecond());
+    assertEquals(0, limiter.acquire(1024 * 1024));
+  }
+}
@@ -0,0 +1,60 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.persistence.soplog;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+
+import junit.framework.TestCase;
+
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class LevelTrackerJUnitTest extends TestCase {
+  private File manifest;
+
+  public void testChangesAreRecorded() throws Exception {
+    LevelTracker tracker = new LevelTracker("test", manifest);
+    File f1 = tracker.getNextFilename();
+    File f2 = tracker.getNextFilename();
+    File f3 = tracker.getNextFilename();
+    tracker.fileAdded(f1, 0);
+    tracker.fileAdded(f2, 0);
+    tracker.fileAdded(f3, 0);
+    tracker.fileRemoved(f2, 0);
+
+    // recovered without closing the tracker, in the order added
+    SortedMap<Integer, ? extends Iterable<File>> levels = new LevelTracker("test", manifest).recover();
+    assertEquals(Arrays.asList(f1, f3), files(levels.get(0)));
+    assertFalse(new File(manifest.getPath() + ".tmp").exists());
+  }
+
+  @Override
+  public void setUp() {
+    manifest = new File("level-tracker-test.manifest");
+    manifest.delete();
+  }
+
+  @Override
+  public void tearDown() {
+    manifest.delete();
+  }
+
+  private static List<File> files(Iterable<File> recovered) {
+    List<File> files = new ArrayList<File>();
+    for (File f : recovered) {
+      files.add(f);
+    }
+    return files;
+  }
+}
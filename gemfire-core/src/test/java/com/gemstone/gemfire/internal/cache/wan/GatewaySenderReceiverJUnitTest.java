@@ -0,0 +1,213 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionFactory;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.cache.wan.GatewayReceiver;
+import com.gemstone.gemfire.cache.wan.GatewayReceiverFactory;
+import com.gemstone.gemfire.cache.wan.GatewaySender;
+import com.gemstone.gemfire.cache.wan.GatewaySenderFactory;
+import com.gemstone.gemfire.internal.AvailablePort;
+import com.gemstone.gemfire.internal.cache.RegionQueue;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+import com.gemstone.gemfire.test.process.ProcessWrapper;
+
+/**
+ * Tests a <code>GatewaySender</code> of a loner distributed system sending its
+ * events to a <code>GatewayReceiver</code> of this loner distributed system.
+ * The sender runs in another process, see {@link #main(String[])}.
+ */
+@Category(IntegrationTest.class)
+public class GatewaySenderReceiverJUnitTest {
+
+  private static final String REGION_NAME = "data";
+
+  private static final String SENDER_ID = "ln";
+
+  private static final String SENDER_DONE = "Sender queue is empty";
+
+  private static final int ENTRIES = 1000;
+
+  private static final int DESTROYS = 100;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Cache cache;
+
+  private ProcessWrapper sender;
+
+  @After
+  public void tearDown() throws Exception {
+    if (this.sender != null) {
+      this.sender.destroy();
+    }
+    if (this.cache != null) {
+      this.cache.close();
+    }
+  }
+
+  @Test
+  public void testSerialSender() throws Exception {
+    runSender(false, 1, false, false);
+  }
+
+  @Test
+  public void testSerialSenderWithDispatcherThreadsAndCompression()
+      throws Exception {
+    runSender(false, 3, true, false);
+  }
+
+  @Test
+  public void testSerialSenderWithAdaptiveDispatcherThreads() throws Exception {
+    runSender(false, 4, false, true);
+  }
+
+  @Test
+  public void testParallelSender() throws Exception {
+    runSender(true, 2, false, false);
+  }
+
+  @Test
+  public void testReceiverLifecycle() throws Exception {
+    this.cache = createCache(1);
+    GatewayReceiver receiver = createReceiver(this.cache, false);
+    assertTrue(receiver.isRunning());
+    assertTrue(receiver.getPort() > 0);
+    assertEquals(1, this.cache.getGatewayReceivers().size());
+    receiver.stop();
+    assertFalse(receiver.isRunning());
+    receiver.start();
+    assertTrue(receiver.isRunning());
+  }
+
+  /**
+   * Starts a receiver in this process and a sender in another one, and checks
+   * that the receiver applied all the events of the sender.
+   */
+  private void runSender(boolean parallel, int dispatcherThreads,
+      boolean compression, boolean adaptive) throws Exception {
+    this.cache = createCache(1);
+    this.cache.createRegionFactory(RegionShortcut.REPLICATE).create(
+        REGION_NAME);
+    GatewayReceiver receiver = createReceiver(this.cache, compression);
+
+    this.sender = new ProcessWrapper.Builder()
+        .mainClass(getClass())
+        .mainArguments(
+            new String[] { String.valueOf(parallel),
+                String.valueOf(dispatcherThreads),
+                String.valueOf(compression) })
+        .jvmArguments(
+            new String[] {
+                "-Dgemfire.GatewaySender." + SENDER_ID + ".RECEIVERS=localhost["
+                    + receiver.getPort() + "]",
+                "-Dgemfire.GatewaySender.ADAPTIVE_DISPATCHER_THREADS="
+                    + adaptive,
+                "-Dgemfire.GatewaySender.DISPATCHER_THREADS_ADJUST_INTERVAL=10" })
+        .useMainLauncher(false).build();
+    // the sender has its own working directory for the disk store of its queue
+    this.sender.execute(new Properties(), this.temporaryFolder.getRoot());
+    this.sender.waitForOutputToMatch(SENDER_DONE, 120000);
+
+    Region region = this.cache.getRegion(REGION_NAME);
+    assertEquals(ENTRIES - DESTROYS, region.size());
+    for (int i = 0; i < ENTRIES; i++) {
+      if (i < DESTROYS) {
+        assertNull(region.get("key" + i));
+      }
+      else {
+        assertEquals("value" + i + "-updated", region.get("key" + i));
+      }
+    }
+  }
+
+  private static Cache createCache(int distributedSystemId) {
+    return new CacheFactory().set("mcast-port", "0").set("locators", "")
+        .set("log-level", "warning")
+        .set("distributed-system-id", String.valueOf(distributedSystemId))
+        .create();
+  }
+
+  private static GatewayReceiver createReceiver(Cache cache,
+      boolean compression) {
+    int port = AvailablePort.getRandomAvailablePort(AvailablePort.SOCKET);
+    GatewayReceiverFactory factory = cache.createGatewayReceiverFactory()
+        .setStartPort(port).setEndPort(port).setBindAddress("localhost");
+    if (compression) {
+      factory.addGatewayTransportFilter(new CompressionGatewayTransportFilter());
+    }
+    return factory.create();
+  }
+
+  /**
+   * Creates a sender in a loner distributed system, puts, updates and
+   * destroys entries, and waits for the queue of the sender to be empty.
+   */
+  public static void main(String[] args) throws Exception {
+    boolean parallel = Boolean.parseBoolean(args[0]);
+    int dispatcherThreads = Integer.parseInt(args[1]);
+    boolean compression = Boolean.parseBoolean(args[2]);
+
+    Cache cache = createCache(2);
+    GatewaySenderFactory factory = cache.createGatewaySenderFactory()
+        .setParallel(parallel).setDispatcherThreads(dispatcherThreads)
+        .setBatchSize(50).setBatchTimeInterval(10);
+    if (compression) {
+      factory.addGatewayTransportFilter(new CompressionGatewayTransportFilter());
+    }
+    AbstractGatewaySender sender = (AbstractGatewaySender)factory.create(
+        SENDER_ID, 1);
+    RegionFactory<String, String> regionFactory = cache
+        .createRegionFactory(parallel ? RegionShortcut.PARTITION
+            : RegionShortcut.REPLICATE);
+    Region<String, String> region = regionFactory.addGatewaySenderId(SENDER_ID)
+        .create(REGION_NAME);
+    for (int i = 0; i < ENTRIES; i++) {
+      region.put("key" + i, "value" + i);
+    }
+    for (int i = 0; i < ENTRIES; i++) {
+      region.put("key" + i, "value" + i + "-updated");
+    }
+    for (int i = 0; i < DESTROYS; i++) {
+      region.destroy("key" + i);
+    }
+    long end = System.currentTimeMillis() + 60000;
+    while (queueSize(sender) > 0 && System.currentTimeMillis() < end) {
+      Thread.sleep(50);
+    }
+    System.out.println(queueSize(sender) == 0 ? SENDER_DONE
+        : "Sender queue still has " + queueSize(sender) + " events");
+    cache.close();
+  }
+
+  private static int queueSize(GatewaySender sender) {
+    int size = 0;
+    for (RegionQueue queue : ((AbstractGatewaySender)sender).getQueues()) {
+      size += queue.size();
+    }
+    return size;
+  }
+}
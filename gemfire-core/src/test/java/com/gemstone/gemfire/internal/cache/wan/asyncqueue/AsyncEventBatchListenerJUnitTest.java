@@ -0,0 +1,190 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan.asyncqueue;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.Operation;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.cache.asyncqueue.AsyncEvent;
+import com.gemstone.gemfire.cache.asyncqueue.AsyncEventBatch;
+import com.gemstone.gemfire.cache.asyncqueue.AsyncEventBatchListener;
+import com.gemstone.gemfire.cache.asyncqueue.AsyncEventQueue;
+import com.gemstone.gemfire.pdx.PdxInstance;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests the delivery of the batches of an <code>AsyncEventQueue</code> to an
+ * {@link AsyncEventBatchListener}.
+ */
+@Category(IntegrationTest.class)
+public class AsyncEventBatchListenerJUnitTest {
+
+  private Cache cache;
+
+  @Before
+  public void setUp() {
+    this.cache = new CacheFactory().set("mcast-port", "0")
+        .set("locators", "").set("log-level", "warning")
+        .set("off-heap-memory-size", "10m").create();
+  }
+
+  @After
+  public void tearDown() {
+    if (this.cache != null) {
+      this.cache.close();
+    }
+  }
+
+  @Test
+  public void testSerialQueue() throws Exception {
+    checkBatches(false);
+  }
+
+  @Test
+  public void testParallelQueue() throws Exception {
+    checkBatches(true);
+  }
+
+  @Test
+  public void testSerialQueueOffHeap() throws Exception {
+    checkBatches(false, true);
+  }
+
+  @Test
+  public void testParallelQueueOffHeap() throws Exception {
+    checkBatches(true, true);
+  }
+
+  private void checkBatches(boolean parallel) throws Exception {
+    checkBatches(parallel, false);
+  }
+
+  private void checkBatches(boolean parallel, boolean offHeap)
+      throws Exception {
+    ColumnListener listener = new ColumnListener();
+    AsyncEventQueue queue = this.cache.createAsyncEventQueueFactory()
+        .setParallel(parallel).setBatchSize(3).setBatchTimeInterval(10)
+        .create("batchQueue", listener);
+    Region<String, Object> region = this.cache
+        .<String, Object> createRegionFactory(
+            parallel ? RegionShortcut.PARTITION : RegionShortcut.REPLICATE)
+        .setOffHeap(offHeap).addAsyncEventQueueId(queue.getId())
+        .create("trades");
+
+    PdxInstance trade = this.cache.createPdxInstanceFactory("test.Trade")
+        .writeString("symbol", "ABC").writeInt("quantity", 7).create();
+    byte[] bytes = new byte[] { 1, 2, 3 };
+    region.put("trade", trade);
+    region.put("bytes", bytes);
+    region.destroy("bytes");
+
+    // the events of different keys may be dispatched in any order
+    Map<String, Row> rows = new HashMap<String, Row>();
+    while (rows.size() < 3) {
+      Row row = listener.rows.poll(30, TimeUnit.SECONDS);
+      if (row == null) {
+        fail("Only received " + rows.values());
+      }
+      rows.put(row.toString(), row);
+    }
+
+    Row created = rows.get("trade:" + Operation.CREATE);
+    assertEquals(region.getFullPath(), created.regionPath);
+    assertTrue(created.serializedObject);
+    assertEquals("ABC", created.pdx.getField("symbol"));
+    assertEquals(7, created.pdx.getField("quantity"));
+
+    Row raw = rows.get("bytes:" + Operation.CREATE);
+    assertFalse(raw.serializedObject);
+    assertArrayEquals(bytes, raw.value);
+    assertNull(raw.pdx);
+
+    Row destroyed = rows.get("bytes:" + Operation.DESTROY);
+    assertNull(destroyed.value);
+    assertNull(destroyed.pdx);
+
+    assertEquals(0, listener.processEventsCalls);
+  }
+
+  /**
+   * The columns of an event, copied while its batch was processed.
+   */
+  private static class Row {
+    Object key;
+    Operation operation;
+    String regionPath;
+    byte[] value;
+    boolean serializedObject;
+    PdxInstance pdx;
+
+    @Override
+    public String toString() {
+      return key + ":" + operation;
+    }
+  }
+
+  private static class ColumnListener implements AsyncEventBatchListener {
+
+    final BlockingQueue<Row> rows = new LinkedBlockingQueue<Row>();
+
+    volatile int processEventsCalls;
+
+    public boolean processBatch(AsyncEventBatch batch) {
+      Object[] keys = batch.getKeys();
+      Operation[] operations = batch.getOperations();
+      String[] regionPaths = batch.getRegionPaths();
+      assertEquals(batch.size(), batch.getEvents().size());
+      Row[] batchRows = new Row[batch.size()];
+      for (int i = 0; i < batch.size(); i++) {
+        Row row = new Row();
+        row.key = keys[i];
+        row.operation = operations[i];
+        row.regionPath = regionPaths[i];
+        // asked before the value column is read
+        row.serializedObject = batch.isSerializedObject(i);
+        row.pdx = batch.getPdxInstance(i);
+        batchRows[i] = row;
+      }
+      byte[][] values = batch.getSerializedValues();
+      for (int i = 0; i < batch.size(); i++) {
+        batchRows[i].value = values[i];
+        this.rows.add(batchRows[i]);
+      }
+      return true;
+    }
+
+    public boolean processEvents(List<AsyncEvent> events) {
+      this.processEventsCalls++;
+      return true;
+    }
+
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,256 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan.asyncqueue;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import com.gemstone.gemfire.OutOfOffHeapMemoryException;
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.cache.asyncqueue.AsyncEvent;
+import com.gemstone.gemfire.cache.asyncqueue.AsyncEventListener;
+import com.gemstone.gemfire.cache.asyncqueue.AsyncEventQueue;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.cache.wan.AbstractGatewaySender;
+import com.gemstone.gemfire.internal.offheap.MemoryAllocator;
+import com.gemstone.gemfire.internal.offheap.MemoryChunk;
+import com.gemstone.gemfire.internal.offheap.OffHeapMemoryStats;
+import com.gemstone.gemfire.internal.offheap.SimpleMemoryAllocatorImpl;
+import com.gemstone.gemfire.internal.offheap.SimpleMemoryAllocatorImpl.GemFireChunk;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests that the async event queues of a cache with off-heap memory keep the
+ * values of their events off-heap when
+ * {@link AbstractGatewaySender#OFF_HEAP_QUEUE_VALUES} is set.
+ */
+@Category(IntegrationTest.class)
+public class AsyncEventQueueOffHeapJUnitTest {
+
+  private static final int VALUE_SIZE = 1024;
+
+  @Rule
+  public TemporaryFolder diskDir = new TemporaryFolder();
+
+  private GemFireCacheImpl cache;
+
+  private BlockingListener listener;
+
+  @Before
+  public void setUp() {
+    AbstractGatewaySender.OFF_HEAP_QUEUE_VALUES = true;
+    this.cache = (GemFireCacheImpl)new CacheFactory().set("mcast-port", "0")
+        .set("locators", "").set("log-level", "warning")
+        .set("off-heap-memory-size", "10m").create();
+    this.listener = new BlockingListener();
+  }
+
+  @After
+  public void tearDown() {
+    AbstractGatewaySender.OFF_HEAP_QUEUE_VALUES = false;
+    this.listener.release();
+    if (this.cache != null) {
+      this.cache.close();
+    }
+    // do not reuse the memory fragmented by a test in the next one
+    SimpleMemoryAllocatorImpl.freeOffHeapMemory();
+  }
+
+  @Test
+  public void testSerialQueue() throws Exception {
+    AsyncEventQueue queue = this.cache.createAsyncEventQueueFactory()
+        .setBatchSize(10).setBatchTimeInterval(10).setDispatcherThreads(1)
+        .create("serialQueue", this.listener);
+    Region<Integer, byte[]> region = this.cache
+        .<Integer, byte[]> createRegionFactory(RegionShortcut.REPLICATE)
+        .addAsyncEventQueueId(queue.getId()).create("data");
+    checkValuesOffHeap(queue, region, 100, true);
+  }
+
+  @Test
+  public void testParallelQueue() throws Exception {
+    AsyncEventQueue queue = this.cache.createAsyncEventQueueFactory()
+        .setParallel(true).setBatchSize(10).setBatchTimeInterval(10)
+        .setDispatcherThreads(1).create("parallelQueue", this.listener);
+    Region<Integer, byte[]> region = this.cache
+        .<Integer, byte[]> createRegionFactory(RegionShortcut.PARTITION)
+        .addAsyncEventQueueId(queue.getId()).create("data");
+    checkValuesOffHeap(queue, region, 100, true);
+  }
+
+  @Test
+  public void testQueueOverflowsToDisk() throws Exception {
+    this.cache.createDiskStoreFactory()
+        .setDiskDirs(new File[] { this.diskDir.getRoot() })
+        .create("queueStore");
+    AsyncEventQueue queue = this.cache.createAsyncEventQueueFactory()
+        .setBatchSize(10).setBatchTimeInterval(10).setDispatcherThreads(1)
+        .setMaximumQueueMemory(1).setDiskStoreName("queueStore")
+        .create("overflowQueue", this.listener);
+    Region<Integer, byte[]> region = this.cache
+        .<Integer, byte[]> createRegionFactory(RegionShortcut.REPLICATE)
+        .addAsyncEventQueueId(queue.getId()).create("data");
+    checkValuesOffHeap(queue, region, 3000, false);
+  }
+
+  @Test
+  public void testValuesKeptOnHeapWhenOffHeapIsFragmented() throws Exception {
+    MemoryAllocator offHeap = this.cache.getOffHeapStore();
+    // fill the off-heap memory, without closing the cache when it is full,
+    // and free every other chunk so that no value fits in a free fragment
+    List<MemoryChunk> chunks = new ArrayList<MemoryChunk>();
+    try {
+      while (true) {
+        chunks.add(offHeap.allocateIfAvailable(64 * 1024, GemFireChunk.TYPE));
+      }
+    } catch (OutOfOffHeapMemoryException expected) {
+    }
+    try {
+      for (int i = 0; i < chunks.size(); i += 2) {
+        chunks.get(i).release();
+      }
+      assertTrue(offHeap.getFreeMemory() > 4 * 1024 * 1024);
+
+      AsyncEventQueue queue = this.cache.createAsyncEventQueueFactory()
+          .setBatchSize(10).setBatchTimeInterval(10).setDispatcherThreads(1)
+          .create("serialQueue", this.listener);
+      Region<Integer, byte[]> region = this.cache
+          .<Integer, byte[]> createRegionFactory(RegionShortcut.REPLICATE)
+          .addAsyncEventQueueId(queue.getId()).create("data");
+      this.listener.release();
+      byte[] value = new byte[512 * 1024];
+      for (int i = 0; i < 3; i++) {
+        value[0] = (byte)i;
+        region.put(i, value.clone());
+      }
+      long end = System.currentTimeMillis() + 30000;
+      while (this.listener.values.size() < 3
+          && System.currentTimeMillis() < end) {
+        Thread.sleep(10);
+      }
+      assertFalse(this.cache.isClosed());
+      assertEquals(3, this.listener.values.size());
+      for (int i = 0; i < 3; i++) {
+        assertEquals(i, this.listener.values.get(i)[0]);
+      }
+    } finally {
+      for (int i = 1; i < chunks.size(); i += 2) {
+        chunks.get(i).release();
+      }
+    }
+  }
+
+  private void checkValuesOffHeap(AsyncEventQueue queue,
+      Region<Integer, byte[]> region, int puts, boolean allQueuedOffHeap)
+      throws Exception {
+    OffHeapMemoryStats stats = this.cache.getOffHeapStore().getStats();
+    int objects = stats.getObjects();
+
+    // the first batch blocks the dispatcher while the others are queued
+    region.put(0, valueOf(0));
+    assertTrue(this.listener.blocked.await(30, TimeUnit.SECONDS));
+    for (int i = 1; i < puts; i++) {
+      region.put(i, valueOf(i));
+    }
+    // the peeked event stays queued until its batch is processed
+    int queuedOffHeap = stats.getObjects() - objects;
+    if (allQueuedOffHeap) {
+      assertEquals(puts, queuedOffHeap);
+    }
+    else {
+      // the values of the events overflowed to disk are released as the
+      // queue evicts them
+      long end = System.currentTimeMillis() + 30000;
+      while (queuedOffHeap == puts && System.currentTimeMillis() < end) {
+        Thread.sleep(10);
+        queuedOffHeap = stats.getObjects() - objects;
+      }
+      assertTrue("queued off-heap=" + queuedOffHeap, queuedOffHeap > 0
+          && queuedOffHeap < puts);
+    }
+
+    this.listener.release();
+    long end = System.currentTimeMillis() + 60000;
+    while ((queue.size() > 0 || this.listener.values.size() < puts)
+        && System.currentTimeMillis() < end) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, queue.size());
+    assertEquals(puts, this.listener.values.size());
+    for (int i = 0; i < puts; i++) {
+      assertArrayEquals(valueOf(i), this.listener.values.get(i));
+    }
+
+    // the values are released once the events are removed from the queue
+    end = System.currentTimeMillis() + 30000;
+    while (stats.getObjects() > objects && System.currentTimeMillis() < end) {
+      Thread.sleep(10);
+    }
+    assertEquals(objects, stats.getObjects());
+  }
+
+  private static byte[] valueOf(int i) {
+    byte[] value = new byte[VALUE_SIZE];
+    value[0] = (byte)i;
+    value[1] = (byte)(i >> 8);
+    return value;
+  }
+
+  /**
+   * Blocks in its first batch until released, and records the values it
+   * receives.
+   */
+  private static class BlockingListener implements AsyncEventListener {
+
+    final CountDownLatch blocked = new CountDownLatch(1);
+
+    final CountDownLatch released = new CountDownLatch(1);
+
+    final Map<Integer, byte[]> values = new ConcurrentHashMap<Integer, byte[]>();
+
+    public boolean processEvents(List<AsyncEvent> events) {
+      for (AsyncEvent event : events) {
+        this.values.put((Integer)event.getKey(),
+            (byte[])event.getDeserializedValue());
+      }
+      this.blocked.countDown();
+      try {
+        this.released.await(30, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return true;
+    }
+
+    void release() {
+      this.released.countDown();
+    }
+
+    public void close() {
+    }
+  }
+}
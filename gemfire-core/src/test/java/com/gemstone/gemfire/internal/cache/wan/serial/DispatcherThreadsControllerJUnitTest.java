@@ -0,0 +1,141 @@
+/*=========================================================================
+ * Copyright (c) 2010-2014 Pivotal Software, Inc. All Rights Reserved.
+ * This product is protected by U.S. and international copyright
+ * and intellectual property laws. Pivotal products are covered by
+ * one or more patents listed at http://www.pivotal.io/patents.
+ *=========================================================================
+ */
+package com.gemstone.gemfire.internal.cache.wan.serial;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+/**
+ * Tests how {@link DispatcherThreadsController} adjusts the batches the
+ * dispatcher threads may have in flight at the same time.
+ */
+@Category(UnitTest.class)
+public class DispatcherThreadsControllerJUnitTest {
+
+  private static final int BATCH_SIZE = 100;
+
+  private DispatcherThreadsController createController(int minSlots,
+      int maxSlots) {
+    return new DispatcherThreadsController("test", minSlots, maxSlots,
+        BATCH_SIZE, null, Long.MAX_VALUE);
+  }
+
+  @Test
+  public void testStartsAtFloor() {
+    DispatcherThreadsController controller = createController(2, 8);
+    assertEquals(2, controller.getActiveSlots());
+    assertEquals(2, controller.getMinSlots());
+    assertEquals(8, controller.getMaxSlots());
+  }
+
+  @Test
+  public void testShrinksToFloorWhenQueueIsSmall() throws Exception {
+    DispatcherThreadsController controller = createController(2, 8);
+    growToCeiling(controller);
+    controller.adjust(0, -1);
+    assertEquals(7, controller.getActiveSlots());
+    for (int i = 0; i < 10; i++) {
+      controller.adjust(0, -1);
+    }
+    assertEquals(2, controller.getActiveSlots());
+  }
+
+  @Test
+  public void testKeepsSlotsWhileQueueHoldsBatches() throws Exception {
+    DispatcherThreadsController controller = createController(1, 4);
+    growToCeiling(controller);
+    controller.adjust(2 * BATCH_SIZE, -1);
+    assertEquals(4, controller.getActiveSlots());
+  }
+
+  @Test
+  public void testGrowsToCeilingWhenThreadsWaitForBacklog() throws Exception {
+    DispatcherThreadsController controller = createController(1, 6);
+
+    // a backlog without contention does not need more slots
+    controller.adjust(10 * BATCH_SIZE, 10);
+    assertEquals(1, controller.getActiveSlots());
+
+    waitForSlot(controller);
+    controller.adjust(10 * BATCH_SIZE, 10);
+    assertEquals(2, controller.getActiveSlots());
+
+    waitForSlot(controller);
+    controller.adjust(10 * BATCH_SIZE, 12);
+    assertEquals(4, controller.getActiveSlots());
+
+    waitForSlot(controller);
+    controller.adjust(10 * BATCH_SIZE, 12);
+    assertEquals(6, controller.getActiveSlots());
+
+    waitForSlot(controller);
+    controller.adjust(10 * BATCH_SIZE, 12);
+    assertEquals(6, controller.getActiveSlots());
+  }
+
+  @Test
+  public void testShrinksWhenIncreaseSaturatesReceiver() throws Exception {
+    DispatcherThreadsController controller = createController(1, 8);
+    waitForSlot(controller);
+    controller.adjust(10 * BATCH_SIZE, 10);
+    assertEquals(2, controller.getActiveSlots());
+
+    // the batches got much slower with two slots
+    controller.adjust(10 * BATCH_SIZE, 20);
+    assertEquals(1, controller.getActiveSlots());
+  }
+
+  @Test
+  public void testLimitsBatchesInFlight() throws Exception {
+    DispatcherThreadsController controller = createController(1, 2);
+    growToCeiling(controller);
+    assertTrue(controller.tryAcquire(0));
+    assertTrue(controller.tryAcquire(0));
+    assertFalse(controller.tryAcquire(10));
+    controller.release();
+    assertTrue(controller.tryAcquire(0));
+    controller.release();
+    controller.release();
+
+    controller.adjust(0, -1);
+    assertEquals(1, controller.getActiveSlots());
+    assertTrue(controller.tryAcquire(0));
+    assertFalse(controller.tryAcquire(10));
+    controller.release();
+  }
+
+  private void growToCeiling(DispatcherThreadsController controller)
+      throws Exception {
+    while (controller.getActiveSlots() < controller.getMaxSlots()) {
+      waitForSlot(controller);
+      controller.adjust(100 * BATCH_SIZE, -1);
+    }
+  }
+
+  /**
+   * Takes all the slots of the controller and makes another dispatcher thread
+   * wait for one of them.
+   */
+  private void waitForSlot(DispatcherThreadsController controller)
+      throws Exception {
+    int slots = controller.getActiveSlots();
+    for (int i = 0; i < slots; i++) {
+      assertTrue(controller.tryAcquire(0));
+    }
+    assertFalse(controller.tryAcquire(1));
+    for (int i = 0; i < slots; i++) {
+      controller.release();
+    }
+  }
+}
@@ -342,4 +342,46 @@ public class SimpleMemoryAllocatorJUnitTest {
       SimpleMemoryAllocatorImpl.freeOffHeapMemory();
     }
   }
+
+  @Test
+  public void testAllocateIfAvailable() {
+    final int perObjectOverhead = com.gemstone.gemfire.internal.offheap.SimpleMemoryAllocatorImpl.Chunk.OFF_HEAP_HEADER_SIZE;
+    final int BIG_ALLOC_SIZE = 150000;
+    final int SMALL_ALLOC_SIZE = BIG_ALLOC_SIZE/2;
+    final int TOTAL_MEM = BIG_ALLOC_SIZE;
+    final UnsafeMemoryChunk slab = new UnsafeMemoryChunk(TOTAL_MEM);
+    final AtomicReference<OutOfOffHeapMemoryException> ooom = new AtomicReference<OutOfOffHeapMemoryException>();
+    final OutOfOffHeapMemoryListener oooml = new OutOfOffHeapMemoryListener() {
+      @Override
+      public void outOfOffHeapMemory(OutOfOffHeapMemoryException cause) {
+        ooom.set(cause);
+      }
+      @Override
+      public void close() {
+      }
+    };
+    try {
+      SimpleMemoryAllocatorImpl ma = SimpleMemoryAllocatorImpl.create(oooml, new NullOffHeapMemoryStats(), new UnsafeMemoryChunk[]{slab});
+      MemoryChunk bmc = ma.allocateIfAvailable(BIG_ALLOC_SIZE-perObjectOverhead, null);
+      // running out of memory is not reported to the listener
+      try {
+        ma.allocateIfAvailable(SMALL_ALLOC_SIZE-perObjectOverhead, null);
+        fail("Expected out of memory");
+      } catch (OutOfOffHeapMemoryException expected) {
+      }
+      try {
+        ma.allocateAndInitializeIfAvailable(new byte[SMALL_ALLOC_SIZE], false, false, null);
+        fail("Expected out of memory");
+      } catch (OutOfOffHeapMemoryException expected) {
+      }
+      assertNull(ooom.get());
+      // the memory is available again once released
+      bmc.release();
+      MemoryChunk smc = ma.allocateIfAvailable(SMALL_ALLOC_SIZE-perObjectOverhead, null);
+      assertTrue(smc.getSize() >= SMALL_ALLOC_SIZE-perObjectOverhead);
+      smc.release();
+    } finally {
+      SimpleMemoryAllocatorImpl.freeOffHeapMemory();
+    }
+  }
 }
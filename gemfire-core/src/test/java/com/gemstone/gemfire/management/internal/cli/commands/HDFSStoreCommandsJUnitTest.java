@@ -766,6 +766,8 @@ public class HDFSStoreCommandsJUnitTest {
         will(returnValue(2));
         allowing(mockStore).getBlockCacheSize();
         will(returnValue(blockCachesize));
+        allowing(mockStore).getBloomFilterFalsePositiveRate();
+        will(returnValue(HDFSStore.DEFAULT_BLOOM_FILTER_FALSE_POSITIVE_RATE));
         allowing(mockStore).getHDFSClientConfigFile();
         will(returnValue(clientConfigFile));
 
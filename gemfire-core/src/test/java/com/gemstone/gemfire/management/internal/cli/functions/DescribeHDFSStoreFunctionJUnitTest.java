@@ -30,6 +30,7 @@ import org.junit.experimental.categories.Category;
 import com.gemstone.gemfire.cache.Cache;
 import com.gemstone.gemfire.cache.execute.FunctionContext;
 import com.gemstone.gemfire.cache.execute.ResultSender;
+import com.gemstone.gemfire.cache.hdfs.HDFSStore;
 import com.gemstone.gemfire.cache.hdfs.internal.HDFSStoreConfigHolder;
 import com.gemstone.gemfire.cache.hdfs.internal.HDFSStoreImpl;
 import com.gemstone.gemfire.distributed.DistributedMember;
@@ -301,6 +302,8 @@ public class DescribeHDFSStoreFunctionJUnitTest {
         will(returnValue(minorCompact));
         oneOf(mockHdfsStore).getBlockCacheSize();
         will(returnValue(blockCachesize));
+        oneOf(mockHdfsStore).getBloomFilterFalsePositiveRate();
+        will(returnValue(HDFSStore.DEFAULT_BLOOM_FILTER_FALSE_POSITIVE_RATE));
         allowing(mockHdfsStore).getHDFSClientConfigFile();
         will(returnValue(clientConfigFile));
       }